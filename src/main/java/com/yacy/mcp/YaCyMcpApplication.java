@@ -1,29 +1,121 @@
 package com.yacy.mcp;
 
 import com.yacy.mcp.config.McpServerConfig;
+import com.yacy.mcp.server.McpDaemonProxy;
+import com.yacy.mcp.server.McpDaemonServer;
+import com.yacy.mcp.server.McpStdioServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.NativeDetector;
 import org.springframework.core.env.Environment;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
 @SpringBootApplication
 public class YaCyMcpApplication {
 
     private static final Logger log = LoggerFactory.getLogger(YaCyMcpApplication.class);
 
-    public static void main(String[] args) {
-        ApplicationContext context = SpringApplication.run(YaCyMcpApplication.class, args);
-        Environment env = context.getEnvironment();
+    /**
+     * How long a proxy waits for the daemon it started to bind the socket
+     */
+    private static final Duration DAEMON_START_TIMEOUT = Duration.ofSeconds(30);
+
+    public static void main(String[] args) throws IOException {
+        long startNanos = System.nanoTime();
 
         boolean mcpDisabled = System.getenv(McpServerConfig.ENV_DISABLE_MCP_STDIO) != null
                 && Boolean.parseBoolean(System.getenv(McpServerConfig.ENV_DISABLE_MCP_STDIO));
 
-        if (mcpDisabled) {
+        // Daemon mode: forward this session to the shared daemon, starting one if needed,
+        // and only fall back to serving it in-process when no daemon can be reached
+        boolean daemonServer = McpServerConfig.isDaemonServer();
+        if (!mcpDisabled && !daemonServer && McpServerConfig.isDaemonMode()) {
+            if (McpDaemonProxy.run(McpServerConfig.daemonSocket(), McpServerConfig.ENV_DAEMON_SERVER,
+                    DAEMON_START_TIMEOUT)) {
+                return;
+            }
+            log.warn("MCP daemon not reachable, serving this session in-process");
+        }
+
+        SpringApplication application = new SpringApplication(YaCyMcpApplication.class);
+
+        // A native image was AOT-processed with the fast and native profiles; activate the same
+        // profiles at runtime so their property files apply to the frozen bean definitions
+        boolean nativeImage = NativeDetector.inNativeImage();
+        if (nativeImage) {
+            application.setAdditionalProfiles(McpServerConfig.FAST_START_PROFILE, McpServerConfig.NATIVE_PROFILE);
+        }
+
+        // The daemon binds its socket before the context, so waiting proxies connect right away;
+        // it never reads its own stdin
+        McpDaemonServer daemon = null;
+        if (daemonServer) {
+            Path socket = McpServerConfig.daemonSocket();
+            daemon = McpDaemonServer.open(socket);
+            if (daemon == null) {
+                log.info("Another MCP daemon already serves {}", socket);
+                return;
+            }
+            daemon.start();
+            McpDaemonServer bound = daemon;
+            application.addInitializers(ctx -> ctx.getBeanFactory()
+                    .registerSingleton(McpServerConfig.DAEMON_SERVER_BEAN, bound));
+        }
+
+        // HTTP transport: a reactive web server next to stdio. The native image has no web stack,
+        // and fast start is skipped since it leaves the web autoconfiguration out
+        boolean httpTransport = McpServerConfig.isHttpTransport();
+        if (httpTransport && nativeImage) {
+            log.warn("The HTTP transport is not part of the native image; serving stdio only");
+            httpTransport = false;
+        } else if (httpTransport) {
+            application.setAdditionalProfiles(McpServerConfig.HTTP_PROFILE);
+        }
+
+        // Fast start: answer initialize from stdin while the context is still being built
+        McpStdioServer earlyServer = null;
+        if (nativeImage || (McpServerConfig.isFastStart() && !httpTransport)) {
+            if (!nativeImage) {
+                application.setAdditionalProfiles(McpServerConfig.FAST_START_PROFILE);
+            }
+            if (!mcpDisabled && !daemonServer) {
+                McpStdioServer server = new McpStdioServer();
+                server.start();
+                application.addInitializers(ctx -> ctx.getBeanFactory()
+                        .registerSingleton(McpServerConfig.EARLY_STDIO_SERVER_BEAN, server));
+                earlyServer = server;
+            }
+        }
+
+        ApplicationContext context;
+        try {
+            context = application.run(args);
+        } catch (RuntimeException e) {
+            if (earlyServer != null) {
+                earlyServer.failStartup(e);
+            }
+            if (daemon != null) {
+                daemon.failStartup(e);
+                daemon.stop();
+            }
+            throw e;
+        }
+        Environment env = context.getEnvironment();
+
+        if (daemon != null) {
+            log.info("YaCy MCP Service started - MCP daemon active on {} (context ready in {} ms)",
+                    daemon.getSocket(), (System.nanoTime() - startNanos) / 1_000_000);
+        } else if (mcpDisabled) {
             log.info("YaCy MCP Service - stdio mode disabled");
         } else {
-            log.info("YaCy MCP Service started - MCP stdio active on stdin/stdout");
+            log.info("YaCy MCP Service started - MCP stdio active on stdin/stdout (context ready in {} ms)",
+                    (System.nanoTime() - startNanos) / 1_000_000);
         }
     }
 }
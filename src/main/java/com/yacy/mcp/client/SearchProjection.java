@@ -0,0 +1,116 @@
+package com.yacy.mcp.client;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Which parts of a yacysearch.json result to keep, applied while the response is parsed:
+ * the item fields to return, the maximum length of an item's description, and an
+ * approximate byte budget for the whole result. Fields outside the projection are
+ * skipped in the token stream and never turned into nodes.
+ */
+public final class SearchProjection {
+
+    /**
+     * Item fields returned when the caller does not choose any
+     */
+    public static final List<String> DEFAULT_FIELDS = List.of("title", "link", "description", "pubDate", "size", "host");
+
+    /**
+     * Field list entry selecting every item field
+     */
+    public static final String ALL_FIELDS = "*";
+
+    private static final SearchProjection FULL = new SearchProjection(null, 0, 0);
+
+    private final Set<String> fields;
+    private final int descriptionMaxLength;
+    private final long maxBytes;
+
+    private SearchProjection(Set<String> fields, int descriptionMaxLength, long maxBytes) {
+        this.fields = fields;
+        this.descriptionMaxLength = descriptionMaxLength;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param fields item fields to keep; null, empty or containing "*" keeps all of them
+     * @param descriptionMaxLength maximum description length in characters, 0 for no limit
+     * @param maxBytes approximate size limit of the projected result, 0 for no limit
+     */
+    public static SearchProjection of(Collection<String> fields, int descriptionMaxLength, long maxBytes) {
+        Set<String> selected = null;
+        if (fields != null && !fields.isEmpty() && !fields.contains(ALL_FIELDS)) {
+            selected = new LinkedHashSet<>();
+            for (String field : fields) {
+                if (field != null && !field.isBlank()) {
+                    selected.add(field.trim());
+                }
+            }
+            if (selected.isEmpty()) {
+                selected = null;
+            }
+        }
+        return new SearchProjection(selected != null ? Set.copyOf(selected) : null,
+                Math.max(0, descriptionMaxLength), Math.max(0, maxBytes));
+    }
+
+    /**
+     * No projection: every field, untruncated, without a size limit
+     */
+    public static SearchProjection full() {
+        return FULL;
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public boolean includesAll() {
+        return fields == null;
+    }
+
+    /**
+     * Maximum length of a string field in characters, 0 for no limit
+     */
+    public int maxLength(String field) {
+        return "description".equals(field) ? descriptionMaxLength : 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Same fields and truncation with a different byte budget, 0 for no limit
+     */
+    public SearchProjection withMaxBytes(long maxBytes) {
+        return maxBytes == this.maxBytes ? this : new SearchProjection(fields, descriptionMaxLength, Math.max(0, maxBytes));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchProjection other)) {
+            return false;
+        }
+        return descriptionMaxLength == other.descriptionMaxLength && maxBytes == other.maxBytes
+                && Objects.equals(fields, other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fields, descriptionMaxLength, maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchProjection{fields=" + (fields != null ? fields : ALL_FIELDS)
+                + ", descriptionMaxLength=" + descriptionMaxLength + ", maxBytes=" + maxBytes + "}";
+    }
+}
@@ -0,0 +1,152 @@
+package com.yacy.mcp.client;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * Streaming reader for yacysearch.json that builds only the projected part of the tree.
+ * Item fields outside the projection are skipped token by token, so their strings are
+ * never decoded; descriptions are cut to the configured length; and once the byte budget
+ * is spent reading stops, the channel is marked "truncated" and the rest of the body is
+ * left unread. The parser must have an ObjectCodec (see ObjectMapper#createParser).
+ */
+final class SearchResultReader {
+
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    private static final String ELLIPSIS = "…";
+
+    private final JsonParser parser;
+    private final SearchProjection projection;
+    private final long maxBytes;
+    private long bytes;
+    private boolean budgetExhausted;
+
+    SearchResultReader(JsonParser parser, SearchProjection projection) {
+        this.parser = parser;
+        this.projection = projection;
+        this.maxBytes = projection.getMaxBytes() > 0 ? projection.getMaxBytes() : Long.MAX_VALUE;
+    }
+
+    /**
+     * True if reading stopped at the byte budget and the remaining input was not consumed
+     */
+    boolean isBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    /**
+     * Approximate size of the result built so far, in bytes of compact JSON
+     */
+    long getBytes() {
+        return bytes;
+    }
+
+    JsonNode read() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object, got " + parser.currentToken());
+        }
+        ObjectNode root = nodes.objectNode();
+        while (!budgetExhausted && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("channels".equals(name) && token == JsonToken.START_ARRAY) {
+                ArrayNode channels = root.putArray(name);
+                while (!budgetExhausted && parser.nextToken() == JsonToken.START_OBJECT) {
+                    channels.add(readChannel());
+                }
+            } else {
+                copyValue(root, name, token);
+            }
+        }
+        return root;
+    }
+
+    private ObjectNode readChannel() throws IOException {
+        ObjectNode channel = nodes.objectNode();
+        while (!budgetExhausted && parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("items".equals(name) && token == JsonToken.START_ARRAY) {
+                readItems(channel.putArray(name));
+                if (budgetExhausted) {
+                    channel.put("truncated", true);
+                }
+            } else {
+                copyValue(channel, name, token);
+            }
+        }
+        return channel;
+    }
+
+    private void readItems(ArrayNode items) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            long before = bytes;
+            ObjectNode item = readItem();
+            // The first item is always kept so that a small budget still returns something
+            if (bytes > maxBytes && !items.isEmpty()) {
+                bytes = before;
+                budgetExhausted = true;
+                return;
+            }
+            items.add(item);
+        }
+    }
+
+    private ObjectNode readItem() throws IOException {
+        ObjectNode item = nodes.objectNode();
+        bytes += 3;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (!projection.includes(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                String text = truncate(parser.getText(), projection.maxLength(name));
+                item.put(name, text);
+                bytes += name.length() + text.length() + 6;
+            } else {
+                JsonNode value = parser.readValueAsTree();
+                item.set(name, value);
+                bytes += name.length() + value.toString().length() + 4;
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Result and channel metadata: scalars are always kept, nested structures such as
+     * navigation facets only when every field was requested
+     */
+    private void copyValue(ObjectNode target, String name, JsonToken token) throws IOException {
+        if (token.isScalarValue() || projection.includesAll()) {
+            JsonNode value = parser.readValueAsTree();
+            target.set(name, value);
+            bytes += name.length() + value.toString().length() + 4;
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    private static String truncate(String text, int maxLength) {
+        if (maxLength <= 0 || text.length() <= maxLength) {
+            return text;
+        }
+        int end = Character.isHighSurrogate(text.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+        return text.substring(0, end) + ELLIPSIS;
+    }
+}
@@ -1,21 +1,25 @@
 package com.yacy.mcp.client;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yacy.mcp.config.YaCyConfig;
 import jakarta.annotation.PreDestroy;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -27,16 +31,18 @@ import java.util.Map;
 
 /**
  * Client for interacting with YaCy API
+ * The HTTP client is a lifecycle resource: Spring stops it before a CRaC checkpoint
+ * (no open sockets may survive into the image) and starts it again on restore.
  */
 @Component
-public class YaCyClient {
+public class YaCyClient implements SmartLifecycle {
 
     private static final Logger log = LoggerFactory.getLogger(YaCyClient.class);
 
     private final YaCyConfig config;
     private final ObjectMapper objectMapper;
-    private final CloseableHttpClient httpClient;
     private final RequestConfig requestConfig;
+    private volatile CloseableHttpClient httpClient;
 
     public YaCyClient(YaCyConfig config) {
         this.config = config;
@@ -48,16 +54,42 @@ public class YaCyClient {
             .setResponseTimeout(Timeout.ofMilliseconds(config.getSocketTimeout()))
             .build();
 
-        this.httpClient = HttpClients.custom()
+        this.httpClient = createHttpClient();
+    }
+
+    private CloseableHttpClient createHttpClient() {
+        return HttpClients.custom()
             .setDefaultRequestConfig(requestConfig)
             .build();
     }
 
+    /**
+     * Re-open the HTTP client after {@link #stop()}, e.g. when a CRaC checkpoint is restored
+     */
+    @Override
+    public synchronized void start() {
+        if (httpClient == null) {
+            httpClient = createHttpClient();
+            log.info("HTTP client re-opened");
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        cleanup();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return httpClient != null;
+    }
+
     @PreDestroy
-    public void cleanup() {
+    public synchronized void cleanup() {
         try {
             if (httpClient != null) {
                 httpClient.close();
+                httpClient = null;
                 log.info("HTTP client closed successfully");
             }
         } catch (IOException e) {
@@ -65,17 +97,67 @@ public class YaCyClient {
         }
     }
 
+    private CloseableHttpClient client() throws IOException {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            throw new IOException("YaCy HTTP client is stopped");
+        }
+        return client;
+    }
+
     /**
-     * Perform a search query on YaCy
+     * Perform a search query on YaCy, returning the complete result
      */
     public JsonNode search(String query, int count, int offset) throws IOException {
+        return search(query, count, offset, SearchProjection.full());
+    }
+
+    /**
+     * Perform a search query on YaCy, keeping only the projected part of the result.
+     * The response is parsed as it streams in; when the projection's byte budget is spent
+     * the request is cancelled instead of reading the rest of the body.
+     */
+    public JsonNode search(String query, int count, int offset, SearchProjection projection) throws IOException {
         String url = String.format("%s/yacysearch.json?query=%s&maximumRecords=%d&startRecord=%d",
                 config.getServerUrl(),
                 URLEncoder.encode(query, StandardCharsets.UTF_8),
                 count,
                 offset);
 
-        return executeGet(url);
+        HttpGet request = new HttpGet(url);
+        authorize(request);
+
+        try (CloseableHttpResponse response = client().execute(request)) {
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                throw new IOException("Empty search response (HTTP " + response.getCode() + ")");
+            }
+            JsonParser parser = objectMapper.createParser(entity.getContent());
+            SearchResultReader reader = new SearchResultReader(parser, projection);
+            JsonNode result = reader.read();
+            if (reader.isBudgetExhausted()) {
+                // Drop the connection rather than drain the remaining body just to reuse it
+                log.debug("Search result for '{}' cut at {} bytes", query, reader.getBytes());
+                request.cancel();
+            } else {
+                parser.close();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Projection for a search, falling back to the configured defaults for anything the caller left unset
+     *
+     * @param fields item fields to return, null for the configured default fields
+     * @param descriptionMaxLength description length limit, null for the configured default
+     */
+    public SearchProjection projection(List<String> fields, Integer descriptionMaxLength) {
+        YaCyConfig.Search defaults = config.getSearch();
+        return SearchProjection.of(
+                fields != null ? fields : defaults.getDefaultFields(),
+                descriptionMaxLength != null ? descriptionMaxLength : defaults.getDescriptionMaxLength(),
+                defaults.getMaxResponseBytes());
     }
 
     /**
@@ -241,17 +323,23 @@ public class YaCyClient {
         return executeGet(apiUrl);
     }
 
-    private JsonNode executeGet(String url) throws IOException {
-        HttpGet request = new HttpGet(url);
-
-        // Add authentication if configured
+    /**
+     * Add authentication if configured
+     */
+    private void authorize(HttpUriRequestBase request) {
         if (config.getUsername() != null && !config.getUsername().isEmpty()) {
             String auth = config.getUsername() + ":" + config.getPassword();
             String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
             request.setHeader("Authorization", "Basic " + encodedAuth);
         }
+    }
+
+    private JsonNode executeGet(String url) throws IOException {
+        HttpGet request = new HttpGet(url);
+
+        authorize(request);
 
-        try (CloseableHttpResponse response = httpClient.execute(request)) {
+        try (CloseableHttpResponse response = client().execute(request)) {
             String responseBody = EntityUtils.toString(response.getEntity());
             return objectMapper.readTree(responseBody);
         } catch (ParseException e) {
@@ -264,14 +352,9 @@ public class YaCyClient {
         request.setHeader("Content-Type", "application/json");
         request.setEntity(new StringEntity(jsonBody, StandardCharsets.UTF_8));
 
-        // Add authentication if configured
-        if (config.getUsername() != null && !config.getUsername().isEmpty()) {
-            String auth = config.getUsername() + ":" + config.getPassword();
-            String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes(StandardCharsets.UTF_8));
-            request.setHeader("Authorization", "Basic " + encodedAuth);
-        }
+        authorize(request);
 
-        try (CloseableHttpResponse response = httpClient.execute(request)) {
+        try (CloseableHttpResponse response = client().execute(request)) {
             String responseBody = EntityUtils.toString(response.getEntity());
             return objectMapper.readTree(responseBody);
         } catch (ParseException e) {
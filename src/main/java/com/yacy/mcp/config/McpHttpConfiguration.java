@@ -0,0 +1,49 @@
+package com.yacy.mcp.config;
+
+import com.yacy.mcp.server.McpHttpSessions;
+import com.yacy.mcp.server.McpHttpTransport;
+import com.yacy.mcp.service.McpService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HTTP transport next to stdio, present only when the http profile made this a reactive web
+ * application (see {@link McpServerConfig#isHttpTransport()}). Limits come from mcp.http.*.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class McpHttpConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public McpHttpTransport mcpHttpTransport(McpService mcpService, Environment environment, MeterRegistry meterRegistry) {
+        McpHttpSessions sessions = new McpHttpSessions(mcpService,
+                environment.getProperty("mcp.http.max-sessions", Integer.class, 256),
+                Duration.ofSeconds(environment.getProperty("mcp.http.session-idle-timeout-seconds", Long.class, 1800L)));
+        List<String> allowedOrigins = Arrays.stream(environment.getProperty("mcp.http.allowed-origins", "").split(","))
+                .map(String::trim)
+                .filter(origin -> !origin.isEmpty())
+                .toList();
+        McpHttpTransport transport = new McpHttpTransport(sessions, new McpHttpTransport.Limits(
+                environment.getProperty("mcp.http.max-concurrent-requests", Integer.class, 32),
+                environment.getProperty("mcp.http.max-queued-requests", Integer.class, 256),
+                environment.getProperty("mcp.http.sse-buffer-messages", Integer.class, 64),
+                Duration.ofSeconds(environment.getProperty("mcp.http.keep-alive-seconds", Long.class, 30L)),
+                allowedOrigins));
+        meterRegistry.gauge("mcp.http.sessions", transport, McpHttpTransport::getSessionCount);
+        return transport;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> mcpHttpRoutes(McpHttpTransport mcpHttpTransport) {
+        return mcpHttpTransport.routes();
+    }
+}
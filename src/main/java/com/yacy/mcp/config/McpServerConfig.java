@@ -1,16 +1,32 @@
 package com.yacy.mcp.config;
 
+import com.yacy.mcp.server.McpDaemonServer;
 import com.yacy.mcp.server.McpStdioServer;
 import com.yacy.mcp.service.McpService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.core.env.Environment;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the stdio transport. Never lazy: in fast-start mode everything else is,
+ * and this is what binds the MCP service to the already running stdio server,
+ * or to the socket of the shared daemon in daemon mode.
+ */
 @Configuration
+@Lazy(false)
 public class McpServerConfig {
 
     private static final Logger log = LoggerFactory.getLogger(McpServerConfig.class);
@@ -18,6 +34,21 @@ public class McpServerConfig {
     public static final String MODE_MCP = "mcp";
     public static final String ENV_MCP_MODE = "MCP_MODE";
     public static final String ENV_DISABLE_MCP_STDIO = "DISABLE_MCP_STDIO";
+    public static final String ENV_FAST_START = "MCP_FAST_START";
+    public static final String PROPERTY_FAST_START = "mcp.fast-start";
+    public static final String FAST_START_PROFILE = "fast";
+    public static final String NATIVE_PROFILE = "native";
+    public static final String HTTP_PROFILE = "http";
+    public static final String ENV_HTTP = "MCP_HTTP";
+    public static final String PROPERTY_HTTP = "mcp.http.enabled";
+    public static final String EARLY_STDIO_SERVER_BEAN = "earlyMcpStdioServer";
+    public static final String ENV_DAEMON = "MCP_DAEMON";
+    public static final String PROPERTY_DAEMON = "mcp.daemon.enabled";
+    public static final String ENV_DAEMON_SOCKET = "MCP_DAEMON_SOCKET";
+    public static final String PROPERTY_DAEMON_SOCKET = "mcp.daemon.socket";
+    /** Set by the launching proxy on the process it starts as the daemon */
+    public static final String ENV_DAEMON_SERVER = "MCP_DAEMON_SERVER";
+    public static final String DAEMON_SERVER_BEAN = "mcpDaemonServer";
 
     @Autowired
     private McpService mcpService;
@@ -25,21 +56,97 @@ public class McpServerConfig {
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    /**
+     * Stdio server started by main() before the context, present only in fast-start mode
+     */
+    @Autowired(required = false)
+    private McpStdioServer earlyStdioServer;
+
+    /**
+     * Daemon socket bound by main() before the context, present only in the daemon process
+     */
+    @Autowired(required = false)
+    private McpDaemonServer daemonServer;
+
     private McpStdioServer mcpServer;
     private boolean isMcpMode = false;
 
     @PostConstruct
     public void init() {
+        if (daemonServer != null) {
+            configureDaemon();
+            daemonServer.bindService(mcpService);
+            log.info("MCP service bound to daemon socket {}", daemonServer.getSocket());
+            return;
+        }
+
         isMcpMode = detectMcpMode();
 
-        if (isMcpMode) {
+        if (isMcpMode && earlyStdioServer != null) {
+            mcpServer = earlyStdioServer;
+            configureServer();
+            earlyStdioServer.bindService(mcpService);
+            log.info("MCP service bound to early stdio server");
+        } else if (isMcpMode) {
             log.info("Starting MCP stdio server...");
             startMcpServer();
+            configureServer();
         } else {
             log.debug("MCP stdio disabled");
         }
     }
 
+    /**
+     * Fast start is requested with MCP_FAST_START=true or -Dmcp.fast-start=true; it has to be
+     * known before the Environment exists, so it is not a regular configuration property.
+     */
+    public static boolean isFastStart() {
+        String value = System.getProperty(PROPERTY_FAST_START, System.getenv(ENV_FAST_START));
+        return value != null && Boolean.parseBoolean(value);
+    }
+
+    /**
+     * The HTTP transport is requested with MCP_HTTP=true or -Dmcp.http.enabled=true; it decides
+     * the web application type, so like fast start it is known before the Environment exists.
+     */
+    public static boolean isHttpTransport() {
+        String value = System.getProperty(PROPERTY_HTTP, System.getenv(ENV_HTTP));
+        return value != null && Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Daemon mode is requested with MCP_DAEMON=true or -Dmcp.daemon.enabled=true; like fast start
+     * it decides what main() does before the Environment exists.
+     */
+    public static boolean isDaemonMode() {
+        String value = System.getProperty(PROPERTY_DAEMON, System.getenv(ENV_DAEMON));
+        return value != null && Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Whether this process was started by a proxy to be the shared daemon
+     */
+    public static boolean isDaemonServer() {
+        return Boolean.parseBoolean(System.getenv(ENV_DAEMON_SERVER));
+    }
+
+    /**
+     * Socket of the shared daemon, by default ~/.yacy-mcp/daemon.sock
+     */
+    public static Path daemonSocket() {
+        String value = System.getProperty(PROPERTY_DAEMON_SOCKET, System.getenv(ENV_DAEMON_SOCKET));
+        if (value != null && !value.isBlank()) {
+            return Path.of(value);
+        }
+        return Path.of(System.getProperty("user.home"), ".yacy-mcp", "daemon.sock");
+    }
+
     private boolean detectMcpMode() {
         String disableEnv = System.getenv(ENV_DISABLE_MCP_STDIO);
         if (disableEnv != null && Boolean.parseBoolean(disableEnv)) {
@@ -80,11 +187,40 @@ public class McpServerConfig {
         }
     }
 
+    private void configureServer() {
+        McpStdioServer server = mcpServer;
+        // Exit with the client instead of lingering; also ends AppCDS training runs fed from a file
+        if (environment.getProperty("mcp.stdio.exit-on-eof", Boolean.class, false)) {
+            server.setOnInputClosed(() -> new Thread(() ->
+                    System.exit(SpringApplication.exit(applicationContext)), "mcp-stdio-exit").start());
+        }
+
+        TimeGauge.builder("mcp.startup.first.response", server, TimeUnit.MILLISECONDS,
+                        McpStdioServer::getTimeToFirstResponseMillis)
+                .description("Time from process start to the first JSON-RPC response on stdout")
+                .register(meterRegistry);
+    }
+
+    private void configureDaemon() {
+        // Nobody restarts a daemon that is no longer used; it goes away and the next launch starts one
+        long idleSeconds = environment.getProperty("mcp.daemon.idle-timeout-seconds", Long.class, 600L);
+        if (idleSeconds > 0) {
+            daemonServer.setIdleTimeout(Duration.ofSeconds(idleSeconds), () -> new Thread(() ->
+                    System.exit(SpringApplication.exit(applicationContext)), "mcp-daemon-exit").start());
+        }
+
+        McpDaemonServer server = daemonServer;
+        meterRegistry.gauge("mcp.daemon.sessions", server, McpDaemonServer::getSessionCount);
+    }
+
     @PreDestroy
     public void cleanup() {
         if (mcpServer != null) {
             mcpServer.stop();
         }
+        if (daemonServer != null) {
+            daemonServer.stop();
+        }
     }
 
     public boolean isMcpMode() {
@@ -0,0 +1,21 @@
+package com.yacy.mcp.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process meter registry for startup, cache and prefetch metrics.
+ * Replaced by the actuator-managed registry when one is on the classpath.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
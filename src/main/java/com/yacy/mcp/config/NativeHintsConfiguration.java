@@ -0,0 +1,51 @@
+package com.yacy.mcp.config;
+
+import com.yacy.mcp.model.McpToolCallRequest;
+import com.yacy.mcp.model.McpToolCallResponse;
+import com.yacy.mcp.model.McpToolDefinition;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * GraalVM native-image hints for what Spring's AOT processing cannot infer on its own:
+ * Jackson-bound MCP model classes, the SQLite JDBC driver and its bundled native library,
+ * and resources loaded reflectively by jOOQ and httpclient5.
+ * Has no effect on the regular JVM build.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfiguration.YaCyMcpRuntimeHints.class)
+public class NativeHintsConfiguration {
+
+    static class YaCyMcpRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // Serialized and deserialized by Jackson through getters, setters and builders
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                    McpToolCallRequest.class, McpToolCallResponse.class, McpToolDefinition.class);
+
+            // DriverManagerDataSource loads the driver by name
+            hints.reflection().registerType(TypeReference.of("org.sqlite.JDBC"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.resources().registerPattern("sqlite-jdbc.properties");
+            hints.resources().registerPattern("org/sqlite/native/Linux/*/libsqlitejdbc.so");
+            hints.resources().registerPattern("org/sqlite/native/Linux-Musl/*/libsqlitejdbc.so");
+            hints.resources().registerPattern("org/sqlite/native/Mac/*/libsqlitejdbc.dylib");
+            hints.resources().registerPattern("org/sqlite/native/Windows/*/sqlitejdbc.dll");
+
+            // jOOQ reads its default settings and version information from the classpath
+            hints.resources().registerPattern("jooq-settings.xml");
+            hints.resources().registerPattern("org/jooq/xsd/*.xsd");
+            hints.reflection().registerType(TypeReference.of("org.jooq.conf.Settings"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS);
+
+            // Cookie handling in httpclient5 loads the public suffix list on first use
+            hints.resources().registerPattern("mozilla/public-suffix-list.txt");
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.yacy.mcp.config;
 
+import com.yacy.mcp.client.SearchProjection;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration properties for YaCy connection
  * Supports environment variable YACY_API_URL for server URL
@@ -56,6 +60,26 @@ public class YaCyConfig {
      */
     private int socketTimeout = 30000;
 
+    /**
+     * Defaults for trimming yacy_search results
+     */
+    private Search search = new Search();
+
+    /**
+     * On-disk cache for yacy_get_document
+     */
+    private Documents documents = new Documents();
+
+    /**
+     * Crawl submission limits and job queue settings
+     */
+    private Crawl crawl = new Crawl();
+
+    /**
+     * Retention and rollups of search and crawl history
+     */
+    private History history = new History();
+
     /**
      * Initialize configuration - check environment variables
      */
@@ -120,4 +144,756 @@ public class YaCyConfig {
     public void setSocketTimeout(int socketTimeout) {
         this.socketTimeout = socketTimeout;
     }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
+    public Documents getDocuments() {
+        return documents;
+    }
+
+    public void setDocuments(Documents documents) {
+        this.documents = documents;
+    }
+
+    public Crawl getCrawl() {
+        return crawl;
+    }
+
+    public void setCrawl(Crawl crawl) {
+        this.crawl = crawl;
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    public void setHistory(History history) {
+        this.history = history;
+    }
+
+    /**
+     * Search result trimming (yacy.search.*)
+     */
+    public static class Search {
+
+        /**
+         * Item fields returned when a call does not pass "fields"; "*" returns all of them
+         */
+        private List<String> defaultFields = new ArrayList<>(SearchProjection.DEFAULT_FIELDS);
+
+        /**
+         * Maximum description length in characters, 0 for no limit
+         */
+        private int descriptionMaxLength = 300;
+
+        /**
+         * Approximate size limit of one search result in bytes, 0 for no limit
+         */
+        private long maxResponseBytes = 64 * 1024;
+
+        /**
+         * Result pages fetched in one YaCy request when a cursor asks for the next page
+         */
+        private int cursorWindowPages = 5;
+
+        /**
+         * Seconds an unused cursor snapshot is kept
+         */
+        private int cursorTtlSeconds = 300;
+
+        /**
+         * Maximum number of cursor snapshots held in memory
+         */
+        private int cursorMaxSnapshots = 256;
+
+        /**
+         * Fetch the next result window in the background for queries that are usually paged
+         */
+        private boolean prefetchEnabled = true;
+
+        /**
+         * Maximum number of background prefetches running at once
+         */
+        private int prefetchMaxInFlight = 4;
+
+        /**
+         * Share of a query's first pages that must have been followed by a next page before it is prefetched
+         */
+        private double prefetchMinFollowRate = 0.5;
+
+        /**
+         * Persistent second-level cache of search responses (yacy.search.cache.*)
+         */
+        private Cache cache = new Cache();
+
+        /**
+         * In-memory search analytics behind yacy_search_analytics (yacy.search.analytics.*)
+         */
+        private Analytics analytics = new Analytics();
+
+        /**
+         * Query completion for yacy_suggest (yacy.search.suggest.*)
+         */
+        private Suggest suggest = new Suggest();
+
+        public List<String> getDefaultFields() {
+            return defaultFields;
+        }
+
+        public void setDefaultFields(List<String> defaultFields) {
+            this.defaultFields = defaultFields;
+        }
+
+        public int getDescriptionMaxLength() {
+            return descriptionMaxLength;
+        }
+
+        public void setDescriptionMaxLength(int descriptionMaxLength) {
+            this.descriptionMaxLength = descriptionMaxLength;
+        }
+
+        public long getMaxResponseBytes() {
+            return maxResponseBytes;
+        }
+
+        public void setMaxResponseBytes(long maxResponseBytes) {
+            this.maxResponseBytes = maxResponseBytes;
+        }
+
+        public int getCursorWindowPages() {
+            return cursorWindowPages;
+        }
+
+        public void setCursorWindowPages(int cursorWindowPages) {
+            this.cursorWindowPages = cursorWindowPages;
+        }
+
+        public int getCursorTtlSeconds() {
+            return cursorTtlSeconds;
+        }
+
+        public void setCursorTtlSeconds(int cursorTtlSeconds) {
+            this.cursorTtlSeconds = cursorTtlSeconds;
+        }
+
+        public int getCursorMaxSnapshots() {
+            return cursorMaxSnapshots;
+        }
+
+        public void setCursorMaxSnapshots(int cursorMaxSnapshots) {
+            this.cursorMaxSnapshots = cursorMaxSnapshots;
+        }
+
+        public boolean isPrefetchEnabled() {
+            return prefetchEnabled;
+        }
+
+        public void setPrefetchEnabled(boolean prefetchEnabled) {
+            this.prefetchEnabled = prefetchEnabled;
+        }
+
+        public int getPrefetchMaxInFlight() {
+            return prefetchMaxInFlight;
+        }
+
+        public void setPrefetchMaxInFlight(int prefetchMaxInFlight) {
+            this.prefetchMaxInFlight = prefetchMaxInFlight;
+        }
+
+        public double getPrefetchMinFollowRate() {
+            return prefetchMinFollowRate;
+        }
+
+        public void setPrefetchMinFollowRate(double prefetchMinFollowRate) {
+            this.prefetchMinFollowRate = prefetchMinFollowRate;
+        }
+
+        public Cache getCache() {
+            return cache;
+        }
+
+        public void setCache(Cache cache) {
+            this.cache = cache;
+        }
+
+        public Analytics getAnalytics() {
+            return analytics;
+        }
+
+        public void setAnalytics(Analytics analytics) {
+            this.analytics = analytics;
+        }
+
+        public Suggest getSuggest() {
+            return suggest;
+        }
+
+        public void setSuggest(Suggest suggest) {
+            this.suggest = suggest;
+        }
+    }
+
+    /**
+     * SQLite search response cache (yacy.search.cache.*)
+     */
+    public static class Cache {
+
+        /**
+         * Keep compressed search responses in the search_cache table across restarts
+         */
+        private boolean enabled = true;
+
+        /**
+         * Seconds a cached response stays valid
+         */
+        private int ttlSeconds = 3600;
+
+        /**
+         * Total compressed size the compactor trims the cache to, least recently used first
+         */
+        private long maxBytes = 64L * 1024 * 1024;
+
+        /**
+         * Seconds between compactor runs
+         */
+        private int compactIntervalSeconds = 300;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getTtlSeconds() {
+            return ttlSeconds;
+        }
+
+        public void setTtlSeconds(int ttlSeconds) {
+            this.ttlSeconds = ttlSeconds;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getCompactIntervalSeconds() {
+            return compactIntervalSeconds;
+        }
+
+        public void setCompactIntervalSeconds(int compactIntervalSeconds) {
+            this.compactIntervalSeconds = compactIntervalSeconds;
+        }
+    }
+
+    /**
+     * Search analytics aggregates (yacy.search.analytics.*)
+     */
+    public static class Analytics {
+
+        /**
+         * Hours of hourly aggregates kept; the longest window yacy_search_analytics can report on
+         */
+        private int windowHours = 168;
+
+        /**
+         * Candidate queries tracked per hour for each of the top, zero-result and slowest lists
+         */
+        private int trackedQueries = 100;
+
+        /**
+         * Seconds between checkpoints of the aggregates to the search_analytics table
+         */
+        private int checkpointIntervalSeconds = 60;
+
+        public int getWindowHours() {
+            return windowHours;
+        }
+
+        public void setWindowHours(int windowHours) {
+            this.windowHours = windowHours;
+        }
+
+        public int getTrackedQueries() {
+            return trackedQueries;
+        }
+
+        public void setTrackedQueries(int trackedQueries) {
+            this.trackedQueries = trackedQueries;
+        }
+
+        public int getCheckpointIntervalSeconds() {
+            return checkpointIntervalSeconds;
+        }
+
+        public void setCheckpointIntervalSeconds(int checkpointIntervalSeconds) {
+            this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+        }
+    }
+
+    /**
+     * In-memory completion index of past queries (yacy.search.suggest.*)
+     */
+    public static class Suggest {
+
+        /**
+         * Distinct queries kept; the least weighted are dropped beyond this
+         */
+        private int maxQueries = 50000;
+
+        /**
+         * Hours after which a search counts half as much for ranking
+         */
+        private int halfLifeHours = 168;
+
+        /**
+         * Days of search_history loaded into the index at startup
+         */
+        private int historyDays = 30;
+
+        public int getMaxQueries() {
+            return maxQueries;
+        }
+
+        public void setMaxQueries(int maxQueries) {
+            this.maxQueries = maxQueries;
+        }
+
+        public int getHalfLifeHours() {
+            return halfLifeHours;
+        }
+
+        public void setHalfLifeHours(int halfLifeHours) {
+            this.halfLifeHours = halfLifeHours;
+        }
+
+        public int getHistoryDays() {
+            return historyDays;
+        }
+
+        public void setHistoryDays(int historyDays) {
+            this.historyDays = historyDays;
+        }
+    }
+
+    /**
+     * Memory-mapped yacy_get_document cache (yacy.documents.*)
+     */
+    public static class Documents {
+
+        /**
+         * Serve repeated document lookups from the segment file instead of querying YaCy
+         */
+        private boolean cacheEnabled = true;
+
+        /**
+         * Segment file; empty means documents.seg in ~/.yacy-mcp
+         */
+        private String cacheFile = "";
+
+        /**
+         * Seconds a cached document stays valid
+         */
+        private int cacheTtlSeconds = 3600;
+
+        /**
+         * Size of the segment file; when it is full, compaction drops expired and then the oldest documents
+         */
+        private long cacheMaxBytes = 128L * 1024 * 1024;
+
+        public boolean isCacheEnabled() {
+            return cacheEnabled;
+        }
+
+        public void setCacheEnabled(boolean cacheEnabled) {
+            this.cacheEnabled = cacheEnabled;
+        }
+
+        public String getCacheFile() {
+            return cacheFile;
+        }
+
+        public void setCacheFile(String cacheFile) {
+            this.cacheFile = cacheFile;
+        }
+
+        public int getCacheTtlSeconds() {
+            return cacheTtlSeconds;
+        }
+
+        public void setCacheTtlSeconds(int cacheTtlSeconds) {
+            this.cacheTtlSeconds = cacheTtlSeconds;
+        }
+
+        public long getCacheMaxBytes() {
+            return cacheMaxBytes;
+        }
+
+        public void setCacheMaxBytes(long cacheMaxBytes) {
+            this.cacheMaxBytes = cacheMaxBytes;
+        }
+    }
+
+    /**
+     * Crawl batches and the crawl job queue (yacy.crawl.*)
+     */
+    public static class Crawl {
+
+        /**
+         * Most URLs accepted by one batch call
+         */
+        private int batchMaxUrls = 500;
+
+        /**
+         * URLs submitted within this many hours are skipped as duplicates
+         */
+        private int dedupWindowHours = 24;
+
+        /**
+         * Crawl starts per second sent to YaCy for one host
+         */
+        private double hostRatePerSecond = 1.0;
+
+        /**
+         * Crawl starts one host may receive at once before hostRatePerSecond applies
+         */
+        private int hostBurst = 2;
+
+        /**
+         * Crawl starts per second sent to YaCy across all hosts
+         */
+        private double globalRatePerSecond = 5.0;
+
+        /**
+         * Crawl starts sent at once before globalRatePerSecond applies
+         */
+        private int globalBurst = 10;
+
+        /**
+         * Hosts of a batch submitted concurrently
+         */
+        private int batchParallelism = 4;
+
+        /**
+         * Crawl jobs submitted to YaCy at the same time
+         */
+        private int jobConcurrency = 2;
+
+        /**
+         * Submission attempts before a crawl job fails
+         */
+        private int jobMaxAttempts = 5;
+
+        /**
+         * Delay before the first retry; it doubles with every further attempt
+         */
+        private int jobRetryBaseSeconds = 10;
+
+        /**
+         * Upper bound on the retry delay
+         */
+        private int jobRetryMaxSeconds = 600;
+
+        /**
+         * Seconds between checks for due crawl jobs
+         */
+        private int jobPollIntervalSeconds = 5;
+
+        /**
+         * Seconds between index checks of a running crawl job
+         */
+        private int jobStatusCheckSeconds = 30;
+
+        /**
+         * A running crawl job fails if its URL is not indexed within this many minutes
+         */
+        private int jobTimeoutMinutes = 60;
+
+        /**
+         * Seconds a claimed crawl job is left to its worker before any process may pick it up again
+         */
+        private int jobLeaseSeconds = 300;
+
+        public int getBatchMaxUrls() {
+            return batchMaxUrls;
+        }
+
+        public void setBatchMaxUrls(int batchMaxUrls) {
+            this.batchMaxUrls = batchMaxUrls;
+        }
+
+        public int getDedupWindowHours() {
+            return dedupWindowHours;
+        }
+
+        public void setDedupWindowHours(int dedupWindowHours) {
+            this.dedupWindowHours = dedupWindowHours;
+        }
+
+        public double getHostRatePerSecond() {
+            return hostRatePerSecond;
+        }
+
+        public void setHostRatePerSecond(double hostRatePerSecond) {
+            this.hostRatePerSecond = hostRatePerSecond;
+        }
+
+        public int getHostBurst() {
+            return hostBurst;
+        }
+
+        public void setHostBurst(int hostBurst) {
+            this.hostBurst = hostBurst;
+        }
+
+        public double getGlobalRatePerSecond() {
+            return globalRatePerSecond;
+        }
+
+        public void setGlobalRatePerSecond(double globalRatePerSecond) {
+            this.globalRatePerSecond = globalRatePerSecond;
+        }
+
+        public int getGlobalBurst() {
+            return globalBurst;
+        }
+
+        public void setGlobalBurst(int globalBurst) {
+            this.globalBurst = globalBurst;
+        }
+
+        public int getBatchParallelism() {
+            return batchParallelism;
+        }
+
+        public void setBatchParallelism(int batchParallelism) {
+            this.batchParallelism = batchParallelism;
+        }
+
+        public int getJobConcurrency() {
+            return jobConcurrency;
+        }
+
+        public void setJobConcurrency(int jobConcurrency) {
+            this.jobConcurrency = jobConcurrency;
+        }
+
+        public int getJobMaxAttempts() {
+            return jobMaxAttempts;
+        }
+
+        public void setJobMaxAttempts(int jobMaxAttempts) {
+            this.jobMaxAttempts = jobMaxAttempts;
+        }
+
+        public int getJobRetryBaseSeconds() {
+            return jobRetryBaseSeconds;
+        }
+
+        public void setJobRetryBaseSeconds(int jobRetryBaseSeconds) {
+            this.jobRetryBaseSeconds = jobRetryBaseSeconds;
+        }
+
+        public int getJobRetryMaxSeconds() {
+            return jobRetryMaxSeconds;
+        }
+
+        public void setJobRetryMaxSeconds(int jobRetryMaxSeconds) {
+            this.jobRetryMaxSeconds = jobRetryMaxSeconds;
+        }
+
+        public int getJobPollIntervalSeconds() {
+            return jobPollIntervalSeconds;
+        }
+
+        public void setJobPollIntervalSeconds(int jobPollIntervalSeconds) {
+            this.jobPollIntervalSeconds = jobPollIntervalSeconds;
+        }
+
+        public int getJobStatusCheckSeconds() {
+            return jobStatusCheckSeconds;
+        }
+
+        public void setJobStatusCheckSeconds(int jobStatusCheckSeconds) {
+            this.jobStatusCheckSeconds = jobStatusCheckSeconds;
+        }
+
+        public int getJobTimeoutMinutes() {
+            return jobTimeoutMinutes;
+        }
+
+        public void setJobTimeoutMinutes(int jobTimeoutMinutes) {
+            this.jobTimeoutMinutes = jobTimeoutMinutes;
+        }
+
+        public int getJobLeaseSeconds() {
+            return jobLeaseSeconds;
+        }
+
+        public void setJobLeaseSeconds(int jobLeaseSeconds) {
+            this.jobLeaseSeconds = jobLeaseSeconds;
+        }
+    }
+
+    /**
+     * History store, retention, rollups and vacuum (yacy.history.*)
+     */
+    public static class History {
+
+        /**
+         * Run the retention job at all
+         */
+        private boolean retentionEnabled = true;
+
+        /**
+         * Minutes between retention runs
+         */
+        private int retentionIntervalMinutes = 60;
+
+        /**
+         * Days raw search_history and crawl_history rows are kept once rolled up;
+         * crawl rows are kept at least as long as the crawl dedup window
+         */
+        private int rawRetentionDays = 30;
+
+        /**
+         * Days hourly rollups are kept; daily rollups are kept forever
+         */
+        private int hourlyRetentionDays = 90;
+
+        /**
+         * Rows removed per delete statement
+         */
+        private int deleteBatchSize = 500;
+
+        /**
+         * Free pages returned to the file system per run by incremental vacuum
+         */
+        private int vacuumPages = 2000;
+
+        /**
+         * Where search and crawl history is written: "sqlite" inserts into the database directly,
+         * "log" appends to per-process segment files that are imported into the database in the background
+         */
+        private String store = "sqlite";
+
+        /**
+         * Segment directory of the log store; empty means history-log in ~/.yacy-mcp
+         */
+        private String logDirectory = "";
+
+        /**
+         * Milliseconds records are collected before they are written and synced as one group
+         */
+        private int logGroupCommitMillis = 10;
+
+        /**
+         * Size at which a segment is sealed and a new one started
+         */
+        private long logSegmentMaxBytes = 4L * 1024 * 1024;
+
+        /**
+         * Seconds between imports of sealed segments; segments are also sealed after this long
+         */
+        private int logCompactIntervalSeconds = 30;
+
+        public boolean isRetentionEnabled() {
+            return retentionEnabled;
+        }
+
+        public void setRetentionEnabled(boolean retentionEnabled) {
+            this.retentionEnabled = retentionEnabled;
+        }
+
+        public int getRetentionIntervalMinutes() {
+            return retentionIntervalMinutes;
+        }
+
+        public void setRetentionIntervalMinutes(int retentionIntervalMinutes) {
+            this.retentionIntervalMinutes = retentionIntervalMinutes;
+        }
+
+        public int getRawRetentionDays() {
+            return rawRetentionDays;
+        }
+
+        public void setRawRetentionDays(int rawRetentionDays) {
+            this.rawRetentionDays = rawRetentionDays;
+        }
+
+        public int getHourlyRetentionDays() {
+            return hourlyRetentionDays;
+        }
+
+        public void setHourlyRetentionDays(int hourlyRetentionDays) {
+            this.hourlyRetentionDays = hourlyRetentionDays;
+        }
+
+        public int getDeleteBatchSize() {
+            return deleteBatchSize;
+        }
+
+        public void setDeleteBatchSize(int deleteBatchSize) {
+            this.deleteBatchSize = deleteBatchSize;
+        }
+
+        public int getVacuumPages() {
+            return vacuumPages;
+        }
+
+        public void setVacuumPages(int vacuumPages) {
+            this.vacuumPages = vacuumPages;
+        }
+
+        public String getStore() {
+            return store;
+        }
+
+        public void setStore(String store) {
+            this.store = store;
+        }
+
+        public String getLogDirectory() {
+            return logDirectory;
+        }
+
+        public void setLogDirectory(String logDirectory) {
+            this.logDirectory = logDirectory;
+        }
+
+        public int getLogGroupCommitMillis() {
+            return logGroupCommitMillis;
+        }
+
+        public void setLogGroupCommitMillis(int logGroupCommitMillis) {
+            this.logGroupCommitMillis = logGroupCommitMillis;
+        }
+
+        public long getLogSegmentMaxBytes() {
+            return logSegmentMaxBytes;
+        }
+
+        public void setLogSegmentMaxBytes(long logSegmentMaxBytes) {
+            this.logSegmentMaxBytes = logSegmentMaxBytes;
+        }
+
+        public int getLogCompactIntervalSeconds() {
+            return logCompactIntervalSeconds;
+        }
+
+        public void setLogCompactIntervalSeconds(int logCompactIntervalSeconds) {
+            this.logCompactIntervalSeconds = logCompactIntervalSeconds;
+        }
+    }
 }
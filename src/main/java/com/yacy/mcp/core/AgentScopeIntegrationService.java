@@ -11,6 +11,8 @@ import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -23,6 +25,8 @@ import java.util.Optional;
  * 桥接两个框架，实现功能复用
  */
 @Service
+@Lazy
+@ConditionalOnProperty(prefix = "yacy.agentscope", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class AgentScopeIntegrationService {
 
     private static final Logger log = LoggerFactory.getLogger(AgentScopeIntegrationService.class);
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.util.Optional;
 
@@ -17,6 +18,7 @@ import java.util.Optional;
  * 整合 Spring AI Alibaba 和 AgentScope-Java 的配置
  */
 @Configuration
+@ConditionalOnProperty(prefix = "yacy.agentscope", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class YaCyMcpConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(YaCyMcpConfiguration.class);
@@ -26,8 +28,10 @@ public class YaCyMcpConfiguration {
 
     /**
      * 创建 YaCy MCP 服务器核心
+     * 延迟到首次使用时创建，stdio 启动路径不依赖 ChatModel
      */
     @Bean
+    @Lazy
     public YaCyMcpServer yaCyMcpServer(YaCyClient yaCyClient,
                                        DatabaseService databaseService,
                                        Optional<ChatModel> chatModel) {
@@ -38,6 +42,7 @@ public class YaCyMcpConfiguration {
      * 创建 AgentScope 与 Spring AI 的集成服务
      */
     @Bean
+    @Lazy
     public AgentScopeIntegrationService agentScopeIntegrationService(
             Optional<ChatModel> chatModel,
             YaCyMcpServer mcpServer) {
@@ -12,6 +12,8 @@ import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
@@ -24,6 +26,8 @@ import java.util.concurrent.CompletableFuture;
  * 复用 AgentScope-Java 的 Agent 和 Pipeline 编排能力
  */
 @Component
+@Lazy
+@ConditionalOnProperty(prefix = "yacy.agentscope", name = "enabled", havingValue = "true", matchIfMissing = true)
 public class YaCyMcpServer {
 
     private static final Logger log = LoggerFactory.getLogger(YaCyMcpServer.class);
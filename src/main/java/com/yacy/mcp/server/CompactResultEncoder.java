@@ -0,0 +1,102 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in compact tool results for machine consumers, negotiated per session in initialize.
+ * A client enables it with capabilities.experimental["yacy/compact"] = {"format": "json" | "cbor" | "smile"}
+ * (or true for json). In compact mode a tool's result is written as-is but without the nested
+ * JSON string: json puts the result tree into structuredContent with an empty content list, so
+ * it is neither escaped nor sent twice; cbor and smile send it as a blob in an embedded resource. Which
+ * search fields a result carries is decided by SearchProjection alone (yacy_search's fields
+ * argument), never here.
+ */
+public final class CompactResultEncoder {
+
+    public static final String CAPABILITY = "yacy/compact";
+
+    private static final List<String> FORMATS = List.of("json", "cbor", "smile");
+
+    private static final ObjectMapper jsonMapper = new ObjectMapper();
+    private static final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+    private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    private final String format;
+
+    private CompactResultEncoder(String format) {
+        this.format = format;
+    }
+
+    /**
+     * Compact mode requested by the client's initialize capabilities, or null if it did not opt in
+     */
+    public static CompactResultEncoder negotiate(JsonNode clientCapabilities) {
+        if (clientCapabilities == null) {
+            return null;
+        }
+        JsonNode request = clientCapabilities.path("experimental").path(CAPABILITY);
+        if (request.isMissingNode() || request.isNull() || (request.isBoolean() && !request.booleanValue())) {
+            return null;
+        }
+        String format = request.path("format").asText("json");
+        return new CompactResultEncoder(FORMATS.contains(format) ? format : "json");
+    }
+
+    /**
+     * Server side of the capability, advertised in every initialize response
+     */
+    public static Map<String, Object> advertisedCapability() {
+        Map<String, Object> capability = new LinkedHashMap<>();
+        capability.put("formats", FORMATS);
+        return capability;
+    }
+
+    /**
+     * Capability echoed back to a client that opted in
+     */
+    public Map<String, Object> acceptedCapability() {
+        Map<String, Object> capability = advertisedCapability();
+        capability.put("format", format);
+        capability.put("enabled", true);
+        return capability;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Build the tools/call result for a successful call
+     */
+    public Map<String, Object> encode(String toolName, Object content) throws IOException {
+        JsonNode tree = content instanceof JsonNode node ? node : jsonMapper.valueToTree(content);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("isError", false);
+        if ("json".equals(format)) {
+            result.put("content", List.of());
+            result.put("structuredContent", tree);
+            return result;
+        }
+
+        ObjectMapper mapper = "cbor".equals(format) ? cborMapper : smileMapper;
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("uri", "yacy://result/" + toolName);
+        resource.put("mimeType", "cbor".equals(format) ? "application/cbor" : "application/x-jackson-smile");
+        resource.put("blob", Base64.getEncoder().encodeToString(mapper.writeValueAsBytes(tree)));
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("type", "resource");
+        item.put("resource", resource);
+        result.put("content", List.of(item));
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.yacy.mcp.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Thin stdio launch of daemon mode: connects to the shared {@link McpDaemonServer}, starting it
+ * as a detached background process first if nothing listens on the socket, and copies bytes
+ * between stdin/stdout and the connection. No application context is created, and the JSON-RPC
+ * lines pass through unparsed; the daemon session keeps this launch's framing and negotiation.
+ */
+public final class McpDaemonProxy {
+
+    private static final Logger log = LoggerFactory.getLogger(McpDaemonProxy.class);
+
+    private static final Duration CONNECT_RETRY = Duration.ofMillis(50);
+
+    private McpDaemonProxy() {
+    }
+
+    /**
+     * Serve this launch through the daemon until the client closes stdin or the daemon goes away
+     *
+     * @param daemonEnvironment environment variable marking the launched process as the daemon
+     * @return false if no daemon could be reached, leaving stdin unread for an in-process server
+     */
+    public static boolean run(Path socket, String daemonEnvironment, Duration startTimeout) {
+        SocketChannel channel = connect(socket);
+        if (channel == null) {
+            if (!launchDaemon(daemonEnvironment)) {
+                return false;
+            }
+            channel = awaitDaemon(socket, startTimeout);
+            if (channel == null) {
+                log.warn("MCP daemon did not open {} within {} s", socket, startTimeout.toSeconds());
+                return false;
+            }
+        }
+        log.info("Proxying MCP stdio session to daemon at {}", socket);
+        try (SocketChannel connection = channel) {
+            pump(connection, System.in, System.out);
+        } catch (IOException e) {
+            log.error("MCP daemon connection failed", e);
+        }
+        return true;
+    }
+
+    /**
+     * @return a connection, or null if no daemon listens on the socket
+     */
+    static SocketChannel connect(Path socket) {
+        if (!Files.exists(socket)) {
+            return null;
+        }
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            return channel;
+        } catch (IOException e) {
+            // Stale socket file, or the daemon is between lock and bind
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Not connected
+                }
+            }
+            return null;
+        }
+    }
+
+    private static SocketChannel awaitDaemon(Path socket, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            SocketChannel channel = connect(socket);
+            if (channel != null) {
+                return channel;
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copy stdin to the daemon and the daemon's output to stdout. The channel is used directly
+     * rather than through channel streams, which would block a write behind a pending read.
+     * Returns when the daemon closes the connection, which it does after answering everything
+     * sent before stdin ended.
+     */
+    static void pump(SocketChannel channel, InputStream in, OutputStream out) throws IOException {
+        Thread upstream = new Thread(() -> {
+            byte[] buffer = new byte[8192];
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+                channel.shutdownOutput();
+            } catch (IOException e) {
+                log.debug("MCP proxy upstream ended: {}", e.getMessage());
+            }
+        }, "mcp-proxy-upstream");
+        upstream.setDaemon(true);
+        upstream.start();
+
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (channel.read(buffer) >= 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            out.flush();
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Start this application again as a daemon process with the same command line. Where setsid
+     * is available the daemon runs in a session of its own, so a signal to the client's process
+     * group or the end of its terminal session does not take the shared daemon down with it.
+     * Its stdin is closed and its output discarded; it logs to the configured log file.
+     */
+    static boolean launchDaemon(String daemonEnvironment) {
+        Optional<List<String>> command = daemonCommand();
+        if (command.isEmpty()) {
+            log.warn("Cannot determine the command line to start the MCP daemon");
+            return false;
+        }
+        List<String> detached = new ArrayList<>();
+        findExecutable("setsid").ifPresent(setsid -> detached.add(setsid.toString()));
+        detached.addAll(command.get());
+        try {
+            ProcessBuilder builder = new ProcessBuilder(detached)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD);
+            builder.environment().put(daemonEnvironment, "true");
+            Process process = builder.start();
+            process.getOutputStream().close();
+            log.info("Started MCP daemon process {}", process.pid());
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not start MCP daemon: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * This process's executable and arguments as the operating system reports them, which covers
+     * JVM options, -jar or the main class, and program arguments alike, and a native image too
+     */
+    static Optional<List<String>> daemonCommand() {
+        ProcessHandle.Info info = ProcessHandle.current().info();
+        Optional<String> executable = info.command();
+        Optional<String[]> arguments = info.arguments();
+        if (executable.isEmpty() || arguments.isEmpty()) {
+            return Optional.empty();
+        }
+        List<String> command = new ArrayList<>();
+        command.add(executable.get());
+        command.addAll(List.of(arguments.get()));
+        return Optional.of(command);
+    }
+
+    /**
+     * @return the first executable of that name on the PATH
+     */
+    static Optional<Path> findExecutable(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return Optional.empty();
+        }
+        for (String directory : path.split(File.pathSeparator)) {
+            if (directory.isEmpty()) {
+                continue;
+            }
+            Path candidate = Path.of(directory, name);
+            if (Files.isRegularFile(candidate) && Files.isExecutable(candidate)) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+}
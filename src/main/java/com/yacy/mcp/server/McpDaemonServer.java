@@ -0,0 +1,265 @@
+package com.yacy.mcp.server;
+
+import com.yacy.mcp.service.McpService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared daemon serving many MCP sessions of one host on a Unix domain socket. Every connection
+ * is a session of its own with the stdio line framing, served by a {@link McpStdioServer} bound
+ * to the one McpService of this process, so sessions share the HTTP pool, caches and history
+ * store. The socket is bound before the application context starts; tools requests wait for
+ * {@link #bindService} like those of the early stdio server.
+ * <p>
+ * A lock file next to the socket makes this process the only daemon for it: the lock is held
+ * until the process exits, so a socket file left without a lock holder is stale and replaced.
+ */
+public class McpDaemonServer {
+
+    private static final Logger log = LoggerFactory.getLogger(McpDaemonServer.class);
+
+    private final Path socket;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ServerSocketChannel serverChannel;
+    private final CompletableFuture<McpService> serviceReady = new CompletableFuture<>();
+    private final Map<McpStdioServer, SocketChannel> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sessionCounter = new AtomicLong();
+    private final ScheduledExecutorService housekeeping;
+    private volatile boolean running;
+    private Thread acceptor;
+    private Duration idleTimeout;
+    private Runnable onIdle;
+    private ScheduledFuture<?> idleCheck;
+
+    private McpDaemonServer(Path socket, FileChannel lockChannel, FileLock lock, ServerSocketChannel serverChannel) {
+        this.socket = socket;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+        this.serverChannel = serverChannel;
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-daemon-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Take the daemon lock and bind the socket
+     *
+     * @return the bound server, or null if another process is already the daemon for this socket
+     */
+    public static McpDaemonServer open(Path socket) throws IOException {
+        Files.createDirectories(socket.toAbsolutePath().getParent());
+        FileChannel lockChannel = FileChannel.open(lockFile(socket), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another daemon in this JVM
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            return null;
+        }
+        try {
+            // Left by a daemon that died without removing it
+            Files.deleteIfExists(socket);
+            ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            serverChannel.bind(UnixDomainSocketAddress.of(socket));
+            restrictToOwner(socket);
+            return new McpDaemonServer(socket, lockChannel, lock, serverChannel);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    static Path lockFile(Path socket) {
+        return socket.resolveSibling(socket.getFileName() + ".lock");
+    }
+
+    /**
+     * Tools run with this user's YaCy credentials; other local users must not reach them
+     */
+    private static void restrictToOwner(Path socket) throws IOException {
+        try {
+            Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; the user profile directory is private already
+        }
+    }
+
+    public void start() {
+        running = true;
+        acceptor = new Thread(this::acceptLoop, "mcp-daemon-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("MCP daemon listening on {}", socket);
+    }
+
+    /**
+     * Exit when no session has been connected for this long, also right after start
+     */
+    public void setIdleTimeout(Duration idleTimeout, Runnable onIdle) {
+        synchronized (sessions) {
+            this.idleTimeout = idleTimeout;
+            this.onIdle = onIdle;
+            scheduleIdleCheck();
+        }
+    }
+
+    public void bindService(McpService mcpService) {
+        serviceReady.complete(mcpService);
+    }
+
+    public void failStartup(Throwable cause) {
+        serviceReady.completeExceptionally(cause);
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public Path getSocket() {
+        return socket;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Error accepting MCP daemon connection", e);
+                }
+                break;
+            }
+            openSession(channel);
+        }
+    }
+
+    private void openSession(SocketChannel channel) {
+        // Reads and writes of a session happen on its one reader thread, so the channel streams,
+        // which serialize on the channel's blocking lock, never wait for each other
+        McpStdioServer session = new McpStdioServer(serviceReady,
+                Channels.newInputStream(channel), Channels.newOutputStream(channel));
+        session.setOnInputClosed(() -> closeSession(session));
+        synchronized (sessions) {
+            sessions.put(session, channel);
+            if (idleCheck != null) {
+                idleCheck.cancel(false);
+                idleCheck = null;
+            }
+        }
+        session.start();
+        log.info("MCP daemon session {} opened ({} active)", sessionCounter.incrementAndGet(), sessions.size());
+    }
+
+    /**
+     * Runs on the session's reader thread, which must not wait for its own executor
+     */
+    private void closeSession(McpStdioServer session) {
+        if (!running) {
+            return;
+        }
+        SocketChannel channel;
+        synchronized (sessions) {
+            channel = sessions.remove(session);
+            if (sessions.isEmpty()) {
+                scheduleIdleCheck();
+            }
+        }
+        closeQuietly(channel);
+        housekeeping.execute(session::stop);
+        log.info("MCP daemon session closed ({} active)", sessions.size());
+    }
+
+    private void scheduleIdleCheck() {
+        if (idleTimeout == null || !running || !sessions.isEmpty()) {
+            return;
+        }
+        if (idleCheck != null) {
+            idleCheck.cancel(false);
+        }
+        idleCheck = housekeeping.schedule(() -> {
+            synchronized (sessions) {
+                if (!sessions.isEmpty() || !running) {
+                    return;
+                }
+            }
+            log.info("MCP daemon idle for {} s, exiting", idleTimeout.toSeconds());
+            onIdle.run();
+        }, idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverChannel);
+        try {
+            Files.deleteIfExists(socket);
+        } catch (IOException e) {
+            log.warn("Could not remove MCP daemon socket {}: {}", socket, e.getMessage());
+        }
+        for (Map.Entry<McpStdioServer, SocketChannel> session : sessions.entrySet()) {
+            session.getKey().stop();
+            closeQuietly(session.getValue());
+        }
+        sessions.clear();
+        housekeeping.shutdownNow();
+        try {
+            lock.release();
+        } catch (IOException e) {
+            log.debug("Error releasing MCP daemon lock: {}", e.getMessage());
+        }
+        closeQuietly(lockChannel);
+        log.info("MCP daemon stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static void closeQuietly(Channel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing channel: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yacy.mcp.service.McpService;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sessions of the HTTP transport. Each holds its own {@link McpStdioServer} as protocol state,
+ * so initialize negotiation stays per client while every session calls the one McpService.
+ * The number of sessions is bounded, and sessions without requests for the idle timeout are
+ * closed unless a client is attached to their event stream.
+ */
+public class McpHttpSessions {
+
+    private final CompletableFuture<McpService> service;
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public McpHttpSessions(McpService service, int maxSessions, Duration idleTimeout) {
+        this.service = CompletableFuture.completedFuture(service);
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+    }
+
+    /**
+     * One client session; its id is unguessable since it is all a client needs to use it
+     */
+    public final class Session {
+
+        private final String id = UUID.randomUUID().toString();
+        private final McpStdioServer server = new McpStdioServer(service, InputStream.nullInputStream(),
+                OutputStream.nullOutputStream());
+        private volatile long lastAccessNanos = System.nanoTime();
+        private volatile boolean streaming;
+        private volatile Runnable onClose;
+
+        public String id() {
+            return id;
+        }
+
+        /**
+         * Handle one message of this session and return the response lines it produced
+         */
+        public List<byte[]> exchange(JsonNode message) {
+            lastAccessNanos = System.nanoTime();
+            return server.exchange(message);
+        }
+
+        /**
+         * Mark a client as attached to this session's event stream, which keeps it from expiring
+         */
+        public void setStreaming(boolean streaming) {
+            this.streaming = streaming;
+            lastAccessNanos = System.nanoTime();
+        }
+
+        public void setOnClose(Runnable onClose) {
+            this.onClose = onClose;
+        }
+
+        private boolean idle(long now) {
+            return !streaming && now - lastAccessNanos > idleTimeoutNanos;
+        }
+
+        private void close() {
+            Runnable callback = onClose;
+            if (callback != null) {
+                callback.run();
+            }
+        }
+    }
+
+    /**
+     * @return a new session, or null if the session limit is reached even after expiring idle ones
+     */
+    public Session create() {
+        if (sessions.size() >= maxSessions) {
+            expire();
+        }
+        synchronized (sessions) {
+            if (sessions.size() >= maxSessions) {
+                return null;
+            }
+            Session session = new Session();
+            sessions.put(session.id(), session);
+            return session;
+        }
+    }
+
+    /**
+     * @return the session, or null if it does not exist or has expired
+     */
+    public Session get(String id) {
+        if (id == null) {
+            return null;
+        }
+        Session session = sessions.get(id);
+        if (session != null && session.idle(System.nanoTime())) {
+            remove(id);
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * @return false if there was no such session
+     */
+    public boolean remove(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        session.close();
+        return true;
+    }
+
+    /**
+     * Close sessions idle for longer than the timeout
+     *
+     * @return the number of sessions closed
+     */
+    public int expire() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (Session session : sessions.values()) {
+            if (session.idle(now) && remove(session.id())) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    public void closeAll() {
+        for (String id : sessions.keySet()) {
+            remove(id);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,402 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * MCP over HTTP on a WebFlux server, for many clients of one process sharing its McpService.
+ * <ul>
+ * <li>Streamable HTTP on {@value #ENDPOINT}: POST a message or batch and get the JSON response;
+ * initialize opens a session whose id comes back in {@value #SESSION_HEADER}, DELETE ends it.</li>
+ * <li>HTTP+SSE on {@value #SSE_ENDPOINT}: the event stream opens a session and announces
+ * {@value #MESSAGE_ENDPOINT}; messages posted there are answered on the stream.</li>
+ * </ul>
+ * Requests run on a bounded pool, and requests beyond its queue, sessions beyond the limit and
+ * event streams whose bounded buffer a slow client lets fill up are refused with 503 or closed,
+ * so a client that does not keep up cannot hold unbounded memory.
+ */
+public class McpHttpTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(McpHttpTransport.class);
+
+    public static final String ENDPOINT = "/mcp";
+    public static final String SSE_ENDPOINT = "/mcp/sse";
+    public static final String MESSAGE_ENDPOINT = "/mcp/message";
+    public static final String HEALTH_ENDPOINT = "/mcp/health";
+    public static final String SESSION_HEADER = "Mcp-Session-Id";
+
+    /**
+     * Session count and idle timeout are limits of {@link McpHttpSessions}
+     *
+     * @param maxConcurrentRequests requests handled at once
+     * @param maxQueuedRequests     requests waiting for a handler before further ones are refused
+     * @param sseBufferMessages     messages buffered for an event stream before its client counts as stalled
+     * @param keepAlive             interval of keep-alive comments on event streams and of session expiry
+     * @param allowedOrigins        browser origins allowed to call, "*" for any; requests without Origin always are
+     */
+    public record Limits(int maxConcurrentRequests, int maxQueuedRequests, int sseBufferMessages,
+                         Duration keepAlive, List<String> allowedOrigins) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final McpHttpSessions sessions;
+    private final Limits limits;
+    private final Map<String, EventStream> streams = new ConcurrentHashMap<>();
+    private Scheduler scheduler;
+    private ScheduledExecutorService housekeeping;
+
+    public McpHttpTransport(McpHttpSessions sessions, Limits limits) {
+        this.sessions = sessions;
+        this.limits = limits;
+    }
+
+    public void start() {
+        scheduler = Schedulers.newBoundedElastic(limits.maxConcurrentRequests(), limits.maxQueuedRequests(),
+                "mcp-http", 60, true);
+        housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-http-housekeeping");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = limits.keepAlive().toMillis();
+        housekeeping.scheduleWithFixedDelay(this::housekeep, millis, millis, TimeUnit.MILLISECONDS);
+        log.info("MCP HTTP transport ready on {} and {}", ENDPOINT, SSE_ENDPOINT);
+    }
+
+    public void stop() {
+        if (housekeeping != null) {
+            housekeeping.shutdownNow();
+        }
+        sessions.closeAll();
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .POST(ENDPOINT, this::post)
+                .GET(ENDPOINT, this::methodNotAllowed)
+                .DELETE(ENDPOINT, this::delete)
+                .GET(SSE_ENDPOINT, this::openEventStream)
+                .POST(MESSAGE_ENDPOINT, this::postToEventStream)
+                .GET(HEALTH_ENDPOINT, this::health)
+                .build();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void housekeep() {
+        try {
+            int expired = sessions.expire();
+            if (expired > 0) {
+                log.debug("Expired {} idle MCP HTTP sessions", expired);
+            }
+            ServerSentEvent<String> keepAlive = ServerSentEvent.<String>builder().comment("keep-alive").build();
+            for (EventStream stream : streams.values()) {
+                stream.emit(keepAlive);
+            }
+        } catch (Exception e) {
+            log.warn("Error in MCP HTTP housekeeping: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Streamable HTTP ====================
+
+    private Mono<ServerResponse> post(ServerRequest request) {
+        Mono<ServerResponse> forbidden = checkOrigin(request);
+        if (forbidden != null) {
+            return forbidden;
+        }
+        String sessionId = request.headers().firstHeader(SESSION_HEADER);
+        return request.bodyToMono(byte[].class).defaultIfEmpty(new byte[0]).flatMap(body -> {
+            JsonNode message = parse(body);
+            Mono<ServerResponse> malformed = checkMessage(message);
+            if (malformed != null) {
+                return malformed;
+            }
+            McpHttpSessions.Session session;
+            if (sessionId == null) {
+                if (!isInitialize(message)) {
+                    return error(HttpStatus.BAD_REQUEST, -32600, "Missing " + SESSION_HEADER + " header");
+                }
+                session = sessions.create();
+                if (session == null) {
+                    return unavailable("Too many sessions");
+                }
+            } else {
+                session = sessions.get(sessionId);
+                if (session == null) {
+                    return error(HttpStatus.NOT_FOUND, -32001, "Session not found");
+                }
+            }
+            return Mono.fromCallable(() -> exchange(session, message))
+                    .subscribeOn(scheduler)
+                    .flatMap(response -> response.length == 0
+                            ? ServerResponse.accepted().header(SESSION_HEADER, session.id()).build()
+                            : ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                            .header(SESSION_HEADER, session.id()).bodyValue(response))
+                    .onErrorResume(RejectedExecutionException.class, e -> unavailable("Too many concurrent requests"));
+        });
+    }
+
+    private Mono<ServerResponse> methodNotAllowed(ServerRequest request) {
+        // No server-initiated messages, so there is no stream to open here
+        return ServerResponse.status(HttpStatus.METHOD_NOT_ALLOWED).header(HttpHeaders.ALLOW, "POST, DELETE").build();
+    }
+
+    private Mono<ServerResponse> delete(ServerRequest request) {
+        Mono<ServerResponse> forbidden = checkOrigin(request);
+        if (forbidden != null) {
+            return forbidden;
+        }
+        String sessionId = request.headers().firstHeader(SESSION_HEADER);
+        if (sessionId == null) {
+            return error(HttpStatus.BAD_REQUEST, -32600, "Missing " + SESSION_HEADER + " header");
+        }
+        return sessions.remove(sessionId)
+                ? ServerResponse.noContent().build()
+                : error(HttpStatus.NOT_FOUND, -32001, "Session not found");
+    }
+
+    /**
+     * Handle a message or batch and return the response body, empty if nothing needs an answer
+     */
+    private byte[] exchange(McpHttpSessions.Session session, JsonNode message) throws IOException {
+        if (!message.isArray()) {
+            List<byte[]> lines = session.exchange(message);
+            return lines.isEmpty() ? new byte[0] : withoutNewline(lines.get(0));
+        }
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        for (JsonNode element : message) {
+            for (byte[] line : session.exchange(element)) {
+                batch.write(batch.size() == 0 ? '[' : ',');
+                batch.write(line, 0, line.length - 1);
+            }
+        }
+        if (batch.size() > 0) {
+            batch.write(']');
+        }
+        return batch.toByteArray();
+    }
+
+    private static boolean isInitialize(JsonNode message) {
+        if (message.isArray()) {
+            for (JsonNode element : message) {
+                if (isInitialize(element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return "initialize".equals(message.path("method").asText(null));
+    }
+
+    // ==================== HTTP+SSE ====================
+
+    /**
+     * Event stream of one HTTP+SSE session. The unicast sink buffers at most sseBufferMessages
+     * events for a client that reads slower than it is answered; when the buffer is full the
+     * stream is cut instead of growing.
+     */
+    private final class EventStream {
+
+        private final McpHttpSessions.Session session;
+        private final Sinks.Many<ServerSentEvent<String>> sink = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<ServerSentEvent<String>>get(limits.sseBufferMessages()).get());
+        private final Sinks.One<Boolean> cut = Sinks.one();
+
+        EventStream(McpHttpSessions.Session session) {
+            this.session = session;
+        }
+
+        Flux<ServerSentEvent<String>> events() {
+            // takeUntilOther cancels at once, without first delivering what is buffered
+            return sink.asFlux().takeUntilOther(cut.asMono());
+        }
+
+        /**
+         * Emissions come from request and housekeeping threads; the sink accepts one at a time
+         */
+        synchronized boolean emit(ServerSentEvent<String> event) {
+            Sinks.EmitResult result = sink.tryEmitNext(event);
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+                log.warn("MCP event stream {} not read by its client, closing it", session.id());
+                close();
+            }
+            return result.isSuccess();
+        }
+
+        void close() {
+            cut.tryEmitValue(true);
+        }
+    }
+
+    private Mono<ServerResponse> openEventStream(ServerRequest request) {
+        Mono<ServerResponse> forbidden = checkOrigin(request);
+        if (forbidden != null) {
+            return forbidden;
+        }
+        McpHttpSessions.Session session = sessions.create();
+        if (session == null) {
+            return unavailable("Too many sessions");
+        }
+        EventStream stream = new EventStream(session);
+        streams.put(session.id(), stream);
+        session.setStreaming(true);
+        session.setOnClose(stream::close);
+        stream.emit(ServerSentEvent.<String>builder().event("endpoint")
+                .data(MESSAGE_ENDPOINT + "?sessionId=" + session.id()).build());
+
+        Flux<ServerSentEvent<String>> events = stream.events().doFinally(signal -> {
+            streams.remove(session.id());
+            sessions.remove(session.id());
+        });
+        return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    private Mono<ServerResponse> postToEventStream(ServerRequest request) {
+        Mono<ServerResponse> forbidden = checkOrigin(request);
+        if (forbidden != null) {
+            return forbidden;
+        }
+        EventStream stream = request.queryParam("sessionId").map(streams::get).orElse(null);
+        if (stream == null) {
+            return error(HttpStatus.NOT_FOUND, -32001, "Session not found");
+        }
+        return request.bodyToMono(byte[].class).defaultIfEmpty(new byte[0]).flatMap(body -> {
+            JsonNode message = parse(body);
+            Mono<ServerResponse> malformed = checkMessage(message);
+            if (malformed != null) {
+                return malformed;
+            }
+            return Mono.fromCallable(() -> {
+                        List<JsonNode> messages = message.isArray() ? toList(message) : List.of(message);
+                        for (JsonNode element : messages) {
+                            for (byte[] line : stream.session.exchange(element)) {
+                                ServerSentEvent<String> event = ServerSentEvent.<String>builder().event("message")
+                                        .data(new String(line, 0, line.length - 1, StandardCharsets.UTF_8)).build();
+                                if (!stream.emit(event)) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return true;
+                    })
+                    .subscribeOn(scheduler)
+                    .flatMap(delivered -> delivered
+                            ? ServerResponse.accepted().build()
+                            : unavailable("Event stream closed"))
+                    .onErrorResume(RejectedExecutionException.class, e -> unavailable("Too many concurrent requests"));
+        });
+    }
+
+    private static List<JsonNode> toList(JsonNode array) {
+        return StreamSupport.stream(array.spliterator(), false).toList();
+    }
+
+    // ==================== Common ====================
+
+    private Mono<ServerResponse> health(ServerRequest request) {
+        ObjectNode health = objectMapper.createObjectNode()
+                .put("status", "UP")
+                .put("sessions", sessions.size())
+                .put("eventStreams", streams.size());
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(health.toString());
+    }
+
+    /**
+     * Browsers send Origin; refusing unknown ones keeps web pages, also via DNS rebinding,
+     * from driving the tools with this server's YaCy credentials
+     *
+     * @return a 403 response, or null if the request may proceed
+     */
+    private Mono<ServerResponse> checkOrigin(ServerRequest request) {
+        String origin = request.headers().firstHeader(HttpHeaders.ORIGIN);
+        if (origin == null || limits.allowedOrigins().contains("*") || limits.allowedOrigins().contains(origin)) {
+            return null;
+        }
+        log.warn("Refused MCP HTTP request from origin {}", origin);
+        return error(HttpStatus.FORBIDDEN, -32600, "Origin not allowed");
+    }
+
+    /**
+     * @return the message, or null if the body is not JSON
+     */
+    private JsonNode parse(byte[] body) {
+        try {
+            JsonNode message = objectMapper.readTree(body);
+            return message == null || message.isMissingNode() ? null : message;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return an error response, or null if the message can be handled
+     */
+    private Mono<ServerResponse> checkMessage(JsonNode message) {
+        if (message == null) {
+            return error(HttpStatus.BAD_REQUEST, -32700, "Parse error");
+        }
+        if (message.isArray() && message.isEmpty()) {
+            return error(HttpStatus.BAD_REQUEST, -32600, "Empty batch");
+        }
+        return null;
+    }
+
+    private static byte[] withoutNewline(byte[] line) {
+        return Arrays.copyOf(line, line.length - 1);
+    }
+
+    private Mono<ServerResponse> unavailable(String message) {
+        return error(HttpStatus.SERVICE_UNAVAILABLE, -32000, message);
+    }
+
+    private Mono<ServerResponse> error(HttpStatus status, int code, String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("jsonrpc", "2.0");
+        error.putNull("id");
+        error.putObject("error").put("code", code).put("message", message);
+        ServerResponse.BodyBuilder response = ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON);
+        if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        }
+        return response.bodyValue(error.toString());
+    }
+}
@@ -3,10 +3,16 @@ package com.yacy.mcp.server;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.tools.SchemaValidator;
+import com.yacy.mcp.tools.ToolBinding;
+import com.yacy.mcp.tools.ToolRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -14,27 +20,64 @@ public class McpStdioServer {
 
     private static final Logger log = LoggerFactory.getLogger(McpStdioServer.class);
 
-    private final McpService mcpService;
+    private static final long SERVICE_READY_TIMEOUT_SECONDS = 60;
+
+    private final CompletableFuture<McpService> serviceReady;
     private final ObjectMapper objectMapper;
     private final BufferedReader stdin;
+    /** Whether this server owns the process stdio rather than a daemon connection */
+    private final boolean standardStreams;
     private volatile boolean running = false;
     private volatile PrintStream outputStream;
     private ExecutorService executor;
     private final BlockingQueue<String> messageQueue = new LinkedBlockingQueue<>();
-    private final List<String> capturedOutput = Collections.synchronizedList(new ArrayList<>());
+    private final List<byte[]> capturedOutput = Collections.synchronizedList(new ArrayList<>());
+    private volatile long timeToFirstResponseMillis = -1;
+    private volatile Runnable onInputClosed;
+    /** Compact result mode negotiated by this session's initialize, null if not requested */
+    private volatile CompactResultEncoder compactEncoder;
+    /** Lines written while {@link #exchange} handles a message, instead of the output stream */
+    private List<byte[]> exchangeOutput;
 
     public McpStdioServer(McpService mcpService) {
-        this.mcpService = mcpService;
+        this(CompletableFuture.completedFuture(mcpService));
+    }
+
+    /**
+     * Create a server that can already answer initialize and ping while the application
+     * context is still starting; tools requests wait until {@link #bindService} is called.
+     */
+    public McpStdioServer() {
+        this(new CompletableFuture<>());
+    }
+
+    private McpStdioServer(CompletableFuture<McpService> serviceReady) {
+        this.serviceReady = serviceReady;
         this.objectMapper = new ObjectMapper();
         this.outputStream = System.out;
         this.stdin = new BufferedReader(new InputStreamReader(System.in));
+        this.standardStreams = true;
+    }
+
+    /**
+     * Create a session of the shared daemon speaking the same line framing over a connection.
+     * Its output is not captured, since a daemon serves many sessions for a long time.
+     */
+    McpStdioServer(CompletableFuture<McpService> serviceReady, InputStream in, OutputStream out) {
+        this.serviceReady = serviceReady;
+        this.objectMapper = new ObjectMapper();
+        this.outputStream = new PrintStream(out, false, StandardCharsets.UTF_8);
+        this.stdin = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.standardStreams = false;
     }
 
     public void start() {
         log.info("Starting MCP Stdio Server...");
         running = true;
 
-        outputStream = System.out;
+        if (standardStreams) {
+            outputStream = System.out;
+        }
 
         executor = Executors.newSingleThreadExecutor();
 
@@ -52,9 +95,14 @@ public class McpStdioServer {
                         }
                     }
                 }
+                if (running) {
+                    log.info("stdin closed by MCP client");
+                    inputClosed();
+                }
             } catch (IOException e) {
                 if (running) {
                     log.error("Error reading from stdin", e);
+                    inputClosed();
                 }
             }
         });
@@ -73,8 +121,49 @@ public class McpStdioServer {
         }
     }
 
+    private void inputClosed() {
+        Runnable callback = onInputClosed;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Callback invoked on the reader thread when stdin reaches end of file or fails
+     */
+    public void setOnInputClosed(Runnable onInputClosed) {
+        this.onInputClosed = onInputClosed;
+    }
+
+    /**
+     * Make the MCP service available to a server created before the context was ready
+     */
+    public void bindService(McpService mcpService) {
+        serviceReady.complete(mcpService);
+    }
+
+    /**
+     * Fail pending and future tools requests when the context could not be started
+     */
+    public void failStartup(Throwable cause) {
+        serviceReady.completeExceptionally(cause);
+    }
+
+    /**
+     * Milliseconds from JVM process start to the first response written, or -1 if none yet
+     */
+    public long getTimeToFirstResponseMillis() {
+        return timeToFirstResponseMillis;
+    }
+
     public List<String> getCapturedOutput() {
-        return new ArrayList<>(capturedOutput);
+        List<String> lines = new ArrayList<>();
+        synchronized (capturedOutput) {
+            for (byte[] line : capturedOutput) {
+                lines.add(new String(line, 0, line.length - 1, StandardCharsets.UTF_8));
+            }
+        }
+        return lines;
     }
 
     public void clearCapturedOutput() {
@@ -86,7 +175,32 @@ public class McpStdioServer {
     }
 
     public void handleMessage(String line) throws Exception {
-        JsonNode json = objectMapper.readTree(line);
+        handleMessage(objectMapper.readTree(line));
+    }
+
+    /**
+     * Handle one parsed message and return the lines it produced instead of writing them, for
+     * transports that answer each request on its own. Messages of one session are handled one
+     * at a time, as on stdio. JSON-RPC responses sent by the client produce nothing.
+     */
+    synchronized List<byte[]> exchange(JsonNode message) {
+        List<byte[]> lines = new ArrayList<>();
+        if (message.isObject() && !message.has("method") && (message.has("result") || message.has("error"))) {
+            return lines;
+        }
+        exchangeOutput = lines;
+        try {
+            handleMessage(message);
+        } catch (Exception e) {
+            log.error("Error processing request: {}", message, e);
+            sendError(null, -32600, "Invalid request: " + e.getMessage());
+        } finally {
+            exchangeOutput = null;
+        }
+        return lines;
+    }
+
+    private void handleMessage(JsonNode json) throws Exception {
         String jsonrpc = json.has("jsonrpc") ? json.get("jsonrpc").asText() : null;
 
         if (!"2.0".equals(jsonrpc)) {
@@ -113,11 +227,19 @@ public class McpStdioServer {
     private void handleInitialize(JsonNode id, JsonNode params) {
         log.info("MCP Client initializing...");
 
+        compactEncoder = CompactResultEncoder.negotiate(params != null ? params.get("capabilities") : null);
+        if (compactEncoder != null) {
+            log.info("Compact tool results enabled ({})", compactEncoder.getFormat());
+        }
+
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("tools", Map.of());
+        capabilities.put("experimental", Map.of(CompactResultEncoder.CAPABILITY,
+                compactEncoder != null ? compactEncoder.acceptedCapability() : CompactResultEncoder.advertisedCapability()));
+
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("protocolVersion", "2024-11-05");
-        result.put("capabilities", Map.of(
-                "tools", Map.of()
-        ));
+        result.put("capabilities", capabilities);
         result.put("serverInfo", Map.of(
                 "name", "yacy-mcp",
                 "version", "1.0.0"
@@ -134,25 +256,19 @@ public class McpStdioServer {
     private void handleToolsList(JsonNode id) {
         log.info("Listing tools...");
 
-        List<Map<String, Object>> tools = new ArrayList<>();
-        for (var tool : mcpService.getToolDefinitions()) {
-            tools.add(Map.of(
-                    "name", tool.getName(),
-                    "description", tool.getDescription(),
-                    "inputSchema", tool.getInputSchema()
-            ));
+        McpService mcpService = awaitService(id);
+        if (mcpService == null) {
+            return;
         }
 
-        Map<String, Object> result = new LinkedHashMap<>();
-        result.put("tools", tools);
-
-        sendResponse(id, result);
-        log.info("Sent {} tools", tools.size());
+        ToolRegistry registry = mcpService.getToolRegistry();
+        sendEncodedResult(id, registry.getToolsListJson());
+        log.info("Sent {} tools", registry.size());
     }
 
     private void handleToolsCall(JsonNode id, JsonNode params) {
-        String toolName = params.has("name") ? params.get("name").asText() : null;
-        JsonNode arguments = params.has("arguments") ? params.get("arguments") : null;
+        String toolName = params != null && params.has("name") ? params.get("name").asText() : null;
+        JsonNode arguments = params != null && params.has("arguments") ? params.get("arguments") : null;
 
         log.info("Tool call: {} with args: {}", toolName, arguments);
 
@@ -161,21 +277,34 @@ public class McpStdioServer {
             return;
         }
 
+        McpService mcpService = awaitService(id);
+        if (mcpService == null) {
+            return;
+        }
+
+        // Reject bad arguments before any binding or YaCy round trip
+        ToolBinding tool = mcpService.getToolRegistry().get(toolName);
+        if (tool == null) {
+            sendError(id, -32602, "Unknown tool: " + toolName, Map.of("tool", toolName));
+            return;
+        }
+        List<SchemaValidator.Violation> violations = tool.validate(arguments);
+        if (!violations.isEmpty()) {
+            SchemaValidator.Violation first = violations.get(0);
+            log.warn("Invalid arguments for tool {}: {}", toolName, violations);
+            sendError(id, -32602, "Invalid params: " + first.path() + " " + first.message(),
+                    Map.of("tool", toolName, "violations", violations));
+            return;
+        }
+
         try {
-            com.yacy.mcp.model.McpToolCallRequest request = new com.yacy.mcp.model.McpToolCallRequest();
-            request.setName(toolName);
-
-            Map<String, Object> args = new HashMap<>();
-            if (arguments != null && arguments.isObject()) {
-                Iterator<Map.Entry<String, JsonNode>> it = arguments.fields();
-                while (it.hasNext()) {
-                    Map.Entry<String, JsonNode> entry = it.next();
-                    args.put(entry.getKey(), jsonToObject(entry.getValue()));
-                }
-            }
-            request.setArguments(args);
+            com.yacy.mcp.model.McpToolCallResponse response = mcpService.executeTool(toolName, arguments);
 
-            com.yacy.mcp.model.McpToolCallResponse response = mcpService.executeTool(request);
+            CompactResultEncoder compact = compactEncoder;
+            if (compact != null && !response.isError()) {
+                sendResponse(id, compact.encode(toolName, response.getContent()));
+                return;
+            }
 
             Map<String, Object> result = new LinkedHashMap<>();
 
@@ -203,46 +332,20 @@ public class McpStdioServer {
         }
     }
 
-    private void handlePing(JsonNode id) {
-        sendResponse(id, Map.of());
+    private McpService awaitService(JsonNode id) {
+        try {
+            return serviceReady.get(SERVICE_READY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("MCP service not available", e);
+        }
+        sendError(id, -32603, "Server not ready");
+        return null;
     }
 
-    private Object jsonToObject(JsonNode node) {
-        if (node == null || node.isNull()) {
-            return null;
-        }
-        if (node.isTextual()) {
-            return node.asText();
-        }
-        if (node.isNumber()) {
-            if (node.canConvertToInt() && node.asText().indexOf('.') < 0 && node.asText().indexOf('e') < 0 && node.asText().indexOf('E') < 0) {
-                return node.asInt();
-            }
-            if (node.canConvertToLong() && node.asText().indexOf('.') < 0 && node.asText().indexOf('e') < 0 && node.asText().indexOf('E') < 0) {
-                return node.asLong();
-            }
-            return node.asDouble();
-        }
-        if (node.isBoolean()) {
-            return node.asBoolean();
-        }
-        if (node.isArray()) {
-            List<Object> list = new ArrayList<>();
-            for (JsonNode item : node) {
-                list.add(jsonToObject(item));
-            }
-            return list;
-        }
-        if (node.isObject()) {
-            Map<String, Object> map = new LinkedHashMap<>();
-            Iterator<Map.Entry<String, JsonNode>> it = node.fields();
-            while (it.hasNext()) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                map.put(entry.getKey(), jsonToObject(entry.getValue()));
-            }
-            return map;
-        }
-        return node.toString();
+    private void handlePing(JsonNode id) {
+        sendResponse(id, Map.of());
     }
 
     private void sendResponse(JsonNode id, Object result) {
@@ -256,14 +359,41 @@ public class McpStdioServer {
         log.debug("Sent response: {}", json.substring(0, Math.min(200, json.length())));
     }
 
+    /**
+     * Send a response whose result is already serialized, splicing the bytes in without re-encoding
+     */
+    private void sendEncodedResult(JsonNode id, byte[] resultJson) {
+        byte[] prefix = ("{\"jsonrpc\":\"2.0\",\"id\":"
+                + toJson(id != null ? id : UUID.randomUUID().toString())
+                + ",\"result\":").getBytes(StandardCharsets.UTF_8);
+        byte[] line = new byte[prefix.length + resultJson.length + 2];
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(resultJson, 0, line, prefix.length, resultJson.length);
+        line[line.length - 2] = '}';
+        line[line.length - 1] = '\n';
+        writeLine(line);
+        log.debug("Sent pre-encoded response ({} bytes)", line.length);
+    }
+
     private void sendError(JsonNode id, int code, String message) {
+        sendError(id, code, message, null);
+    }
+
+    /**
+     * Send a JSON-RPC error; data carries structured details such as schema violations
+     */
+    private void sendError(JsonNode id, int code, String message, Object data) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("code", code);
+        error.put("message", message);
+        if (data != null) {
+            error.put("data", data);
+        }
+
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("jsonrpc", "2.0");
         response.put("id", id != null ? id : UUID.randomUUID().toString());
-        response.put("error", Map.of(
-                "code", code,
-                "message", message
-        ));
+        response.put("error", error);
 
         String json = toJson(response);
         writeOutput(json);
@@ -271,11 +401,39 @@ public class McpStdioServer {
     }
 
     private void writeOutput(String json) {
-        if (outputStream != null) {
-            outputStream.println(json);
-            outputStream.flush();
+        byte[] encoded = json.getBytes(StandardCharsets.UTF_8);
+        byte[] line = Arrays.copyOf(encoded, encoded.length + 1);
+        line[encoded.length] = '\n';
+        writeLine(line);
+    }
+
+    /**
+     * Write one newline-terminated UTF-8 JSON message in a single call
+     */
+    private void writeLine(byte[] line) {
+        List<byte[]> exchange = exchangeOutput;
+        if (exchange != null) {
+            exchange.add(line);
+            return;
         }
-        capturedOutput.add(json);
+        PrintStream out = outputStream;
+        if (out != null) {
+            out.write(line, 0, line.length);
+            out.flush();
+        }
+        if (standardStreams) {
+            capturedOutput.add(line);
+        }
+        if (timeToFirstResponseMillis < 0) {
+            recordFirstResponse();
+        }
+    }
+
+    private void recordFirstResponse() {
+        timeToFirstResponseMillis = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis())
+                .orElse(0L);
+        log.info("Time to first MCP response: {} ms after process start", timeToFirstResponseMillis);
     }
 
     private String toJson(Object obj) {
@@ -0,0 +1,79 @@
+package com.yacy.mcp.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-Min sketch of string frequencies. Estimates never undercount; they overcount by at
+ * most 2/width of the total with probability 1 - (1/2)^depth. Sketches of the same size
+ * merge by adding their counters.
+ */
+final class CountMinSketch {
+
+    static final int DEPTH = 4;
+    static final int WIDTH = 1024;
+
+    private final int[] counters = new int[DEPTH * WIDTH];
+
+    void add(String item) {
+        long hash = hash(item);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * WIDTH + Math.floorMod(h1 + row * h2, WIDTH);
+            if (counters[index] != Integer.MAX_VALUE) {
+                counters[index]++;
+            }
+        }
+    }
+
+    int estimate(String item) {
+        long hash = hash(item);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row * WIDTH + Math.floorMod(h1 + row * h2, WIDTH)]);
+        }
+        return estimate;
+    }
+
+    void merge(CountMinSketch other) {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = (int) Math.min(Integer.MAX_VALUE, (long) counters[i] + other.counters[i]);
+        }
+    }
+
+    void write(DataOutput out) throws IOException {
+        for (int counter : counters) {
+            out.writeInt(counter);
+        }
+    }
+
+    static CountMinSketch read(DataInput in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch();
+        for (int i = 0; i < sketch.counters.length; i++) {
+            sketch.counters[i] = in.readInt();
+        }
+        return sketch;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes followed by a 64-bit finaliser, so both halves are usable
+     * as independent hashes
+     */
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,217 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Submits crawl starts for a list of URLs.
+ * URLs are deduplicated within the batch and against the submissions of the last
+ * dedupWindowHours: those of this process are kept in memory, and crawl_history is asked
+ * for the hosts of the batch through its host index, so crawls started elsewhere are seen
+ * too. URLs are compared by {@link CrawlUrls#hash}. The remaining URLs are grouped by host; hosts
+ * are submitted concurrently, each through its own token bucket and all through a global
+ * one, so a batch never floods a single site or YaCy itself. The batch is logged to
+ * crawl_history in one transaction.
+ */
+@Service
+public class CrawlBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlBatchService.class);
+
+    /**
+     * Host buckets kept before idle ones are dropped
+     */
+    private static final int MAX_HOST_BUCKETS = 1024;
+
+    public enum Status {
+        ACCEPTED, SKIPPED, FAILED
+    }
+
+    /**
+     * Result for one URL of a batch; reason is null for accepted URLs
+     */
+    public record Outcome(String url, Status status, String reason) {
+    }
+
+    private final YaCyClient yaCyClient;
+    private final DatabaseService databaseService;
+    private final YaCyConfig.Crawl settings;
+    private final Duration dedupWindow;
+    private final TokenBucket global;
+    private final Map<String, TokenBucket> hosts = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * URL hash to the epoch milliseconds it was last submitted by this process
+     */
+    private final Map<Long, Long> recent = new HashMap<>();
+
+    @Autowired
+    public CrawlBatchService(YaCyClient yaCyClient, DatabaseService databaseService, YaCyConfig config) {
+        this(yaCyClient, databaseService, config.getCrawl());
+    }
+
+    public CrawlBatchService(YaCyClient yaCyClient, DatabaseService databaseService, YaCyConfig.Crawl settings) {
+        this.yaCyClient = yaCyClient;
+        this.databaseService = databaseService;
+        this.settings = settings;
+        this.dedupWindow = Duration.ofHours(settings.getDedupWindowHours());
+        this.global = new TokenBucket(settings.getGlobalRatePerSecond(), settings.getGlobalBurst());
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, settings.getBatchParallelism()), r -> {
+            Thread t = new Thread(r, "crawl-batch-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getBatchMaxUrls() {
+        return settings.getBatchMaxUrls();
+    }
+
+    /**
+     * Start a crawl for each URL that was not submitted recently
+     *
+     * @return one outcome per URL, in the order given
+     */
+    public List<Outcome> submit(List<String> urls, int depth) {
+        Outcome[] outcomes = new Outcome[urls.size()];
+        URI[] uris = new URI[urls.size()];
+        Long[] keys = new Long[urls.size()];
+        Set<String> batchHosts = new HashSet<>();
+        for (int i = 0; i < outcomes.length; i++) {
+            uris[i] = CrawlUrls.canonical(urls.get(i));
+            if (uris[i] == null) {
+                outcomes[i] = new Outcome(urls.get(i), Status.FAILED, "invalid URL, expected http(s)://host/...");
+            } else {
+                batchHosts.add(uris[i].getHost());
+            }
+        }
+        Set<Long> logged = databaseService != null
+                ? databaseService.recentCrawlHashes(batchHosts, dedupWindow)
+                : Set.of();
+
+        Map<String, List<Integer>> byHost = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        synchronized (recent) {
+            long cutoff = now - dedupWindow.toMillis();
+            recent.values().removeIf(submitted -> submitted < cutoff);
+            Set<Long> batch = new HashSet<>();
+            for (int i = 0; i < outcomes.length; i++) {
+                if (uris[i] == null) {
+                    continue;
+                }
+                long key = CrawlUrls.hash(uris[i].toString());
+                if (!batch.add(key)) {
+                    outcomes[i] = new Outcome(urls.get(i), Status.SKIPPED, "duplicate in batch");
+                } else if (recent.containsKey(key) || logged.contains(key)) {
+                    outcomes[i] = new Outcome(urls.get(i), Status.SKIPPED,
+                            "submitted within the last " + settings.getDedupWindowHours() + " hours");
+                } else {
+                    // Claimed now so a concurrent batch skips it; released again if the submission fails
+                    recent.put(key, now);
+                    keys[i] = key;
+                    byHost.computeIfAbsent(uris[i].getHost(), h -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        if (hosts.size() > MAX_HOST_BUCKETS) {
+            hosts.values().removeIf(TokenBucket::isIdle);
+        }
+        List<Future<?>> groups = new ArrayList<>(byHost.size());
+        for (Map.Entry<String, List<Integer>> group : byHost.entrySet()) {
+            TokenBucket host = hosts.computeIfAbsent(group.getKey(),
+                    h -> new TokenBucket(settings.getHostRatePerSecond(), settings.getHostBurst()));
+            groups.add(executor.submit(() -> {
+                for (int i : group.getValue()) {
+                    outcomes[i] = start(urls.get(i), keys[i], depth, host);
+                }
+            }));
+        }
+        await(groups);
+
+        List<DatabaseService.CrawlEntry> entries = new ArrayList<>(outcomes.length);
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == null) {
+                outcomes[i] = new Outcome(urls.get(i), Status.FAILED, "interrupted");
+                forget(keys[i]);
+            }
+            if (keys[i] != null) {
+                entries.add(new DatabaseService.CrawlEntry(urls.get(i), depth,
+                        outcomes[i].status() == Status.ACCEPTED ? "started" : "failed"));
+            }
+        }
+        if (databaseService != null) {
+            databaseService.logCrawlBatch(entries);
+        }
+        return Arrays.asList(outcomes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Outcome start(String url, Long key, int depth, TokenBucket host) {
+        if (Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        try {
+            host.acquire();
+            global.acquire();
+            yaCyClient.startCrawl(url, depth);
+            return new Outcome(url, Status.ACCEPTED, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Crawl start for {} failed: {}", url, e.getMessage());
+            forget(key);
+            return new Outcome(url, Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void await(List<Future<?>> groups) {
+        for (Future<?> group : groups) {
+            try {
+                group.get();
+            } catch (InterruptedException e) {
+                groups.forEach(g -> g.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Crawl batch group failed", e.getCause());
+            }
+        }
+    }
+
+    private void forget(Long key) {
+        synchronized (recent) {
+            recent.remove(key);
+        }
+    }
+}
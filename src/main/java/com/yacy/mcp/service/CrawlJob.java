@@ -0,0 +1,57 @@
+package com.yacy.mcp.service;
+
+/**
+ * A row of crawl_jobs. Times are epoch milliseconds.
+ * A job is queued until YaCy accepts it, running until its URL shows up in the index,
+ * and then finished; it fails after too many rejected submissions or if the URL is not
+ * indexed in time.
+ *
+ * @param nextAttemptAt next submission attempt while queued, next status check while running
+ * @param handle        crawl handle returned by YaCy, if any
+ * @param error         last submission or crawl error
+ * @param submittedAt   when YaCy accepted the crawl, null while queued
+ */
+public record CrawlJob(long id, String url, int depth, String status, int attempts, long nextAttemptAt,
+                       String handle, String error, long createdAt, long updatedAt, Long submittedAt) {
+
+    public static final String QUEUED = "queued";
+    public static final String RUNNING = "running";
+    public static final String FINISHED = "finished";
+    public static final String FAILED = "failed";
+
+    /**
+     * Claimed by a worker; nobody else picks it up before leaseUntil
+     */
+    CrawlJob leased(long leaseUntil) {
+        return new CrawlJob(id, url, depth, status, attempts, leaseUntil, handle, error, createdAt, updatedAt, submittedAt);
+    }
+
+    /**
+     * YaCy accepted the crawl; the first status check is at checkAt
+     */
+    CrawlJob running(String handle, long now, long checkAt) {
+        return new CrawlJob(id, url, depth, RUNNING, attempts + 1, checkAt, handle, null, createdAt, now, now);
+    }
+
+    /**
+     * Submission failed; try again at retryAt
+     */
+    CrawlJob retry(String error, long now, long retryAt) {
+        return new CrawlJob(id, url, depth, QUEUED, attempts + 1, retryAt, handle, error, createdAt, now, submittedAt);
+    }
+
+    /**
+     * Still running; check again at checkAt
+     */
+    CrawlJob recheck(long now, long checkAt) {
+        return new CrawlJob(id, url, depth, status, attempts, checkAt, handle, error, createdAt, now, submittedAt);
+    }
+
+    CrawlJob finished(long now) {
+        return new CrawlJob(id, url, depth, FINISHED, attempts, now, handle, null, createdAt, now, submittedAt);
+    }
+
+    CrawlJob failed(String error, long now) {
+        return new CrawlJob(id, url, depth, FAILED, attempts, now, handle, error, createdAt, now, submittedAt);
+    }
+}
@@ -0,0 +1,238 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Persistent crawl job queue in the crawl_jobs table.
+ * enqueue() only inserts a row, so yacy_start_crawl returns at once with a job id.
+ * A scheduler thread picks up due jobs every jobPollIntervalSeconds, and right after an
+ * enqueue, and hands them to jobConcurrency workers:
+ * <ul>
+ *   <li>queued jobs are submitted to YaCy; a rejected submission is retried with exponential
+ *       backoff and jitter, and the job fails after jobMaxAttempts</li>
+ *   <li>running jobs are checked every jobStatusCheckSeconds by looking the URL up in the
+ *       index; they finish once it is indexed and fail after jobTimeoutMinutes</li>
+ * </ul>
+ * Jobs survive restarts: whatever was queued or running is picked up again on the next run.
+ * Several processes may share the database; a job is claimed with a conditional update that
+ * pushes its next attempt out by jobLeaseSeconds, so only one of them works on it, and a job
+ * whose worker died is picked up again once the lease runs out.
+ */
+@Service
+public class CrawlJobQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlJobQueue.class);
+
+    private final YaCyClient yaCyClient;
+    private final DatabaseService databaseService;
+    private final YaCyConfig.Crawl settings;
+    private final LongSupplier clock;
+    private final int concurrency;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CrawlJobQueue(YaCyClient yaCyClient, DatabaseService databaseService, YaCyConfig config) {
+        this(yaCyClient, databaseService, config.getCrawl(), System::currentTimeMillis);
+    }
+
+    CrawlJobQueue(YaCyClient yaCyClient, DatabaseService databaseService, YaCyConfig.Crawl settings, LongSupplier clock) {
+        this.yaCyClient = yaCyClient;
+        this.databaseService = databaseService;
+        this.settings = settings;
+        this.clock = clock;
+        this.concurrency = Math.max(1, settings.getJobConcurrency());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "crawl-jobs");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger threadIds = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r, "crawl-job-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Start polling; the first poll waits one interval so startup does not touch the database
+     */
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(1, settings.getJobPollIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue a crawl; it is submitted in the background
+     */
+    public CrawlJob enqueue(String url, int depth) {
+        long now = clock.getAsLong();
+        long id = databaseService.insertCrawlJob(url, depth, now);
+        wake();
+        return new CrawlJob(id, url, depth, CrawlJob.QUEUED, 0, now, null, null, now, now, null);
+    }
+
+    /**
+     * @return the job, or null if there is none with that id
+     */
+    public CrawlJob find(long id) {
+        return databaseService.findCrawlJob(id);
+    }
+
+    /**
+     * Most recent jobs, optionally only those with the given status
+     */
+    public List<CrawlJob> recent(String status, int limit) {
+        return databaseService.recentCrawlJobs(status, limit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Hand due jobs to free workers; runs on the scheduler thread only
+     */
+    void poll() {
+        int free = concurrency - inFlight.size();
+        if (free <= 0) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            long leaseUntil = now + TimeUnit.SECONDS.toMillis(Math.max(1, settings.getJobLeaseSeconds()));
+            for (CrawlJob due : databaseService.dueCrawlJobs(now, free + inFlight.size())) {
+                if (inFlight.size() >= concurrency) {
+                    break;
+                }
+                if (inFlight.contains(due.id())) {
+                    continue;
+                }
+                CrawlJob job = databaseService.claimCrawlJob(due, leaseUntil);
+                if (job != null && inFlight.add(job.id())) {
+                    workers.execute(() -> {
+                        try {
+                            process(job);
+                        } finally {
+                            inFlight.remove(job.id());
+                            wake();
+                        }
+                    });
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            log.debug("Crawl job queue is shutting down");
+        } catch (Exception e) {
+            log.warn("Error polling crawl jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Submit or check one claimed job. Like crawl batches, the submission's outcome goes to
+     * crawl_history once it is known: "started" when YaCy accepts it, "failed" when it gives up.
+     */
+    void process(CrawlJob job) {
+        try {
+            boolean queued = CrawlJob.QUEUED.equals(job.status());
+            CrawlJob updated = queued ? submit(job) : check(job);
+            databaseService.updateCrawlJob(updated);
+            if (queued && !CrawlJob.QUEUED.equals(updated.status())) {
+                databaseService.logCrawl(job.url(), job.depth(),
+                        CrawlJob.RUNNING.equals(updated.status()) ? "started" : "failed");
+            }
+        } catch (Exception e) {
+            log.warn("Error updating crawl job {}: {}", job.id(), e.getMessage());
+            // The worker's wake() polls again at once; back off instead of retrying in a loop
+            long now = clock.getAsLong();
+            try {
+                databaseService.updateCrawlJob(job.recheck(now, now + backoff(job.attempts() + 1)));
+            } catch (Exception backoffError) {
+                log.debug("Could not back off crawl job {}, its lease delays it instead: {}",
+                        job.id(), backoffError.getMessage());
+            }
+        }
+    }
+
+    private CrawlJob submit(CrawlJob job) {
+        try {
+            JsonNode response = yaCyClient.startCrawl(job.url(), job.depth());
+            long now = clock.getAsLong();
+            String handle = response != null ? response.path("handle").asText(null) : null;
+            log.debug("Crawl job {} for {} accepted by YaCy", job.id(), job.url());
+            return job.running(handle, now, now + TimeUnit.SECONDS.toMillis(settings.getJobStatusCheckSeconds()));
+        } catch (IOException | RuntimeException e) {
+            long now = clock.getAsLong();
+            CrawlJob retried = job.retry(e.getMessage(), now, now + backoff(job.attempts() + 1));
+            if (retried.attempts() >= settings.getJobMaxAttempts()) {
+                log.info("Crawl job {} for {} failed after {} attempts: {}",
+                        job.id(), job.url(), retried.attempts(), e.getMessage());
+                return retried.failed("submission failed after " + retried.attempts() + " attempts: " + e.getMessage(), now);
+            }
+            log.debug("Crawl job {} for {} will be retried: {}", job.id(), job.url(), e.getMessage());
+            return retried;
+        }
+    }
+
+    private CrawlJob check(CrawlJob job) {
+        long now = clock.getAsLong();
+        try {
+            JsonNode document = yaCyClient.getDocument(job.url());
+            if (document.path("channels").path(0).path("items").size() > 0) {
+                return job.finished(now);
+            }
+        } catch (IOException e) {
+            // An unreachable YaCy says nothing about the crawl; check again later
+            log.debug("Status check of crawl job {} failed: {}", job.id(), e.getMessage());
+        }
+        long submittedAt = job.submittedAt() != null ? job.submittedAt() : job.createdAt();
+        if (now - submittedAt > TimeUnit.MINUTES.toMillis(settings.getJobTimeoutMinutes())) {
+            return job.failed("not indexed within " + settings.getJobTimeoutMinutes() + " minutes", now);
+        }
+        return job.recheck(now, now + TimeUnit.SECONDS.toMillis(settings.getJobStatusCheckSeconds()));
+    }
+
+    /**
+     * Retry delay after the given number of failed attempts: doubling from the base up to the
+     * maximum, with jitter so jobs rejected together do not retry together
+     */
+    long backoff(int attempts) {
+        long base = TimeUnit.SECONDS.toMillis(settings.getJobRetryBaseSeconds());
+        long max = TimeUnit.SECONDS.toMillis(settings.getJobRetryMaxSeconds());
+        long delay = Math.min(max, base << Math.min(20, Math.max(0, attempts - 1)));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void wake() {
+        try {
+            scheduler.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            log.debug("Crawl job queue is shutting down");
+        }
+    }
+}
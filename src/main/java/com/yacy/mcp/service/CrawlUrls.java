@@ -0,0 +1,65 @@
+package com.yacy.mcp.service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Canonical form and hash of crawl URLs, the dedup key stored in crawl_history.url_hash
+ */
+public final class CrawlUrls {
+
+    private CrawlUrls() {
+    }
+
+    /**
+     * http(s) URL with lower-case scheme and host, default port and fragment removed;
+     * null if the URL is not an absolute http(s) URL
+     */
+    public static URI canonical(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(url.trim());
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+            if (!"http".equals(scheme) && !"https".equals(scheme) || uri.getHost() == null) {
+                return null;
+            }
+            int port = uri.getPort() == ("http".equals(scheme) ? 80 : 443) ? -1 : uri.getPort();
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            String query = uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "";
+            return new URI(scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT)
+                    + (port != -1 ? ":" + port : "") + path + query);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Host of the canonical URL, or null if the URL is not an http(s) URL
+     */
+    public static String host(String url) {
+        URI uri = canonical(url);
+        return uri != null ? uri.getHost() : null;
+    }
+
+    /**
+     * First 64 bits of the SHA-256 of the canonical URL (of the trimmed URL if it has no canonical form).
+     * Stable across versions, since it is persisted.
+     */
+    public static long hash(String url) {
+        URI uri = canonical(url);
+        String key = uri != null ? uri.toString() : url.trim();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
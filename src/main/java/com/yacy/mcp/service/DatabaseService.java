@@ -1,69 +1,179 @@
 package com.yacy.mcp.service;
 
+import com.yacy.mcp.config.YaCyConfig;
 import org.jooq.DSLContext;
+import org.jooq.Record;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 
 /**
- * Service for managing search history in SQLite database
+ * Service for managing search history in SQLite database.
+ * Search and crawl history is written through the {@link HistoryStore} chosen with
+ * yacy.history.store; everything else, including all history queries, uses SQLite directly.
  */
 @Service
-public class DatabaseService {
+public class DatabaseService implements SmartLifecycle {
 
     private static final Logger log = LoggerFactory.getLogger(DatabaseService.class);
 
+    private static final int HOST_LOOKUP_CHUNK = 500;
+
     private final DSLContext dsl;
+    private final boolean lazySchema;
+    private final ApplicationEventPublisher events;
+    private final HistoryStore store;
+    /**
+     * Null unless history goes to the log store
+     */
+    private final HistoryLogCompactor compactor;
+    private volatile boolean schemaReady = false;
+    private volatile boolean running = false;
 
-    public DatabaseService(DSLContext dsl) {
+    @Autowired
+    public DatabaseService(DSLContext dsl,
+                           @Value("${mcp.startup.lazy-schema:false}") boolean lazySchema,
+                           ApplicationEventPublisher events,
+                           YaCyConfig config) {
+        this(dsl, lazySchema, events, config.getHistory());
+    }
+
+    /**
+     * Database service that writes history straight to SQLite and publishes no {@link SearchLoggedEvent}s
+     */
+    public DatabaseService(DSLContext dsl, boolean lazySchema) {
+        this(dsl, lazySchema, null, new YaCyConfig.History());
+    }
+
+    DatabaseService(DSLContext dsl, boolean lazySchema, ApplicationEventPublisher events, YaCyConfig.History settings) {
         this.dsl = dsl;
+        this.lazySchema = lazySchema;
+        this.events = events;
+        String kind = settings.getStore() == null ? "sqlite" : settings.getStore().trim().toLowerCase(Locale.ROOT);
+        switch (kind) {
+            case "sqlite" -> {
+                this.store = new SqliteHistoryStore(dsl, this::ensureSchema);
+                this.compactor = null;
+            }
+            case "log" -> {
+                Path directory = logDirectory(settings.getLogDirectory());
+                Duration interval = Duration.ofSeconds(Math.max(1, settings.getLogCompactIntervalSeconds()));
+                this.store = new LogHistoryStore(directory, settings.getLogGroupCommitMillis(),
+                        settings.getLogSegmentMaxBytes(), interval.toMillis());
+                this.compactor = new HistoryLogCompactor(dsl, directory, this::ensureSchema, interval,
+                        Duration.ofDays(settings.getRawRetentionDays()));
+                log.info("History is written to log segments in {}", directory);
+            }
+            default -> throw new IllegalArgumentException(
+                    "yacy.history.store must be sqlite or log, not " + settings.getStore());
+        }
+    }
+
+    private static Path logDirectory(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".yacy-mcp", "history-log");
     }
 
     @PostConstruct
     public void init() {
-        createTables();
+        // In fast-start mode the schema is created by the first write instead of at startup
+        if (!lazySchema) {
+            try {
+                ensureSchema();
+            } catch (RuntimeException e) {
+                log.error("Error initializing database tables; retrying on first use", e);
+            }
+        }
+        if (compactor != null) {
+            compactor.start();
+        }
     }
 
-    private void createTables() {
-        try {
-            // Create search_history table
-            dsl.execute("""
-                CREATE TABLE IF NOT EXISTS search_history (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    query TEXT NOT NULL,
-                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    result_count INTEGER,
-                    execution_time_ms INTEGER
-                )
-            """);
-
-            // Create crawl_history table
-            dsl.execute("""
-                CREATE TABLE IF NOT EXISTS crawl_history (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
-                    url TEXT NOT NULL,
-                    depth INTEGER,
-                    timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    status TEXT
-                )
-            """);
-
-            log.info("Database tables initialized successfully");
-        } catch (Exception e) {
-            log.error("Error initializing database tables", e);
+    /**
+     * Nothing to reopen: the history store opens its connection or segment on the next write
+     */
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Release the history store's connection or open segment, e.g. before a CRaC checkpoint
+     */
+    @Override
+    public void stop() {
+        store.release();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Write out the history store; with the log store, also import what it wrote last
+     */
+    @PreDestroy
+    public void close() {
+        store.close();
+        if (compactor != null) {
+            compactor.stop();
+        }
+    }
+
+    /**
+     * Apply pending schema migrations once. A failed migration, e.g. SQLITE_BUSY while another
+     * process migrates the same file, is thrown to the caller and retried by the next call.
+     */
+    void ensureSchema() {
+        if (schemaReady) {
+            return;
+        }
+        synchronized (this) {
+            if (!schemaReady) {
+                int applied = SchemaMigrations.migrate(dsl);
+                log.info("Database tables initialized successfully ({} migrations applied)", applied);
+                schemaReady = true;
+            }
         }
     }
 
     public void logSearch(String query, int resultCount, long executionTimeMs) {
+        long now = System.currentTimeMillis();
+        if (events != null) {
+            try {
+                events.publishEvent(new SearchLoggedEvent(query, resultCount, executionTimeMs, now));
+            } catch (Exception e) {
+                log.warn("Error publishing search event: {}", e.getMessage());
+            }
+        }
         try {
-            dsl.insertInto(
-                org.jooq.impl.DSL.table("search_history"),
-                org.jooq.impl.DSL.field("query"),
-                org.jooq.impl.DSL.field("result_count"),
-                org.jooq.impl.DSL.field("execution_time_ms")
-            ).values(query, resultCount, executionTimeMs).execute();
+            store.appendSearch(query, resultCount, executionTimeMs, now);
         } catch (Exception e) {
             log.error("Error logging search", e);
         }
@@ -71,14 +181,233 @@ public class DatabaseService {
 
     public void logCrawl(String url, int depth, String status) {
         try {
-            dsl.insertInto(
-                org.jooq.impl.DSL.table("crawl_history"),
-                org.jooq.impl.DSL.field("url"),
-                org.jooq.impl.DSL.field("depth"),
-                org.jooq.impl.DSL.field("status")
-            ).values(url, depth, status).execute();
+            store.appendCrawls(List.of(new CrawlEntry(url, depth, status)), System.currentTimeMillis());
         } catch (Exception e) {
             log.error("Error logging crawl", e);
         }
     }
+
+    /**
+     * Log the submissions of a crawl batch together (in a single transaction with the SQLite store)
+     */
+    public void logCrawlBatch(List<CrawlEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            store.appendCrawls(entries, System.currentTimeMillis());
+        } catch (Exception e) {
+            log.error("Error logging crawl batch", e);
+        }
+    }
+
+    /**
+     * URL hashes (see {@link CrawlUrls#hash}) submitted for crawling on the given hosts within
+     * the window, failed submissions excluded. Answered from the host index alone.
+     */
+    public Set<Long> recentCrawlHashes(Collection<String> hosts, Duration window) {
+        Set<Long> hashes = new HashSet<>();
+        if (hosts.isEmpty()) {
+            return hashes;
+        }
+        try {
+            ensureSchema();
+            List<String> all = new ArrayList<>(hosts);
+            // Stay well below SQLite's limit on bound parameters
+            for (int from = 0; from < all.size(); from += HOST_LOOKUP_CHUNK) {
+                List<String> chunk = all.subList(from, Math.min(all.size(), from + HOST_LOOKUP_CHUNK));
+                List<Object> binds = new ArrayList<>(chunk);
+                binds.add("-" + window.toSeconds() + " seconds");
+                hashes.addAll(dsl.fetch("SELECT url_hash FROM crawl_history WHERE host IN ("
+                                + String.join(", ", Collections.nCopies(chunk.size(), "?"))
+                                + ") AND timestamp >= datetime('now', ?) AND (status IS NULL OR status <> 'failed')",
+                        binds.toArray())
+                        .getValues(0, Long.class));
+            }
+        } catch (Exception e) {
+            log.error("Error loading recent crawls", e);
+        }
+        return hashes;
+    }
+
+    /**
+     * Searches logged in [fromMillis, untilMillis), oldest first
+     */
+    public void forEachSearch(long fromMillis, long untilMillis, Consumer<SearchLoggedEvent> action) {
+        ensureSchema();
+        for (Record record : dsl.fetch("""
+                SELECT query, result_count, execution_time_ms, CAST(strftime('%s', timestamp) AS INTEGER) * 1000
+                FROM search_history
+                WHERE timestamp >= datetime(? / 1000, 'unixepoch') AND timestamp < datetime(? / 1000, 'unixepoch')
+                ORDER BY timestamp
+                """, fromMillis, untilMillis)) {
+            Integer resultCount = record.get(1, Integer.class);
+            Long executionTimeMs = record.get(2, Long.class);
+            action.accept(new SearchLoggedEvent(record.get(0, String.class),
+                    resultCount != null ? resultCount : 0,
+                    executionTimeMs != null ? executionTimeMs : 0,
+                    record.get(3, Long.class)));
+        }
+    }
+
+    /**
+     * Successful searches (result_count > 0) logged in [fromMillis, untilMillis), counted by query and day
+     */
+    public void forEachQueryDay(long fromMillis, long untilMillis, Consumer<QueryDay> action) {
+        ensureSchema();
+        for (Record record : dsl.fetch("""
+                SELECT query, COUNT(*), MAX(CAST(strftime('%s', timestamp) AS INTEGER)) * 1000
+                FROM search_history
+                WHERE timestamp >= datetime(? / 1000, 'unixepoch') AND timestamp < datetime(? / 1000, 'unixepoch')
+                    AND result_count > 0
+                GROUP BY query, date(timestamp)
+                """, fromMillis, untilMillis)) {
+            action.accept(new QueryDay(record.get(0, String.class), record.get(1, Integer.class), record.get(2, Long.class)));
+        }
+    }
+
+    /**
+     * Checkpointed search analytics buckets from the given epoch hour on
+     */
+    public Map<Long, byte[]> loadAnalyticsBuckets(long fromHour) {
+        ensureSchema();
+        Map<Long, byte[]> buckets = new LinkedHashMap<>();
+        for (Record record : dsl.fetch("SELECT hour, data FROM search_analytics WHERE hour >= ? ORDER BY hour", fromHour)) {
+            buckets.put(record.get(0, Long.class), record.get(1, byte[].class));
+        }
+        return buckets;
+    }
+
+    /**
+     * Merge buckets into the stored ones and drop buckets before the given hour, in one
+     * transaction, so processes sharing the database add up instead of overwriting each other
+     *
+     * @param merge combines a stored bucket (first argument) with the given one
+     */
+    public void mergeAnalyticsBuckets(Map<Long, byte[]> buckets, BinaryOperator<byte[]> merge, long deleteBeforeHour) {
+        ensureSchema();
+        long now = System.currentTimeMillis();
+        dsl.transaction(configuration -> {
+            DSLContext tx = configuration.dsl();
+            // Writes first, so the transaction holds the write lock before it reads what it merges into
+            tx.execute("DELETE FROM search_analytics WHERE hour < ?", deleteBeforeHour);
+            for (Map.Entry<Long, byte[]> bucket : buckets.entrySet()) {
+                Record stored = tx.fetchOne("SELECT data FROM search_analytics WHERE hour = ?", bucket.getKey());
+                byte[] data = stored != null ? merge.apply(stored.get(0, byte[].class), bucket.getValue()) : bucket.getValue();
+                tx.execute("INSERT OR REPLACE INTO search_analytics (hour, data, updated_at) VALUES (?, ?, ?)",
+                        bucket.getKey(), data, now);
+            }
+        });
+    }
+
+    /**
+     * Add a queued crawl job
+     *
+     * @return the job id
+     */
+    public long insertCrawlJob(String url, int depth, long now) {
+        ensureSchema();
+        // last_insert_rowid() is per connection, so both statements run in one transaction
+        return dsl.transactionResult(configuration -> {
+            configuration.dsl().execute("""
+                    INSERT INTO crawl_jobs (url, depth, status, attempts, next_attempt_at, created_at, updated_at)
+                    VALUES (?, ?, ?, 0, ?, ?, ?)
+                    """, url, depth, CrawlJob.QUEUED, now, now, now);
+            return configuration.dsl().fetchOne("SELECT last_insert_rowid()").get(0, Long.class);
+        });
+    }
+
+    /**
+     * Queued and running jobs whose next attempt or status check is due, earliest first.
+     * Reading a job does not claim it; see {@link #claimCrawlJob}.
+     */
+    public List<CrawlJob> dueCrawlJobs(long now, int limit) {
+        ensureSchema();
+        return crawlJobs(dsl.fetch("""
+                SELECT * FROM crawl_jobs
+                WHERE status IN (?, ?) AND next_attempt_at <= ?
+                ORDER BY next_attempt_at LIMIT ?
+                """, CrawlJob.QUEUED, CrawlJob.RUNNING, now, limit));
+    }
+
+    /**
+     * Claim a due job by moving its next attempt to leaseUntil. The update only applies to the
+     * row as it was read, so of several workers or processes that read it exactly one wins.
+     *
+     * @return the claimed job, or null if someone else claimed or updated it first
+     */
+    public CrawlJob claimCrawlJob(CrawlJob job, long leaseUntil) {
+        ensureSchema();
+        int updated = dsl.execute("""
+                UPDATE crawl_jobs SET status = ?, next_attempt_at = ?
+                WHERE id = ? AND status = ? AND next_attempt_at = ?
+                """, job.status(), leaseUntil, job.id(), job.status(), job.nextAttemptAt());
+        return updated == 1 ? job.leased(leaseUntil) : null;
+    }
+
+    /**
+     * @return the job, or null if there is none with that id
+     */
+    public CrawlJob findCrawlJob(long id) {
+        ensureSchema();
+        Record record = dsl.fetchOne("SELECT * FROM crawl_jobs WHERE id = ?", id);
+        return record != null ? crawlJob(record) : null;
+    }
+
+    /**
+     * Most recent jobs, optionally only those with the given status
+     */
+    public List<CrawlJob> recentCrawlJobs(String status, int limit) {
+        ensureSchema();
+        return crawlJobs(status == null
+                ? dsl.fetch("SELECT * FROM crawl_jobs ORDER BY id DESC LIMIT ?", limit)
+                : dsl.fetch("SELECT * FROM crawl_jobs WHERE status = ? ORDER BY id DESC LIMIT ?", status, limit));
+    }
+
+    public void updateCrawlJob(CrawlJob job) {
+        ensureSchema();
+        dsl.execute("""
+                UPDATE crawl_jobs SET status = ?, attempts = ?, next_attempt_at = ?, handle = ?, error = ?,
+                    updated_at = ?, submitted_at = ?
+                WHERE id = ?
+                """, job.status(), job.attempts(), job.nextAttemptAt(), job.handle(), job.error(),
+                job.updatedAt(), job.submittedAt(), job.id());
+    }
+
+    private static List<CrawlJob> crawlJobs(Iterable<Record> records) {
+        List<CrawlJob> jobs = new ArrayList<>();
+        for (Record record : records) {
+            jobs.add(crawlJob(record));
+        }
+        return jobs;
+    }
+
+    private static CrawlJob crawlJob(Record record) {
+        return new CrawlJob(
+                record.get("id", Long.class),
+                record.get("url", String.class),
+                record.get("depth", Integer.class),
+                record.get("status", String.class),
+                record.get("attempts", Integer.class),
+                record.get("next_attempt_at", Long.class),
+                record.get("handle", String.class),
+                record.get("error", String.class),
+                record.get("created_at", Long.class),
+                record.get("updated_at", Long.class),
+                record.get("submitted_at", Long.class));
+    }
+
+    /**
+     * Successful searches of a query on one day
+     *
+     * @param lastSearchedAt epoch milliseconds of the last of them
+     */
+    public record QueryDay(String query, int searches, long lastSearchedAt) {
+    }
+
+    /**
+     * One crawl_history row
+     */
+    public record CrawlEntry(String url, int depth, String status) {
+    }
 }
@@ -0,0 +1,623 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.yacy.mcp.config.YaCyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache for yacy_get_document in an append-only, memory-mapped segment file.
+ * Each document is appended as one record holding its URL and JSON body, and an off-heap
+ * open-addressing table maps the 64-bit hash of the URL to the record's offset and expiry.
+ * Hits are parsed straight from the mapping, so neither the segment nor the raw body is
+ * copied onto the heap.
+ *
+ * A record is valid until its TTL passes or invalidate() is called. When the segment is
+ * full, compaction rewrites the live records into a fresh file, dropping expired and
+ * replaced ones and, if that does not free enough space, the oldest documents.
+ * The segment is opened and indexed on first use, so cached documents survive restarts.
+ * It is unmapped when the context stops, e.g. before a CRaC checkpoint, and reopened and
+ * indexed again on the next use.
+ *
+ * Several processes may share the segment. Writes and compaction hold an exclusive lock on
+ * a sibling ".lock" file, and under it a process first catches up with the others: it
+ * indexes the records they appended past its own end offset, or remaps and rescans the
+ * segment if the generation stored in the lock file shows that one of them compacted it.
+ * Reads take no file lock: a process sees documents other processes stored once it next
+ * writes, reads its older mapping until then, which stays valid after the file is replaced,
+ * and sees other processes' invalidations through the expiry in the record header.
+ */
+@Component
+@ConditionalOnProperty(prefix = "yacy.documents", name = "cache-enabled", havingValue = "true", matchIfMissing = true)
+public class DocumentCache implements SmartLifecycle, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentCache.class);
+
+    private static final int RECORD_MAGIC = 0x59444331;
+
+    /**
+     * Record header: magic, URL length, body length, expiry in epoch milliseconds
+     */
+    private static final int RECORD_HEADER = 4 + 4 + 4 + 8;
+
+    private static final int MIN_CAPACITY = 64 * 1024;
+
+    /**
+     * Share of the segment compaction may keep, so a full segment is not compacted on every write
+     */
+    private static final double COMPACT_FILL = 0.5;
+
+    private final Path file;
+    private final Path lockFile;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile MappedByteBuffer segment;
+    private volatile boolean disabled;
+    private int end;
+    private Index index;
+    private FileChannel lockChannel;
+    /** Compactions of the shared segment this process has caught up with */
+    private long generation;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter stored;
+    private final Counter evicted;
+
+    @Autowired
+    public DocumentCache(YaCyConfig config, MeterRegistry meterRegistry) {
+        this(cacheFile(config.getDocuments().getCacheFile()), config.getDocuments().getCacheMaxBytes(),
+                Duration.ofSeconds(config.getDocuments().getCacheTtlSeconds()), meterRegistry, System::currentTimeMillis);
+    }
+
+    DocumentCache(Path file, long maxBytes, Duration ttl, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.file = file;
+        this.lockFile = file.resolveSibling(file.getFileName() + ".lock");
+        this.capacity = (int) Math.max(MIN_CAPACITY, Math.min(Integer.MAX_VALUE - 8, maxBytes));
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.stored = counter(meterRegistry, "stored");
+        this.evicted = counter(meterRegistry, "evicted");
+    }
+
+    private static Path cacheFile(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".yacy-mcp", "documents.seg");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("yacy.documents.cache")
+                .tag("result", result)
+                .description("yacy_get_document cache lookups, stores and evictions")
+                .register(registry);
+    }
+
+    /**
+     * Cached document for the URL, or null if there is none or it has expired
+     */
+    public JsonNode get(String url) {
+        if (!ensureOpen()) {
+            return null;
+        }
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(ByteBuffer.wrap(key), 0, key.length);
+        lock.readLock().lock();
+        try {
+            int slot = segment != null ? index.find(hash) : -1;
+            long now = clock.getAsLong();
+            if (slot < 0 || index.expiresAt(slot) <= now) {
+                misses.increment();
+                return null;
+            }
+            int offset = index.offset(slot);
+            int bodyLength = segment.getInt(offset + 8);
+            if (segment.getInt(offset) != RECORD_MAGIC || !fits(offset, segment.getInt(offset + 4), bodyLength)) {
+                // Torn or overwritten by another process
+                log.debug("Ignoring damaged document cache record for {} at {}", url, offset);
+                misses.increment();
+                return null;
+            }
+            // The header's expiry also reflects invalidations by other processes
+            if (segment.getLong(offset + 12) <= now || !urlMatches(offset, key)) {
+                misses.increment();
+                return null;
+            }
+            ByteBuffer body = segment.slice(offset + RECORD_HEADER + key.length, bodyLength);
+            try (InputStream in = new ByteBufferBackedInputStream(body)) {
+                JsonNode document = objectMapper.readTree(in);
+                hits.increment();
+                return document;
+            }
+        } catch (IOException e) {
+            log.warn("Unreadable document cache record for {}: {}", url, e.getMessage());
+            misses.increment();
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Append the document; documents larger than half the segment are not cached
+     */
+    public void put(String url, JsonNode document) {
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(document);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not encode document {} for the cache: {}", url, e.getMessage());
+            return;
+        }
+        long length = (long) RECORD_HEADER + key.length + body.length;
+        if (length > capacity * (1 - COMPACT_FILL) || !ensureOpen()) {
+            return;
+        }
+        lock.writeLock().lock();
+        FileLock fileLock = null;
+        try {
+            if (segment == null) {
+                return;
+            }
+            fileLock = lockSegment();
+            if (end + length > capacity) {
+                compact((int) length);
+            }
+            int offset = end;
+            long expiresAt = clock.getAsLong() + ttlMillis;
+            MappedByteBuffer buffer = segment;
+            buffer.putInt(offset + 4, key.length);
+            buffer.putInt(offset + 8, body.length);
+            buffer.putLong(offset + 12, expiresAt);
+            buffer.put(offset + RECORD_HEADER, key);
+            buffer.put(offset + RECORD_HEADER + key.length, body);
+            // Written last, so a torn write is not mistaken for a record when the segment is scanned
+            buffer.putInt(offset, RECORD_MAGIC);
+            end = offset + (int) length;
+            index = index.put(hash(ByteBuffer.wrap(key), 0, key.length), offset, expiresAt);
+            stored.increment();
+        } catch (IOException e) {
+            log.warn("Could not write document {} to the cache: {}", url, e.getMessage());
+        } finally {
+            release(fileLock);
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the cached document for the URL, also for later runs
+     */
+    public void invalidate(String url) {
+        if (!ensureOpen()) {
+            return;
+        }
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        FileLock fileLock = null;
+        try {
+            if (segment == null) {
+                return;
+            }
+            fileLock = lockSegment();
+            int slot = index.find(hash(ByteBuffer.wrap(key), 0, key.length));
+            if (slot >= 0) {
+                index.expire(slot);
+                segment.putLong(index.offset(slot) + 12, 0L);
+            }
+        } catch (IOException e) {
+            log.warn("Could not invalidate cached document {}: {}", url, e.getMessage());
+        } finally {
+            release(fileLock);
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite the segment with only the live records
+     */
+    public void compact() throws IOException {
+        if (!ensureOpen()) {
+            return;
+        }
+        lock.writeLock().lock();
+        FileLock fileLock = null;
+        try {
+            if (segment != null) {
+                fileLock = lockSegment();
+                compact(0);
+            }
+        } finally {
+            release(fileLock);
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes used by records in the segment, live or not
+     */
+    public int getSegmentBytes() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nothing to reopen: the segment is mapped again on the next use
+     */
+    @Override
+    public void start() {
+    }
+
+    /**
+     * Drop the mapping and the lock file channel, e.g. before a CRaC checkpoint
+     */
+    @Override
+    public void stop() {
+        lock.writeLock().lock();
+        try {
+            release();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return segment != null;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            disabled = true;
+            release();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void release() {
+        if (segment != null) {
+            segment.force();
+        }
+        segment = null;
+        index = null;
+        close(lockChannel);
+        lockChannel = null;
+    }
+
+    private boolean ensureOpen() {
+        if (segment != null) {
+            return true;
+        }
+        if (disabled) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (segment == null && !disabled) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+                lockChannel = FileChannel.open(lockFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try (FileLock fileLock = lockChannel.lock()) {
+                    generation = readGeneration();
+                    MappedByteBuffer mapped = map(file);
+                    index = new Index(Index.MIN_SLOTS);
+                    end = scan(mapped, 0);
+                    segment = mapped;
+                }
+                log.info("Document cache {} opened with {} records in {} bytes", file, index.size(), end);
+            }
+            return segment != null;
+        } catch (IOException e) {
+            log.warn("Document cache disabled, cannot open {}: {}", file, e.getMessage());
+            disabled = true;
+            close(lockChannel);
+            lockChannel = null;
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Take the cross-process lock and catch up with the other processes: remap and rescan the
+     * segment if one of them compacted it, otherwise index what they appended after our end
+     */
+    private FileLock lockSegment() throws IOException {
+        FileLock fileLock = lockChannel.lock();
+        try {
+            long current = readGeneration();
+            if (current != generation) {
+                MappedByteBuffer mapped = map(file);
+                index = new Index(Index.MIN_SLOTS);
+                end = scan(mapped, 0);
+                segment = mapped;
+                generation = current;
+            } else {
+                end = scan(segment, end);
+            }
+            return fileLock;
+        } catch (IOException | RuntimeException e) {
+            fileLock.release();
+            throw e;
+        }
+    }
+
+    private static void release(FileLock fileLock) {
+        if (fileLock != null) {
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                log.debug("Error releasing document cache lock: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static void close(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing document cache lock file: {}", e.getMessage());
+            }
+        }
+    }
+
+    private long readGeneration() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        return lockChannel.read(buffer, 0) == 8 ? buffer.getLong(0) : 0;
+    }
+
+    private void writeGeneration(long value) throws IOException {
+        lockChannel.write(ByteBuffer.allocate(8).putLong(0, value), 0);
+    }
+
+    /**
+     * Map the file; the mapping stays valid after the channel is closed
+     */
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    /**
+     * Add the records of a segment from the given offset on to the index; a later record for
+     * a URL replaces the earlier one
+     *
+     * @return the offset after the last complete record
+     */
+    private int scan(MappedByteBuffer mapped, int from) {
+        Index scanned = index;
+        int offset = from;
+        while (offset + RECORD_HEADER <= capacity && mapped.getInt(offset) == RECORD_MAGIC) {
+            int urlLength = mapped.getInt(offset + 4);
+            int bodyLength = mapped.getInt(offset + 8);
+            if (!fits(offset, urlLength, bodyLength)) {
+                break;
+            }
+            scanned = scanned.put(hash(mapped, offset + RECORD_HEADER, urlLength), offset, mapped.getLong(offset + 12));
+            offset += RECORD_HEADER + urlLength + bodyLength;
+        }
+        index = scanned;
+        return offset;
+    }
+
+    /**
+     * Copy live records, oldest first dropped, into a new segment that leaves room for needed bytes
+     */
+    private void compact(int needed) throws IOException {
+        long now = clock.getAsLong();
+        int[] live = Arrays.stream(index.liveOffsets(now))
+                .filter(offset -> segment.getInt(offset) == RECORD_MAGIC
+                        && fits(offset, segment.getInt(offset + 4), segment.getInt(offset + 8)))
+                .sorted()
+                .toArray();
+
+        long keep = 0;
+        for (int offset : live) {
+            keep += recordLength(offset);
+        }
+        long limit = Math.min((long) (capacity * COMPACT_FILL), capacity - needed);
+        int first = 0;
+        while (keep > limit && first < live.length) {
+            keep -= recordLength(live[first++]);
+        }
+
+        Path next = file.resolveSibling(file.getFileName() + ".compact");
+        Files.deleteIfExists(next);
+        MappedByteBuffer target = map(next);
+        Index compacted = new Index(Math.max(Index.MIN_SLOTS, Integer.highestOneBit(Math.max(1, live.length - first)) * 4));
+        int position = 0;
+        for (int i = first; i < live.length; i++) {
+            int offset = live[i];
+            int length = recordLength(offset);
+            target.put(position, segment, offset, length);
+            compacted = compacted.put(hash(target, position + RECORD_HEADER, target.getInt(position + 4)),
+                    position, target.getLong(position + 12));
+            position += length;
+        }
+        target.force();
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Other processes remap when they next take the lock
+        writeGeneration(++generation);
+
+        segment = target;
+        index = compacted;
+        end = position;
+        if (first > 0) {
+            evicted.increment(first);
+        }
+        log.debug("Document cache compacted to {} records in {} bytes, {} live records evicted",
+                live.length - first, position, first);
+    }
+
+    /**
+     * Whether a record with these lengths at the offset lies within the segment
+     */
+    private boolean fits(int offset, int urlLength, int bodyLength) {
+        return urlLength >= 0 && bodyLength >= 0 && (long) offset + RECORD_HEADER + urlLength + bodyLength <= capacity;
+    }
+
+    private int recordLength(int offset) {
+        return RECORD_HEADER + segment.getInt(offset + 4) + segment.getInt(offset + 8);
+    }
+
+    private boolean urlMatches(int offset, byte[] key) {
+        if (segment.getInt(offset + 4) != key.length) {
+            return false;
+        }
+        int start = offset + RECORD_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (segment.get(start + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a with a final mix; never 0, which marks an empty index slot
+     */
+    static long hash(ByteBuffer buffer, int from, int length) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < from + length; i++) {
+            h ^= buffer.get(i) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Open-addressing table with linear probing in a direct buffer.
+     * Slot layout: URL hash (0 = empty), record offset, expiry.
+     */
+    private static final class Index {
+
+        static final int MIN_SLOTS = 1024;
+        private static final int SLOT_BYTES = 24;
+
+        private final ByteBuffer table;
+        private final int mask;
+        private int size;
+
+        Index(int slots) {
+            this.table = ByteBuffer.allocateDirect(slots * SLOT_BYTES);
+            this.mask = slots - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return the slot holding the hash, or a negative value if there is none
+         */
+        int find(long hash) {
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                long h = table.getLong(slot * SLOT_BYTES);
+                if (h == hash) {
+                    return slot;
+                }
+                if (h == 0) {
+                    return -1 - slot;
+                }
+            }
+        }
+
+        int offset(int slot) {
+            return (int) table.getLong(slot * SLOT_BYTES + 8);
+        }
+
+        long expiresAt(int slot) {
+            return table.getLong(slot * SLOT_BYTES + 16);
+        }
+
+        void expire(int slot) {
+            table.putLong(slot * SLOT_BYTES + 16, 0L);
+        }
+
+        /**
+         * Insert or replace an entry
+         *
+         * @return this table, or a larger copy once it is 70% full
+         */
+        Index put(long hash, int offset, long expiresAt) {
+            int slot = find(hash);
+            if (slot < 0) {
+                slot = -1 - slot;
+                table.putLong(slot * SLOT_BYTES, hash);
+                size++;
+            }
+            table.putLong(slot * SLOT_BYTES + 8, offset);
+            table.putLong(slot * SLOT_BYTES + 16, expiresAt);
+            if (size * 10L <= (mask + 1) * 7L) {
+                return this;
+            }
+            Index larger = new Index((mask + 1) * 2);
+            for (int i = 0; i <= mask; i++) {
+                long h = table.getLong(i * SLOT_BYTES);
+                if (h != 0) {
+                    larger.put(h, offset(i), expiresAt(i));
+                }
+            }
+            return larger;
+        }
+
+        int[] liveOffsets(long now) {
+            int[] offsets = new int[size];
+            int n = 0;
+            for (int i = 0; i <= mask; i++) {
+                if (table.getLong(i * SLOT_BYTES) != 0 && expiresAt(i) > now) {
+                    offsets[n++] = offset(i);
+                }
+            }
+            return Arrays.copyOf(offsets, n);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.yacy.mcp.service;
+
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports the segments written by {@link LogHistoryStore} into search_history and crawl_history.
+ * Every process using the log store runs a compactor, but a lock file lets only one of them
+ * import at a time; the others skip the round. Each segment is imported in one transaction
+ * together with a row in history_log_imports, so a segment whose file survived a crash after
+ * the commit is recognised and only deleted. Sealed segments are imported, and active ones
+ * whose process is gone, up to the last intact record. Imported rows can land in buckets
+ * HistoryRetention has rolled up already, so the same transaction rewinds its rollups to
+ * the earliest imported row.
+ */
+final class HistoryLogCompactor {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryLogCompactor.class);
+
+    static final String LOCK_FILE = "compactor.lock";
+
+    /**
+     * Import records are kept this long, far beyond the time a segment file could outlive its import
+     */
+    private static final Duration IMPORT_RECORD_RETENTION = Duration.ofDays(7);
+
+    private static final String INSERT_SEARCH = """
+            INSERT INTO search_history (query, timestamp, result_count, execution_time_ms)
+            VALUES (?, datetime(? / 1000, 'unixepoch'), ?, ?)
+            """;
+
+    private static final String INSERT_CRAWL = """
+            INSERT INTO crawl_history (url, url_hash, host, depth, timestamp, status)
+            VALUES (?, ?, ?, ?, datetime(? / 1000, 'unixepoch'), ?)
+            """;
+
+    private final DSLContext dsl;
+    private final Path directory;
+    private final Runnable ensureSchema;
+    private final Duration interval;
+    private final Duration rawRetention;
+    private ScheduledExecutorService scheduler;
+
+    HistoryLogCompactor(DSLContext dsl, Path directory, Runnable ensureSchema, Duration interval, Duration rawRetention) {
+        this.dsl = dsl;
+        this.directory = directory;
+        this.ensureSchema = ensureSchema;
+        this.interval = interval;
+        this.rawRetention = rawRetention;
+    }
+
+    void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "history-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1000, interval.toMillis());
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the schedule and import what the stopped store sealed last
+     */
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        compactQuietly();
+    }
+
+    private void compactQuietly() {
+        try {
+            int imported = compact();
+            if (imported > 0) {
+                log.debug("Imported {} history log segments", imported);
+            }
+        } catch (Exception e) {
+            log.warn("Error importing history log segments: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Import all importable segments unless another compactor holds the lock
+     *
+     * @return the number of segments imported
+     */
+    int compact() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = tryLock(lockChannel)) {
+            if (lock == null) {
+                return 0;
+            }
+            List<Path> segments = importableSegments();
+            if (segments.isEmpty()) {
+                return 0;
+            }
+            ensureSchema.run();
+            int imported = 0;
+            for (Path segment : segments) {
+                if (importSegment(segment)) {
+                    imported++;
+                }
+                Files.deleteIfExists(segment);
+            }
+            dsl.execute("DELETE FROM history_log_imports WHERE imported_at < ?",
+                    System.currentTimeMillis() - IMPORT_RECORD_RETENTION.toMillis());
+            return imported;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another compactor in this JVM
+            return null;
+        }
+    }
+
+    private List<Path> importableSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        long self = ProcessHandle.current().pid();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(LogHistoryStore.SEGMENT_SUFFIX)) {
+                    segments.add(file);
+                } else if (name.endsWith(LogHistoryStore.ACTIVE_SUFFIX)) {
+                    long owner = LogHistoryStore.ownerPid(file);
+                    if (owner > 0 && owner != self
+                            && !ProcessHandle.of(owner).map(ProcessHandle::isAlive).orElse(false)) {
+                        segments.add(file);
+                    }
+                }
+            }
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long earliest(List<Object[]> rows, int timestampColumn) {
+        long earliest = Long.MAX_VALUE;
+        for (Object[] row : rows) {
+            earliest = Math.min(earliest, (Long) row[timestampColumn]);
+        }
+        return earliest;
+    }
+
+    /**
+     * @return false if the segment had been imported before
+     */
+    boolean importSegment(Path segment) throws IOException {
+        List<Object[]> searches = new ArrayList<>();
+        List<Object[]> crawls = new ArrayList<>();
+        int records = LogHistoryStore.read(segment, new LogHistoryStore.Visitor() {
+            @Override
+            public void search(SearchLoggedEvent search) {
+                searches.add(new Object[]{search.query(), search.timestamp(), search.resultCount(),
+                        search.executionTimeMs()});
+            }
+
+            @Override
+            public void crawl(DatabaseService.CrawlEntry crawl, long timestamp) {
+                crawls.add(new Object[]{crawl.url(), CrawlUrls.hash(crawl.url()), CrawlUrls.host(crawl.url()),
+                        crawl.depth(), timestamp, crawl.status()});
+            }
+        });
+        String id = LogHistoryStore.segmentId(segment);
+        return dsl.transactionResult(configuration -> {
+            DSLContext tx = configuration.dsl();
+            if (tx.execute("INSERT OR IGNORE INTO history_log_imports (segment, records, imported_at) VALUES (?, ?, ?)",
+                    id, records, System.currentTimeMillis()) == 0) {
+                return false;
+            }
+            if (!searches.isEmpty()) {
+                tx.batch(INSERT_SEARCH, searches.toArray(new Object[0][])).execute();
+                HistoryRetention.rewind(tx, "search_history", earliest(searches, 1), rawRetention);
+            }
+            if (!crawls.isEmpty()) {
+                tx.batch(INSERT_CRAWL, crawls.toArray(new Object[0][])).execute();
+                HistoryRetention.rewind(tx, "crawl_history", earliest(crawls, 4), rawRetention);
+            }
+            return true;
+        });
+    }
+}
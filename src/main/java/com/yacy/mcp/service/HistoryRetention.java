@@ -0,0 +1,332 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Keeps search_history and crawl_history from growing forever.
+ * Every retentionIntervalMinutes it
+ * <ol>
+ *   <li>rolls completed hours and days of search_history into search_rollup_hourly and
+ *       search_rollup_daily (searches, p50/p95 latency and mean result count per normalised
+ *       query), and completed days of crawl_history into crawl_rollup_daily (crawls per host
+ *       and status)</li>
+ *   <li>deletes raw rows older than rawRetentionDays, but never rows not rolled up yet and
+ *       never crawl rows inside the crawl dedup window, and hourly rollups older than
+ *       hourlyRetentionDays; deletes run in batches of deleteBatchSize rows, each its own
+ *       transaction, so searches and crawls logged meanwhile wait at most one batch</li>
+ *   <li>returns up to vacuumPages free pages to the file system with incremental vacuum</li>
+ * </ol>
+ * Rollups are idempotent (INSERT OR REPLACE per bucket) and resume from rollup_state.
+ * Rows that arrive after their bucket was rolled up, like those {@link HistoryLogCompactor}
+ * imports from log segments, move rollup_state back (see {@link #rewind}), so their buckets
+ * are rolled up again, and kept from deletion until then.
+ */
+@Service
+public class HistoryRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryRetention.class);
+
+    private static final long INITIAL_DELAY_MINUTES = 1;
+
+    /**
+     * Pause between delete batches so writers get the lock
+     */
+    private static final long DELETE_PAUSE_MILLIS = 10;
+
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * Bucket size: strftime format of the bucket start and the modifier to the next bucket
+     */
+    private enum Granularity {
+        HOUR("%Y-%m-%d %H:00:00", "+1 hour"),
+        DAY("%Y-%m-%d 00:00:00", "+1 day");
+
+        final String format;
+        final String next;
+
+        Granularity(String format, String next) {
+            this.format = format;
+            this.next = next;
+        }
+    }
+
+    /**
+     * What one run did
+     */
+    public record Report(int bucketsRolledUp, int searchesDeleted, int crawlsDeleted, int hourlyRollupsDeleted,
+                         long pagesVacuumed) {
+    }
+
+    private final DSLContext dsl;
+    private final DatabaseService databaseService;
+    private final YaCyConfig.History settings;
+    private final Duration minCrawlRetention;
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public HistoryRetention(DSLContext dsl, DatabaseService databaseService, YaCyConfig config) {
+        this(dsl, databaseService, config.getHistory(), Duration.ofHours(config.getCrawl().getDedupWindowHours()));
+    }
+
+    HistoryRetention(DSLContext dsl, DatabaseService databaseService, YaCyConfig.History settings,
+                     Duration minCrawlRetention) {
+        this.dsl = dsl;
+        this.databaseService = databaseService;
+        this.settings = settings;
+        this.minCrawlRetention = minCrawlRetention;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "history-retention");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (settings.isRetentionEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::runSafely, INITIAL_DELAY_MINUTES,
+                    Math.max(1, settings.getRetentionIntervalMinutes()), TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void runSafely() {
+        try {
+            Report report = run();
+            log.info("History retention: {} buckets rolled up, {} searches, {} crawls and {} hourly rollups deleted, "
+                            + "{} pages vacuumed", report.bucketsRolledUp(), report.searchesDeleted(),
+                    report.crawlsDeleted(), report.hourlyRollupsDeleted(), report.pagesVacuumed());
+        } catch (Exception e) {
+            log.warn("History retention failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Roll up, delete and vacuum once
+     */
+    public Report run() {
+        databaseService.ensureSchema();
+        int buckets = rollup("search_hourly", "search_history", Granularity.HOUR,
+                (from, to) -> rollupSearches("search_rollup_hourly", from, to))
+                + rollup("search_daily", "search_history", Granularity.DAY,
+                (from, to) -> rollupSearches("search_rollup_daily", from, to))
+                + rollup("crawl_daily", "crawl_history", Granularity.DAY, this::rollupCrawls);
+
+        Duration raw = Duration.ofDays(settings.getRawRetentionDays());
+        int searches = deleteBefore("search_history", "timestamp",
+                earliest(cutoff(raw), nextBucket("search_hourly"), nextBucket("search_daily")));
+        int crawls = deleteBefore("crawl_history", "timestamp",
+                earliest(cutoff(raw.compareTo(minCrawlRetention) >= 0 ? raw : minCrawlRetention), nextBucket("crawl_daily")));
+        int hourly = deleteBefore("search_rollup_hourly", "bucket",
+                cutoff(Duration.ofDays(settings.getHourlyRetentionDays())));
+        return new Report(buckets, searches, crawls, hourly, vacuum());
+    }
+
+    /**
+     * Roll every completed bucket from the one recorded in rollup_state on, skipping empty stretches
+     *
+     * @return the number of buckets that had rows
+     */
+    private int rollup(String name, String source, Granularity granularity, ToIntBiFunction<String, String> bucket) {
+        String current = time("strftime(?, 'now')", granularity.format);
+        String from = nextBucket(name);
+        if (from == null) {
+            from = time("strftime(?, MIN(timestamp)) FROM " + source, granularity.format);
+        }
+        int buckets = 0;
+        while (from != null && from.compareTo(current) < 0) {
+            String to = time("strftime(?, ?, ?)", granularity.format, from, granularity.next);
+            if (bucket.applyAsInt(from, to) > 0) {
+                buckets++;
+            }
+            setNextBucket(name, to);
+            from = time("strftime(?, MIN(timestamp)) FROM " + source + " WHERE timestamp >= ?", granularity.format, to);
+        }
+        setNextBucket(name, current);
+        return buckets;
+    }
+
+    private int rollupSearches(String table, String from, String to) {
+        Map<String, List<long[]>> byQuery = new HashMap<>();
+        for (Record record : dsl.fetch("""
+                SELECT query, result_count, execution_time_ms FROM search_history
+                WHERE timestamp >= ? AND timestamp < ?
+                """, from, to)) {
+            String query = QueryNormalizer.normalize(record.get(0, String.class));
+            Long results = record.get(1, Long.class);
+            Long millis = record.get(2, Long.class);
+            byQuery.computeIfAbsent(query, q -> new ArrayList<>())
+                    .add(new long[]{results != null ? results : 0, millis != null ? millis : 0});
+        }
+        if (byQuery.isEmpty()) {
+            return 0;
+        }
+        Object[][] rows = new Object[byQuery.size()][];
+        int i = 0;
+        for (Map.Entry<String, List<long[]>> entry : byQuery.entrySet()) {
+            List<long[]> searches = entry.getValue();
+            long[] millis = new long[searches.size()];
+            long results = 0;
+            for (int j = 0; j < millis.length; j++) {
+                results += searches.get(j)[0];
+                millis[j] = searches.get(j)[1];
+            }
+            Arrays.sort(millis);
+            rows[i++] = new Object[]{from, entry.getKey(), millis.length, percentile(millis, 0.50),
+                    percentile(millis, 0.95), (double) results / millis.length};
+        }
+        dsl.transaction(configuration -> configuration.dsl().batch("INSERT OR REPLACE INTO " + table
+                + " (bucket, query, searches, p50_ms, p95_ms, mean_results) VALUES (?, ?, ?, ?, ?, ?)", rows).execute());
+        return rows.length;
+    }
+
+    private int rollupCrawls(String from, String to) {
+        return dsl.execute("""
+                INSERT OR REPLACE INTO crawl_rollup_daily (bucket, host, status, crawls)
+                SELECT ?, COALESCE(host, ''), COALESCE(status, ''), COUNT(*) FROM crawl_history
+                WHERE timestamp >= ? AND timestamp < ?
+                GROUP BY COALESCE(host, ''), COALESCE(status, '')
+                """, from, from, to);
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values
+     */
+    static long percentile(long[] sorted, double p) {
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    private int deleteBefore(String table, String column, String cutoff) {
+        int batch = Math.max(1, settings.getDeleteBatchSize());
+        int total = 0;
+        while (true) {
+            int deleted = dsl.execute("DELETE FROM " + table + " WHERE rowid IN (SELECT rowid FROM " + table
+                    + " WHERE " + column + " < ? LIMIT ?)", cutoff, batch);
+            total += deleted;
+            if (deleted < batch) {
+                return total;
+            }
+            try {
+                Thread.sleep(DELETE_PAUSE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return total;
+            }
+        }
+    }
+
+    /**
+     * @return the number of free pages released
+     */
+    private long vacuum() {
+        long free = dsl.fetchOne("PRAGMA freelist_count").get(0, Long.class);
+        if (free == 0) {
+            return 0;
+        }
+        if (dsl.fetchOne("PRAGMA auto_vacuum").get(0, Integer.class) == AUTO_VACUUM_INCREMENTAL) {
+            // The pragma frees one page per result row, so the rows have to be read
+            dsl.fetch("PRAGMA incremental_vacuum(" + Math.max(1, settings.getVacuumPages()) + ")");
+            return Math.min(free, settings.getVacuumPages());
+        }
+        if (free < settings.getVacuumPages()) {
+            return 0;
+        }
+        // Databases created before auto_vacuum was enabled are rewritten once; the setting
+        // only takes effect through a full VACUUM on the same connection
+        log.info("Converting history database to incremental vacuum ({} free pages)", free);
+        dsl.connection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                statement.execute("VACUUM");
+            }
+        });
+        return free;
+    }
+
+    /**
+     * Have the rollups of source roll up the buckets from the one holding fromMillis on again.
+     * Runs in the caller's transaction, so rows and rewind are committed together. Buckets past
+     * raw retention are not rewound, as their raw rows may be deleted already; rows that old
+     * are deleted without being rolled up, as they would have been had they arrived in time.
+     *
+     * @param source search_history or crawl_history
+     */
+    static void rewind(DSLContext dsl, String source, long fromMillis, Duration rawRetention) {
+        long from = Math.max(fromMillis, System.currentTimeMillis() - rawRetention.toMillis());
+        if ("search_history".equals(source)) {
+            rewind(dsl, "search_hourly", Granularity.HOUR, from);
+            rewind(dsl, "search_daily", Granularity.DAY, from);
+        } else {
+            rewind(dsl, "crawl_daily", Granularity.DAY, from);
+        }
+    }
+
+    private static void rewind(DSLContext dsl, String name, Granularity granularity, long fromMillis) {
+        dsl.execute("""
+                UPDATE rollup_state SET next_bucket = strftime(?, ? / 1000, 'unixepoch')
+                WHERE name = ? AND next_bucket > strftime(?, ? / 1000, 'unixepoch')
+                """, granularity.format, fromMillis, name, granularity.format, fromMillis);
+    }
+
+    private String nextBucket(String name) {
+        Record record = dsl.fetchOne("SELECT next_bucket FROM rollup_state WHERE name = ?", name);
+        return record != null ? record.get(0, String.class) : null;
+    }
+
+    private void setNextBucket(String name, String bucket) {
+        dsl.execute("INSERT OR REPLACE INTO rollup_state (name, next_bucket) VALUES (?, ?)", name, bucket);
+    }
+
+    /**
+     * Timestamp in the format of the history tables, the given age before now
+     */
+    private String cutoff(Duration age) {
+        return time("datetime('now', ?)", "-" + age.toSeconds() + " seconds");
+    }
+
+    private String time(String expression, Object... binds) {
+        return dsl.fetchOne("SELECT " + expression, binds).get(0, String.class);
+    }
+
+    /**
+     * Earliest of the given timestamps; a rollup that never ran protects every row
+     */
+    private static String earliest(String... times) {
+        String earliest = null;
+        for (String time : times) {
+            if (time == null) {
+                return "";
+            }
+            if (earliest == null || time.compareTo(earliest) < 0) {
+                earliest = time;
+            }
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,37 @@
+package com.yacy.mcp.service;
+
+import java.util.List;
+
+/**
+ * Write side of the search and crawl history, selected with yacy.history.store.
+ * Reads always go to SQLite through {@link DatabaseService}; a store that does not insert
+ * there directly has to bring its records into SQLite in the background. Writes are
+ * best effort: failures surface as unchecked exceptions and are only logged by callers.
+ */
+public interface HistoryStore extends AutoCloseable {
+
+    /**
+     * @param timestamp epoch milliseconds of the search; stores that insert immediately may
+     *                  use the database clock instead
+     */
+    void appendSearch(String query, int resultCount, long executionTimeMs, long timestamp);
+
+    /**
+     * Append the entries together; stores that insert immediately do so in one transaction
+     *
+     * @param timestamp epoch milliseconds of the submissions
+     */
+    void appendCrawls(List<DatabaseService.CrawlEntry> entries, long timestamp);
+
+    /**
+     * Write out what is queued and give back open connections and files, e.g. before a CRaC
+     * checkpoint; the next write opens them again
+     */
+    void release();
+
+    /**
+     * Write out and release everything; a store may be used again after closing only if it says so
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,40 @@
+package com.yacy.mcp.service;
+
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+
+/**
+ * Typed jOOQ references to the history tables written on every search and crawl.
+ * They mirror the columns created by {@link SchemaMigrations}; a column added or retyped
+ * there must be changed here too. Names are quoted, so they render the same in any dialect.
+ */
+final class HistoryTables {
+
+    private HistoryTables() {
+    }
+
+    static final class SearchHistory {
+        static final Table<Record> TABLE = DSL.table(DSL.name("search_history"));
+        static final Field<String> QUERY = DSL.field(DSL.name("query"), SQLDataType.VARCHAR);
+        static final Field<Integer> RESULT_COUNT = DSL.field(DSL.name("result_count"), SQLDataType.INTEGER);
+        static final Field<Long> EXECUTION_TIME_MS = DSL.field(DSL.name("execution_time_ms"), SQLDataType.BIGINT);
+
+        private SearchHistory() {
+        }
+    }
+
+    static final class CrawlHistory {
+        static final Table<Record> TABLE = DSL.table(DSL.name("crawl_history"));
+        static final Field<String> URL = DSL.field(DSL.name("url"), SQLDataType.VARCHAR);
+        static final Field<Long> URL_HASH = DSL.field(DSL.name("url_hash"), SQLDataType.BIGINT);
+        static final Field<String> HOST = DSL.field(DSL.name("host"), SQLDataType.VARCHAR);
+        static final Field<Integer> DEPTH = DSL.field(DSL.name("depth"), SQLDataType.INTEGER);
+        static final Field<String> STATUS = DSL.field(DSL.name("status"), SQLDataType.VARCHAR);
+
+        private CrawlHistory() {
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.yacy.mcp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * History store that appends records to segment files owned by this process, so writes never
+ * wait for SQLite's lock held by other MCP processes sharing the database. {@link HistoryLogCompactor}
+ * imports sealed segments into SQLite in the background; until then the records are not visible
+ * to history queries.
+ * <p>
+ * A segment is named {@code <pid>-<start>-<instance>-<sequence>} and starts with a magic number,
+ * followed by records of [int payload length][int CRC32 of the payload][payload]. The payload is
+ * a type byte, the epoch millisecond timestamp and the fields; strings are an int byte length
+ * (-1 for null) followed by UTF-8. The segment being written ends in {@value #ACTIVE_SUFFIX} and
+ * is renamed to {@value #SEGMENT_SUFFIX} once it reaches the size limit, is older than the seal
+ * interval, or the store is closed.
+ * <p>
+ * Appends only encode the record and queue it. One writer thread collects records for
+ * groupCommitMillis, then writes the group and forces it to disk once, so a crash loses at most
+ * the last group. A torn record at the end of a segment is detected by its length or checksum
+ * and skipped by the reader.
+ */
+final class LogHistoryStore implements HistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LogHistoryStore.class);
+
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String ACTIVE_SUFFIX = ".seg.active";
+    static final int SEGMENT_MAGIC = 0x59484c31;
+    static final byte SEARCH = 1;
+    static final byte CRAWL = 2;
+    static final int RECORD_HEADER = 8;
+
+    /**
+     * Appends wait while this many bytes are queued for the writer
+     */
+    private static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    /**
+     * Decoded records of a segment
+     */
+    interface Visitor {
+        void search(SearchLoggedEvent search);
+
+        void crawl(DatabaseService.CrawlEntry crawl, long timestamp);
+    }
+
+    private final Path directory;
+    private final long groupCommitMillis;
+    private final long maxSegmentBytes;
+    private final long sealAfterMillis;
+    private final String segmentPrefix;
+    private final Thread writer;
+
+    private final Object lock = new Object();
+    /**
+     * Guarded by lock
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private boolean closed;
+    private boolean sealRequested;
+
+    // Writer thread only
+    private FileChannel channel;
+    private Path activeFile;
+    private long segmentBytes;
+    private long segmentOpenedAt;
+    private int sequence;
+    private volatile long groups;
+
+    LogHistoryStore(Path directory, long groupCommitMillis, long maxSegmentBytes, long sealAfterMillis) {
+        this.directory = directory;
+        this.groupCommitMillis = Math.max(0, groupCommitMillis);
+        this.maxSegmentBytes = Math.max(1024, maxSegmentBytes);
+        this.sealAfterMillis = Math.max(1, sealAfterMillis);
+        this.segmentPrefix = ProcessHandle.current().pid() + "-" + Long.toString(System.currentTimeMillis(), 36)
+                + "-" + INSTANCES.incrementAndGet() + "-";
+        this.writer = new Thread(this::writeLoop, "history-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void appendSearch(String query, int resultCount, long executionTimeMs, long timestamp) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + query.length() * 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(SEARCH);
+            out.writeLong(timestamp);
+            writeString(out, query);
+            out.writeInt(resultCount);
+            out.writeLong(executionTimeMs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        enqueue(List.of(bytes.toByteArray()));
+    }
+
+    @Override
+    public void appendCrawls(List<DatabaseService.CrawlEntry> entries, long timestamp) {
+        byte[][] payloads = new byte[entries.size()][];
+        for (int i = 0; i < payloads.length; i++) {
+            DatabaseService.CrawlEntry entry = entries.get(i);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + entry.url().length() * 2);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(CRAWL);
+                out.writeLong(timestamp);
+                writeString(out, entry.url());
+                out.writeInt(entry.depth());
+                writeString(out, entry.status());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            payloads[i] = bytes.toByteArray();
+        }
+        // Queued together, so a batch lands in one group and one segment
+        enqueue(List.of(payloads));
+    }
+
+    private void enqueue(List<byte[]> payloads) {
+        CRC32 crc = new CRC32();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("History log store is closed");
+            }
+            while (pending.size() > MAX_PENDING_BYTES && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            boolean wake = pending.size() == 0;
+            for (byte[] payload : payloads) {
+                crc.reset();
+                crc.update(payload);
+                header.clear();
+                header.putInt(payload.length).putInt((int) crc.getValue());
+                pending.write(header.array(), 0, RECORD_HEADER);
+                pending.write(payload, 0, payload.length);
+            }
+            if (wake) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                synchronized (lock) {
+                    while (pending.size() == 0 && !closed && !sealRequested) {
+                        long untilSeal = untilSeal();
+                        if (untilSeal == 0) {
+                            break;
+                        }
+                        lock.wait(Math.max(0, untilSeal));
+                    }
+                    stopping = closed;
+                }
+                if (!stopping && groupCommitMillis > 0) {
+                    // Let concurrent appends join this group
+                    Thread.sleep(groupCommitMillis);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            byte[] group;
+            boolean release;
+            synchronized (lock) {
+                group = pending.toByteArray();
+                pending.reset();
+                release = sealRequested;
+                lock.notifyAll();
+            }
+            if (group.length > 0) {
+                write(group);
+            }
+            if (stopping || release || untilSeal() == 0) {
+                seal();
+            }
+            if (release) {
+                synchronized (lock) {
+                    sealRequested = false;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Milliseconds until the active segment is due to be sealed, 0 if it is due, -1 without an active segment
+     */
+    private long untilSeal() {
+        if (channel == null) {
+            return -1;
+        }
+        if (segmentBytes >= maxSegmentBytes) {
+            return 0;
+        }
+        return Math.max(0, segmentOpenedAt + sealAfterMillis - System.currentTimeMillis());
+    }
+
+    private void write(byte[] group) {
+        try {
+            if (channel == null) {
+                Files.createDirectories(directory);
+                activeFile = directory.resolve(segmentPrefix + String.format("%06d", ++sequence) + ACTIVE_SUFFIX);
+                channel = FileChannel.open(activeFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                segmentOpenedAt = System.currentTimeMillis();
+                segmentBytes = writeFully(ByteBuffer.allocate(4).putInt(0, SEGMENT_MAGIC));
+            }
+            segmentBytes += writeFully(ByteBuffer.wrap(group));
+            channel.force(false);
+            groups++;
+        } catch (IOException e) {
+            log.error("Error writing history log segment {}, {} bytes of history lost", activeFile, group.length, e);
+            // Whatever reached the file stays readable up to the torn record; continue in a new segment
+            seal();
+        }
+    }
+
+    private int writeFully(ByteBuffer buffer) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        return written;
+    }
+
+    private void seal() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.move(activeFile, sealedFile(activeFile), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error sealing history log segment {}", activeFile, e);
+        }
+        channel = null;
+        activeFile = null;
+        segmentBytes = 0;
+    }
+
+    /**
+     * Groups written and forced to disk so far
+     */
+    long groups() {
+        return groups;
+    }
+
+    /**
+     * Write out everything queued and seal the active segment, so no file stays open; appends
+     * afterwards start a new segment
+     */
+    @Override
+    public void release() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            sealRequested = true;
+            lock.notifyAll();
+            while (sealRequested && writer.isAlive()) {
+                try {
+                    lock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write out everything queued and seal the active segment; appends fail afterwards
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static Path sealedFile(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - ACTIVE_SUFFIX.length()) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Segment name without suffix; the same for the active and the sealed file
+     */
+    static String segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        if (name.endsWith(ACTIVE_SUFFIX)) {
+            return name.substring(0, name.length() - ACTIVE_SUFFIX.length());
+        }
+        return name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+    }
+
+    /**
+     * Process id of the writer of a segment, -1 if the name does not carry one
+     */
+    static long ownerPid(Path segment) {
+        String name = segment.getFileName().toString();
+        int dash = name.indexOf('-');
+        try {
+            return dash > 0 ? Long.parseLong(name.substring(0, dash)) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Decode the records of a segment in order, stopping at a torn or corrupt record
+     *
+     * @return the number of records read
+     */
+    static int read(Path segment, Visitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        if (buffer.remaining() < 4 || buffer.getInt() != SEGMENT_MAGIC) {
+            log.warn("Ignoring {}: not a history log segment", segment);
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 + 8 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            byte type = payload.get();
+            long timestamp = payload.getLong();
+            try {
+                switch (type) {
+                    case SEARCH -> visitor.search(new SearchLoggedEvent(readString(payload), payload.getInt(),
+                            payload.getLong(), timestamp));
+                    case CRAWL -> visitor.crawl(new DatabaseService.CrawlEntry(readString(payload), payload.getInt(),
+                            readString(payload)), timestamp);
+                    default -> log.warn("Skipping history log record of unknown type {} in {}", type, segment);
+                }
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                // Checksum matched but the fields do not fit the record: written by a different format
+                buffer.position(start);
+                break;
+            }
+            buffer.position(buffer.position() + length);
+            records++;
+        }
+        if (buffer.hasRemaining()) {
+            log.warn("History log segment {} ends in a torn record; {} trailing bytes ignored", segment, buffer.remaining());
+        }
+        return records;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,215 @@
+package com.yacy.mcp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Weighted radix tree of strings for top-k prefix completion.
+ * Edges carry string labels and children are sorted by their first character, so a
+ * lookup costs one binary search per edge. Every node knows the highest weight in its
+ * subtree; a top-k query descends to the prefix and then expands nodes best-first by that
+ * maximum, so it touches little more than the k results no matter how many keys share
+ * the prefix. Weights only grow (or are scaled uniformly), which keeps the maxima exact
+ * without walking back up on updates. Not thread-safe.
+ */
+final class PrefixIndex {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    record Entry(String key, double weight) {
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        /**
+         * Weight of the key ending here, 0 if none does
+         */
+        double weight;
+        /**
+         * Highest weight in this subtree
+         */
+        double max;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Pending node expansion or result of a top-k search
+     */
+    private record Candidate(double priority, Node node, String key, boolean result) {
+    }
+
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * Number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add weight (> 0) to key, inserting it if needed
+     */
+    void add(String key, double weight) {
+        insert(root, key, 0, weight);
+    }
+
+    private double insert(Node node, String key, int offset, double weight) {
+        if (offset == key.length()) {
+            if (node.weight == 0) {
+                size++;
+            }
+            node.weight += weight;
+            node.max = Math.max(node.max, node.weight);
+            return node.weight;
+        }
+        int index = find(node, key.charAt(offset));
+        if (index < 0) {
+            Node leaf = new Node(key.substring(offset));
+            leaf.weight = weight;
+            leaf.max = weight;
+            int at = -index - 1;
+            Node[] children = new Node[node.children.length + 1];
+            System.arraycopy(node.children, 0, children, 0, at);
+            children[at] = leaf;
+            System.arraycopy(node.children, at, children, at + 1, node.children.length - at);
+            node.children = children;
+            node.max = Math.max(node.max, weight);
+            size++;
+            return weight;
+        }
+        Node child = node.children[index];
+        int common = commonPrefix(child.label, key, offset);
+        if (common < child.label.length()) {
+            Node split = new Node(child.label.substring(0, common));
+            child.label = child.label.substring(common);
+            split.children = new Node[]{child};
+            split.max = child.max;
+            node.children[index] = split;
+            child = split;
+        }
+        double result = insert(child, key, offset + common, weight);
+        node.max = Math.max(node.max, result);
+        return result;
+    }
+
+    /**
+     * The k heaviest keys starting with prefix, heaviest first
+     */
+    List<Entry> top(String prefix, int k) {
+        return top(prefix, k, key -> true);
+    }
+
+    /**
+     * The k heaviest keys starting with prefix that accept takes, heaviest first
+     */
+    List<Entry> top(String prefix, int k, Predicate<String> accept) {
+        Node node = root;
+        StringBuilder path = new StringBuilder(prefix.length() + 16);
+        int offset = 0;
+        while (offset < prefix.length()) {
+            int index = find(node, prefix.charAt(offset));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, offset);
+            if (offset + common < prefix.length() && common < child.label.length()) {
+                return List.of();
+            }
+            path.append(child.label);
+            offset += common;
+            node = child;
+        }
+
+        List<Entry> results = new ArrayList<>(Math.min(k, 64));
+        PriorityQueue<Candidate> queue = new PriorityQueue<>((a, b) -> Double.compare(b.priority(), a.priority()));
+        queue.add(new Candidate(node.max, node, path.toString(), false));
+        while (!queue.isEmpty() && results.size() < k) {
+            Candidate candidate = queue.poll();
+            if (candidate.result()) {
+                if (accept.test(candidate.key())) {
+                    results.add(new Entry(candidate.key(), candidate.priority()));
+                }
+                continue;
+            }
+            Node current = candidate.node();
+            if (current.weight > 0) {
+                queue.add(new Candidate(current.weight, current, candidate.key(), true));
+            }
+            for (Node child : current.children) {
+                queue.add(new Candidate(child.max, child, candidate.key() + child.label, false));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Multiply every weight by factor (> 0); the order of keys does not change
+     */
+    void scale(double factor) {
+        List<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            node.weight *= factor;
+            node.max *= factor;
+            stack.addAll(Arrays.asList(node.children));
+        }
+    }
+
+    /**
+     * All keys with their weights, in no particular order
+     */
+    List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(size);
+        collect(root, "", entries);
+        return entries;
+    }
+
+    private static void collect(Node node, String key, List<Entry> entries) {
+        if (node.weight > 0) {
+            entries.add(new Entry(key, node.weight));
+        }
+        for (Node child : node.children) {
+            collect(child, key + child.label, entries);
+        }
+    }
+
+    /**
+     * Index of the child whose label starts with c, or -(insertion point) - 1
+     */
+    private static int find(Node node, char c) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char first = node.children[mid].label.charAt(0);
+            if (first < c) {
+                low = mid + 1;
+            } else if (first > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int n = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+}
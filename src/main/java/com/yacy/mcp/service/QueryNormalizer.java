@@ -0,0 +1,160 @@
+package com.yacy.mcp.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonical form of a YaCy query, used as the key for snapshots, prefetch history and
+ * search_history rows, and as the query actually sent to YaCy.
+ *
+ * <ul>
+ *   <li>Unicode NFKC, so full-width letters and compatibility forms match their plain forms</li>
+ *   <li>whitespace trimmed and collapsed to single spaces, inside quoted phrases too</li>
+ *   <li>lower case, except the values of url: and inurl:, whose paths are case-sensitive</li>
+ *   <li>site: and filetype: modifiers deduplicated, sorted and moved after the search terms;
+ *       YaCy applies them as filters, so their position does not matter</li>
+ * </ul>
+ *
+ * A query that is already canonical (the usual case for plain lower-case terms) is
+ * recognised in a single pass over its characters and returned as the same instance.
+ */
+public final class QueryNormalizer {
+
+    private QueryNormalizer() {
+    }
+
+    /**
+     * @return the canonical query, the argument itself if it is already canonical
+     */
+    public static String normalize(String query) {
+        if (query == null || isCanonical(query)) {
+            return query;
+        }
+        String text = Normalizer.isNormalized(query, Normalizer.Form.NFKC)
+                ? query
+                : Normalizer.normalize(query, Normalizer.Form.NFKC);
+
+        StringBuilder out = new StringBuilder(text.length());
+        List<String> filters = null;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && isSpace(text.charAt(i))) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            int start = i;
+            boolean quoted = false;
+            while (i < n && (quoted || !isSpace(text.charAt(i)))) {
+                if (text.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+                i++;
+            }
+            if (isFilter(text, start)) {
+                String filter = fold(text, start, i, new StringBuilder(i - start), Integer.MAX_VALUE).toString();
+                if (filters == null) {
+                    filters = new ArrayList<>(2);
+                }
+                if (!filters.contains(filter)) {
+                    filters.add(filter);
+                }
+            } else {
+                if (!out.isEmpty()) {
+                    out.append(' ');
+                }
+                fold(text, start, i, out, caseSensitiveFrom(text, start, i));
+            }
+        }
+        if (filters != null) {
+            filters.sort(null);
+            for (String filter : filters) {
+                if (!out.isEmpty()) {
+                    out.append(' ');
+                }
+                out.append(filter);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Single pass check for the common case; anything with a modifier takes the slow path
+     */
+    static boolean isCanonical(String query) {
+        int n = query.length();
+        if (n == 0) {
+            return true;
+        }
+        boolean previousSpace = true;
+        boolean ascii = true;
+        for (int i = 0; i < n; i++) {
+            char c = query.charAt(i);
+            if (c == ' ') {
+                if (previousSpace) {
+                    return false;
+                }
+                previousSpace = true;
+                continue;
+            }
+            previousSpace = false;
+            if (c == ':' || (c >= 'A' && c <= 'Z') || Character.isSurrogate(c)) {
+                return false;
+            }
+            if (c >= 0x80) {
+                if (Character.toLowerCase(c) != c || isSpace(c)) {
+                    return false;
+                }
+                ascii = false;
+            } else if (c < ' ') {
+                return false;
+            }
+        }
+        return !previousSpace && (ascii || Normalizer.isNormalized(query, Normalizer.Form.NFKC));
+    }
+
+    static boolean isSpace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    static boolean isFilter(String text, int start) {
+        return text.regionMatches(true, start, "site:", 0, 5) || text.regionMatches(true, start, "filetype:", 0, 9);
+    }
+
+    /**
+     * Index from which the token keeps its case: the value of url: or inurl:
+     */
+    private static int caseSensitiveFrom(String text, int start, int end) {
+        if (text.regionMatches(true, start, "url:", 0, 4)) {
+            return start + 4;
+        }
+        if (text.regionMatches(true, start, "inurl:", 0, 6)) {
+            return start + 6;
+        }
+        return end;
+    }
+
+    /**
+     * Append text[start, end) lower-cased up to keepCaseFrom, collapsing whitespace runs inside quotes
+     */
+    private static StringBuilder fold(String text, int start, int end, StringBuilder out, int keepCaseFrom) {
+        boolean previousSpace = false;
+        for (int i = start; i < end; ) {
+            int cp = text.codePointAt(i);
+            if (Character.isWhitespace(cp) || Character.isSpaceChar(cp)) {
+                if (!previousSpace) {
+                    out.append(' ');
+                }
+                previousSpace = true;
+            } else {
+                out.appendCodePoint(i < keepCaseFrom ? Character.toLowerCase(cp) : cp);
+                previousSpace = false;
+            }
+            i += Character.charCount(cp);
+        }
+        return out;
+    }
+}
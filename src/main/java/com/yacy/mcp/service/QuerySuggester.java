@@ -0,0 +1,237 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Completions for yacy_suggest from past successful searches.
+ * Queries live in a {@link PrefixIndex} weighted with forward decay: a search at time t adds
+ * exp(lambda * (t - landmark)), so older searches never have to be revisited and a query's
+ * weight divided by exp(lambda * (now - landmark)) is its count of searches, each halved
+ * for every halfLifeHours of age. The landmark moves forward, rescaling all weights once,
+ * before the exponent gets large.
+ * <p>
+ * The index is filled from search_history on a background thread after startup and kept
+ * current from {@link SearchLoggedEvent}s. Beyond maxQueries distinct queries, the least
+ * weighted tenth is dropped.
+ */
+@Service
+public class QuerySuggester {
+
+    private static final Logger log = LoggerFactory.getLogger(QuerySuggester.class);
+
+    /**
+     * Longer queries are not indexed
+     */
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    /**
+     * Exponent at which the landmark is moved forward; exp(64) is far from overflowing
+     */
+    private static final double RESCALE_EXPONENT = 64;
+
+    /**
+     * @param score the query's decayed number of searches
+     */
+    public record Suggestion(String query, double score) {
+    }
+
+    /**
+     * A prefix in the canonical form of {@link QueryNormalizer}. Canonical queries carry their
+     * site: and filetype: modifiers last, so those typed so far are not part of the terms to
+     * complete but conditions on the completions.
+     *
+     * @param terms         canonical search terms, with a trailing space once the last one is complete
+     * @param filters       complete modifiers every completion must contain
+     * @param partialFilter modifier still being typed, which a modifier of the completion must start with; may be null
+     */
+    record Prefix(String terms, List<String> filters, String partialFilter) {
+
+        boolean matches(String query) {
+            if (filters.isEmpty() && partialFilter == null) {
+                return true;
+            }
+            List<String> tokens = List.of(query.split(" "));
+            if (!tokens.containsAll(filters)) {
+                return false;
+            }
+            return partialFilter == null || tokens.stream()
+                    .anyMatch(token -> token.startsWith(partialFilter) && QueryNormalizer.isFilter(token, 0));
+        }
+    }
+
+    private final DatabaseService databaseService;
+    private final YaCyConfig.Suggest settings;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final double lambda;
+
+    /**
+     * Guarded by this
+     */
+    private PrefixIndex index = new PrefixIndex();
+    private long landmark;
+
+    @Autowired
+    public QuerySuggester(DatabaseService databaseService, YaCyConfig config) {
+        this(databaseService, config.getSearch().getSuggest(), System::currentTimeMillis);
+    }
+
+    QuerySuggester(DatabaseService databaseService, YaCyConfig.Suggest settings, LongSupplier clock) {
+        this.databaseService = databaseService;
+        this.settings = settings;
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.landmark = startedAt;
+        this.lambda = Math.log(2) / TimeUnit.HOURS.toMillis(Math.max(1, settings.getHalfLifeHours()));
+    }
+
+    /**
+     * Load search_history in the background; suggestions are served from whatever is loaded so far
+     */
+    @PostConstruct
+    public void start() {
+        Thread loader = new Thread(this::load, "query-suggest-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Add the searches of the last historyDays days before this process started; later ones arrive as events
+     */
+    void load() {
+        long from = startedAt - TimeUnit.DAYS.toMillis(settings.getHistoryDays());
+        try {
+            int[] days = new int[1];
+            databaseService.forEachQueryDay(from, startedAt, day -> {
+                add(day.query(), day.searches(), day.lastSearchedAt());
+                days[0]++;
+            });
+            log.info("Loaded {} query days into the suggestion index", days[0]);
+        } catch (Exception e) {
+            log.warn("Cannot load search history into the suggestion index: {}", e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onSearchLogged(SearchLoggedEvent event) {
+        if (event.resultCount() > 0) {
+            add(event.query(), 1, event.timestamp());
+        }
+    }
+
+    void add(String query, int searches, long timestamp) {
+        String key = QueryNormalizer.normalize(query);
+        if (key == null || key.isEmpty() || key.length() > MAX_QUERY_LENGTH) {
+            return;
+        }
+        synchronized (this) {
+            double exponent = lambda * (timestamp - landmark);
+            if (exponent > RESCALE_EXPONENT) {
+                index.scale(Math.exp(-exponent));
+                landmark = timestamp;
+                exponent = 0;
+            }
+            index.add(key, searches * Math.exp(exponent));
+            if (index.size() > Math.max(1, settings.getMaxQueries())) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * Most searched queries starting with prefix, recent searches counting more
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        Prefix key = normalizePrefix(prefix);
+        List<PrefixIndex.Entry> entries;
+        double decay;
+        synchronized (this) {
+            entries = index.top(key.terms(), limit, key::matches);
+            decay = Math.exp(-lambda * (clock.getAsLong() - landmark));
+        }
+        List<Suggestion> suggestions = new ArrayList<>(entries.size());
+        for (PrefixIndex.Entry entry : entries) {
+            suggestions.add(new Suggestion(entry.key(), entry.weight() * decay));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Rebuild the index with the heaviest 90% of maxQueries
+     */
+    private void prune() {
+        List<PrefixIndex.Entry> entries = index.entries();
+        entries.sort(Comparator.comparingDouble(PrefixIndex.Entry::weight).reversed());
+        int keep = Math.max(1, settings.getMaxQueries() * 9 / 10);
+        PrefixIndex pruned = new PrefixIndex();
+        for (PrefixIndex.Entry entry : entries.subList(0, Math.min(keep, entries.size()))) {
+            pruned.add(entry.key(), entry.weight());
+        }
+        index = pruned;
+        log.debug("Pruned the suggestion index from {} to {} queries", entries.size(), pruned.size());
+    }
+
+    /**
+     * Normalize each word of the prefix like {@link QueryNormalizer}: NFKC, lower case except
+     * url: and inurl: values, whitespace collapsed also inside quoted phrases. A word followed by
+     * whitespace is complete; the last one is still being typed.
+     */
+    static Prefix normalizePrefix(String prefix) {
+        String text = Normalizer.normalize(prefix, Normalizer.Form.NFKC);
+        StringBuilder terms = new StringBuilder(text.length());
+        List<String> filters = new ArrayList<>(2);
+        String partialFilter = null;
+        boolean termOpen = false;
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && QueryNormalizer.isSpace(text.charAt(i))) {
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            int start = i;
+            boolean quoted = false;
+            while (i < n && (quoted || !QueryNormalizer.isSpace(text.charAt(i)))) {
+                if (text.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+                i++;
+            }
+            boolean complete = i < n;
+            String word = QueryNormalizer.normalize(text.substring(start, i));
+            if (QueryNormalizer.isFilter(word, 0)) {
+                if (!complete) {
+                    partialFilter = word;
+                } else if (!filters.contains(word)) {
+                    filters.add(word);
+                }
+                termOpen = false;
+            } else {
+                if (!terms.isEmpty()) {
+                    terms.append(' ');
+                }
+                terms.append(word);
+                termOpen = !complete;
+            }
+        }
+        if (!terms.isEmpty() && !termOpen) {
+            terms.append(' ');
+        }
+        return new Prefix(terms.toString(), filters, partialFilter);
+    }
+}
@@ -0,0 +1,260 @@
+package com.yacy.mcp.service;
+
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Versioned schema migrations of the history database.
+ * Applied versions are recorded in schema_version; on startup every migration that is not
+ * recorded yet runs in version order. Migrations must be idempotent, so a migration that
+ * ran but was not recorded (crash, or two processes starting on the same file) is harmless
+ * when it runs again.
+ * <p>
+ * Migrations run on live user databases, so none of them rewrites a table: columns are
+ * added with ALTER TABLE ADD COLUMN, which only touches the schema, and backfills update
+ * rows in small transactions so searches and crawls logged meanwhile are not blocked for long.
+ */
+final class SchemaMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    /**
+     * Rows updated per backfill transaction
+     */
+    static final int BACKFILL_BATCH_SIZE = 1000;
+
+    /**
+     * @param transactional false for migrations that manage their own transactions
+     */
+    record Migration(int version, String description, boolean transactional, Consumer<DSLContext> apply) {
+    }
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "history and crawl job tables", true, SchemaMigrations::createTables),
+            new Migration(2, "crawl_history url_hash and host columns", true, dsl -> {
+                addColumn(dsl, "crawl_history", "url_hash", "INTEGER");
+                addColumn(dsl, "crawl_history", "host", "TEXT");
+            }),
+            new Migration(3, "backfill crawl_history url_hash and host", false, SchemaMigrations::backfillUrlHashes),
+            new Migration(4, "history lookup indexes", true, dsl -> {
+                dsl.execute("CREATE INDEX IF NOT EXISTS idx_crawl_history_url_hash ON crawl_history (url_hash)");
+                dsl.execute("CREATE INDEX IF NOT EXISTS idx_crawl_history_timestamp ON crawl_history (timestamp)");
+                // Covers "recent crawls for host" without touching the table
+                dsl.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_crawl_history_host_recent
+                    ON crawl_history (host, timestamp, url_hash, status)
+                """);
+                dsl.execute("CREATE INDEX IF NOT EXISTS idx_search_history_query ON search_history (query)");
+                dsl.execute("CREATE INDEX IF NOT EXISTS idx_search_history_timestamp ON search_history (timestamp)");
+            }),
+            new Migration(5, "history rollup tables", true, SchemaMigrations::createRollupTables),
+            // Hourly SearchAnalytics buckets; hour is in epoch hours, data a compressed bucket
+            new Migration(6, "search analytics checkpoints", true, dsl -> dsl.execute("""
+                CREATE TABLE IF NOT EXISTS search_analytics (
+                    hour INTEGER PRIMARY KEY,
+                    data BLOB NOT NULL,
+                    updated_at INTEGER NOT NULL
+                )
+            """)),
+            // Segments of the log history store already imported, so a leftover file is not imported twice
+            new Migration(7, "history log imports", true, dsl -> dsl.execute("""
+                CREATE TABLE IF NOT EXISTS history_log_imports (
+                    segment TEXT PRIMARY KEY,
+                    records INTEGER NOT NULL,
+                    imported_at INTEGER NOT NULL
+                )
+            """)),
+            // Second-level search cache of SearchResultCache; sizes are bytes, times epoch millis
+            new Migration(8, "search result cache", true, dsl -> {
+                dsl.execute("""
+                    CREATE TABLE IF NOT EXISTS search_cache (
+                        cache_key TEXT PRIMARY KEY,
+                        payload BLOB NOT NULL,
+                        raw_size INTEGER NOT NULL,
+                        stored_size INTEGER NOT NULL,
+                        created_at INTEGER NOT NULL,
+                        last_access INTEGER NOT NULL
+                    )
+                """);
+                dsl.execute("CREATE INDEX IF NOT EXISTS idx_search_cache_last_access ON search_cache (last_access)");
+            })
+    );
+
+    private SchemaMigrations() {
+    }
+
+    /**
+     * Apply all pending migrations
+     *
+     * @return the number of migrations applied
+     */
+    static int migrate(DSLContext dsl) {
+        // auto_vacuum is only stored when the first table of an empty file is created on the
+        // same connection; HistoryRetention converts existing databases
+        dsl.connection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                statement.execute("""
+                    CREATE TABLE IF NOT EXISTS schema_version (
+                        version INTEGER PRIMARY KEY,
+                        description TEXT NOT NULL,
+                        applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    )
+                """);
+            }
+        });
+        Set<Integer> applied = new HashSet<>(dsl.fetch("SELECT version FROM schema_version")
+                .getValues(0, Integer.class));
+
+        int count = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (applied.contains(migration.version())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            if (migration.transactional()) {
+                dsl.transaction(configuration -> {
+                    migration.apply().accept(configuration.dsl());
+                    record(configuration.dsl(), migration);
+                });
+            } else {
+                migration.apply().accept(dsl);
+                record(dsl, migration);
+            }
+            log.info("Applied schema migration {} ({}) in {} ms", migration.version(), migration.description(),
+                    (System.nanoTime() - start) / 1_000_000);
+            count++;
+        }
+        return count;
+    }
+
+    private static void record(DSLContext dsl, Migration migration) {
+        dsl.execute("INSERT OR IGNORE INTO schema_version (version, description) VALUES (?, ?)",
+                migration.version(), migration.description());
+    }
+
+    private static void createTables(DSLContext dsl) {
+        dsl.execute("""
+            CREATE TABLE IF NOT EXISTS search_history (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                query TEXT NOT NULL,
+                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                result_count INTEGER,
+                execution_time_ms INTEGER
+            )
+        """);
+
+        dsl.execute("""
+            CREATE TABLE IF NOT EXISTS crawl_history (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                url TEXT NOT NULL,
+                depth INTEGER,
+                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                status TEXT
+            )
+        """);
+
+        // Crawl jobs; next_attempt_at is the next submission attempt for queued jobs
+        // and the next status check for running ones
+        dsl.execute("""
+            CREATE TABLE IF NOT EXISTS crawl_jobs (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                url TEXT NOT NULL,
+                depth INTEGER NOT NULL,
+                status TEXT NOT NULL,
+                attempts INTEGER NOT NULL DEFAULT 0,
+                next_attempt_at INTEGER NOT NULL,
+                handle TEXT,
+                error TEXT,
+                created_at INTEGER NOT NULL,
+                updated_at INTEGER NOT NULL,
+                submitted_at INTEGER
+            )
+        """);
+        dsl.execute("CREATE INDEX IF NOT EXISTS idx_crawl_jobs_due ON crawl_jobs (status, next_attempt_at)");
+    }
+
+    /**
+     * Aggregates kept by HistoryRetention after raw rows are deleted. Buckets are UTC
+     * 'YYYY-MM-DD HH:00:00' strings like the history timestamps; rollup_state holds the
+     * first bucket not rolled up yet for each rollup.
+     */
+    private static void createRollupTables(DSLContext dsl) {
+        for (String table : List.of("search_rollup_hourly", "search_rollup_daily")) {
+            dsl.execute("""
+                CREATE TABLE IF NOT EXISTS %s (
+                    bucket TEXT NOT NULL,
+                    query TEXT NOT NULL,
+                    searches INTEGER NOT NULL,
+                    p50_ms INTEGER,
+                    p95_ms INTEGER,
+                    mean_results REAL,
+                    PRIMARY KEY (bucket, query)
+                )
+            """.formatted(table));
+        }
+        dsl.execute("""
+            CREATE TABLE IF NOT EXISTS crawl_rollup_daily (
+                bucket TEXT NOT NULL,
+                host TEXT NOT NULL,
+                status TEXT NOT NULL,
+                crawls INTEGER NOT NULL,
+                PRIMARY KEY (bucket, host, status)
+            )
+        """);
+        dsl.execute("""
+            CREATE TABLE IF NOT EXISTS rollup_state (
+                name TEXT PRIMARY KEY,
+                next_bucket TEXT NOT NULL
+            )
+        """);
+    }
+
+    private static void addColumn(DSLContext dsl, String table, String column, String type) {
+        boolean exists = dsl.fetch("SELECT name FROM pragma_table_info(?)", table)
+                .getValues(0, String.class).contains(column);
+        if (!exists) {
+            dsl.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    /**
+     * Fill url_hash and host of rows logged before migration 2, one batch per transaction
+     */
+    private static void backfillUrlHashes(DSLContext dsl) {
+        long lastId = 0;
+        long rows = 0;
+        while (true) {
+            Result<Record> batch = dsl.fetch("""
+                    SELECT id, url FROM crawl_history
+                    WHERE id > ? AND url_hash IS NULL
+                    ORDER BY id LIMIT ?
+                    """, lastId, BACKFILL_BATCH_SIZE);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Object[][] binds = new Object[batch.size()][];
+            for (int i = 0; i < binds.length; i++) {
+                String url = batch.get(i).get("url", String.class);
+                binds[i] = new Object[]{CrawlUrls.hash(url), CrawlUrls.host(url), batch.get(i).get("id", Long.class)};
+            }
+            dsl.transaction(configuration -> configuration.dsl()
+                    .batch("UPDATE crawl_history SET url_hash = ?, host = ? WHERE id = ?", binds)
+                    .execute());
+            lastId = batch.get(batch.size() - 1).get("id", Long.class);
+            rows += binds.length;
+        }
+        if (rows > 0) {
+            log.info("Backfilled url_hash and host of {} crawl_history rows", rows);
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Search analytics for yacy_search_analytics, maintained incrementally from
+ * {@link SearchLoggedEvent}s so a report never scans search_history.
+ * <p>
+ * Every hour of the last windowHours has a bucket holding the number of searches and
+ * zero-result searches, a t-digest of the latencies, Count-Min sketches of the query
+ * frequencies, and trackedQueries candidates each for the most frequent, zero-result and
+ * slowest queries. A report merges the buckets of its window: sketches and digests are
+ * mergeable, and candidates are ranked by their estimate in the merged sketch.
+ * <p>
+ * Every checkpointIntervalSeconds and on shutdown, the searches recorded since the last
+ * checkpoint are merged into the buckets in the search_analytics table, in one transaction,
+ * so processes sharing the database add up their searches. The checkpoint then reloads the
+ * table, and a report merges it with what was recorded since. On the very first run the
+ * window is rebuilt once from search_history.
+ */
+@Service
+public class SearchAnalytics {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchAnalytics.class);
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Longer queries are tracked by their prefix
+     */
+    private static final int MAX_QUERY_LENGTH = 1000;
+
+    /**
+     * A query with its estimated count, or its highest latency in milliseconds
+     */
+    public record QueryStat(String query, long value) {
+    }
+
+    /**
+     * @param hourStart epoch milliseconds of the start of the hour
+     */
+    public record HourStats(long hourStart, long searches, long zeroResultSearches, double p50Ms, double p95Ms) {
+    }
+
+    /**
+     * Latency fields are NaN if the window has no searches
+     */
+    public record Report(int windowHours, long searches, long zeroResultSearches,
+                         double p50Ms, double p90Ms, double p95Ms, double p99Ms, double maxMs,
+                         List<QueryStat> topQueries, List<QueryStat> zeroResultQueries,
+                         List<QueryStat> slowestQueries, List<HourStats> trend) {
+    }
+
+    private final DatabaseService databaseService;
+    private final YaCyConfig.Analytics settings;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Buckets by epoch hour, all guarded by this: the checkpointed buckets of all processes as
+     * of the last checkpoint, the searches of this process a running checkpoint is merging,
+     * and those recorded since
+     */
+    private TreeMap<Long, Bucket> stored = new TreeMap<>();
+    private TreeMap<Long, Bucket> checkpointing = new TreeMap<>();
+    private TreeMap<Long, Bucket> pending = new TreeMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public SearchAnalytics(DatabaseService databaseService, YaCyConfig config) {
+        this(databaseService, config.getSearch().getAnalytics(), System::currentTimeMillis);
+    }
+
+    SearchAnalytics(DatabaseService databaseService, YaCyConfig.Analytics settings, LongSupplier clock) {
+        this.databaseService = databaseService;
+        this.settings = settings;
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-analytics");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Schedule checkpoints; the first one also loads the previous checkpoint, so startup
+     * does not touch the database
+     */
+    @PostConstruct
+    public void start() {
+        long interval = Math.max(1, settings.getCheckpointIntervalSeconds());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                log.warn("Search analytics checkpoint failed: {}", e.getMessage());
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (loaded) {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                log.warn("Final search analytics checkpoint failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    @EventListener
+    public void onSearchLogged(SearchLoggedEvent event) {
+        record(event.query(), event.resultCount(), event.executionTimeMs(), event.timestamp());
+    }
+
+    void record(String query, int resultCount, long executionTimeMs, long timestamp) {
+        synchronized (this) {
+            record(pending, query, resultCount, executionTimeMs, timestamp);
+        }
+    }
+
+    private void record(Map<Long, Bucket> into, String query, int resultCount, long executionTimeMs, long timestamp) {
+        long hour = Math.floorDiv(timestamp, HOUR_MILLIS);
+        if (hour <= currentHour() - windowHours()) {
+            return;
+        }
+        String normalized = QueryNormalizer.normalize(query);
+        if (normalized.length() > MAX_QUERY_LENGTH) {
+            normalized = normalized.substring(0, MAX_QUERY_LENGTH);
+        }
+        into.computeIfAbsent(hour, Bucket::new).record(normalized, resultCount == 0, executionTimeMs, trackedQueries());
+    }
+
+    /**
+     * Statistics of the last hours hours, the current one included
+     *
+     * @param limit entries per query list
+     */
+    public Report report(int hours, int limit) {
+        try {
+            ensureLoaded();
+        } catch (RuntimeException e) {
+            // Report what is in memory; loading is retried by the next call or checkpoint
+            log.warn("Cannot load search analytics checkpoint: {}", e.getMessage());
+        }
+        int window = Math.max(1, Math.min(hours, windowHours()));
+        long from = currentHour() - window + 1;
+
+        Bucket total = new Bucket(from);
+        List<HourStats> trend = new ArrayList<>();
+        TreeMap<Long, Bucket> byHour = new TreeMap<>();
+        synchronized (this) {
+            for (TreeMap<Long, Bucket> part : List.of(stored, checkpointing, pending)) {
+                for (Bucket bucket : part.tailMap(from, true).values()) {
+                    byHour.computeIfAbsent(bucket.hour, Bucket::new).merge(bucket, Integer.MAX_VALUE);
+                }
+            }
+        }
+        for (Bucket bucket : byHour.values()) {
+            total.merge(bucket, Integer.MAX_VALUE);
+            trend.add(new HourStats(bucket.hour * HOUR_MILLIS, bucket.searches, bucket.zeroResults,
+                    bucket.latency.quantile(0.50), bucket.latency.quantile(0.95)));
+        }
+        return new Report(window, total.searches, total.zeroResults,
+                total.latency.quantile(0.50), total.latency.quantile(0.90),
+                total.latency.quantile(0.95), total.latency.quantile(0.99), total.latency.max(),
+                ranked(total.topQueries, total.queries::estimate, limit),
+                ranked(total.topZeroResults, total.zeroResultQueries::estimate, limit),
+                ranked(total.slowest, total.slowest::get, limit),
+                trend);
+    }
+
+    /**
+     * Load the previous checkpoint if not done yet, merge the searches recorded since into
+     * it, drop expired buckets and reload it
+     */
+    void checkpoint() {
+        ensureLoaded();
+        long oldest = currentHour() - windowHours() + 1;
+        Map<Long, byte[]> deltas = new LinkedHashMap<>();
+        synchronized (this) {
+            pending.headMap(oldest, false).clear();
+            checkpointing = pending;
+            pending = new TreeMap<>();
+            checkpointing.forEach((hour, bucket) -> deltas.put(hour, bucket.serialize()));
+        }
+        try {
+            databaseService.mergeAnalyticsBuckets(deltas, this::merge, oldest);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                // Kept for the next checkpoint
+                checkpointing.forEach((hour, bucket) -> merge(pending, bucket));
+                checkpointing = new TreeMap<>();
+            }
+            throw e;
+        }
+        TreeMap<Long, Bucket> reloaded = deserialize(databaseService.loadAnalyticsBuckets(oldest));
+        synchronized (this) {
+            stored = reloaded;
+            checkpointing = new TreeMap<>();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (scheduler) {
+            if (loaded) {
+                return;
+            }
+            long oldest = currentHour() - windowHours() + 1;
+            Map<Long, byte[]> saved = databaseService.loadAnalyticsBuckets(oldest);
+            if (saved.isEmpty()) {
+                Map<Long, byte[]> rebuilt = rebuild(oldest * HOUR_MILLIS);
+                if (!rebuilt.isEmpty()) {
+                    // Another process may have rebuilt or checkpointed meanwhile; its buckets win
+                    databaseService.mergeAnalyticsBuckets(rebuilt, (current, replayed) -> current, oldest);
+                    saved = databaseService.loadAnalyticsBuckets(oldest);
+                }
+            }
+            TreeMap<Long, Bucket> loadedBuckets = deserialize(saved);
+            synchronized (this) {
+                stored = loadedBuckets;
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Replay search_history of the window, up to the start of this process (later searches
+     * arrive as events)
+     */
+    private Map<Long, byte[]> rebuild(long from) {
+        TreeMap<Long, Bucket> replayed = new TreeMap<>();
+        int[] searches = new int[1];
+        databaseService.forEachSearch(from, startedAt, event -> {
+            record(replayed, event.query(), event.resultCount(), event.executionTimeMs(), event.timestamp());
+            searches[0]++;
+        });
+        if (searches[0] > 0) {
+            log.info("Rebuilt search analytics from {} searches in search_history", searches[0]);
+        }
+        Map<Long, byte[]> serialized = new LinkedHashMap<>();
+        replayed.forEach((hour, bucket) -> serialized.put(hour, bucket.serialize()));
+        return serialized;
+    }
+
+    /**
+     * Stored bucket plus the searches of this process, both serialised; an unreadable stored
+     * bucket is replaced
+     */
+    private byte[] merge(byte[] storedData, byte[] delta) {
+        try {
+            Bucket bucket = Bucket.deserialize(0, storedData);
+            bucket.merge(Bucket.deserialize(0, delta), trackedQueries());
+            return bucket.serialize();
+        } catch (IOException e) {
+            log.warn("Replacing unreadable search analytics bucket: {}", e.getMessage());
+            return delta;
+        }
+    }
+
+    private void merge(Map<Long, Bucket> into, Bucket bucket) {
+        Bucket current = into.putIfAbsent(bucket.hour, bucket);
+        if (current != null) {
+            current.merge(bucket, trackedQueries());
+        }
+    }
+
+    private static TreeMap<Long, Bucket> deserialize(Map<Long, byte[]> saved) {
+        TreeMap<Long, Bucket> buckets = new TreeMap<>();
+        for (Map.Entry<Long, byte[]> entry : saved.entrySet()) {
+            try {
+                buckets.put(entry.getKey(), Bucket.deserialize(entry.getKey(), entry.getValue()));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable search analytics bucket {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        return buckets;
+    }
+
+    private static List<QueryStat> ranked(Map<String, ?> candidates, ToLongFunction<String> value, int limit) {
+        List<QueryStat> stats = new ArrayList<>(candidates.size());
+        for (String query : candidates.keySet()) {
+            stats.add(new QueryStat(query, value.applyAsLong(query)));
+        }
+        stats.sort(Comparator.comparingLong(QueryStat::value).reversed().thenComparing(QueryStat::query));
+        return stats.size() > limit ? stats.subList(0, limit) : stats;
+    }
+
+    private long currentHour() {
+        return Math.floorDiv(clock.getAsLong(), HOUR_MILLIS);
+    }
+
+    private int windowHours() {
+        return Math.max(1, settings.getWindowHours());
+    }
+
+    private int trackedQueries() {
+        return Math.max(1, settings.getTrackedQueries());
+    }
+
+    /**
+     * Aggregates of the searches of one hour
+     */
+    static final class Bucket {
+
+        final long hour;
+        long searches;
+        long zeroResults;
+        CountMinSketch queries = new CountMinSketch();
+        CountMinSketch zeroResultQueries = new CountMinSketch();
+        TDigest latency = new TDigest();
+        /**
+         * Candidates for the top lists: query to its estimate when last offered
+         */
+        final Map<String, Long> topQueries = new HashMap<>();
+        final Map<String, Long> topZeroResults = new HashMap<>();
+        /**
+         * Query to its highest latency
+         */
+        final Map<String, Long> slowest = new HashMap<>();
+
+        Bucket(long hour) {
+            this.hour = hour;
+        }
+
+        void record(String query, boolean zeroResult, long millis, int tracked) {
+            searches++;
+            latency.add(millis);
+            queries.add(query);
+            offer(topQueries, query, queries.estimate(query), tracked);
+            if (zeroResult) {
+                zeroResults++;
+                zeroResultQueries.add(query);
+                offer(topZeroResults, query, zeroResultQueries.estimate(query), tracked);
+            }
+            offer(slowest, query, millis, tracked);
+        }
+
+        void merge(Bucket other, int tracked) {
+            searches += other.searches;
+            zeroResults += other.zeroResults;
+            queries.merge(other.queries);
+            zeroResultQueries.merge(other.zeroResultQueries);
+            latency.merge(other.latency);
+            for (String query : other.topQueries.keySet()) {
+                offer(topQueries, query, queries.estimate(query), tracked);
+            }
+            for (String query : other.topZeroResults.keySet()) {
+                offer(topZeroResults, query, zeroResultQueries.estimate(query), tracked);
+            }
+            other.slowest.forEach((query, millis) -> offer(slowest, query, millis, tracked));
+        }
+
+        /**
+         * Keep the query if it is among the tracked highest values, evicting the lowest
+         */
+        private static void offer(Map<String, Long> candidates, String query, long value, int tracked) {
+            Long current = candidates.get(query);
+            if (current != null) {
+                candidates.put(query, Math.max(current, value));
+                return;
+            }
+            if (candidates.size() < tracked) {
+                candidates.put(query, value);
+                return;
+            }
+            Map.Entry<String, Long> lowest = null;
+            for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                if (lowest == null || entry.getValue() < lowest.getValue()) {
+                    lowest = entry;
+                }
+            }
+            if (value > lowest.getValue()) {
+                candidates.remove(lowest.getKey());
+                candidates.put(query, value);
+            }
+        }
+
+        byte[] serialize() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+                out.writeByte(FORMAT_VERSION);
+                out.writeLong(searches);
+                out.writeLong(zeroResults);
+                queries.write(out);
+                zeroResultQueries.write(out);
+                latency.write(out);
+                writeMap(out, topQueries);
+                writeMap(out, topZeroResults);
+                writeMap(out, slowest);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot serialise search analytics bucket", e);
+            }
+            return bytes.toByteArray();
+        }
+
+        static Bucket deserialize(long hour, byte[] data) throws IOException {
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+                int version = in.readUnsignedByte();
+                if (version != FORMAT_VERSION) {
+                    throw new IOException("unknown format version " + version);
+                }
+                Bucket bucket = new Bucket(hour);
+                bucket.searches = in.readLong();
+                bucket.zeroResults = in.readLong();
+                bucket.queries = CountMinSketch.read(in);
+                bucket.zeroResultQueries = CountMinSketch.read(in);
+                bucket.latency = TDigest.read(in);
+                readMap(in, bucket.topQueries);
+                readMap(in, bucket.topZeroResults);
+                readMap(in, bucket.slowest);
+                return bucket;
+            }
+        }
+
+        private static void writeMap(DataOutput out, Map<String, Long> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, Long> entry : map.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+
+        private static void readMap(DataInput in, Map<String, Long> map) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                map.put(in.readUTF(), in.readLong());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yacy.mcp.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a paged yacy_search, handed to the client as an opaque base64url token.
+ * Besides the query and the offset of the next page it names the server-side snapshot
+ * holding the prefetched window, so the token still works (with a fresh YaCy query)
+ * after the snapshot has expired.
+ */
+public record SearchCursor(String snapshot, String query, int position) {
+
+    private static final String VERSION = "1";
+
+    public String encode() {
+        String raw = VERSION + '\n' + snapshot + '\n' + position + '\n' + query;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static SearchCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+        String[] parts = raw.split("\n", 4);
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+        try {
+            int position = Integer.parseInt(parts[2]);
+            if (position < 0) {
+                throw new IllegalArgumentException("malformed cursor");
+            }
+            return new SearchCursor(parts[1], parts[3], position);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed cursor");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.yacy.mcp.service;
+
+/**
+ * Published by {@link DatabaseService#logSearch} for every search written to search_history
+ *
+ * @param timestamp epoch milliseconds of the search
+ */
+public record SearchLoggedEvent(String query, int resultCount, long executionTimeMs, long timestamp) {
+}
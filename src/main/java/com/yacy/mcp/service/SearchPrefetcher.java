@@ -0,0 +1,183 @@
+package com.yacy.mcp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background fetch of the next result window for queries that are usually paged.
+ * A query qualifies when the share of its first pages that were followed by a cursor
+ * request reaches minFollowRate; queries seen only a few times borrow the global share
+ * as a prior. At most maxInFlight prefetches run at once across all queries, and a
+ * prefetch that finds no free slot is dropped rather than queued.
+ *
+ * Metrics: yacy.search.prefetch{result=issued|rejected|loaded|failed|hit} counters and
+ * the yacy.search.prefetch.hit.ratio gauge (windows used by a later page / windows loaded).
+ */
+public class SearchPrefetcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchPrefetcher.class);
+
+    /**
+     * Number of queries whose paging history is remembered
+     */
+    private static final int HISTORY_SIZE = 4096;
+
+    /**
+     * Weight of the global follow-up share when judging a query with little history
+     */
+    private static final double PRIOR_WEIGHT = 2.0;
+
+    /**
+     * A window fetch run in the background
+     */
+    @FunctionalInterface
+    public interface Fetch {
+        void run() throws Exception;
+    }
+
+    private final Semaphore budget;
+    private final ExecutorService executor;
+    private final double minFollowRate;
+    private final LinkedHashMap<String, Paging> history;
+    private long firstPages;
+    private long followedPages;
+
+    private final Counter issued;
+    private final Counter rejected;
+    private final Counter loaded;
+    private final Counter failed;
+    private final Counter hits;
+
+    public SearchPrefetcher(int maxInFlight, double minFollowRate, MeterRegistry registry) {
+        int slots = Math.max(1, maxInFlight);
+        this.budget = new Semaphore(slots);
+        this.minFollowRate = minFollowRate;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(0, slots, 30, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "search-prefetch-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.history = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Paging> eldest) {
+                return size() > HISTORY_SIZE;
+            }
+        };
+
+        this.issued = counter(registry, "issued", "Prefetches started");
+        this.rejected = counter(registry, "rejected", "Prefetches dropped because the budget was exhausted");
+        this.loaded = counter(registry, "loaded", "Prefetches that loaded a result window");
+        this.failed = counter(registry, "failed", "Prefetches that failed");
+        this.hits = counter(registry, "hit", "Prefetched windows that served a later page");
+        Gauge.builder("yacy.search.prefetch.hit.ratio", this, SearchPrefetcher::getHitRatio)
+                .description("Share of prefetched result windows that served a later page")
+                .register(registry);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result, String description) {
+        return Counter.builder("yacy.search.prefetch")
+                .tag("result", result)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * A first page of the query was served
+     */
+    public synchronized void recordFirstPage(String query) {
+        history.computeIfAbsent(query, q -> new Paging()).first++;
+        firstPages++;
+    }
+
+    /**
+     * A first page of the query was followed by at least one cursor request
+     */
+    public synchronized void recordFollowed(String query) {
+        history.computeIfAbsent(query, q -> new Paging()).followed++;
+        followedPages++;
+    }
+
+    /**
+     * True if the query's history says the next page is likely to be requested
+     */
+    public synchronized boolean isLikelyPaged(String query) {
+        double global = firstPages > 0 ? Math.min(1.0, (double) followedPages / firstPages) : 0.0;
+        Paging paging = history.get(query);
+        double followed = paging != null ? paging.followed : 0;
+        double first = paging != null ? paging.first : 0;
+        return (followed + PRIOR_WEIGHT * global) / (first + PRIOR_WEIGHT) >= minFollowRate;
+    }
+
+    /**
+     * Run the fetch in the background if a budget slot is free
+     *
+     * @return true if the fetch was started
+     */
+    public boolean submit(String query, Fetch fetch) {
+        if (!budget.tryAcquire()) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    fetch.run();
+                } catch (Exception e) {
+                    failed.increment();
+                    log.debug("Prefetch for '{}' failed: {}", query, e.getMessage());
+                } finally {
+                    budget.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            budget.release();
+            rejected.increment();
+            return false;
+        }
+        issued.increment();
+        return true;
+    }
+
+    /**
+     * A prefetch loaded its window; called before the window becomes visible to requests
+     */
+    public void recordLoaded() {
+        loaded.increment();
+    }
+
+    /**
+     * A page was served from a window loaded by a prefetch
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public double getHitRatio() {
+        double windows = loaded.count();
+        return windows > 0 ? hits.count() / windows : 0.0;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Paging {
+        long first;
+        long followed;
+    }
+}
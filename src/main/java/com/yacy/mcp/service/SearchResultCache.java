@@ -0,0 +1,378 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.config.YaCyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Second-level search cache in the search_cache table of the service database, so a
+ * freshly started process can answer repeat queries without asking YaCy. The table is
+ * created by the schema migrations, which run before the cache opens its connection.
+ * Responses are stored deflate-compressed under a key built from the canonical query,
+ * offset, count and projection. Lookups run on one dedicated connection with prepared
+ * statements. Writes, last-access updates and eviction run on a single background thread:
+ * entries past the TTL are deleted, then the least recently used entries until the
+ * compressed total is under maxBytes. The connection is released when the context stops,
+ * e.g. before a CRaC checkpoint, and opened again on the next use.
+ */
+@Component
+@ConditionalOnProperty(prefix = "yacy.search.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SearchResultCache implements SmartLifecycle, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+
+    private static final String SELECT = "SELECT payload, created_at FROM search_cache WHERE cache_key = ?";
+    private static final String UPSERT = """
+            INSERT INTO search_cache (cache_key, payload, raw_size, stored_size, created_at, last_access)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT(cache_key) DO UPDATE SET payload = excluded.payload, raw_size = excluded.raw_size,
+                stored_size = excluded.stored_size, created_at = excluded.created_at, last_access = excluded.last_access
+            """;
+    private static final String TOUCH = "UPDATE search_cache SET last_access = ? WHERE cache_key = ? AND last_access < ?";
+
+    private final DataSource dataSource;
+    private final DatabaseService databaseService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long ttlMillis;
+    private final long maxBytes;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService background;
+    private final Map<String, Long> touched = new ConcurrentHashMap<>();
+    private volatile boolean stopped;
+
+    private Connection connection;
+    private PreparedStatement select;
+    private PreparedStatement upsert;
+    private PreparedStatement touch;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public SearchResultCache(DataSource dataSource, DatabaseService databaseService, YaCyConfig config,
+                             MeterRegistry meterRegistry) {
+        this(dataSource, databaseService, config.getSearch().getCache(), meterRegistry, System::currentTimeMillis);
+    }
+
+    SearchResultCache(DataSource dataSource, DatabaseService databaseService, YaCyConfig.Cache settings,
+                      MeterRegistry meterRegistry, LongSupplier clock) {
+        this.dataSource = dataSource;
+        this.databaseService = databaseService;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(settings.getTtlSeconds());
+        this.maxBytes = settings.getMaxBytes();
+        this.clock = clock;
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-cache");
+            t.setDaemon(true);
+            return t;
+        });
+        if (settings.getCompactIntervalSeconds() > 0) {
+            background.scheduleWithFixedDelay(this::compactQuietly, settings.getCompactIntervalSeconds(),
+                    settings.getCompactIntervalSeconds(), TimeUnit.SECONDS);
+        }
+        this.hits = counter(meterRegistry, "hit");
+        this.misses = counter(meterRegistry, "miss");
+        this.evictions = counter(meterRegistry, "evicted");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("yacy.search.cache")
+                .tag("result", result)
+                .description("Second-level search cache lookups and evictions")
+                .register(registry);
+    }
+
+    /**
+     * Cache key of one YaCy search request
+     */
+    public static String key(String canonicalQuery, int offset, int count, SearchProjection projection) {
+        return canonicalQuery + '\u0000' + offset + '\u0000' + count + '\u0000' + projection;
+    }
+
+    /**
+     * Cached response for the key, or null if there is none or it has expired
+     */
+    public JsonNode get(String key) {
+        byte[] payload;
+        try {
+            payload = read(key);
+        } catch (SQLException e) {
+            log.warn("Search cache lookup failed: {}", e.getMessage());
+            synchronized (this) {
+                reset();
+            }
+            return null;
+        }
+        if (payload == null) {
+            misses.increment();
+            return null;
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(payload))) {
+            JsonNode result = objectMapper.readTree(in);
+            touched.put(key, clock.getAsLong());
+            hits.increment();
+            return result;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable search cache entry: {}", e.getMessage());
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Store a response; it is compressed here, before the caller can modify the tree,
+     * and written to the database in the background
+     */
+    public void put(String key, JsonNode result) {
+        byte[] raw;
+        byte[] compressed;
+        try {
+            raw = objectMapper.writeValueAsBytes(result);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 4 + 64);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+            try (DeflaterOutputStream out = new DeflaterOutputStream(buffer, deflater)) {
+                out.write(raw);
+            } finally {
+                deflater.end();
+            }
+            compressed = buffer.toByteArray();
+        } catch (IOException e) {
+            log.warn("Could not encode search response for the cache: {}", e.getMessage());
+            return;
+        }
+        int rawSize = raw.length;
+        background.execute(() -> write(key, compressed, rawSize));
+    }
+
+    /**
+     * Flush last-access times, then drop expired entries and trim to the size cap
+     */
+    public synchronized void compact() throws SQLException {
+        Connection c = connection();
+        long now = clock.getAsLong();
+        flushTouches(now);
+
+        int removed;
+        try (PreparedStatement expired = c.prepareStatement("DELETE FROM search_cache WHERE created_at < ?")) {
+            expired.setLong(1, now - ttlMillis);
+            removed = expired.executeUpdate();
+        }
+
+        long cutoff = Long.MIN_VALUE;
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT last_access, stored_size FROM search_cache ORDER BY last_access DESC")) {
+            long kept = 0;
+            while (rs.next()) {
+                kept += rs.getLong(2);
+                if (kept > maxBytes) {
+                    cutoff = rs.getLong(1);
+                    break;
+                }
+            }
+        }
+        if (cutoff != Long.MIN_VALUE) {
+            try (PreparedStatement lru = c.prepareStatement("DELETE FROM search_cache WHERE last_access <= ?")) {
+                lru.setLong(1, cutoff);
+                removed += lru.executeUpdate();
+            }
+        }
+        if (removed > 0) {
+            evictions.increment(removed);
+            log.debug("Search cache compaction removed {} entries", removed);
+        }
+    }
+
+    /**
+     * Wait until writes queued so far have reached the database
+     */
+    void awaitWrites() throws InterruptedException, ExecutionException {
+        background.submit(() -> { }).get();
+    }
+
+    /**
+     * Nothing to reopen: the connection is opened again on the next lookup or write
+     */
+    @Override
+    public void start() {
+        stopped = false;
+    }
+
+    /**
+     * Let queued writes finish, then release the connection, e.g. before a CRaC checkpoint.
+     * Scheduled compactions are skipped until start().
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        try {
+            awaitWrites();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            log.debug("Search cache writes not awaited: {}", e.getMessage());
+        }
+        release();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return !stopped;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        release();
+    }
+
+    /**
+     * Flush last-access times and close the connection
+     */
+    private synchronized void release() {
+        try {
+            flushTouches(clock.getAsLong());
+        } catch (SQLException e) {
+            log.debug("Could not flush search cache access times: {}", e.getMessage());
+        }
+        reset();
+    }
+
+    private synchronized byte[] read(String key) throws SQLException {
+        connection();
+        select.setString(1, key);
+        try (ResultSet rs = select.executeQuery()) {
+            if (!rs.next()) {
+                return null;
+            }
+            byte[] payload = rs.getBytes(1);
+            return clock.getAsLong() - rs.getLong(2) > ttlMillis ? null : payload;
+        }
+    }
+
+    private synchronized void write(String key, byte[] payload, int rawSize) {
+        try {
+            connection();
+            long now = clock.getAsLong();
+            upsert.setString(1, key);
+            upsert.setBytes(2, payload);
+            upsert.setInt(3, rawSize);
+            upsert.setInt(4, payload.length);
+            upsert.setLong(5, now);
+            upsert.setLong(6, now);
+            upsert.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("Search cache write failed: {}", e.getMessage());
+            reset();
+        }
+    }
+
+    private void flushTouches(long now) throws SQLException {
+        if (touched.isEmpty()) {
+            return;
+        }
+        connection();
+        for (Map.Entry<String, Long> entry : touched.entrySet()) {
+            touch.setLong(1, entry.getValue());
+            touch.setString(2, entry.getKey());
+            touch.setLong(3, entry.getValue());
+            touch.addBatch();
+            touched.remove(entry.getKey(), entry.getValue());
+        }
+        touch.executeBatch();
+    }
+
+    private void compactQuietly() {
+        if (stopped) {
+            return;
+        }
+        try {
+            compact();
+        } catch (SQLException e) {
+            log.warn("Search cache compaction failed: {}", e.getMessage());
+            synchronized (this) {
+                reset();
+            }
+        }
+    }
+
+    /**
+     * The dedicated connection, opened and prepared on first use
+     */
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            // In fast-start mode the cache may be used before anything else created the schema
+            try {
+                databaseService.ensureSchema();
+            } catch (RuntimeException e) {
+                throw new SQLException("Database schema not ready: " + e.getMessage(), e);
+            }
+            Connection c = dataSource.getConnection();
+            try {
+                select = c.prepareStatement(SELECT);
+                upsert = c.prepareStatement(UPSERT);
+                touch = c.prepareStatement(TOUCH);
+            } catch (SQLException e) {
+                c.close();
+                throw e;
+            }
+            connection = c;
+        }
+        return connection;
+    }
+
+    /**
+     * Drop the connection after an error; the next call reopens it
+     */
+    private void reset() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.debug("Error closing search cache connection: {}", e.getMessage());
+            }
+        }
+        connection = null;
+        select = null;
+        upsert = null;
+        touch = null;
+    }
+}
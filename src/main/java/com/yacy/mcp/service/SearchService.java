@@ -0,0 +1,206 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Paged search on top of YaCyClient.
+ * Every result carries a nextCursor while more results exist. Following a cursor fetches
+ * several pages in one YaCy request into a snapshot, and the pages after it are served
+ * from that snapshot, so scanning N results costs about N / (count * windowPages) YaCy
+ * queries instead of re-ranking offset + count hits for every page.
+ * For queries that are usually paged, the window after the page just served is fetched
+ * in the background (see SearchPrefetcher), so the follow-up request skips the round trip.
+ * When SearchResultCache is enabled, each YaCy request is first looked up there, so repeat
+ * queries survive a restart of the service.
+ */
+@Service
+public class SearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchService.class);
+
+    /**
+     * Upper bound on the items held by one snapshot, whatever the page size
+     */
+    private static final int MAX_WINDOW_ITEMS = 1000;
+
+    private final YaCyClient yaCyClient;
+    private final SearchSnapshotStore snapshots;
+    private final int windowPages;
+    private final SearchPrefetcher prefetcher;
+    private final SearchResultCache cache;
+
+    @Autowired
+    public SearchService(YaCyClient yaCyClient, YaCyConfig config, MeterRegistry meterRegistry,
+                         ObjectProvider<SearchResultCache> cache) {
+        this(yaCyClient, config.getSearch(), meterRegistry, cache.getIfAvailable());
+    }
+
+    public SearchService(YaCyClient yaCyClient, YaCyConfig.Search settings) {
+        this(yaCyClient, settings, new SimpleMeterRegistry());
+    }
+
+    public SearchService(YaCyClient yaCyClient, YaCyConfig.Search settings, MeterRegistry meterRegistry) {
+        this(yaCyClient, settings, meterRegistry, null);
+    }
+
+    public SearchService(YaCyClient yaCyClient, YaCyConfig.Search settings, MeterRegistry meterRegistry,
+                         SearchResultCache cache) {
+        this(yaCyClient,
+                new SearchSnapshotStore(settings.getCursorMaxSnapshots(), Duration.ofSeconds(settings.getCursorTtlSeconds())),
+                settings.getCursorWindowPages(),
+                settings.isPrefetchEnabled()
+                        ? new SearchPrefetcher(settings.getPrefetchMaxInFlight(), settings.getPrefetchMinFollowRate(), meterRegistry)
+                        : null,
+                cache);
+    }
+
+    SearchService(YaCyClient yaCyClient, SearchSnapshotStore snapshots, int windowPages) {
+        this(yaCyClient, snapshots, windowPages, null, null);
+    }
+
+    SearchService(YaCyClient yaCyClient, SearchSnapshotStore snapshots, int windowPages, SearchPrefetcher prefetcher) {
+        this(yaCyClient, snapshots, windowPages, prefetcher, null);
+    }
+
+    SearchService(YaCyClient yaCyClient, SearchSnapshotStore snapshots, int windowPages, SearchPrefetcher prefetcher,
+                  SearchResultCache cache) {
+        this.yaCyClient = yaCyClient;
+        this.snapshots = snapshots;
+        this.windowPages = Math.max(1, windowPages);
+        this.prefetcher = prefetcher;
+        this.cache = cache;
+    }
+
+    /**
+     * First page of a query at an explicit offset; fetches just that page.
+     * The query is sent to YaCy, and keyed, in its canonical form (see QueryNormalizer).
+     */
+    public JsonNode search(String query, int count, int offset, SearchProjection projection) throws IOException {
+        query = QueryNormalizer.normalize(query);
+        SearchSnapshotStore.Snapshot snapshot = snapshots.create(query, projection);
+        if (prefetcher != null) {
+            prefetcher.recordFirstPage(query);
+        }
+        synchronized (snapshot) {
+            fetch(snapshot, offset, count, 1);
+            ObjectNode page = snapshot.page(offset, count);
+            prefetchAfter(snapshot, page, offset, count);
+            return page;
+        }
+    }
+
+    /**
+     * Page at a cursor, from the snapshot's window when it covers the page and otherwise by
+     * fetching the next window. An expired snapshot is replaced by a new one at the same position,
+     * and so is one that holds another query or projection than the cursor asks for.
+     */
+    public JsonNode page(SearchCursor cursor, int count, SearchProjection projection) throws IOException {
+        SearchSnapshotStore.Snapshot snapshot = snapshots.get(cursor.snapshot());
+        if (snapshot == null || !snapshot.getQuery().equals(cursor.query())
+                || !snapshot.getProjection().equals(projection)) {
+            snapshot = snapshots.create(cursor.query(), projection);
+            // Not a first page, so it says nothing new about how often this query is paged
+            snapshot.markFollowed();
+        }
+        synchronized (snapshot) {
+            if (snapshot.markFollowed() && prefetcher != null) {
+                prefetcher.recordFollowed(cursor.query());
+            }
+            if (snapshot.covers(cursor.position(), count)) {
+                log.debug("Search page {}+{} for '{}' served from snapshot {}",
+                        cursor.position(), count, cursor.query(), snapshot.getId());
+                if (snapshot.takePrefetched() && prefetcher != null) {
+                    prefetcher.recordHit();
+                }
+            } else {
+                fetch(snapshot, cursor.position(), count, windowPages(count));
+            }
+            ObjectNode page = snapshot.page(cursor.position(), count);
+            prefetchAfter(snapshot, page, cursor.position(), count);
+            return page;
+        }
+    }
+
+    public SearchSnapshotStore getSnapshotStore() {
+        return snapshots;
+    }
+
+    /**
+     * Background prefetch of the next window, or null if prefetching is disabled
+     */
+    public SearchPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
+    /**
+     * Start loading the window after the page just built, if it will probably be asked for.
+     * Called with the snapshot locked; the prefetch takes the lock once this request releases it,
+     * and a follow-up request arriving meanwhile waits for the window instead of fetching it again.
+     */
+    private void prefetchAfter(SearchSnapshotStore.Snapshot snapshot, ObjectNode page, int position, int count) {
+        if (prefetcher == null || !page.has("nextCursor")) {
+            return;
+        }
+        int next = position + page.path("channels").path(0).path("items").size();
+        if (snapshot.covers(next, count) || !prefetcher.isLikelyPaged(snapshot.getQuery())) {
+            return;
+        }
+        int pages = windowPages(count);
+        prefetcher.submit(snapshot.getQuery(), () -> {
+            synchronized (snapshot) {
+                if (!snapshot.covers(next, count)) {
+                    fetch(snapshot, next, count, pages);
+                    snapshot.markPrefetched();
+                    prefetcher.recordLoaded();
+                }
+            }
+        });
+    }
+
+    private int windowPages(int count) {
+        return Math.max(1, Math.min(windowPages, MAX_WINDOW_ITEMS / count));
+    }
+
+    private void fetch(SearchSnapshotStore.Snapshot snapshot, int position, int count, int pages) throws IOException {
+        SearchProjection projection = snapshot.getProjection();
+        // The byte budget is per page, so a window of several pages gets a proportional budget
+        SearchProjection windowProjection = projection.withMaxBytes(projection.getMaxBytes() * pages);
+        String key = null;
+        if (cache != null) {
+            key = SearchResultCache.key(snapshot.getQuery(), position, count * pages, windowProjection);
+            JsonNode cached = cache.get(key);
+            if (cached != null) {
+                snapshot.load(position, cached);
+                return;
+            }
+        }
+        JsonNode result = yaCyClient.search(snapshot.getQuery(), count * pages, position, windowProjection);
+        if (cache != null) {
+            // Encoded before load() takes the tree apart
+            cache.put(key, result);
+        }
+        snapshot.load(position, result);
+    }
+}
@@ -0,0 +1,211 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.client.SearchProjection;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived result windows behind search cursors.
+ * Each snapshot holds one contiguous window of result items for a query and projection;
+ * the store keeps at most maxSnapshots of them in LRU order and drops any that have not
+ * been used for the TTL, so memory stays bounded by maxSnapshots times the window size.
+ */
+public class SearchSnapshotStore {
+
+    private final int maxSnapshots;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Snapshot> snapshots;
+
+    public SearchSnapshotStore(int maxSnapshots, Duration ttl) {
+        this(maxSnapshots, ttl, System::nanoTime);
+    }
+
+    SearchSnapshotStore(int maxSnapshots, Duration ttl, LongSupplier clock) {
+        this.maxSnapshots = Math.max(1, maxSnapshots);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > SearchSnapshotStore.this.maxSnapshots;
+            }
+        };
+    }
+
+    /**
+     * Start an empty snapshot for a new query
+     */
+    public synchronized Snapshot create(String query, SearchProjection projection) {
+        long now = clock.getAsLong();
+        expire(now);
+        String id;
+        do {
+            id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        } while (snapshots.containsKey(id));
+        Snapshot snapshot = new Snapshot(id, query, projection);
+        snapshot.lastAccess = now;
+        snapshots.put(id, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Snapshot named by a cursor, or null if it expired or was evicted
+     */
+    public synchronized Snapshot get(String id) {
+        long now = clock.getAsLong();
+        expire(now);
+        Snapshot snapshot = snapshots.get(id);
+        if (snapshot != null) {
+            snapshot.lastAccess = now;
+        }
+        return snapshot;
+    }
+
+    public synchronized int size() {
+        return snapshots.size();
+    }
+
+    private void expire(long now) {
+        // Access order puts the least recently used snapshot first
+        Iterator<Snapshot> it = snapshots.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastAccess <= ttlNanos) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * One query's window of result items plus the result metadata around them.
+     * Callers synchronize on the snapshot while reading or replacing the window.
+     */
+    public static final class Snapshot {
+
+        private final String id;
+        private final String query;
+        private final SearchProjection projection;
+        private long lastAccess;
+
+        private ObjectNode template;
+        private int windowStart;
+        private List<JsonNode> items = List.of();
+        private boolean complete;
+        private boolean followed;
+        private boolean prefetched;
+
+        private Snapshot(String id, String query, SearchProjection projection) {
+            this.id = id;
+            this.query = query;
+            this.projection = projection;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public SearchProjection getProjection() {
+            return projection;
+        }
+
+        /**
+         * Record a cursor request on this snapshot
+         *
+         * @return true for the first one
+         */
+        public boolean markFollowed() {
+            boolean first = !followed;
+            followed = true;
+            return first;
+        }
+
+        /**
+         * Flag the current window as loaded ahead of the request for it
+         */
+        public void markPrefetched() {
+            prefetched = true;
+        }
+
+        /**
+         * True, once, if the current window was loaded by a prefetch
+         */
+        public boolean takePrefetched() {
+            boolean wasPrefetched = prefetched;
+            prefetched = false;
+            return wasPrefetched;
+        }
+
+        /**
+         * True if the window can serve count items from position without asking YaCy
+         */
+        public boolean covers(int position, int count) {
+            int windowEnd = windowStart + items.size();
+            return template != null && position >= windowStart && position <= windowEnd
+                    && (position + count <= windowEnd || complete);
+        }
+
+        /**
+         * Replace the window with a search result fetched from position; the snapshot takes over the tree
+         */
+        public void load(int position, JsonNode result) {
+            ObjectNode root = result instanceof ObjectNode object ? object : JsonNodeFactory.instance.objectNode();
+            JsonNode channel = root.path("channels").path(0);
+            List<JsonNode> window = new ArrayList<>();
+            boolean cut = false;
+            if (channel instanceof ObjectNode channelObject) {
+                channel.path("items").forEach(window::add);
+                cut = channelObject.path("truncated").asBoolean(false);
+                channelObject.remove("items");
+                channelObject.remove("truncated");
+            }
+            long total = channel.path("totalResults").asLong(-1);
+            this.template = root;
+            this.windowStart = position;
+            this.items = window;
+            this.prefetched = false;
+            // A window cut by the byte budget is never the end; the next cursor continues after it
+            this.complete = window.isEmpty() || (!cut && total >= 0 && position + window.size() >= total);
+        }
+
+        /**
+         * Build the page of count items at position; the window must cover it
+         */
+        public ObjectNode page(int position, int count) {
+            ObjectNode page = template.deepCopy();
+            JsonNode channels = page.path("channels");
+            ObjectNode channel = channels.isArray() && channels.get(0) instanceof ObjectNode first
+                    ? first
+                    : page.putArray("channels").addObject();
+            channel.put("startIndex", Integer.toString(position));
+            channel.put("itemsPerPage", Integer.toString(count));
+            ArrayNode out = channel.putArray("items");
+
+            int from = position - windowStart;
+            int to = Math.min(items.size(), from + count);
+            for (int i = from; i < to; i++) {
+                out.add(items.get(i));
+            }
+            int next = position + Math.max(0, to - from);
+            if (to > from && (next < windowStart + items.size() || !complete)) {
+                page.put("nextCursor", new SearchCursor(id, query, next).encode());
+            }
+            return page;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.service.HistoryTables.CrawlHistory;
+import com.yacy.mcp.service.HistoryTables.SearchHistory;
+import org.jooq.DSLContext;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * History store that inserts search_history and crawl_history rows right away, through one
+ * connection kept open between writes.
+ * The inserts are rendered by jOOQ from {@link HistoryTables} once, prepared once on that
+ * connection and afterwards only re-bound, where writing through the DSLContext rendered the
+ * SQL, opened a SQLite connection and prepared the statement again for every row. Crawl batches
+ * are JDBC batches in one transaction. Writes are serialised, which costs nothing since SQLite
+ * allows one writer at a time within this process; across processes they still contend for
+ * SQLite's write lock, see {@link LogHistoryStore}. After a failure the connection is dropped
+ * and the next write opens a new one, also after {@link #close()}. Rows get the database
+ * clock as their timestamp.
+ */
+final class SqliteHistoryStore implements HistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SqliteHistoryStore.class);
+
+    private final DSLContext dsl;
+    private final Runnable ensureSchema;
+
+    /**
+     * Guarded by this; null while closed
+     */
+    private Connection connection;
+    private PreparedStatement insertSearch;
+    private PreparedStatement insertCrawl;
+
+    /**
+     * @param ensureSchema creates the tables if needed; run before every write
+     */
+    SqliteHistoryStore(DSLContext dsl, Runnable ensureSchema) {
+        this.dsl = dsl;
+        this.ensureSchema = ensureSchema;
+    }
+
+    @Override
+    public void appendSearch(String query, int resultCount, long executionTimeMs, long timestamp) {
+        ensureSchema.run();
+        try {
+            insertSearch(query, resultCount, executionTimeMs);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error inserting into search_history", e);
+        }
+    }
+
+    @Override
+    public void appendCrawls(List<DatabaseService.CrawlEntry> entries, long timestamp) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ensureSchema.run();
+        try {
+            insertCrawls(entries);
+        } catch (SQLException e) {
+            throw new DataAccessException("Error inserting into crawl_history", e);
+        }
+    }
+
+    private synchronized void insertSearch(String query, int resultCount, long executionTimeMs) throws SQLException {
+        try {
+            open();
+            insertSearch.setString(1, query);
+            insertSearch.setInt(2, resultCount);
+            insertSearch.setLong(3, executionTimeMs);
+            insertSearch.executeUpdate();
+        } catch (SQLException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private synchronized void insertCrawls(List<DatabaseService.CrawlEntry> entries) throws SQLException {
+        try {
+            open();
+            if (entries.size() == 1) {
+                bindCrawl(entries.get(0));
+                insertCrawl.executeUpdate();
+                return;
+            }
+            connection.setAutoCommit(false);
+            for (DatabaseService.CrawlEntry entry : entries) {
+                bindCrawl(entry);
+                insertCrawl.addBatch();
+            }
+            insertCrawl.executeBatch();
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException | RuntimeException e) {
+            // Closing rolls back the open transaction, if any
+            close();
+            throw e;
+        }
+    }
+
+    private void bindCrawl(DatabaseService.CrawlEntry entry) throws SQLException {
+        insertCrawl.setString(1, entry.url());
+        insertCrawl.setLong(2, CrawlUrls.hash(entry.url()));
+        insertCrawl.setString(3, CrawlUrls.host(entry.url()));
+        insertCrawl.setInt(4, entry.depth());
+        if (entry.status() != null) {
+            insertCrawl.setString(5, entry.status());
+        } else {
+            insertCrawl.setNull(5, Types.VARCHAR);
+        }
+    }
+
+    private void open() throws SQLException {
+        if (connection != null) {
+            return;
+        }
+        String searchSql = dsl.insertInto(SearchHistory.TABLE,
+                        SearchHistory.QUERY, SearchHistory.RESULT_COUNT, SearchHistory.EXECUTION_TIME_MS)
+                .values(DSL.param("query", String.class),
+                        DSL.param("result_count", Integer.class),
+                        DSL.param("execution_time_ms", Long.class))
+                .getSQL();
+        String crawlSql = dsl.insertInto(CrawlHistory.TABLE,
+                        CrawlHistory.URL, CrawlHistory.URL_HASH, CrawlHistory.HOST, CrawlHistory.DEPTH, CrawlHistory.STATUS)
+                .values(DSL.param("url", String.class),
+                        DSL.param("url_hash", Long.class),
+                        DSL.param("host", String.class),
+                        DSL.param("depth", Integer.class),
+                        DSL.param("status", String.class))
+                .getSQL();
+
+        connection = dsl.configuration().connectionProvider().acquire();
+        insertSearch = connection.prepareStatement(searchSql);
+        insertCrawl = connection.prepareStatement(crawlSql);
+        log.debug("Opened history write connection");
+    }
+
+    @Override
+    public void release() {
+        close();
+    }
+
+    /**
+     * Close the statements and give the connection back; the next write reopens it
+     */
+    @Override
+    public synchronized void close() {
+        if (connection == null) {
+            return;
+        }
+        closeQuietly(insertSearch);
+        closeQuietly(insertCrawl);
+        try {
+            dsl.configuration().connectionProvider().release(connection);
+        } catch (RuntimeException e) {
+            log.debug("Error releasing history write connection: {}", e.getMessage());
+        }
+        connection = null;
+        insertSearch = null;
+        insertCrawl = null;
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.debug("Error closing history statement: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.yacy.mcp.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest for latency quantiles. Values are buffered and merged into at most about
+ * 2 * compression centroids; centroids near the tails stay small, so p95 and p99 remain
+ * accurate while the digest has a fixed size. Digests merge by adding each other's centroids.
+ */
+final class TDigest {
+
+    static final double COMPRESSION = 100;
+
+    private double[] means = new double[0];
+    private long[] weights = new long[0];
+    private final double[] bufferMeans = new double[(int) (5 * COMPRESSION)];
+    private final long[] bufferWeights = new long[bufferMeans.length];
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    void add(double value) {
+        add(value, 1);
+    }
+
+    private void add(double value, long weight) {
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = value;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        count += weight;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void merge(TDigest other) {
+        other.compress();
+        for (int i = 0; i < other.means.length; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        if (other.count > 0) {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    double max() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * @return the estimated q-quantile, NaN if the digest is empty
+     */
+    double quantile(double q) {
+        compress();
+        int n = means.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if (n == 1) {
+            return means[0];
+        }
+        double index = q * count;
+        double first = weights[0] / 2.0;
+        if (index < first) {
+            return min + (means[0] - min) * index / first;
+        }
+        double cumulative = first;
+        for (int i = 0; i < n - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2.0;
+            if (cumulative + gap > index) {
+                return means[i] + (means[i + 1] - means[i]) * (index - cumulative) / gap;
+            }
+            cumulative += gap;
+        }
+        double last = weights[n - 1] / 2.0;
+        return means[n - 1] + (max - means[n - 1]) * Math.min(1, (index - cumulative) / last);
+    }
+
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int n = means.length + buffered;
+        double[] allMeans = Arrays.copyOf(means, n);
+        long[] allWeights = Arrays.copyOf(weights, n);
+        System.arraycopy(bufferMeans, 0, allMeans, means.length, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, means.length, buffered);
+        buffered = 0;
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        double[] merged = new double[n];
+        long[] mergedWeights = new long[n];
+        int out = 0;
+        merged[0] = allMeans[order[0]];
+        mergedWeights[0] = allWeights[order[0]];
+        long before = 0;
+        for (int i = 1; i < n; i++) {
+            double mean = allMeans[order[i]];
+            long weight = allWeights[order[i]];
+            long proposed = mergedWeights[out] + weight;
+            if (scale((double) (before + proposed) / count) - scale((double) before / count) <= 1) {
+                merged[out] += (mean - merged[out]) * weight / proposed;
+                mergedWeights[out] = proposed;
+            } else {
+                before += mergedWeights[out];
+                out++;
+                merged[out] = mean;
+                mergedWeights[out] = weight;
+            }
+        }
+        means = Arrays.copyOf(merged, out + 1);
+        weights = Arrays.copyOf(mergedWeights, out + 1);
+    }
+
+    /**
+     * k1 scale function: centroids may span one unit of k, which is small near q = 0 and q = 1
+     */
+    private static double scale(double q) {
+        return COMPRESSION / (2 * Math.PI) * Math.asin(2 * Math.min(1, q) - 1);
+    }
+
+    void write(DataOutput out) throws IOException {
+        compress();
+        out.writeLong(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(means.length);
+        for (int i = 0; i < means.length; i++) {
+            out.writeDouble(means[i]);
+            out.writeLong(weights[i]);
+        }
+    }
+
+    static TDigest read(DataInput in) throws IOException {
+        TDigest digest = new TDigest();
+        digest.count = in.readLong();
+        digest.min = in.readDouble();
+        digest.max = in.readDouble();
+        int n = in.readInt();
+        digest.means = new double[n];
+        digest.weights = new long[n];
+        for (int i = 0; i < n; i++) {
+            digest.means[i] = in.readDouble();
+            digest.weights[i] = in.readLong();
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,68 @@
+package com.yacy.mcp.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that refills at a fixed rate up to a burst size.
+ * acquire() reserves the next token and sleeps until it is due, so callers are served in
+ * the order they reserved instead of retrying in a loop. A rate of 0 or less means no limit.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double perSecond, int burst) {
+        this(perSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double perSecond, int burst, LongSupplier nanoClock) {
+        this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+        this.tokens = this.burst;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take a token, waiting until one is available
+     */
+    void acquire() throws InterruptedException {
+        long wait = reserve();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Take a token, possibly on credit
+     *
+     * @return nanoseconds until the token is due
+     */
+    synchronized long reserve() {
+        if (tokensPerNano <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+
+    /**
+     * True if the bucket is full, i.e. it has not been used for a while
+     */
+    synchronized boolean isIdle() {
+        refill();
+        return tokens >= burst;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,72 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.service.SearchAnalytics;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Search analytics tool
+ */
+@Component
+public class AnalyticsTools implements McpToolProvider {
+
+    private final SearchAnalytics searchAnalytics;
+
+    public AnalyticsTools(SearchAnalytics searchAnalytics) {
+        this.searchAnalytics = searchAnalytics;
+    }
+
+    public record SearchAnalyticsParams(
+            @ToolParam(description = "Report on the last this many hours, including the current one, "
+                    + "up to yacy.search.analytics.window-hours (168)", defaultValue = "24", min = 1) int hours,
+            @ToolParam(description = "Queries per list", defaultValue = "10", min = 1, max = 100) int limit) {
+    }
+
+    @McpTool(name = "yacy_search_analytics", description = "Search statistics for a recent time window: number of "
+            + "searches, latency percentiles, most frequent, zero-result and slowest queries, and an hourly trend. "
+            + "Per-query counts are estimates and may be slightly high")
+    public JsonNode searchAnalytics(SearchAnalyticsParams params) {
+        SearchAnalytics.Report report = searchAnalytics.report(params.hours(), params.limit());
+
+        ObjectNode result = JsonNodeFactory.instance.objectNode()
+                .put("windowHours", report.windowHours())
+                .put("searches", report.searches())
+                .put("zeroResultSearches", report.zeroResultSearches());
+        if (report.searches() > 0) {
+            result.putObject("latencyMs")
+                    .put("p50", Math.round(report.p50Ms()))
+                    .put("p90", Math.round(report.p90Ms()))
+                    .put("p95", Math.round(report.p95Ms()))
+                    .put("p99", Math.round(report.p99Ms()))
+                    .put("max", Math.round(report.maxMs()));
+        }
+        result.set("topQueries", queries(report.topQueries(), "searches"));
+        result.set("zeroResultQueries", queries(report.zeroResultQueries(), "searches"));
+        result.set("slowestQueries", queries(report.slowestQueries(), "maxMs"));
+        ArrayNode trend = result.putArray("trend");
+        for (SearchAnalytics.HourStats hour : report.trend()) {
+            ObjectNode item = trend.addObject()
+                    .put("hour", Instant.ofEpochMilli(hour.hourStart()).toString())
+                    .put("searches", hour.searches())
+                    .put("zeroResultSearches", hour.zeroResultSearches());
+            if (hour.searches() > 0) {
+                item.put("p50Ms", Math.round(hour.p50Ms())).put("p95Ms", Math.round(hour.p95Ms()));
+            }
+        }
+        return result;
+    }
+
+    private static ArrayNode queries(List<SearchAnalytics.QueryStat> stats, String valueName) {
+        ArrayNode array = JsonNodeFactory.instance.arrayNode(stats.size());
+        for (SearchAnalytics.QueryStat stat : stats) {
+            array.addObject().put("query", stat.query()).put(valueName, stat.value());
+        }
+        return array;
+    }
+}
@@ -0,0 +1,123 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.service.CrawlBatchService;
+import com.yacy.mcp.service.CrawlJob;
+import com.yacy.mcp.service.CrawlJobQueue;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Crawl tools: batch submission and crawl job status
+ */
+@Component
+public class CrawlTools implements McpToolProvider {
+
+    private final CrawlBatchService crawlBatchService;
+    private final CrawlJobQueue crawlJobQueue;
+
+    public CrawlTools(CrawlBatchService crawlBatchService, CrawlJobQueue crawlJobQueue) {
+        this.crawlBatchService = crawlBatchService;
+        this.crawlJobQueue = crawlJobQueue;
+    }
+
+    public record CrawlBatchParams(
+            @ToolParam(description = "URLs to crawl", required = true) List<String> urls,
+            @ToolParam(description = "Crawl depth", defaultValue = "0", min = 0) int depth) {
+    }
+
+    public record CrawlStatusParams(
+            @ToolParam(description = "Job id returned by yacy_start_crawl; omit to list recent jobs") Long jobId,
+            @ToolParam(description = "Only list jobs with this status: queued, running, finished or failed") String status,
+            @ToolParam(description = "Maximum number of jobs to list", defaultValue = "20", min = 1, max = 200) int limit) {
+    }
+
+    @McpTool(name = "yacy_start_crawl_batch", description = "Start crawls for a list of URLs. Duplicates and URLs "
+            + "submitted recently are skipped, and submissions are rate limited per host. "
+            + "Returns accepted, skipped or failed for every URL")
+    public JsonNode startCrawlBatch(CrawlBatchParams params) {
+        if (params.urls().isEmpty()) {
+            throw new ToolArgumentException("urls", "urls must not be empty");
+        }
+        if (params.urls().size() > crawlBatchService.getBatchMaxUrls()) {
+            throw new ToolArgumentException("urls",
+                    "at most " + crawlBatchService.getBatchMaxUrls() + " URLs per batch, got " + params.urls().size());
+        }
+        List<CrawlBatchService.Outcome> outcomes = crawlBatchService.submit(params.urls(), params.depth());
+
+        Map<CrawlBatchService.Status, Integer> totals = new EnumMap<>(CrawlBatchService.Status.class);
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        ArrayNode results = JsonNodeFactory.instance.arrayNode(outcomes.size());
+        for (CrawlBatchService.Outcome outcome : outcomes) {
+            totals.merge(outcome.status(), 1, Integer::sum);
+            ObjectNode item = results.addObject()
+                    .put("url", outcome.url())
+                    .put("status", outcome.status().name().toLowerCase(Locale.ROOT));
+            if (outcome.reason() != null) {
+                item.put("reason", outcome.reason());
+            }
+        }
+        for (CrawlBatchService.Status status : CrawlBatchService.Status.values()) {
+            result.put(status.name().toLowerCase(Locale.ROOT), totals.getOrDefault(status, 0));
+        }
+        result.set("results", results);
+        return result;
+    }
+
+    @McpTool(name = "yacy_crawl_status", description = "Status of a crawl job started with yacy_start_crawl, "
+            + "or the most recent jobs")
+    public JsonNode crawlStatus(CrawlStatusParams params) {
+        if (params.jobId() != null) {
+            CrawlJob job = crawlJobQueue.find(params.jobId());
+            if (job == null) {
+                throw new ToolArgumentException("jobId", "no crawl job with id " + params.jobId());
+            }
+            return toJson(job);
+        }
+        String status = params.status() != null && !params.status().isBlank()
+                ? params.status().trim().toLowerCase(Locale.ROOT)
+                : null;
+        if (status != null && !List.of(CrawlJob.QUEUED, CrawlJob.RUNNING, CrawlJob.FINISHED, CrawlJob.FAILED).contains(status)) {
+            throw new ToolArgumentException("status", "status must be one of queued, running, finished, failed");
+        }
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        ArrayNode jobs = result.putArray("jobs");
+        for (CrawlJob job : crawlJobQueue.recent(status, params.limit())) {
+            jobs.add(toJson(job));
+        }
+        return result;
+    }
+
+    static ObjectNode toJson(CrawlJob job) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode()
+                .put("jobId", job.id())
+                .put("url", job.url())
+                .put("depth", job.depth())
+                .put("status", job.status())
+                .put("attempts", job.attempts())
+                .put("createdAt", Instant.ofEpochMilli(job.createdAt()).toString())
+                .put("updatedAt", Instant.ofEpochMilli(job.updatedAt()).toString());
+        if (job.submittedAt() != null) {
+            node.put("submittedAt", Instant.ofEpochMilli(job.submittedAt()).toString());
+        }
+        if (CrawlJob.QUEUED.equals(job.status()) || CrawlJob.RUNNING.equals(job.status())) {
+            node.put(CrawlJob.QUEUED.equals(job.status()) ? "nextAttemptAt" : "nextCheckAt",
+                    Instant.ofEpochMilli(job.nextAttemptAt()).toString());
+        }
+        if (job.handle() != null) {
+            node.put("handle", job.handle());
+        }
+        if (job.error() != null) {
+            node.put("error", job.error());
+        }
+        return node;
+    }
+}
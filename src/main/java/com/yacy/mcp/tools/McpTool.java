@@ -0,0 +1,26 @@
+package com.yacy.mcp.tools;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method of a {@link McpToolProvider} bean as an MCP tool.
+ * The method takes either no parameters or a single record whose components are
+ * annotated with {@link ToolParam}; the input schema is generated from that record.
+ * The return value becomes the tool result (a McpToolCallResponse is passed through as is).
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface McpTool {
+
+    /**
+     * Tool name as listed in tools/list
+     */
+    String name();
+
+    String description();
+}
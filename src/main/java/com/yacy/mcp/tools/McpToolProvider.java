@@ -0,0 +1,8 @@
+package com.yacy.mcp.tools;
+
+/**
+ * Marker for beans that contribute {@link McpTool} methods.
+ * YaCyToolsConfiguration scans every such bean once at startup.
+ */
+public interface McpToolProvider {
+}
@@ -0,0 +1,275 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validator for a tool's inputSchema, compiled once when the tool is registered and run
+ * directly on the JSON-RPC arguments node.
+ * Supports the subset of JSON Schema the tools use: type, properties, required,
+ * additionalProperties=false, enum, minimum/maximum, minLength/maxLength, items and
+ * maxItems; other keywords are ignored. Scalar types are checked with the same leniency
+ * as ToolBinding (an integer may arrive as 10.0 or "10"), and integers are range-checked
+ * against the Java width ToolBinding declares as format int32 or int64 (int64 if absent),
+ * so anything that validates also binds.
+ */
+public final class SchemaValidator {
+
+    /**
+     * One failed constraint; path is a JSON pointer into the arguments, e.g. "/count"
+     */
+    public record Violation(String path, String message) {
+    }
+
+    private enum Type { ANY, STRING, INTEGER, NUMBER, BOOLEAN, ARRAY, OBJECT }
+
+    private final PropertyCheck[] properties;
+    private final Map<String, PropertyCheck> byName;
+    private final String[] required;
+    private final boolean additionalProperties;
+
+    private SchemaValidator(Map<String, PropertyCheck> byName, String[] required, boolean additionalProperties) {
+        this.byName = byName;
+        this.properties = byName.values().toArray(new PropertyCheck[0]);
+        this.required = required;
+        this.additionalProperties = additionalProperties;
+    }
+
+    public static SchemaValidator compile(Map<String, Object> schema) {
+        Map<String, PropertyCheck> byName = new LinkedHashMap<>();
+        if (schema != null && schema.get("properties") instanceof Map<?, ?> props) {
+            props.forEach((name, property) -> {
+                if (property instanceof Map<?, ?> definition) {
+                    byName.put(name.toString(), PropertyCheck.compile(name.toString(), definition));
+                }
+            });
+        }
+        String[] required = schema != null && schema.get("required") instanceof Collection<?> names
+                ? names.stream().map(Object::toString).toArray(String[]::new)
+                : new String[0];
+        boolean additional = schema == null || !Boolean.FALSE.equals(schema.get("additionalProperties"));
+        return new SchemaValidator(byName, required, additional);
+    }
+
+    /**
+     * Check the arguments of a tools/call; a missing arguments node counts as an empty object
+     *
+     * @return the violations, empty if the arguments are valid
+     */
+    public List<Violation> validate(JsonNode arguments) {
+        if (arguments != null && !arguments.isNull() && !arguments.isObject()) {
+            return List.of(new Violation("", "arguments must be an object"));
+        }
+        List<Violation> violations = null;
+
+        for (String name : required) {
+            JsonNode value = arguments != null ? arguments.get(name) : null;
+            if (value == null || value.isNull()) {
+                violations = add(violations, "/" + name, "is required");
+            }
+        }
+        if (arguments == null || arguments.isNull()) {
+            return violations != null ? violations : List.of();
+        }
+
+        for (PropertyCheck property : properties) {
+            JsonNode value = arguments.get(property.name);
+            if (value != null && !value.isNull()) {
+                violations = property.check(value, violations);
+            }
+        }
+        if (!additionalProperties) {
+            Iterator<String> names = arguments.fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!byName.containsKey(name)) {
+                    violations = add(violations, "/" + name, "is not a known argument");
+                }
+            }
+        }
+        return violations != null ? violations : List.of();
+    }
+
+    private static List<Violation> add(List<Violation> violations, String path, String message) {
+        List<Violation> list = violations != null ? violations : new ArrayList<>(2);
+        list.add(new Violation(path, message));
+        return list;
+    }
+
+    private static final class PropertyCheck {
+        final String name;
+        final String path;
+        final Type type;
+        final Type itemType;
+        final Set<String> allowed;
+        final Double minimum;
+        final Double maximum;
+        final int minLength;
+        final int maxLength;
+        final int maxItems;
+
+        private PropertyCheck(String name, Type type, Type itemType, Set<String> allowed, Double minimum,
+                              Double maximum, int minLength, int maxLength, int maxItems) {
+            this.name = name;
+            this.path = "/" + name;
+            this.type = type;
+            this.itemType = itemType;
+            this.allowed = allowed;
+            this.minimum = minimum;
+            this.maximum = maximum;
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.maxItems = maxItems;
+        }
+
+        static PropertyCheck compile(String name, Map<?, ?> definition) {
+            Type itemType = definition.get("items") instanceof Map<?, ?> items ? typeOf(items.get("type")) : Type.ANY;
+            Set<String> allowed = null;
+            if (definition.get("enum") instanceof Collection<?> values) {
+                allowed = new HashSet<>();
+                for (Object value : values) {
+                    allowed.add(String.valueOf(value));
+                }
+            }
+            Type type = typeOf(definition.get("type"));
+            Double minimum = number(definition.get("minimum"));
+            Double maximum = number(definition.get("maximum"));
+            if (type == Type.INTEGER) {
+                // The range of the Java parameter the value binds to
+                boolean int32 = "int32".equals(definition.get("format"));
+                double lowest = int32 ? Integer.MIN_VALUE : Long.MIN_VALUE;
+                double highest = int32 ? Integer.MAX_VALUE : Long.MAX_VALUE;
+                minimum = minimum != null ? Math.max(minimum, lowest) : lowest;
+                maximum = maximum != null ? Math.min(maximum, highest) : highest;
+            }
+            return new PropertyCheck(name, type, itemType, allowed, minimum, maximum,
+                    integer(definition.get("minLength"), 0), integer(definition.get("maxLength"), Integer.MAX_VALUE),
+                    integer(definition.get("maxItems"), Integer.MAX_VALUE));
+        }
+
+        List<Violation> check(JsonNode value, List<Violation> violations) {
+            if (!matches(type, value)) {
+                return add(violations, path, "must be " + describe(type));
+            }
+            if (allowed != null && !allowed.contains(value.asText())) {
+                return add(violations, path, "must be one of " + allowed);
+            }
+            if ((minimum != null || maximum != null) && (type == Type.INTEGER || type == Type.NUMBER)) {
+                double number = value.isNumber() ? value.doubleValue() : Double.parseDouble(value.asText().trim());
+                if (minimum != null && number < minimum) {
+                    return add(violations, path, "must be >= " + format(minimum));
+                }
+                if (maximum != null && number > maximum) {
+                    return add(violations, path, "must be <= " + format(maximum));
+                }
+            }
+            if (type == Type.STRING && (minLength > 0 || maxLength < Integer.MAX_VALUE)) {
+                int length = value.asText().length();
+                if (length < minLength) {
+                    return add(violations, path, "must have at least " + minLength + " characters");
+                }
+                if (length > maxLength) {
+                    return add(violations, path, "must have at most " + maxLength + " characters");
+                }
+            }
+            if (type == Type.ARRAY && value.isArray()) {
+                if (value.size() > maxItems) {
+                    return add(violations, path, "must have at most " + maxItems + " items");
+                }
+                for (int i = 0; i < value.size(); i++) {
+                    JsonNode item = value.get(i);
+                    if (item.isNull() || !matches(itemType, item)) {
+                        violations = add(violations, path + "/" + i, "must be " + describe(itemType));
+                    }
+                }
+            }
+            return violations;
+        }
+
+        private static boolean matches(Type type, JsonNode value) {
+            return switch (type) {
+                case ANY -> true;
+                case STRING -> value.isValueNode();
+                case INTEGER -> value.isIntegralNumber()
+                        || (value.isNumber() && isWhole(value.doubleValue()))
+                        || (value.isTextual() && isIntegral(value.textValue()));
+                case NUMBER -> value.isNumber() || (value.isTextual() && isNumeric(value.textValue()));
+                case BOOLEAN -> value.isBoolean()
+                        || (value.isTextual() && ("true".equalsIgnoreCase(value.textValue().trim())
+                        || "false".equalsIgnoreCase(value.textValue().trim())));
+                // A single string is accepted where a list of strings is expected
+                case ARRAY -> value.isArray() || value.isTextual();
+                case OBJECT -> value.isObject();
+            };
+        }
+
+        private static boolean isWhole(double value) {
+            return value == Math.rint(value) && !Double.isInfinite(value);
+        }
+
+        private static boolean isIntegral(String text) {
+            String trimmed = text.trim();
+            try {
+                Long.parseLong(trimmed);
+                return true;
+            } catch (NumberFormatException e) {
+                return isNumeric(trimmed) && isWhole(Double.parseDouble(trimmed));
+            }
+        }
+
+        private static boolean isNumeric(String text) {
+            try {
+                return Double.isFinite(Double.parseDouble(text.trim()));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static Type typeOf(Object type) {
+            if (type == null) {
+                return Type.ANY;
+            }
+            return switch (type.toString()) {
+                case "string" -> Type.STRING;
+                case "integer" -> Type.INTEGER;
+                case "number" -> Type.NUMBER;
+                case "boolean" -> Type.BOOLEAN;
+                case "array" -> Type.ARRAY;
+                case "object" -> Type.OBJECT;
+                default -> Type.ANY;
+            };
+        }
+
+        private static String describe(Type type) {
+            return switch (type) {
+                case ANY -> "a value";
+                case STRING -> "a string";
+                case INTEGER -> "an integer";
+                case NUMBER -> "a number";
+                case BOOLEAN -> "a boolean";
+                case ARRAY -> "an array";
+                case OBJECT -> "an object";
+            };
+        }
+
+        private static Double number(Object value) {
+            return value instanceof Number number ? number.doubleValue() : null;
+        }
+
+        private static int integer(Object value, int fallback) {
+            return value instanceof Number number ? number.intValue() : fallback;
+        }
+
+        private static String format(double value) {
+            return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+        }
+    }
+}
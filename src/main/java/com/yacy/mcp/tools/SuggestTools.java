@@ -0,0 +1,42 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.service.QuerySuggester;
+import org.springframework.stereotype.Component;
+
+/**
+ * Query completion tool
+ */
+@Component
+public class SuggestTools implements McpToolProvider {
+
+    private final QuerySuggester querySuggester;
+
+    public SuggestTools(QuerySuggester querySuggester) {
+        this.querySuggester = querySuggester;
+    }
+
+    public record SuggestParams(
+            @ToolParam(description = "Beginning of a query", required = true) String prefix,
+            @ToolParam(description = "Maximum number of completions", defaultValue = "10", min = 1, max = 50) int limit) {
+    }
+
+    @McpTool(name = "yacy_suggest", description = "Complete a partial query from past searches that returned results, "
+            + "most frequent and most recent first. Answered locally without querying YaCy")
+    public JsonNode suggest(SuggestParams params) {
+        if (params.prefix().isBlank()) {
+            throw new ToolArgumentException("prefix", "prefix must not be blank");
+        }
+        ObjectNode result = JsonNodeFactory.instance.objectNode().put("prefix", params.prefix());
+        ArrayNode suggestions = result.putArray("suggestions");
+        for (QuerySuggester.Suggestion suggestion : querySuggester.suggest(params.prefix(), params.limit())) {
+            suggestions.addObject()
+                    .put("query", suggestion.query())
+                    .put("score", Math.round(suggestion.score() * 100) / 100.0);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.yacy.mcp.tools;
+
+/**
+ * A tool argument is missing or cannot be bound to its declared type
+ */
+public class ToolArgumentException extends IllegalArgumentException {
+
+    private final String argument;
+
+    public ToolArgumentException(String argument, String message) {
+        super(message);
+        this.argument = argument;
+    }
+
+    /**
+     * Name of the offending argument
+     */
+    public String getArgument() {
+        return argument;
+    }
+}
@@ -0,0 +1,496 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolCallResponse;
+import com.yacy.mcp.model.McpToolDefinition;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A registered tool: its definition, a compiled {@link SchemaValidator} and a precompiled invoker.
+ * For {@link McpTool} methods all reflection happens in {@link #of(Object, Method)}; a call
+ * only runs the per-argument coercers and two exact method handle invocations. Arguments are
+ * bound either from a map or straight from the JSON-RPC arguments node.
+ */
+public final class ToolBinding {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Handler for tools registered at runtime without an annotated method
+     */
+    @FunctionalInterface
+    public interface Handler {
+        Object call(Map<String, Object> arguments) throws Exception;
+    }
+
+    /**
+     * Binds arguments from the JSON-RPC node without converting it to maps first
+     */
+    @FunctionalInterface
+    private interface JsonHandler {
+        Object call(JsonNode arguments) throws Exception;
+    }
+
+    private final McpToolDefinition definition;
+    private final Handler handler;
+    private final JsonHandler jsonHandler;
+    private final SchemaValidator validator;
+
+    private ToolBinding(McpToolDefinition definition, Handler handler, JsonHandler jsonHandler) {
+        this.definition = definition;
+        this.handler = handler;
+        this.jsonHandler = jsonHandler;
+        this.validator = SchemaValidator.compile(definition.getInputSchema());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static ToolBinding of(McpToolDefinition definition, Handler handler) {
+        return new ToolBinding(definition, handler, arguments -> handler.call(
+                arguments == null || arguments.isNull() ? Map.of() : objectMapper.convertValue(arguments, Map.class)));
+    }
+
+    /**
+     * Compile an annotated tool method of the given bean
+     */
+    public static ToolBinding of(Object bean, Method method) {
+        McpTool tool = method.getAnnotation(McpTool.class);
+        if (tool == null) {
+            throw new IllegalArgumentException(method + " is not annotated with @McpTool");
+        }
+        if (method.getParameterCount() > 1
+                || (method.getParameterCount() == 1 && !method.getParameterTypes()[0].isRecord())) {
+            throw new IllegalArgumentException("@McpTool method " + method.getName()
+                    + " must take no parameters or a single record");
+        }
+
+        try {
+            method.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflect(method).bindTo(bean);
+
+            if (method.getParameterCount() == 0) {
+                MethodHandle invoker = target.asType(MethodType.methodType(Object.class));
+                McpToolDefinition definition = definition(tool, new LinkedHashMap<>(), List.of());
+                return new ToolBinding(definition, arguments -> invoke(invoker), arguments -> invoke(invoker));
+            }
+
+            Class<?> recordType = method.getParameterTypes()[0];
+            RecordComponent[] components = recordType.getRecordComponents();
+            Class<?>[] componentTypes = new Class<?>[components.length];
+            ArgumentBinder[] binders = new ArgumentBinder[components.length];
+            Map<String, Object> properties = new LinkedHashMap<>();
+            List<String> required = new ArrayList<>();
+            for (int i = 0; i < components.length; i++) {
+                componentTypes[i] = components[i].getType();
+                binders[i] = ArgumentBinder.of(components[i]);
+                properties.put(binders[i].name, binders[i].schema());
+                if (binders[i].required) {
+                    required.add(binders[i].name);
+                }
+            }
+
+            Constructor<?> constructor = recordType.getDeclaredConstructor(componentTypes);
+            constructor.setAccessible(true);
+            MethodHandle factory = lookup.unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            MethodHandle invoker = target.asType(MethodType.methodType(Object.class, Object.class));
+
+            McpToolDefinition definition = definition(tool, properties, required);
+            return new ToolBinding(definition,
+                    arguments -> invoke(invoker, construct(factory, bindAll(binders, arguments))),
+                    arguments -> invoke(invoker, construct(factory, bindAll(binders, arguments))));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot bind @McpTool method " + method, e);
+        }
+    }
+
+    private static Object[] bindAll(ArgumentBinder[] binders, Map<String, Object> arguments) {
+        Object[] values = new Object[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            values[i] = binders[i].bind(arguments);
+        }
+        return values;
+    }
+
+    private static Object[] bindAll(ArgumentBinder[] binders, JsonNode arguments) {
+        Object[] values = new Object[binders.length];
+        for (int i = 0; i < binders.length; i++) {
+            values[i] = binders[i].bind(arguments);
+        }
+        return values;
+    }
+
+    private static McpToolDefinition definition(McpTool tool, Map<String, Object> properties, List<String> required) {
+        Map<String, Object> schema = new LinkedHashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        if (!required.isEmpty()) {
+            schema.put("required", required);
+        }
+        return McpToolDefinition.builder()
+                .name(tool.name())
+                .description(tool.description())
+                .inputSchema(schema)
+                .build();
+    }
+
+    public McpToolDefinition getDefinition() {
+        return definition;
+    }
+
+    public String getName() {
+        return definition.getName();
+    }
+
+    /**
+     * Bind the arguments and run the tool
+     *
+     * @throws ToolArgumentException if an argument is missing or cannot be coerced
+     */
+    public McpToolCallResponse call(Map<String, Object> arguments) throws Exception {
+        return toResponse(handler.call(arguments != null ? arguments : Map.of()));
+    }
+
+    /**
+     * Bind the arguments directly from the JSON-RPC arguments node and run the tool.
+     * Callers are expected to have run {@link #validate} first.
+     *
+     * @throws ToolArgumentException if an argument is missing or cannot be coerced
+     */
+    public McpToolCallResponse call(JsonNode arguments) throws Exception {
+        return toResponse(jsonHandler.call(arguments));
+    }
+
+    /**
+     * Check the arguments against the tool's inputSchema
+     *
+     * @return the violations, empty if the arguments are valid
+     */
+    public List<SchemaValidator.Violation> validate(JsonNode arguments) {
+        return validator.validate(arguments);
+    }
+
+    private static McpToolCallResponse toResponse(Object result) {
+        return result instanceof McpToolCallResponse response ? response : McpToolCallResponse.success(result);
+    }
+
+    /**
+     * Same invoker with another definition; ToolRegistry uses this to swap in its frozen copy
+     */
+    ToolBinding withDefinition(McpToolDefinition replacement) {
+        return new ToolBinding(replacement, handler, jsonHandler);
+    }
+
+    private static Object invoke(MethodHandle invoker) throws Exception {
+        try {
+            return (Object) invoker.invokeExact();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static Object invoke(MethodHandle invoker, Object parameters) throws Exception {
+        try {
+            return (Object) invoker.invokeExact(parameters);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static Object construct(MethodHandle factory, Object[] values) throws Exception {
+        try {
+            return (Object) factory.invokeExact(values);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // ==================== Argument binding ====================
+
+    private enum Kind { STRING, INT, LONG, DOUBLE, BOOLEAN, STRING_LIST }
+
+    /**
+     * Reads one argument from the call and coerces it to its record component type.
+     * Coercion is lenient where the value is unambiguous: 10.0 and "10" both bind to an int,
+     * "true" binds to a boolean, and a number binds to a string.
+     */
+    static final class ArgumentBinder {
+        final String name;
+        final String description;
+        final boolean required;
+        final Kind kind;
+        /** Default declared in @ToolParam, advertised in the schema */
+        final Object declaredDefault;
+        /** Value bound when the argument is absent: the declared default, or zero/false for primitives */
+        final Object fallback;
+        final long min;
+        final long max;
+
+        private ArgumentBinder(String name, String description, boolean required, Kind kind,
+                               Object declaredDefault, Object fallback, long min, long max) {
+            this.name = name;
+            this.description = description;
+            this.required = required;
+            this.kind = kind;
+            this.declaredDefault = declaredDefault;
+            this.fallback = fallback;
+            this.min = min;
+            this.max = max;
+        }
+
+        static ArgumentBinder of(RecordComponent component) {
+            ToolParam param = component.getAnnotation(ToolParam.class);
+            if (param == null) {
+                throw new IllegalArgumentException("Record component " + component.getName() + " of "
+                        + component.getDeclaringRecord().getSimpleName() + " needs @ToolParam");
+            }
+            Class<?> type = component.getType();
+            Kind kind = kindOf(type, component.getGenericType(), component.getName());
+            Object declaredDefault = param.defaultValue().isEmpty()
+                    ? null
+                    : coerce(kind, param.defaultValue(), component.getName());
+            Object fallback = declaredDefault;
+            if (fallback == null && type.isPrimitive()) {
+                fallback = switch (kind) {
+                    case INT -> 0;
+                    case LONG -> 0L;
+                    case DOUBLE -> 0.0;
+                    case BOOLEAN -> false;
+                    default -> null;
+                };
+            }
+            return new ArgumentBinder(component.getName(), param.description(), param.required(), kind,
+                    declaredDefault, fallback, param.min(), param.max());
+        }
+
+        private static Kind kindOf(Class<?> type, Type genericType, String name) {
+            if (type == String.class) {
+                return Kind.STRING;
+            }
+            if (type == int.class || type == Integer.class) {
+                return Kind.INT;
+            }
+            if (type == long.class || type == Long.class) {
+                return Kind.LONG;
+            }
+            if (type == double.class || type == Double.class) {
+                return Kind.DOUBLE;
+            }
+            if (type == boolean.class || type == Boolean.class) {
+                return Kind.BOOLEAN;
+            }
+            if (type == List.class && genericType instanceof ParameterizedType parameterized
+                    && parameterized.getActualTypeArguments()[0] == String.class) {
+                return Kind.STRING_LIST;
+            }
+            throw new IllegalArgumentException("Unsupported @ToolParam type for " + name + ": " + genericType);
+        }
+
+        Map<String, Object> schema() {
+            Map<String, Object> property = new LinkedHashMap<>();
+            switch (kind) {
+                case STRING -> property.put("type", "string");
+                case INT -> {
+                    property.put("type", "integer");
+                    property.put("format", "int32");
+                }
+                case LONG -> {
+                    property.put("type", "integer");
+                    property.put("format", "int64");
+                }
+                case DOUBLE -> property.put("type", "number");
+                case BOOLEAN -> property.put("type", "boolean");
+                case STRING_LIST -> {
+                    property.put("type", "array");
+                    property.put("items", Map.of("type", "string"));
+                }
+            }
+            property.put("description", description);
+            if (min != Long.MIN_VALUE) {
+                property.put("minimum", min);
+            }
+            if (max != Long.MAX_VALUE) {
+                property.put("maximum", max);
+            }
+            if (declaredDefault != null) {
+                property.put("default", declaredDefault);
+            }
+            return property;
+        }
+
+        Object bind(Map<String, Object> arguments) {
+            Object raw = arguments.get(name);
+            if (raw == null) {
+                if (required) {
+                    throw new ToolArgumentException(name, "Missing required argument '" + name + "'");
+                }
+                return fallback;
+            }
+            return checkRange(coerce(kind, raw, name));
+        }
+
+        Object bind(JsonNode arguments) {
+            JsonNode node = arguments != null ? arguments.get(name) : null;
+            if (node == null || node.isNull()) {
+                if (required) {
+                    throw new ToolArgumentException(name, "Missing required argument '" + name + "'");
+                }
+                return fallback;
+            }
+            if (node.isArray()) {
+                List<Object> items = new ArrayList<>(node.size());
+                for (JsonNode item : node) {
+                    items.add(item.isNull() ? null : scalar(item));
+                }
+                return coerce(kind, items, name);
+            }
+            return checkRange(coerce(kind, scalar(node), name));
+        }
+
+        private Object checkRange(Object value) {
+            if (value instanceof Number number && (kind == Kind.INT || kind == Kind.LONG)
+                    && (number.longValue() < min || number.longValue() > max)) {
+                throw new ToolArgumentException(name, "Argument '" + name + "' must be between "
+                        + (min == Long.MIN_VALUE ? "-inf" : min) + " and " + (max == Long.MAX_VALUE ? "+inf" : max)
+                        + ", got: " + value);
+            }
+            return value;
+        }
+
+        /**
+         * Plain Java value of a scalar node; objects are returned as is and rejected by coerce
+         */
+        private static Object scalar(JsonNode node) {
+            if (node.isTextual()) {
+                return node.textValue();
+            }
+            if (node.isNumber()) {
+                return node.numberValue();
+            }
+            if (node.isBoolean()) {
+                return node.booleanValue();
+            }
+            return node;
+        }
+
+        static Object coerce(Kind kind, Object raw, String name) {
+            switch (kind) {
+                case STRING -> {
+                    if (raw instanceof String || raw instanceof Number || raw instanceof Boolean) {
+                        return raw.toString();
+                    }
+                }
+                case INT -> {
+                    Long value = integral(raw);
+                    if (value != null && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                        return value.intValue();
+                    }
+                }
+                case LONG -> {
+                    Long value = integral(raw);
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                case DOUBLE -> {
+                    if (raw instanceof Number number) {
+                        return number.doubleValue();
+                    }
+                    if (raw instanceof String text) {
+                        try {
+                            return Double.parseDouble(text.trim());
+                        } catch (NumberFormatException ignored) {
+                            // reported below
+                        }
+                    }
+                }
+                case BOOLEAN -> {
+                    if (raw instanceof Boolean) {
+                        return raw;
+                    }
+                    if ("true".equalsIgnoreCase(raw.toString().trim())) {
+                        return Boolean.TRUE;
+                    }
+                    if ("false".equalsIgnoreCase(raw.toString().trim())) {
+                        return Boolean.FALSE;
+                    }
+                }
+                case STRING_LIST -> {
+                    if (raw instanceof List<?> list) {
+                        List<String> values = new ArrayList<>(list.size());
+                        for (Object item : list) {
+                            if (item == null) {
+                                throw new ToolArgumentException(name, "Argument '" + name + "' must not contain null");
+                            }
+                            values.add(item.toString());
+                        }
+                        return List.copyOf(values);
+                    }
+                    if (raw instanceof String text) {
+                        return List.of(text);
+                    }
+                }
+            }
+            throw new ToolArgumentException(name, "Argument '" + name + "' must be " + describe(kind) + ", got: " + raw);
+        }
+
+        /**
+         * Whole-number value of an argument, accepting 10, 10.0 and "10"; null if it has a fraction or is not numeric
+         */
+        private static Long integral(Object raw) {
+            if (raw instanceof Integer || raw instanceof Long || raw instanceof Short || raw instanceof Byte) {
+                return ((Number) raw).longValue();
+            }
+            double value;
+            if (raw instanceof Number number) {
+                value = number.doubleValue();
+            } else if (raw instanceof String text) {
+                try {
+                    return Long.parseLong(text.trim());
+                } catch (NumberFormatException e) {
+                    try {
+                        value = Double.parseDouble(text.trim());
+                    } catch (NumberFormatException e2) {
+                        return null;
+                    }
+                }
+            } else {
+                return null;
+            }
+            if (value != Math.rint(value) || Double.isInfinite(value) || Math.abs(value) > Long.MAX_VALUE) {
+                return null;
+            }
+            return (long) value;
+        }
+
+        private static String describe(Kind kind) {
+            return switch (kind) {
+                case STRING -> "a string";
+                case INT, LONG -> "an integer";
+                case DOUBLE -> "a number";
+                case BOOLEAN -> "a boolean";
+                case STRING_LIST -> "an array of strings";
+            };
+        }
+    }
+}
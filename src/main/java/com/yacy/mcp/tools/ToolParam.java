@@ -0,0 +1,35 @@
+package com.yacy.mcp.tools;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Describes one argument of an {@link McpTool}, placed on a component of its parameter record
+ */
+@Documented
+@Target(ElementType.RECORD_COMPONENT)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ToolParam {
+
+    String description();
+
+    boolean required() default false;
+
+    /**
+     * Value used when the argument is absent, in its string form (e.g. "10"); empty for none
+     */
+    String defaultValue() default "";
+
+    /**
+     * Inclusive lower bound for numeric arguments, published as "minimum"
+     */
+    long min() default Long.MIN_VALUE;
+
+    /**
+     * Inclusive upper bound for numeric arguments, published as "maximum"
+     */
+    long max() default Long.MAX_VALUE;
+}
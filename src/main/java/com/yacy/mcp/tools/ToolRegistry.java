@@ -0,0 +1,158 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolDefinition;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the registered MCP tools, looked up by name in O(1).
+ * Every change publishes a new snapshot (copy-on-write), so readers never lock. The
+ * tools/list result is encoded to UTF-8 once per snapshot and handed out as bytes that
+ * the stdio transport splices into its responses; it is only re-encoded after
+ * {@link #register} or {@link #unregister}.
+ */
+public class ToolRegistry {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Snapshot snapshot;
+
+    public ToolRegistry(List<ToolBinding> tools) {
+        Map<String, ToolBinding> byName = new LinkedHashMap<>();
+        for (ToolBinding tool : tools) {
+            if (byName.put(tool.getName(), freeze(tool)) != null) {
+                throw new IllegalStateException("Duplicate MCP tool name: " + tool.getName());
+            }
+        }
+        this.snapshot = new Snapshot(byName);
+    }
+
+    /**
+     * Build a registry from every {@link McpTool} method of the given providers
+     */
+    public static ToolRegistry scan(List<?> providers) {
+        List<ToolBinding> tools = new ArrayList<>();
+        for (Object provider : providers) {
+            for (Method method : provider.getClass().getMethods()) {
+                if (method.isAnnotationPresent(McpTool.class)) {
+                    tools.add(ToolBinding.of(provider, method));
+                }
+            }
+        }
+        // getMethods() order is unspecified; keep tools/list stable across runs
+        tools.sort(Comparator.comparing(ToolBinding::getName));
+        return new ToolRegistry(tools);
+    }
+
+    /**
+     * Add a tool, replacing any tool with the same name
+     */
+    public synchronized void register(ToolBinding tool) {
+        Map<String, ToolBinding> byName = new LinkedHashMap<>(snapshot.byName);
+        byName.put(tool.getName(), freeze(tool));
+        snapshot = new Snapshot(byName);
+    }
+
+    /**
+     * Remove a tool; returns false if no tool had that name
+     */
+    public synchronized boolean unregister(String name) {
+        if (!snapshot.byName.containsKey(name)) {
+            return false;
+        }
+        Map<String, ToolBinding> byName = new LinkedHashMap<>(snapshot.byName);
+        byName.remove(name);
+        snapshot = new Snapshot(byName);
+        return true;
+    }
+
+    /**
+     * Registered tools: those found by {@link #scan} sorted by name, followed by tools added later
+     * with {@link #register} (a replaced tool keeps its position). The list and the schemas are
+     * unmodifiable
+     */
+    public List<McpToolDefinition> getDefinitions() {
+        return snapshot.definitions;
+    }
+
+    public ToolBinding get(String name) {
+        return snapshot.byName.get(name);
+    }
+
+    public int size() {
+        return snapshot.definitions.size();
+    }
+
+    /**
+     * The tools/list result object ({"tools":[...]}) as UTF-8 JSON.
+     * The array is shared between callers and must not be modified.
+     */
+    public byte[] getToolsListJson() {
+        Snapshot current = snapshot;
+        byte[] encoded = current.toolsListJson;
+        if (encoded == null) {
+            // Benign race: concurrent first callers encode the same immutable snapshot
+            encoded = encode(current.definitions);
+            current.toolsListJson = encoded;
+        }
+        return encoded;
+    }
+
+    private byte[] encode(List<McpToolDefinition> definitions) {
+        List<Map<String, Object>> tools = new ArrayList<>(definitions.size());
+        for (McpToolDefinition tool : definitions) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", tool.getName());
+            entry.put("description", tool.getDescription());
+            entry.put("inputSchema", tool.getInputSchema());
+            tools.add(entry);
+        }
+        try {
+            return objectMapper.writeValueAsBytes(Map.of("tools", tools));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Tool definitions are not serializable", e);
+        }
+    }
+
+    private static ToolBinding freeze(ToolBinding tool) {
+        McpToolDefinition definition = tool.getDefinition();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> schema = definition.getInputSchema() != null
+                ? (Map<String, Object>) deepFreeze(definition.getInputSchema())
+                : Map.of("type", "object", "properties", Map.of());
+        return tool.withDefinition(new McpToolDefinition(definition.getName(), definition.getDescription(), schema));
+    }
+
+    private static Object deepFreeze(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, deepFreeze(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(v -> copy.add(deepFreeze(v)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private static final class Snapshot {
+        final Map<String, ToolBinding> byName;
+        final List<McpToolDefinition> definitions;
+        volatile byte[] toolsListJson;
+
+        Snapshot(Map<String, ToolBinding> byName) {
+            this.byName = Collections.unmodifiableMap(byName);
+            this.definitions = byName.values().stream().map(ToolBinding::getDefinition).toList();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import com.yacy.mcp.service.CrawlJobQueue;
+import com.yacy.mcp.service.DatabaseService;
+import com.yacy.mcp.service.DocumentCache;
+import com.yacy.mcp.service.QueryNormalizer;
+import com.yacy.mcp.service.SearchCursor;
+import com.yacy.mcp.service.SearchService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * YaCy API tools exposed over MCP
+ */
+@Component
+public class YaCyTools implements McpToolProvider {
+
+    private final YaCyClient yaCyClient;
+    private final DatabaseService databaseService;
+    private final SearchService searchService;
+    private final DocumentCache documentCache;
+    private final CrawlJobQueue crawlJobQueue;
+
+    @Autowired
+    public YaCyTools(YaCyClient yaCyClient, DatabaseService databaseService, SearchService searchService,
+                     ObjectProvider<DocumentCache> documentCache, CrawlJobQueue crawlJobQueue) {
+        this(yaCyClient, databaseService, searchService, documentCache.getIfAvailable(), crawlJobQueue);
+    }
+
+    /**
+     * @param documentCache cache for yacy_get_document, or null
+     * @param crawlJobQueue queue behind yacy_start_crawl, or null to submit crawls synchronously
+     */
+    public YaCyTools(YaCyClient yaCyClient, DatabaseService databaseService, SearchService searchService,
+                     DocumentCache documentCache, CrawlJobQueue crawlJobQueue) {
+        this.yaCyClient = yaCyClient;
+        this.databaseService = databaseService;
+        this.searchService = searchService;
+        this.documentCache = documentCache;
+        this.crawlJobQueue = crawlJobQueue;
+    }
+
+    /**
+     * Tools with the default search settings, for use outside the Spring context
+     */
+    public YaCyTools(YaCyClient yaCyClient, DatabaseService databaseService) {
+        this(yaCyClient, databaseService, new SearchService(yaCyClient, new YaCyConfig.Search()), (DocumentCache) null, null);
+    }
+
+    public record SearchParams(
+            @ToolParam(description = "Search query string", required = true) String query,
+            @ToolParam(description = "Maximum number of results to return", defaultValue = "10", min = 1) int count,
+            @ToolParam(description = "Start offset for pagination", defaultValue = "0", min = 0) int offset,
+            @ToolParam(description = "Result fields to return, e.g. [\"title\", \"link\"]; [\"*\"] for all fields. "
+                    + "Defaults to title, link, description, pubDate, size and host") List<String> fields,
+            @ToolParam(description = "Truncate descriptions to this many characters, 0 for no limit", min = 0)
+            Integer descriptionMaxLength,
+            @ToolParam(description = "nextCursor from the previous page of the same query; takes precedence over offset")
+            String cursor) {
+    }
+
+    public record CrawlParams(
+            @ToolParam(description = "URL to crawl", required = true) String url,
+            @ToolParam(description = "Crawl depth", defaultValue = "0", min = 0) int depth) {
+    }
+
+    public record HostBrowserParams(
+            @ToolParam(description = "Host to browse") String host,
+            @ToolParam(description = "Maximum number of results", defaultValue = "10", min = 1) int count) {
+    }
+
+    public record DocumentParams(
+            @ToolParam(description = "Document URL", required = true) String url) {
+    }
+
+    @McpTool(name = "yacy_search", description = "Search the YaCy index for documents matching a query")
+    public JsonNode search(SearchParams params) throws IOException {
+        long startTime = System.currentTimeMillis();
+        String query = QueryNormalizer.normalize(params.query());
+        if (query.isEmpty()) {
+            throw new ToolArgumentException("query", "query must not be blank");
+        }
+        SearchProjection projection = yaCyClient.projection(params.fields(), params.descriptionMaxLength());
+        JsonNode result = params.cursor() != null && !params.cursor().isBlank()
+                ? searchService.page(decodeCursor(params.cursor(), query), params.count(), projection)
+                : searchService.search(query, params.count(), params.offset(), projection);
+        long duration = System.currentTimeMillis() - startTime;
+
+        // Log search to database; the count of returned items, so zero-result searches show up as such
+        int resultCount = result.path("channels").path(0).path("items").size();
+        if (databaseService != null) {
+            databaseService.logSearch(query, resultCount, duration);
+        }
+        return result;
+    }
+
+    private static SearchCursor decodeCursor(String token, String query) {
+        SearchCursor cursor;
+        try {
+            cursor = SearchCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ToolArgumentException("cursor", "cursor: " + e.getMessage());
+        }
+        if (!cursor.query().equals(query)) {
+            throw new ToolArgumentException("cursor", "cursor belongs to a different query");
+        }
+        return cursor;
+    }
+
+    @McpTool(name = "yacy_get_status", description = "Get YaCy server status information")
+    public JsonNode getStatus() throws IOException {
+        return yaCyClient.getStatus();
+    }
+
+    @McpTool(name = "yacy_get_network", description = "Get YaCy network information")
+    public JsonNode getNetwork() throws IOException {
+        return yaCyClient.getNetworkInfo();
+    }
+
+    @McpTool(name = "yacy_start_crawl", description = "Queue a crawl of a URL in YaCy and return its job id; "
+            + "poll yacy_crawl_status for progress")
+    public JsonNode startCrawl(CrawlParams params) throws IOException {
+        if (crawlJobQueue == null) {
+            JsonNode result = yaCyClient.startCrawl(params.url(), params.depth());
+            if (databaseService != null) {
+                databaseService.logCrawl(params.url(), params.depth(), "started");
+            }
+            return result;
+        }
+        if (params.url().isBlank()) {
+            throw new ToolArgumentException("url", "url must not be blank");
+        }
+        // crawl_history gets the submission's outcome from the queue
+        return CrawlTools.toJson(crawlJobQueue.enqueue(params.url(), params.depth()));
+    }
+
+    @McpTool(name = "yacy_get_index_info", description = "Get YaCy index information")
+    public JsonNode getIndexInfo() throws IOException {
+        return yaCyClient.getIndexInfo();
+    }
+
+    @McpTool(name = "yacy_get_peers", description = "Get YaCy peer information")
+    public JsonNode getPeers() throws IOException {
+        return yaCyClient.getPeers();
+    }
+
+    @McpTool(name = "yacy_get_performance", description = "Get YaCy performance statistics")
+    public JsonNode getPerformance() throws IOException {
+        return yaCyClient.getPerformance();
+    }
+
+    @McpTool(name = "yacy_get_host_browser", description = "Browse hosts in YaCy index")
+    public JsonNode getHostBrowser(HostBrowserParams params) throws IOException {
+        return yaCyClient.getHostBrowser(params.host() != null ? params.host() : "", params.count());
+    }
+
+    @McpTool(name = "yacy_get_document", description = "Get document details from YaCy index")
+    public JsonNode getDocument(DocumentParams params) throws IOException {
+        if (documentCache != null) {
+            JsonNode cached = documentCache.get(params.url());
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JsonNode document = yaCyClient.getDocument(params.url());
+        // Only cache hits; a URL not indexed yet may be crawled soon
+        if (documentCache != null && document.path("channels").path(0).path("items").size() > 0) {
+            documentCache.put(params.url(), document);
+        }
+        return document;
+    }
+}
@@ -2,17 +2,25 @@ package com.yacy.mcp.tools;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * YaCy MCP Tools Configuration
- * Tools are automatically registered via @Tool annotation
+ * Tools are @McpTool methods on McpToolProvider beans; they are compiled into the
+ * ToolRegistry once at startup, so dispatch is a map lookup with no reflection per call
  */
 @Configuration
 public class YaCyToolsConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(YaCyToolsConfiguration.class);
 
-    // Tools are automatically discovered and registered by Spring AI
-    // through the @Tool annotation on each tool class
+    @Bean
+    public ToolRegistry toolRegistry(List<McpToolProvider> providers) {
+        ToolRegistry registry = ToolRegistry.scan(providers);
+        log.info("Registered {} MCP tools from {} providers", registry.size(), providers.size());
+        return registry;
+    }
 }
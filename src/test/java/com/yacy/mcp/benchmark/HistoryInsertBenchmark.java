@@ -0,0 +1,121 @@
+package com.yacy.mcp.benchmark;
+
+import com.yacy.mcp.service.CrawlUrls;
+import com.yacy.mcp.service.DatabaseService;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CPU time and heap allocation per history insert, before and after the inserts were moved to
+ * prepared statements kept on one connection. "before" replays the former write path: SQL
+ * rendered from string table references by jOOQ and executed on a fresh connection per row.
+ * Both are measured on the calling thread with ThreadMXBean, so SQLite's own work is counted in
+ * the CPU time while only Java heap allocation is counted in the bytes.
+ * Excluded from the default build; run with: mvn test -Pload-test -Dtest=HistoryInsertBenchmark
+ * Tunables: -Dbench.inserts, -Dbench.warmup
+ */
+@Tag("load")
+public class HistoryInsertBenchmark {
+
+    @TempDir
+    Path tempDir;
+
+    private record Sample(String name, int inserts, long cpuNanos, long allocatedBytes, long wallNanos) {
+
+        double cpuMicrosPerInsert() {
+            return cpuNanos / 1000.0 / inserts;
+        }
+
+        double bytesPerInsert() {
+            return (double) allocatedBytes / inserts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s cpu %8.1f us/insert   alloc %9.0f B/insert   wall %8.1f us/insert",
+                    name, cpuMicrosPerInsert(), bytesPerInsert(), wallNanos / 1000.0 / inserts);
+        }
+    }
+
+    @Test
+    @DisplayName("历史记录写入：每次插入的 CPU 时间与内存分配对比")
+    void testInsertCost() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("bench.db"));
+        DSLContext dsl = DSL.using(dataSource, SQLDialect.SQLITE);
+        DatabaseService databaseService = new DatabaseService(dsl, false);
+        databaseService.init();
+
+        int inserts = Integer.getInteger("bench.inserts", 2000);
+        int warmup = Integer.getInteger("bench.warmup", 500);
+        try {
+            Sample searchBefore = measure("search_history before", warmup, inserts, i -> dsl.insertInto(
+                    DSL.table("search_history"),
+                    DSL.field("query"),
+                    DSL.field("result_count"),
+                    DSL.field("execution_time_ms")
+            ).values("query " + i, i % 50, 12L).execute());
+            Sample searchAfter = measure("search_history after", warmup, inserts,
+                    i -> databaseService.logSearch("query " + i, i % 50, 12L));
+            Sample crawlBefore = measure("crawl_history before", warmup, inserts, i -> dsl.insertInto(
+                    DSL.table("crawl_history"),
+                    DSL.field("url"),
+                    DSL.field("url_hash"),
+                    DSL.field("host"),
+                    DSL.field("depth"),
+                    DSL.field("status")
+            ).values("https://bench.example/" + i, CrawlUrls.hash("https://bench.example/" + i),
+                    CrawlUrls.host("https://bench.example/" + i), 0, "started").execute());
+            Sample crawlAfter = measure("crawl_history after", warmup, inserts,
+                    i -> databaseService.logCrawl("https://bench.example/" + i, 0, "started"));
+
+            System.out.println("=== History insert cost (" + inserts + " inserts each) ===");
+            for (Sample sample : new Sample[]{searchBefore, searchAfter, crawlBefore, crawlAfter}) {
+                System.out.println(sample);
+            }
+            System.out.printf("search: %.1fx less CPU, %.1fx less allocation%n",
+                    searchBefore.cpuMicrosPerInsert() / searchAfter.cpuMicrosPerInsert(),
+                    searchBefore.bytesPerInsert() / searchAfter.bytesPerInsert());
+
+            int rows = dsl.fetchOne("SELECT COUNT(*) FROM search_history").get(0, Integer.class);
+            assertEquals(2 * (warmup + inserts), rows, "Every insert written");
+            assertTrue(searchAfter.bytesPerInsert() < searchBefore.bytesPerInsert(),
+                    searchAfter + " vs " + searchBefore);
+            assertTrue(crawlAfter.bytesPerInsert() < crawlBefore.bytesPerInsert(),
+                    crawlAfter + " vs " + crawlBefore);
+        } finally {
+            databaseService.close();
+        }
+    }
+
+    private static Sample measure(String name, int warmup, int inserts, IntConsumer insert) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < warmup; i++) {
+            insert.accept(-i - 1);
+        }
+        long cpu = threads.getCurrentThreadCpuTime();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long wall = System.nanoTime();
+        for (int i = 0; i < inserts; i++) {
+            insert.accept(i);
+        }
+        return new Sample(name, inserts,
+                threads.getCurrentThreadCpuTime() - cpu,
+                threads.getThreadAllocatedBytes(thread) - allocated,
+                System.nanoTime() - wall);
+    }
+}
@@ -0,0 +1,254 @@
+package com.yacy.mcp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a load run, stored as JSON so that runs from different builds can be compared.
+ * Latencies are in milliseconds.
+ */
+public class LoadReport {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final ObjectNode json;
+
+    private LoadReport(ObjectNode json) {
+        this.json = json;
+    }
+
+    static LoadReport from(McpLoadGenerator.Settings settings,
+                           Map<String, McpLoadGenerator.OperationStats> stats,
+                           int measuredSeconds) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("timestamp", Instant.now().toString());
+        root.put("javaVersion", System.getProperty("java.version"));
+        root.set("settings", objectMapper.valueToTree(settings.describe()));
+
+        McpLoadGenerator.OperationStats total = new McpLoadGenerator.OperationStats();
+        ObjectNode operations = root.putObject("operations");
+        stats.forEach((name, s) -> {
+            total.add(s);
+            operations.set(name, describe(s, measuredSeconds));
+        });
+        root.set("total", describe(total, measuredSeconds));
+        return new LoadReport(root);
+    }
+
+    /**
+     * Report without a load run, e.g. for startup measurements only
+     */
+    static LoadReport empty() {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("timestamp", Instant.now().toString());
+        root.put("javaVersion", System.getProperty("java.version"));
+        return new LoadReport(root);
+    }
+
+    private static ObjectNode describe(McpLoadGenerator.OperationStats stats, int measuredSeconds) {
+        ObjectNode node = objectMapper.createObjectNode();
+        long count = stats.serviceTime.getTotalCount();
+        node.put("count", count);
+        node.put("throughput", measuredSeconds > 0 ? (double) count / measuredSeconds : 0.0);
+        node.put("toolErrors", stats.toolErrors);
+        node.put("protocolErrors", stats.protocolErrors);
+        node.put("errorRate", count > 0 ? (double) stats.protocolErrors / count : 0.0);
+        node.set("serviceTime", latencies(stats.serviceTime));
+        node.set("responseTime", latencies(stats.responseTime));
+        return node;
+    }
+
+    private static ObjectNode latencies(Histogram histogram) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("mean", histogram.getMean() / 1000.0);
+        for (double p : PERCENTILES) {
+            node.put("p" + formatPercentile(p), histogram.getValueAtPercentile(p) / 1000.0);
+        }
+        node.put("max", histogram.getMaxValue() / 1000.0);
+        return node;
+    }
+
+    private static String formatPercentile(double p) {
+        return p == Math.rint(p) ? Integer.toString((int) p) : Double.toString(p).replace(".", "");
+    }
+
+    public static LoadReport read(Path path) throws IOException {
+        return new LoadReport((ObjectNode) objectMapper.readTree(path.toFile()));
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        objectMapper.writeValue(path.toFile(), json);
+    }
+
+    public JsonNode toJson() {
+        return json;
+    }
+
+    /**
+     * Add or replace a top-level section, e.g. startup measurements
+     */
+    public void put(String section, JsonNode value) {
+        json.set(section, value);
+    }
+
+    public double totalThroughput() {
+        return json.path("total").path("throughput").asDouble();
+    }
+
+    public double totalErrorRate() {
+        return json.path("total").path("errorRate").asDouble();
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (json.has("total")) {
+            appendOperations(sb);
+        }
+        if (json.has("startup")) {
+            appendStartup(sb);
+        }
+        return sb.toString();
+    }
+
+    private void appendOperations(StringBuilder sb) {
+        sb.append(String.format("%-24s %8s %10s %9s %9s %9s %9s %7s%n",
+                "operation", "count", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors"));
+        Iterator<Map.Entry<String, JsonNode>> it = json.path("operations").fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            appendRow(sb, entry.getKey(), entry.getValue());
+        }
+        appendRow(sb, "TOTAL", json.path("total"));
+    }
+
+    /**
+     * Startup table; ratios are relative to the first measured build
+     */
+    private void appendStartup(StringBuilder sb) {
+        sb.append(String.format("%-12s %5s %12s %12s %10s %9s %9s%n",
+                "startup", "runs", "init p50 ms", "list p50 ms", "RSS MB", "init x", "RSS x"));
+        JsonNode reference = null;
+        Iterator<Map.Entry<String, JsonNode>> it = json.path("startup").fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode node = entry.getValue();
+            if (reference == null) {
+                reference = node;
+            }
+            double init = node.path("initializeMs").path("p50").asDouble();
+            double rss = node.path("rssMb").path("p50").asDouble();
+            sb.append(String.format("%-12s %5d %12.1f %12.1f %10.1f %9.2f %9.2f%n",
+                    entry.getKey(), node.path("runs").asInt(), init,
+                    node.path("toolsListMs").path("p50").asDouble(), rss,
+                    ratio(init, reference.path("initializeMs").path("p50").asDouble()),
+                    ratio(rss, reference.path("rssMb").path("p50").asDouble())));
+        }
+    }
+
+    private static double ratio(double value, double reference) {
+        return reference > 0 && value >= 0 ? value / reference : Double.NaN;
+    }
+
+    private static void appendRow(StringBuilder sb, String name, JsonNode op) {
+        JsonNode rt = op.path("responseTime");
+        sb.append(String.format("%-24s %8d %10.1f %9.2f %9.2f %9.2f %9.2f %7d%n",
+                name, op.path("count").asLong(), op.path("throughput").asDouble(),
+                rt.path("p50").asDouble(), rt.path("p99").asDouble(), rt.path("p999").asDouble(),
+                rt.path("max").asDouble(), op.path("protocolErrors").asLong()));
+    }
+
+    /**
+     * Compare against a baseline report and list every threshold that was exceeded
+     */
+    public List<String> compareTo(LoadReport baseline, Thresholds thresholds) {
+        List<String> violations = new ArrayList<>();
+
+        double errorRate = totalErrorRate();
+        if (errorRate > thresholds.maxErrorRate) {
+            violations.add(String.format("error rate %.4f exceeds %.4f", errorRate, thresholds.maxErrorRate));
+        }
+
+        double baseThroughput = baseline.totalThroughput();
+        if (baseThroughput > 0 && json.has("total")) {
+            double drop = 100.0 * (baseThroughput - totalThroughput()) / baseThroughput;
+            if (drop > thresholds.maxThroughputDropPercent) {
+                violations.add(String.format("throughput %.1f req/s is %.1f%% below baseline %.1f req/s",
+                        totalThroughput(), drop, baseThroughput));
+            }
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> it = json.path("operations").fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode base = baseline.json.path("operations").path(entry.getKey());
+            if (base.isMissingNode()) {
+                continue;
+            }
+            for (String percentile : List.of("p50", "p99")) {
+                double before = base.path("responseTime").path(percentile).asDouble();
+                double after = entry.getValue().path("responseTime").path(percentile).asDouble();
+                // Ignore sub-millisecond noise; only relative growth above the floor counts
+                if (after > thresholds.latencyFloorMillis && before > 0) {
+                    double growth = 100.0 * (after - before) / before;
+                    if (growth > thresholds.maxLatencyGrowthPercent) {
+                        violations.add(String.format("%s %s %.2f ms is %.1f%% above baseline %.2f ms",
+                                entry.getKey(), percentile, after, growth, before));
+                    }
+                }
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> startup = json.path("startup").fields();
+        while (startup.hasNext()) {
+            Map.Entry<String, JsonNode> entry = startup.next();
+            double before = baseline.json.path("startup").path(entry.getKey()).path("initializeMs").path("p50").asDouble();
+            double after = entry.getValue().path("initializeMs").path("p50").asDouble();
+            if (before > 0 && after > thresholds.latencyFloorMillis) {
+                double growth = 100.0 * (after - before) / before;
+                if (growth > thresholds.maxLatencyGrowthPercent) {
+                    violations.add(String.format("%s startup %.1f ms is %.1f%% above baseline %.1f ms",
+                            entry.getKey(), after, growth, before));
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Regression limits used when comparing two reports
+     */
+    public static final class Thresholds {
+        final double maxErrorRate;
+        final double maxThroughputDropPercent;
+        final double maxLatencyGrowthPercent;
+        final double latencyFloorMillis;
+
+        public Thresholds(double maxErrorRate, double maxThroughputDropPercent,
+                          double maxLatencyGrowthPercent, double latencyFloorMillis) {
+            this.maxErrorRate = maxErrorRate;
+            this.maxThroughputDropPercent = maxThroughputDropPercent;
+            this.maxLatencyGrowthPercent = maxLatencyGrowthPercent;
+            this.latencyFloorMillis = latencyFloorMillis;
+        }
+
+        public static Thresholds defaults() {
+            return new Thresholds(0.01, 10.0, 25.0, 1.0);
+        }
+    }
+}
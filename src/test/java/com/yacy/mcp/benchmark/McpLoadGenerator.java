@@ -0,0 +1,539 @@
+package com.yacy.mcp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.server.McpStdioServer;
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.support.FakeYaCyServer;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Closed-loop load generator for the MCP JSON-RPC surface.
+ * Each session sends one request, waits for its response and then paces itself towards the
+ * target rate. Latencies are recorded both as service time (send to response) and as
+ * response time measured from the intended send time, so stalls are not hidden by
+ * coordinated omission.
+ */
+public class McpLoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(McpLoadGenerator.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** Highest recordable latency in microseconds (one minute) */
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final String[] QUERY_VOCABULARY = {
+            "java mcp", "yacy", "peer to peer search", "spring boot", "jooq sqlite",
+            "model context protocol", "distributed index", "web crawler", "open source search", "步子哥"
+    };
+
+    private final Settings settings;
+
+    public McpLoadGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * One JSON-RPC conversation, i.e. one simulated MCP client
+     */
+    public interface SessionDriver extends AutoCloseable {
+
+        /**
+         * Send a request and block until the response with the same id arrives
+         */
+        String call(String requestJson, String id) throws Exception;
+
+        /**
+         * Send a notification, which has no response
+         */
+        void notify(String notificationJson) throws Exception;
+
+        @Override
+        void close();
+    }
+
+    @FunctionalInterface
+    public interface SessionFactory {
+        SessionDriver open(int sessionIndex) throws Exception;
+    }
+
+    /**
+     * Drive McpStdioServer.processRequest in-process, one server instance per session
+     */
+    public static SessionFactory inProcess(McpService mcpService) {
+        return sessionIndex -> {
+            McpStdioServer server = new McpStdioServer(mcpService);
+            server.setOutputStream(new PrintStream(OutputStream.nullOutputStream()));
+            return new SessionDriver() {
+                @Override
+                public String call(String requestJson, String id) {
+                    server.clearCapturedOutput();
+                    server.processRequest(requestJson);
+                    List<String> output = server.getCapturedOutput();
+                    return output.isEmpty() ? null : output.get(output.size() - 1);
+                }
+
+                @Override
+                public void notify(String notificationJson) {
+                    server.processRequest(notificationJson);
+                    server.clearCapturedOutput();
+                }
+
+                @Override
+                public void close() {
+                    server.clearCapturedOutput();
+                }
+            };
+        };
+    }
+
+    /**
+     * Spawn one process per session (normally the packaged jar) and talk to it over stdin/stdout
+     */
+    public static SessionFactory process(List<String> command, Map<String, String> environment) {
+        return sessionIndex -> {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.environment().putAll(environment);
+            builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Process process = builder.start();
+            BufferedWriter stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+
+            return new SessionDriver() {
+                @Override
+                public String call(String requestJson, String id) throws IOException {
+                    stdin.write(requestJson);
+                    stdin.newLine();
+                    stdin.flush();
+                    String line;
+                    while ((line = stdout.readLine()) != null) {
+                        if (line.contains(id)) {
+                            JsonNode response = objectMapper.readTree(line);
+                            if (id.equals(response.path("id").asText())) {
+                                return line;
+                            }
+                        }
+                    }
+                    throw new IOException("MCP process closed stdout (exit=" +
+                            (process.isAlive() ? "running" : process.exitValue()) + ")");
+                }
+
+                @Override
+                public void notify(String notificationJson) throws IOException {
+                    stdin.write(notificationJson);
+                    stdin.newLine();
+                    stdin.flush();
+                }
+
+                @Override
+                public void close() {
+                    try {
+                        stdin.close();
+                        if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                            process.destroyForcibly();
+                        }
+                    } catch (IOException e) {
+                        process.destroyForcibly();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        process.destroyForcibly();
+                    }
+                }
+            };
+        };
+    }
+
+    public LoadReport run(SessionFactory factory) throws Exception {
+        log.info("Load run: {} sessions, target {} req/s, warmup {}s, duration {}s, mix {}",
+                settings.sessions, settings.targetRate, settings.warmupSeconds, settings.durationSeconds, settings.mix);
+
+        ExecutorService pool = Executors.newFixedThreadPool(settings.sessions);
+        List<Future<SessionResult>> futures = new ArrayList<>();
+        long startNanos = System.nanoTime();
+        long measureFrom = startNanos + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long measureUntil = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+
+        try {
+            for (int i = 0; i < settings.sessions; i++) {
+                int sessionIndex = i;
+                futures.add(pool.submit(() -> runSession(factory, sessionIndex, startNanos, measureFrom, measureUntil)));
+            }
+
+            Map<String, OperationStats> merged = new LinkedHashMap<>();
+            for (Future<SessionResult> future : futures) {
+                future.get().stats.forEach((op, stats) ->
+                        merged.computeIfAbsent(op, k -> new OperationStats()).add(stats));
+            }
+            return LoadReport.from(settings, merged, settings.durationSeconds);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private SessionResult runSession(SessionFactory factory, int sessionIndex,
+                                     long startNanos, long measureFrom, long measureUntil) throws Exception {
+        SessionResult result = new SessionResult();
+        SplittableRandom random = new SplittableRandom(settings.seed + sessionIndex);
+        long intervalNanos = settings.targetRate > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) * settings.sessions / settings.targetRate)
+                : 0;
+
+        try (SessionDriver driver = factory.open(sessionIndex)) {
+            String initId = "s" + sessionIndex + "-init";
+            driver.call(initializeRequest(initId), initId);
+            driver.notify("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+
+            long sequence = 0;
+            // Spread sessions across the first interval instead of firing them all at once
+            long next = startNanos + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+            while (true) {
+                if (intervalNanos > 0) {
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                long sendAt = System.nanoTime();
+                long intended = intervalNanos > 0 ? next : sendAt;
+                if (intended >= measureUntil) {
+                    break;
+                }
+
+                Operation op = settings.pick(random);
+                String id = "s" + sessionIndex + "-" + (sequence++);
+                String response;
+                try {
+                    response = driver.call(op.request(id, random), id);
+                } catch (Exception e) {
+                    response = null;
+                    log.debug("Session {} request failed: {}", sessionIndex, e.getMessage());
+                }
+                long done = System.nanoTime();
+
+                if (intended >= measureFrom) {
+                    result.stats.computeIfAbsent(op.name, k -> new OperationStats())
+                            .record(done - sendAt, done - intended, classify(response));
+                }
+                next += intervalNanos;
+            }
+        }
+        return result;
+    }
+
+    private static Outcome classify(String response) {
+        if (response == null) {
+            return Outcome.PROTOCOL_ERROR;
+        }
+        try {
+            JsonNode json = objectMapper.readTree(response);
+            if (json.has("error")) {
+                return Outcome.PROTOCOL_ERROR;
+            }
+            return json.path("result").path("isError").asBoolean(false) ? Outcome.TOOL_ERROR : Outcome.OK;
+        } catch (IOException e) {
+            return Outcome.PROTOCOL_ERROR;
+        }
+    }
+
+    private static String initializeRequest(String id) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":\"" + id + "\",\"method\":\"initialize\","
+                + "\"params\":{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{},"
+                + "\"clientInfo\":{\"name\":\"yacy-mcp-loadgen\",\"version\":\"1.0.0\"}}}";
+    }
+
+    // ==================== Operations ====================
+
+    enum Outcome { OK, TOOL_ERROR, PROTOCOL_ERROR }
+
+    /**
+     * A weighted entry of the request mix: "tools/list", "ping" or a tool name for tools/call
+     */
+    static final class Operation {
+        final String name;
+        final double weight;
+
+        Operation(String name, double weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+
+        String request(String id, SplittableRandom random) {
+            ObjectNode request = objectMapper.createObjectNode();
+            request.put("jsonrpc", "2.0");
+            request.put("id", id);
+            if ("tools/list".equals(name) || "ping".equals(name)) {
+                request.put("method", name);
+                return request.toString();
+            }
+            request.put("method", "tools/call");
+            ObjectNode params = request.putObject("params");
+            params.put("name", name);
+            ObjectNode arguments = params.putObject("arguments");
+            switch (name) {
+                case "yacy_search" -> {
+                    // Skewed towards the head of the vocabulary, like real agent traffic
+                    int index = (int) Math.min(QUERY_VOCABULARY.length - 1,
+                            Math.floor(-Math.log(1.0 - random.nextDouble()) * 2));
+                    arguments.put("query", QUERY_VOCABULARY[index]);
+                    arguments.put("count", 10);
+                    arguments.put("offset", random.nextInt(4) == 0 ? 10 : 0);
+                }
+                case "yacy_start_crawl" -> {
+                    arguments.put("url", "https://host" + random.nextInt(50) + ".example.org/");
+                    arguments.put("depth", 0);
+                }
+                case "yacy_get_host_browser" -> arguments.put("host", "host" + random.nextInt(25) + ".example.org");
+                case "yacy_get_document" -> arguments.put("url", "https://host0.example.org/doc/" + random.nextInt(100) + ".html");
+                default -> {
+                    // status, network, peers, performance and index info take no arguments
+                }
+            }
+            return request.toString();
+        }
+    }
+
+    static final class OperationStats {
+        final Histogram serviceTime = new Histogram(MAX_LATENCY_MICROS, 3);
+        final Histogram responseTime = new Histogram(MAX_LATENCY_MICROS, 3);
+        long toolErrors;
+        long protocolErrors;
+
+        void record(long serviceNanos, long responseNanos, Outcome outcome) {
+            serviceTime.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(serviceNanos)));
+            responseTime.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(responseNanos)));
+            if (outcome == Outcome.TOOL_ERROR) {
+                toolErrors++;
+            } else if (outcome == Outcome.PROTOCOL_ERROR) {
+                protocolErrors++;
+            }
+        }
+
+        void add(OperationStats other) {
+            serviceTime.add(other.serviceTime);
+            responseTime.add(other.responseTime);
+            toolErrors += other.toolErrors;
+            protocolErrors += other.protocolErrors;
+        }
+    }
+
+    private static final class SessionResult {
+        final Map<String, OperationStats> stats = new LinkedHashMap<>();
+    }
+
+    // ==================== Settings ====================
+
+    public static Settings.Builder settings() {
+        return new Settings.Builder();
+    }
+
+    public static final class Settings {
+        final int sessions;
+        final double targetRate;
+        final int warmupSeconds;
+        final int durationSeconds;
+        final long seed;
+        final String mix;
+        private final List<Operation> operations;
+        private final double totalWeight;
+
+        private Settings(Builder builder) {
+            this.sessions = builder.sessions;
+            this.targetRate = builder.targetRate;
+            this.warmupSeconds = builder.warmupSeconds;
+            this.durationSeconds = builder.durationSeconds;
+            this.seed = builder.seed;
+            this.mix = builder.mix;
+            this.operations = parseMix(builder.mix);
+            this.totalWeight = operations.stream().mapToDouble(o -> o.weight).sum();
+        }
+
+        Operation pick(SplittableRandom random) {
+            double r = random.nextDouble() * totalWeight;
+            for (Operation op : operations) {
+                r -= op.weight;
+                if (r < 0) {
+                    return op;
+                }
+            }
+            return operations.get(operations.size() - 1);
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("sessions", sessions);
+            map.put("targetRate", targetRate);
+            map.put("warmupSeconds", warmupSeconds);
+            map.put("durationSeconds", durationSeconds);
+            map.put("seed", seed);
+            map.put("mix", mix);
+            return map;
+        }
+
+        private static List<Operation> parseMix(String mix) {
+            List<Operation> ops = new ArrayList<>();
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split("=");
+                double weight = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0;
+                if (weight > 0) {
+                    ops.add(new Operation(parts[0].trim(), weight));
+                }
+            }
+            if (ops.isEmpty()) {
+                throw new IllegalArgumentException("Request mix is empty: " + mix);
+            }
+            return ops;
+        }
+
+        public static final class Builder {
+            private int sessions = 4;
+            private double targetRate = 100;
+            private int warmupSeconds = 2;
+            private int durationSeconds = 10;
+            private long seed = 42L;
+            private String mix = "tools/list=1,ping=1,yacy_search=6,yacy_get_status=1,yacy_get_network=1,yacy_start_crawl=0.5";
+
+            public Builder sessions(int sessions) {
+                this.sessions = sessions;
+                return this;
+            }
+
+            /**
+             * Aggregate target request rate across all sessions; 0 runs each session flat out
+             */
+            public Builder targetRate(double targetRate) {
+                this.targetRate = targetRate;
+                return this;
+            }
+
+            public Builder warmupSeconds(int warmupSeconds) {
+                this.warmupSeconds = warmupSeconds;
+                return this;
+            }
+
+            public Builder durationSeconds(int durationSeconds) {
+                this.durationSeconds = durationSeconds;
+                return this;
+            }
+
+            public Builder seed(long seed) {
+                this.seed = seed;
+                return this;
+            }
+
+            /**
+             * Weighted request mix, e.g. "tools/list=1,ping=1,yacy_search=6"
+             */
+            public Builder mix(String mix) {
+                this.mix = mix;
+                return this;
+            }
+
+            public Settings build() {
+                return new Settings(this);
+            }
+        }
+    }
+
+    // ==================== Command line ====================
+
+    /**
+     * Usage: McpLoadGenerator [--sessions N] [--rate R] [--warmup S] [--duration S] [--mix M]
+     *        [--report FILE] [--baseline FILE] [--fake-yacy] [--startup NAME=COMMAND]... [--startup-runs N]
+     *        [--command java -jar yacy-mcp.jar]
+     * Everything after --command is the process to spawn per session. Each --startup adds a cold-start
+     * measurement, e.g. --startup "jvm=java -jar yacy-mcp.jar" --startup native=target/yacy-mcp;
+     * at least one of --command and --startup is required. Exits with status 1 when the report
+     * regresses against the baseline.
+     */
+    public static void main(String[] args) throws Exception {
+        Settings.Builder builder = settings();
+        Path reportPath = Path.of("target", "load-report.json");
+        Path baselinePath = null;
+        boolean fakeYaCy = false;
+        List<String> command = new ArrayList<>();
+        Map<String, List<String>> startupCommands = new LinkedHashMap<>();
+        int startupRuns = 5;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions" -> builder.sessions(Integer.parseInt(args[++i]));
+                case "--rate" -> builder.targetRate(Double.parseDouble(args[++i]));
+                case "--warmup" -> builder.warmupSeconds(Integer.parseInt(args[++i]));
+                case "--duration" -> builder.durationSeconds(Integer.parseInt(args[++i]));
+                case "--mix" -> builder.mix(args[++i]);
+                case "--report" -> reportPath = Path.of(args[++i]);
+                case "--baseline" -> baselinePath = Path.of(args[++i]);
+                case "--fake-yacy" -> fakeYaCy = true;
+                case "--startup" -> {
+                    String spec = args[++i];
+                    int eq = spec.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("--startup expects NAME=COMMAND: " + spec);
+                    }
+                    startupCommands.put(spec.substring(0, eq), List.of(spec.substring(eq + 1).trim().split("\\s+")));
+                }
+                case "--startup-runs" -> startupRuns = Integer.parseInt(args[++i]);
+                case "--command" -> {
+                    command.addAll(List.of(args).subList(i + 1, args.length));
+                    i = args.length;
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (command.isEmpty() && startupCommands.isEmpty()) {
+            throw new IllegalArgumentException("--command or --startup is required, e.g. --command java -jar yacy-mcp.jar");
+        }
+
+        Map<String, String> environment = new LinkedHashMap<>();
+        FakeYaCyServer fake = fakeYaCy ? FakeYaCyServer.builder().start() : null;
+        try {
+            if (fake != null) {
+                environment.put("YACY_API_URL", fake.getBaseUrl());
+            }
+            LoadReport report = command.isEmpty()
+                    ? LoadReport.empty()
+                    : new McpLoadGenerator(builder.build()).run(process(command, environment));
+            if (!startupCommands.isEmpty()) {
+                report.put("startup", StartupBenchmark.measure(startupCommands, environment, startupRuns));
+            }
+            report.write(reportPath);
+            System.out.println(report.summary());
+
+            if (baselinePath != null) {
+                List<String> violations = report.compareTo(LoadReport.read(baselinePath), LoadReport.Thresholds.defaults());
+                violations.forEach(v -> System.out.println("REGRESSION: " + v));
+                if (!violations.isEmpty()) {
+                    System.exit(1);
+                }
+            }
+        } finally {
+            if (fake != null) {
+                fake.close();
+            }
+        }
+    }
+}
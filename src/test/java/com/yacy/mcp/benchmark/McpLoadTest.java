@@ -0,0 +1,99 @@
+package com.yacy.mcp.benchmark;
+
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.support.FakeYaCyServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * In-process load run against a FakeYaCyServer
+ * Excluded from the default build; run with: mvn test -Pload-test
+ * Tunables: -Dload.sessions, -Dload.rate, -Dload.warmup, -Dload.duration, -Dload.mix,
+ * -Dload.report (output file) and -Dload.baseline (report of a previous build to compare against)
+ */
+@Tag("load")
+@SpringBootTest
+@ActiveProfiles("test")
+public class McpLoadTest {
+
+    private static FakeYaCyServer fakeYaCy;
+
+    @Autowired
+    private McpService mcpService;
+
+    @DynamicPropertySource
+    static void yacyProperties(DynamicPropertyRegistry registry) {
+        registry.add("yacy.server-url", () -> fakeYaCy().getBaseUrl());
+        registry.add("yacy.connection-timeout", () -> 2000);
+        registry.add("yacy.socket-timeout", () -> 5000);
+    }
+
+    private static synchronized FakeYaCyServer fakeYaCy() {
+        if (fakeYaCy == null) {
+            try {
+                fakeYaCy = FakeYaCyServer.builder()
+                        .latency(FakeYaCyServer.Latency.bimodal(5, 80, 0.02))
+                        .threads(32)
+                        .start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return fakeYaCy;
+    }
+
+    @AfterAll
+    static void stopFakeYaCy() {
+        if (fakeYaCy != null) {
+            fakeYaCy.close();
+            fakeYaCy = null;
+        }
+    }
+
+    @Test
+    @DisplayName("闭环负载测试: stdio JSON-RPC 处理")
+    void testClosedLoopLoad() throws Exception {
+        McpLoadGenerator.Settings settings = McpLoadGenerator.settings()
+                .sessions(Integer.getInteger("load.sessions", 8))
+                .targetRate(Double.parseDouble(System.getProperty("load.rate", "200")))
+                .warmupSeconds(Integer.getInteger("load.warmup", 3))
+                .durationSeconds(Integer.getInteger("load.duration", 15))
+                .mix(System.getProperty("load.mix",
+                        "tools/list=1,ping=1,yacy_search=6,yacy_get_status=1,yacy_get_network=1,yacy_start_crawl=0.5"))
+                .build();
+
+        LoadReport report = new McpLoadGenerator(settings).run(McpLoadGenerator.inProcess(mcpService));
+        Path reportPath = Path.of(System.getProperty("load.report", "target/load-report.json"));
+        report.write(reportPath);
+
+        System.out.println("=== MCP Load Report (" + reportPath + ") ===");
+        System.out.println(report.summary());
+
+        assertTrue(report.totalThroughput() > 0, "Load run should complete requests");
+
+        String baseline = System.getProperty("load.baseline");
+        if (baseline != null && Files.exists(Path.of(baseline))) {
+            List<String> violations = report.compareTo(LoadReport.read(Path.of(baseline)),
+                    LoadReport.Thresholds.defaults());
+            assertTrue(violations.isEmpty(), "Regression against " + baseline + ": " + violations);
+        } else {
+            assertTrue(report.totalErrorRate() <= LoadReport.Thresholds.defaults().maxErrorRate,
+                    "Protocol error rate too high: " + report.totalErrorRate());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.yacy.mcp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start comparison of MCP server builds, e.g. the JVM jar against the native executable.
+ * Each run spawns a fresh process and measures the time until the initialize response and
+ * until the first tools/list response, then samples the resident set size while the server is idle.
+ * RSS is read from /proc and reported as -1 on platforms without it. The run then closes stdin,
+ * which makes a server started with mcp.stdio.exit-on-eof shut down; it is killed only if it is
+ * still running after EXIT_TIMEOUT.
+ */
+public final class StartupBenchmark {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Upper bound for a server to exit after stdin is closed
+     */
+    private static final Duration EXIT_TIMEOUT = Duration.ofSeconds(30);
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Measure every named command the given number of times; the first entry is the reference
+     * the others are compared against in LoadReport.summary()
+     */
+    public static ObjectNode measure(Map<String, List<String>> commands, Map<String, String> environment,
+                                     int runs) throws IOException, InterruptedException {
+        ObjectNode section = objectMapper.createObjectNode();
+        for (Map.Entry<String, List<String>> entry : commands.entrySet()) {
+            double[] initialize = new double[runs];
+            double[] toolsList = new double[runs];
+            double[] rss = new double[runs];
+            for (int i = 0; i < runs; i++) {
+                Sample sample = runOnce(entry.getValue(), environment);
+                initialize[i] = sample.initializeMillis;
+                toolsList[i] = sample.toolsListMillis;
+                rss[i] = sample.rssMegabytes;
+            }
+            ObjectNode node = section.putObject(entry.getKey());
+            node.put("command", String.join(" ", entry.getValue()));
+            node.put("runs", runs);
+            node.set("initializeMs", stats(initialize));
+            node.set("toolsListMs", stats(toolsList));
+            node.set("rssMb", stats(rss));
+        }
+        return section;
+    }
+
+    private static Sample runOnce(List<String> command, Map<String, String> environment)
+            throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.environment().putAll(environment);
+        builder.environment().putIfAbsent("MCP_STDIO_EXIT_ON_EOF", "true");
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try (BufferedWriter stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+             BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            send(stdin, "{\"jsonrpc\":\"2.0\",\"id\":\"startup-init\",\"method\":\"initialize\","
+                    + "\"params\":{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{},"
+                    + "\"clientInfo\":{\"name\":\"yacy-mcp-startup\",\"version\":\"1.0.0\"}}}");
+            await(stdout, "startup-init", process);
+            double initializeMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            send(stdin, "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}");
+            send(stdin, "{\"jsonrpc\":\"2.0\",\"id\":\"startup-list\",\"method\":\"tools/list\"}");
+            await(stdout, "startup-list", process);
+            double toolsListMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+            Sample sample = new Sample(initializeMillis, toolsListMillis, residentMegabytes(process.pid()));
+
+            stdin.close();
+            if (!process.waitFor(EXIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.out.println("MCP process did not exit within " + EXIT_TIMEOUT.toSeconds()
+                        + " s after stdin was closed: " + String.join(" ", command));
+            }
+            return sample;
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+                process.waitFor(EXIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static void send(BufferedWriter stdin, String json) throws IOException {
+        stdin.write(json);
+        stdin.newLine();
+        stdin.flush();
+    }
+
+    private static void await(BufferedReader stdout, String id, Process process) throws IOException {
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (line.contains(id) && id.equals(objectMapper.readTree(line).path("id").asText())) {
+                return;
+            }
+        }
+        throw new IOException("MCP process closed stdout before answering " + id
+                + " (exit=" + (process.isAlive() ? "running" : process.exitValue()) + ")");
+    }
+
+    private static double residentMegabytes(long pid) {
+        Path status = Path.of("/proc", Long.toString(pid), "status");
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmRSS:")) {
+                    // "VmRSS:    123456 kB"
+                    String[] parts = line.trim().split("\\s+");
+                    return Long.parseLong(parts[1]) / 1024.0;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process is already gone
+        }
+        return -1;
+    }
+
+    private static JsonNode stats(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("min", sorted[0]);
+        node.put("p50", sorted[(sorted.length - 1) / 2]);
+        node.put("max", sorted[sorted.length - 1]);
+        return node;
+    }
+
+    private record Sample(double initializeMillis, double toolsListMillis, double rssMegabytes) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.yacy.mcp.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import com.yacy.mcp.support.FakeYaCyServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * YaCyClient 对本地 FakeYaCyServer 的测试
+ * 无需真实 YaCy 节点即可验证客户端解析逻辑
+ */
+public class YaCyClientFakeServerTest {
+
+    private static YaCyClient clientFor(FakeYaCyServer server) {
+        YaCyConfig config = new YaCyConfig();
+        config.setServerUrl(server.getBaseUrl());
+        config.setConnectionTimeout(2000);
+        config.setSocketTimeout(5000);
+        return new YaCyClient(config);
+    }
+
+    @Test
+    @DisplayName("搜索返回请求数量的结果")
+    void testSearchReturnsRequestedPage() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(25).descriptionLength(50).start()) {
+            YaCyClient client = clientFor(server);
+
+            JsonNode first = client.search("java mcp", 10, 0);
+            assertEquals(10, first.path("channels").path(0).path("items").size());
+
+            JsonNode last = client.search("java mcp", 10, 20);
+            assertEquals(5, last.path("channels").path(0).path("items").size(), "Last page should be partial");
+            assertEquals(2, server.getRequestCount("/yacysearch.json"));
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("状态、网络和索引信息可解析")
+    void testStatusNetworkAndIndexInfo() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().peerCount(8).hostCount(3).totalResults(300).start()) {
+            YaCyClient client = clientFor(server);
+
+            assertEquals(300, client.getStatus().get("documentsInIndex").asLong());
+            JsonNode network = client.getNetworkInfo();
+            assertEquals(8, network.get("totalPeers").asInt());
+            assertEquals(6, network.get("activePeers").asInt(), "Every fourth fake peer has no LastSeen");
+            assertEquals(3, client.getIndexInfo().get("topHosts").size());
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("慢速分块响应仍能完整解析")
+    void testSlowDripResponseIsParsed() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().slowDrip(1.0, 256, 1).start()) {
+            YaCyClient client = clientFor(server);
+            JsonNode result = client.search("drip", 5, 0);
+            assertEquals(5, result.path("channels").path(0).path("items").size());
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("服务端错误以 IOException 形式抛出")
+    void testServerErrorSurfacesAsIOException() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().errorRate(1.0).start()) {
+            YaCyClient client = clientFor(server);
+            assertThrows(IOException.class, () -> client.search("broken", 5, 0));
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("默认投影只保留常用字段并截断描述")
+    void testDefaultProjectionTrimsItems() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(25).descriptionLength(500).start()) {
+            YaCyClient client = clientFor(server);
+
+            JsonNode result = client.search("java", 10, 0, client.projection(null, 40));
+            JsonNode channel = result.path("channels").path(0);
+            JsonNode first = channel.path("items").path(0);
+            System.out.println("Projected item: " + first);
+            assertEquals("25", channel.path("totalResults").asText(), "Channel metadata is kept");
+            assertEquals(10, channel.path("items").size());
+            assertTrue(first.has("link"));
+            assertTrue(first.has("host"));
+            assertFalse(first.has("guid"));
+            assertFalse(first.has("urlhash"));
+            assertEquals(41, first.path("description").asText().length(), "40 characters plus an ellipsis");
+            assertFalse(channel.has("truncated"));
+
+            JsonNode linksOnly = client.search("java", 3, 0, client.projection(List.of("link"), null));
+            assertEquals(1, linksOnly.path("channels").path(0).path("items").path(2).size());
+
+            JsonNode full = client.search("java", 3, 0, client.projection(List.of(SearchProjection.ALL_FIELDS), 0));
+            assertTrue(full.path("channels").path(0).path("items").path(0).has("urlhash"));
+            assertEquals(500, full.path("channels").path(0).path("items").path(0).path("description").asText().length());
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("超出字节预算时停止解析并标记截断")
+    void testByteBudgetStopsParsing() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(500).descriptionLength(1000).start()) {
+            YaCyClient client = clientFor(server);
+
+            JsonNode result = client.search("budget", 200, 0, SearchProjection.of(null, 0, 8 * 1024));
+            JsonNode channel = result.path("channels").path(0);
+            int kept = channel.path("items").size();
+            System.out.println("Items kept under 8 KiB budget: " + kept);
+            assertTrue(channel.path("truncated").asBoolean());
+            assertTrue(kept > 0 && kept < 200);
+            assertTrue(result.toString().length() < 8 * 1024 + 2048, "Budget should bound the result size");
+
+            // The cancelled exchange must not break later requests
+            assertEquals(5, client.search("after", 5, 0).path("channels").path(0).path("items").size());
+            client.cleanup();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.model.McpToolDefinition;
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.tools.ToolBinding;
+import com.yacy.mcp.tools.ToolRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 紧凑结果模式测试：initialize 协商、与 fields 投影的组合以及 CBOR 编码
+ */
+public class CompactResultEncoderTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String SEARCH_RESULT = "{\"channels\":[{\"title\":\"YaCy P2P-Search\",\"totalResults\":\"2\","
+            + "\"startIndex\":\"0\",\"itemsPerPage\":\"10\",\"searchTerms\":\"java\",\"items\":["
+            + "{\"title\":\"Java\",\"link\":\"https://a.example/\",\"description\":\"d1\",\"pubDate\":\"Mon, 01 Jan 2024\","
+            + "\"size\":\"1024\",\"sizename\":\"1 kbyte\",\"host\":\"a.example\",\"guid\":\"g1\",\"faviconUrl\":\"f\"},"
+            + "{\"title\":\"MCP\",\"link\":\"https://b.example/\",\"description\":\"d2\",\"host\":\"b.example\",\"guid\":\"g2\"}]}]}";
+
+    private McpStdioServer serverWithSearchTool() {
+        McpToolDefinition definition = McpToolDefinition.builder()
+                .name("yacy_search").description("Search stub").inputSchema(Map.of("type", "object", "properties", Map.of()))
+                .build();
+        ToolRegistry registry = new ToolRegistry(List.of(ToolBinding.of(definition, CompactResultEncoderTest::search)));
+        McpStdioServer server = new McpStdioServer(new McpService(registry));
+        server.setOutputStream(new PrintStream(OutputStream.nullOutputStream()));
+        return server;
+    }
+
+    /**
+     * Stands in for yacy_search: items projected by SearchProjection from the fields argument
+     */
+    private static JsonNode search(Map<String, Object> args) throws Exception {
+        @SuppressWarnings("unchecked")
+        List<String> fields = (List<String>) args.getOrDefault("fields", SearchProjection.DEFAULT_FIELDS);
+        SearchProjection projection = SearchProjection.of(fields, 0, 0);
+        JsonNode result = objectMapper.readTree(SEARCH_RESULT);
+        for (JsonNode item : result.path("channels").path(0).path("items")) {
+            List<String> names = new ArrayList<>();
+            item.fieldNames().forEachRemaining(names::add);
+            names.stream().filter(name -> !projection.includes(name)).forEach(((ObjectNode) item)::remove);
+        }
+        return result;
+    }
+
+    private static JsonNode structured(McpStdioServer server) throws Exception {
+        JsonNode result = lastResponse(server).path("result");
+        assertEquals(0, result.path("content").size(), "The result is not repeated as text");
+        return result.path("structuredContent");
+    }
+
+    private static JsonNode lastResponse(McpStdioServer server) throws Exception {
+        List<String> output = server.getCapturedOutput();
+        return objectMapper.readTree(output.get(output.size() - 1));
+    }
+
+    private static String initialize(String experimental) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":\"init\",\"method\":\"initialize\",\"params\":{\"protocolVersion\":\"2024-11-05\","
+                + "\"capabilities\":{" + (experimental != null ? "\"experimental\":" + experimental : "") + "}}}";
+    }
+
+    private static final String SEARCH_CALL = "{\"jsonrpc\":\"2.0\",\"id\":\"s\",\"method\":\"tools/call\","
+            + "\"params\":{\"name\":\"yacy_search\",\"arguments\":{%s}}}";
+
+    @Test
+    @DisplayName("未协商时保持原有完整 JSON 文本")
+    void testDefaultModeUnchanged() throws Exception {
+        McpStdioServer server = serverWithSearchTool();
+        server.processRequest(initialize(null));
+        assertTrue(lastResponse(server).path("result").path("capabilities").path("experimental")
+                .has(CompactResultEncoder.CAPABILITY), "Capability should be advertised");
+
+        server.processRequest(String.format(SEARCH_CALL, ""));
+        String text = lastResponse(server).path("result").path("content").path(0).path("text").asText();
+        assertTrue(objectMapper.readTree(text).has("channels"));
+    }
+
+    @Test
+    @DisplayName("紧凑 JSON 模式以未转义的 structuredContent 返回，比默认模式更小")
+    void testCompactJsonStructuredContent() throws Exception {
+        McpStdioServer plain = serverWithSearchTool();
+        plain.processRequest(initialize(null));
+        plain.processRequest(String.format(SEARCH_CALL, ""));
+        List<String> plainOutput = plain.getCapturedOutput();
+        int plainBytes = plainOutput.get(plainOutput.size() - 1).length();
+
+        McpStdioServer server = serverWithSearchTool();
+        server.processRequest(initialize("{\"yacy/compact\":true}"));
+        assertTrue(lastResponse(server).path("result").path("capabilities").path("experimental")
+                .path(CompactResultEncoder.CAPABILITY).path("enabled").asBoolean());
+
+        server.processRequest(String.format(SEARCH_CALL, ""));
+        List<String> output = server.getCapturedOutput();
+        int compactBytes = output.get(output.size() - 1).length();
+        System.out.println("Compact response: " + compactBytes + " bytes vs default " + plainBytes + " bytes");
+        assertTrue(compactBytes < plainBytes);
+        assertFalse(output.get(output.size() - 1).contains("\\\""), "Nothing is escaped twice");
+
+        JsonNode compact = structured(server);
+        assertEquals(search(Map.of()), compact);
+        JsonNode first = compact.path("channels").path(0).path("items").path(0);
+        assertEquals("a.example", first.path("host").asText());
+        assertFalse(first.has("guid"));
+    }
+
+    @Test
+    @DisplayName("紧凑模式保留 fields 参数的投影，[\"*\"] 返回全部字段")
+    void testCompactWithFields() throws Exception {
+        McpStdioServer server = serverWithSearchTool();
+        server.processRequest(initialize("{\"yacy/compact\":true}"));
+
+        server.processRequest(String.format(SEARCH_CALL, "\"fields\":[\"*\"]"));
+        JsonNode all = structured(server);
+        assertEquals(objectMapper.readTree(SEARCH_RESULT), all);
+        assertEquals("g1", all.path("channels").path(0).path("items").path(0).path("guid").asText());
+
+        server.processRequest(String.format(SEARCH_CALL, "\"fields\":[\"link\",\"guid\"]"));
+        JsonNode items = structured(server).path("channels").path(0).path("items");
+        assertEquals(2, items.size());
+        assertEquals(2, items.path(0).size());
+        assertEquals("g2", items.path(1).path("guid").asText());
+        assertFalse(items.path(0).has("title"));
+    }
+
+    @Test
+    @DisplayName("CBOR 模式以 resource blob 返回")
+    void testCborResource() throws Exception {
+        McpStdioServer server = serverWithSearchTool();
+        server.processRequest(initialize("{\"yacy/compact\":{\"format\":\"cbor\"}}"));
+        server.processRequest(String.format(SEARCH_CALL, ""));
+
+        JsonNode item = lastResponse(server).path("result").path("content").path(0);
+        assertEquals("resource", item.path("type").asText());
+        assertEquals("application/cbor", item.path("resource").path("mimeType").asText());
+
+        byte[] blob = Base64.getDecoder().decode(item.path("resource").path("blob").asText());
+        JsonNode decoded = new ObjectMapper(new CBORFactory()).readTree(blob);
+        assertEquals(2, decoded.path("channels").path(0).path("items").size());
+        System.out.println("CBOR payload: " + blob.length + " bytes vs JSON " + SEARCH_RESULT.length() + " bytes");
+        assertTrue(blob.length < SEARCH_RESULT.length());
+    }
+}
@@ -0,0 +1,182 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolDefinition;
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.tools.ToolBinding;
+import com.yacy.mcp.tools.ToolRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共享守护进程测试：Unix 域套接字上的多会话、代理转发、单实例锁与空闲退出
+ */
+public class McpDaemonServerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static final String INITIALIZE = "{\"jsonrpc\":\"2.0\",\"id\":\"init\",\"method\":\"initialize\","
+            + "\"params\":{\"protocolVersion\":\"2024-11-05\",\"capabilities\":{%s}}}\n";
+
+    private static final String CALL = "{\"jsonrpc\":\"2.0\",\"id\":\"call\",\"method\":\"tools/call\","
+            + "\"params\":{\"name\":\"counter\",\"arguments\":{}}}\n";
+
+    private static McpService counterService(AtomicInteger calls) {
+        McpToolDefinition definition = McpToolDefinition.builder()
+                .name("counter").description("Counts calls").inputSchema(Map.of("type", "object", "properties", Map.of()))
+                .build();
+        return new McpService(new ToolRegistry(List.of(ToolBinding.of(definition,
+                args -> objectMapper.createObjectNode().put("calls", calls.incrementAndGet())))));
+    }
+
+    /**
+     * Run one client session through the proxy pump and return its output lines
+     */
+    private static List<JsonNode> session(Path socket, String input) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SocketChannel channel = McpDaemonProxy.connect(socket)) {
+            assertNotNull(channel, "Daemon should accept connections");
+            McpDaemonProxy.pump(channel, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), out);
+        }
+        return out.toString(StandardCharsets.UTF_8).lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (IOException e) {
+                throw new AssertionError("Invalid JSON line: " + line, e);
+            }
+        }).toList();
+    }
+
+    @Test
+    @DisplayName("多个会话通过代理共享同一个 McpService，各自协商 initialize")
+    void testSessionsShareService() throws Exception {
+        Path socket = tempDir.resolve("daemon.sock");
+        McpDaemonServer daemon = McpDaemonServer.open(socket);
+        assertNotNull(daemon);
+        daemon.start();
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            daemon.bindService(counterService(calls));
+
+            List<JsonNode> first = session(socket, String.format(INITIALIZE, "") + CALL);
+            List<JsonNode> second = session(socket, String.format(INITIALIZE, "\"experimental\":{\"yacy/compact\":true}") + CALL + CALL);
+            System.out.println("First session: " + first);
+            System.out.println("Second session: " + second);
+
+            assertEquals(2, first.size());
+            assertEquals(3, second.size());
+            assertFalse(first.get(0).path("result").path("capabilities").path("experimental")
+                    .path(CompactResultEncoder.CAPABILITY).path("enabled").asBoolean(), "Compact mode is per session");
+            assertTrue(second.get(0).path("result").path("capabilities").path("experimental")
+                    .path(CompactResultEncoder.CAPABILITY).path("enabled").asBoolean());
+            assertEquals(3, calls.get(), "All sessions call the one shared service");
+            assertEquals(3, second.get(2).path("result").path("structuredContent").path("calls").asInt(),
+                    "The compact session gets its results as structuredContent");
+
+            // Closed sessions are removed
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (daemon.getSessionCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, daemon.getSessionCount());
+        } finally {
+            daemon.stop();
+        }
+        assertFalse(Files.exists(socket), "Socket removed on stop");
+        assertNull(McpDaemonProxy.connect(socket));
+    }
+
+    @Test
+    @DisplayName("initialize 在服务绑定前即可应答，tools 请求等待绑定")
+    void testAnswersBeforeServiceBound() throws Exception {
+        Path socket = tempDir.resolve("early.sock");
+        McpDaemonServer daemon = McpDaemonServer.open(socket);
+        daemon.start();
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                daemon.bindService(counterService(calls));
+            }).start();
+
+            List<JsonNode> output = session(socket, String.format(INITIALIZE, "") + CALL);
+            assertEquals("init", output.get(0).path("id").asText());
+            assertEquals("call", output.get(1).path("id").asText());
+            assertFalse(output.get(1).path("result").path("isError").asBoolean(true));
+            assertEquals(1, calls.get());
+        } finally {
+            daemon.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("同一套接字只能有一个守护进程，遗留的套接字文件被替换")
+    void testSingleDaemon() throws Exception {
+        Path socket = tempDir.resolve("single.sock");
+        Files.createFile(socket);
+        assertNull(McpDaemonProxy.connect(socket), "A stale socket file is not a daemon");
+
+        McpDaemonServer daemon = McpDaemonServer.open(socket);
+        assertNotNull(daemon, "Stale socket file replaced");
+        daemon.start();
+        try {
+            assertNull(McpDaemonServer.open(socket), "Lock held by the running daemon");
+            SocketChannel channel = McpDaemonProxy.connect(socket);
+            assertNotNull(channel);
+            channel.close();
+        } finally {
+            daemon.stop();
+        }
+
+        McpDaemonServer next = McpDaemonServer.open(socket);
+        assertNotNull(next, "Lock released on stop");
+        next.stop();
+    }
+
+    @Test
+    @DisplayName("无会话超过空闲时间后触发退出，有会话时不触发")
+    void testIdleTimeout() throws Exception {
+        Path socket = tempDir.resolve("idle.sock");
+        McpDaemonServer daemon = McpDaemonServer.open(socket);
+        daemon.start();
+        try {
+            daemon.bindService(counterService(new AtomicInteger()));
+            CountDownLatch idle = new CountDownLatch(1);
+            daemon.setIdleTimeout(Duration.ofMillis(300), idle::countDown);
+
+            SocketChannel channel = McpDaemonProxy.connect(socket);
+            Thread.sleep(500);
+            assertEquals(1, idle.getCount(), "Not idle while a session is connected");
+
+            channel.close();
+            assertTrue(idle.await(5, TimeUnit.SECONDS), "Idle after the last session closed");
+        } finally {
+            daemon.stop();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolDefinition;
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.tools.ToolBinding;
+import com.yacy.mcp.tools.ToolRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP 传输会话测试：会话数上限、空闲过期、事件流会话保活以及按会话协商
+ */
+public class McpHttpSessionsTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static McpService echoService() {
+        McpToolDefinition definition = McpToolDefinition.builder()
+                .name("echo").description("Echo").inputSchema(Map.of("type", "object", "properties", Map.of()))
+                .build();
+        return new McpService(new ToolRegistry(List.of(ToolBinding.of(definition, args -> args))));
+    }
+
+    private static JsonNode json(String text) throws Exception {
+        return objectMapper.readTree(text);
+    }
+
+    private static JsonNode response(List<byte[]> lines) throws Exception {
+        assertEquals(1, lines.size());
+        return objectMapper.readTree(new String(lines.get(0), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("达到会话上限后拒绝新会话，删除后可再创建")
+    void testSessionLimit() {
+        McpHttpSessions sessions = new McpHttpSessions(echoService(), 2, Duration.ofMinutes(5));
+        McpHttpSessions.Session first = sessions.create();
+        McpHttpSessions.Session second = sessions.create();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotEquals(first.id(), second.id());
+        assertNull(sessions.create(), "Limit reached");
+
+        AtomicInteger closed = new AtomicInteger();
+        first.setOnClose(closed::incrementAndGet);
+        assertTrue(sessions.remove(first.id()));
+        assertFalse(sessions.remove(first.id()));
+        assertEquals(1, closed.get());
+        assertNull(sessions.get(first.id()));
+        assertNotNull(sessions.create());
+    }
+
+    @Test
+    @DisplayName("空闲会话过期，连接事件流的会话不过期")
+    void testIdleExpiry() throws Exception {
+        McpHttpSessions sessions = new McpHttpSessions(echoService(), 10, Duration.ofMillis(50));
+        McpHttpSessions.Session idle = sessions.create();
+        McpHttpSessions.Session streaming = sessions.create();
+        streaming.setStreaming(true);
+        Thread.sleep(100);
+
+        assertNull(sessions.get(idle.id()), "Expired on access");
+        assertEquals(0, sessions.expire());
+        assertSame(streaming, sessions.get(streaming.id()));
+
+        streaming.setStreaming(false);
+        Thread.sleep(100);
+        assertEquals(1, sessions.expire());
+        assertEquals(0, sessions.size());
+    }
+
+    @Test
+    @DisplayName("expire 为新会话腾出空间")
+    void testCreateExpiresIdle() throws Exception {
+        McpHttpSessions sessions = new McpHttpSessions(echoService(), 1, Duration.ofMillis(50));
+        assertNotNull(sessions.create());
+        Thread.sleep(100);
+        assertNotNull(sessions.create(), "Idle session made room");
+    }
+
+    @Test
+    @DisplayName("每个会话独立协商紧凑模式，共享同一个 McpService")
+    void testPerSessionState() throws Exception {
+        McpHttpSessions sessions = new McpHttpSessions(echoService(), 10, Duration.ofMinutes(5));
+        McpHttpSessions.Session compact = sessions.create();
+        McpHttpSessions.Session plain = sessions.create();
+
+        JsonNode init = response(compact.exchange(json("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{\"capabilities\":{\"experimental\":{\"yacy/compact\":true}}}}")));
+        assertTrue(init.path("result").path("capabilities").path("experimental")
+                .path(CompactResultEncoder.CAPABILITY).path("enabled").asBoolean());
+        JsonNode plainInit = response(plain.exchange(json("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{\"capabilities\":{}}}")));
+        assertFalse(plainInit.path("result").path("capabilities").path("experimental")
+                .path(CompactResultEncoder.CAPABILITY).path("enabled").asBoolean());
+
+        JsonNode call = response(plain.exchange(json("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"echo\",\"arguments\":{\"q\":\"x\"}}}")));
+        System.out.println("Plain session call: " + call);
+        assertEquals(2, call.path("id").asInt());
+        assertEquals("{\"q\":\"x\"}", call.path("result").path("content").path(0).path("text").asText());
+
+        assertTrue(plain.exchange(json("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}")).isEmpty(),
+                "Notifications produce no response");
+        assertTrue(plain.exchange(json("{\"jsonrpc\":\"2.0\",\"id\":7,\"result\":{}}")).isEmpty(),
+                "Client responses produce no response");
+    }
+}
@@ -0,0 +1,169 @@
+package com.yacy.mcp.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolDefinition;
+import com.yacy.mcp.service.McpService;
+import com.yacy.mcp.tools.ToolBinding;
+import com.yacy.mcp.tools.ToolRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HTTP 传输测试：Streamable HTTP 会话头、批量请求、限制与错误码，以及 HTTP+SSE 往返
+ */
+public class McpHttpTransportTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String INITIALIZE = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+            + "\"params\":{\"protocolVersion\":\"2025-03-26\",\"capabilities\":{}}}";
+
+    private static final String CALL = "{\"jsonrpc\":\"2.0\",\"id\":%d,\"method\":\"tools/call\","
+            + "\"params\":{\"name\":\"echo\",\"arguments\":{\"n\":%d}}}";
+
+    private McpHttpTransport transport;
+
+    private WebTestClient client(int maxSessions, List<String> allowedOrigins) {
+        McpToolDefinition definition = McpToolDefinition.builder()
+                .name("echo").description("Echo").inputSchema(Map.of("type", "object", "properties", Map.of()))
+                .build();
+        McpService service = new McpService(new ToolRegistry(List.of(ToolBinding.of(definition, args -> args))));
+        transport = new McpHttpTransport(new McpHttpSessions(service, maxSessions, Duration.ofMinutes(5)),
+                new McpHttpTransport.Limits(4, 16, 8, Duration.ofSeconds(30), allowedOrigins));
+        transport.start();
+        return WebTestClient.bindToRouterFunction(transport.routes()).build();
+    }
+
+    @AfterEach
+    void stop() {
+        if (transport != null) {
+            transport.stop();
+        }
+    }
+
+    private static String initialize(WebTestClient client) {
+        EntityExchangeResult<byte[]> result = client.post().uri(McpHttpTransport.ENDPOINT)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult();
+        String session = result.getResponseHeaders().getFirst(McpHttpTransport.SESSION_HEADER);
+        assertNotNull(session, "initialize assigns a session");
+        return session;
+    }
+
+    private static JsonNode post(WebTestClient client, String session, String body) throws Exception {
+        byte[] response = client.post().uri(McpHttpTransport.ENDPOINT)
+                .header(McpHttpTransport.SESSION_HEADER, session)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+        return objectMapper.readTree(response);
+    }
+
+    @Test
+    @DisplayName("initialize 返回 Mcp-Session-Id，后续请求和批量请求使用该会话")
+    void testStreamableSession() throws Exception {
+        WebTestClient client = client(8, List.of());
+        String session = initialize(client);
+
+        JsonNode single = post(client, session, String.format(CALL, 2, 2));
+        assertEquals(2, single.path("id").asInt());
+        assertEquals("{\"n\":2}", single.path("result").path("content").path(0).path("text").asText());
+
+        JsonNode batch = post(client, session, "[" + String.format(CALL, 3, 3) + ","
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}," + String.format(CALL, 4, 4) + "]");
+        System.out.println("Batch response: " + batch);
+        assertTrue(batch.isArray());
+        assertEquals(2, batch.size(), "Notifications are not answered");
+        assertEquals(List.of(3, 4), List.of(batch.get(0).path("id").asInt(), batch.get(1).path("id").asInt()));
+
+        client.post().uri(McpHttpTransport.ENDPOINT)
+                .header(McpHttpTransport.SESSION_HEADER, session)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue("{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}")
+                .exchange()
+                .expectStatus().isAccepted();
+
+        client.delete().uri(McpHttpTransport.ENDPOINT).header(McpHttpTransport.SESSION_HEADER, session)
+                .exchange().expectStatus().isNoContent();
+        client.post().uri(McpHttpTransport.ENDPOINT)
+                .header(McpHttpTransport.SESSION_HEADER, session)
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(String.format(CALL, 5, 5))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("缺少会话头、无效 JSON、GET、会话上限与不允许的 Origin 返回对应状态码")
+    void testRejections() {
+        WebTestClient client = client(1, List.of("https://allowed.example"));
+
+        client.post().uri(McpHttpTransport.ENDPOINT).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(String.format(CALL, 1, 1)).exchange().expectStatus().isBadRequest();
+        client.post().uri(McpHttpTransport.ENDPOINT).contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{not json").exchange().expectStatus().isBadRequest();
+        client.get().uri(McpHttpTransport.ENDPOINT).exchange().expectStatus().isEqualTo(405);
+        client.post().uri(McpHttpTransport.ENDPOINT).header("Origin", "https://evil.example")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                .exchange().expectStatus().isForbidden();
+
+        client.post().uri(McpHttpTransport.ENDPOINT).header("Origin", "https://allowed.example")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                .exchange().expectStatus().isOk();
+        client.post().uri(McpHttpTransport.ENDPOINT).contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                .exchange()
+                .expectStatus().isEqualTo(503)
+                .expectHeader().exists("Retry-After");
+    }
+
+    @Test
+    @DisplayName("SSE 连接先发送 endpoint 事件，POST 的响应通过事件流返回")
+    void testSseRoundTrip() throws Exception {
+        WebTestClient client = client(8, List.of());
+        FluxExchangeResult<String> stream = client.get().uri(McpHttpTransport.SSE_ENDPOINT)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class);
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        Disposable subscription = stream.getResponseBody().subscribe(events::add);
+        try {
+            String endpoint = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(endpoint);
+            assertTrue(endpoint.startsWith(McpHttpTransport.MESSAGE_ENDPOINT + "?sessionId="), endpoint);
+
+            client.post().uri(endpoint).contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                    .exchange().expectStatus().isAccepted();
+            client.post().uri(endpoint).contentType(MediaType.APPLICATION_JSON).bodyValue(String.format(CALL, 9, 9))
+                    .exchange().expectStatus().isAccepted();
+
+            assertEquals(1, objectMapper.readTree(events.poll(5, TimeUnit.SECONDS)).path("id").asInt());
+            JsonNode call = objectMapper.readTree(events.poll(5, TimeUnit.SECONDS));
+            assertEquals(9, call.path("id").asInt());
+            assertEquals(1, transport.getSessionCount());
+        } finally {
+            subscription.dispose();
+        }
+
+        client.post().uri(McpHttpTransport.MESSAGE_ENDPOINT + "?sessionId=unknown")
+                .contentType(MediaType.APPLICATION_JSON).bodyValue(INITIALIZE)
+                .exchange().expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,103 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import com.yacy.mcp.support.FakeYaCyServer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CrawlBatchService 测试：批内与近期去重、逐 URL 状态以及按主机限速
+ */
+public class CrawlBatchServiceTest {
+
+    private static YaCyClient clientFor(FakeYaCyServer server) {
+        YaCyConfig config = new YaCyConfig();
+        config.setServerUrl(server.getBaseUrl());
+        config.setConnectionTimeout(2000);
+        config.setSocketTimeout(5000);
+        return new YaCyClient(config);
+    }
+
+    @Test
+    @DisplayName("重复与近期提交过的 URL 被跳过，无效 URL 标记为失败")
+    void testDedupAndStatuses() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().start()) {
+            CrawlBatchService service = new CrawlBatchService(clientFor(server), null, new YaCyConfig.Crawl());
+            try {
+                List<CrawlBatchService.Outcome> outcomes = service.submit(List.of(
+                        "https://a.example/page",
+                        "HTTPS://A.example:443/page#section",
+                        "https://b.example/",
+                        "not a url"), 0);
+
+                assertEquals(CrawlBatchService.Status.ACCEPTED, outcomes.get(0).status());
+                assertEquals(CrawlBatchService.Status.SKIPPED, outcomes.get(1).status(), "Same URL after canonicalisation");
+                assertEquals(CrawlBatchService.Status.ACCEPTED, outcomes.get(2).status());
+                assertEquals(CrawlBatchService.Status.FAILED, outcomes.get(3).status());
+                assertEquals(2, server.getRequestCount("/CrawlStartExpert.json"));
+
+                outcomes = service.submit(List.of("https://a.example/page", "https://c.example/"), 0);
+                assertEquals(CrawlBatchService.Status.SKIPPED, outcomes.get(0).status(), "Submitted by the previous batch");
+                assertEquals(CrawlBatchService.Status.ACCEPTED, outcomes.get(1).status());
+                assertEquals(3, server.getRequestCount("/CrawlStartExpert.json"));
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("同一主机的提交按令牌桶限速，不同主机并行")
+    void testPerHostRateLimit() throws Exception {
+        YaCyConfig.Crawl settings = new YaCyConfig.Crawl();
+        settings.setHostRatePerSecond(20);
+        settings.setHostBurst(1);
+        settings.setGlobalRatePerSecond(0);
+
+        try (FakeYaCyServer server = FakeYaCyServer.builder().start()) {
+            CrawlBatchService service = new CrawlBatchService(clientFor(server), null, settings);
+            try {
+                List<String> urls = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    urls.add("https://slow.example/" + i);
+                    urls.add("https://other" + i + ".example/");
+                }
+                long start = System.nanoTime();
+                List<CrawlBatchService.Outcome> outcomes = service.submit(urls, 0);
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                System.out.println("Submitted " + urls.size() + " URLs in " + elapsedMillis + " ms");
+
+                assertTrue(outcomes.stream().allMatch(o -> o.status() == CrawlBatchService.Status.ACCEPTED));
+                // 6 starts on one host at 20/s with a burst of 1 need at least 5 intervals of 50 ms
+                assertTrue(elapsedMillis >= 240, "Host rate limit applied");
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("令牌桶在突发额度用完后按速率排队")
+    void testTokenBucket() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), bucket.reserve(), "Reservations queue behind each other");
+        assertFalse(bucket.isIdle());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(bucket.isIdle());
+        assertEquals(0, new TokenBucket(0, 1, now::get).reserve(), "Rate 0 means no limit");
+    }
+}
@@ -0,0 +1,214 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CrawlJobQueue 测试：后台提交、失败重试、索引检查与超时
+ */
+public class CrawlJobQueueTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * YaCy stand-in: startCrawl fails the first failures times, getDocument reports the URL as indexed or not
+     */
+    private static class ScriptedClient extends YaCyClient {
+        final AtomicInteger starts = new AtomicInteger();
+        final int failures;
+        final boolean indexed;
+
+        ScriptedClient(int failures, boolean indexed) {
+            super(new YaCyConfig());
+            this.failures = failures;
+            this.indexed = indexed;
+        }
+
+        @Override
+        public JsonNode startCrawl(String crawlUrl, int depth) throws IOException {
+            if (starts.incrementAndGet() <= failures) {
+                throw new IOException("YaCy busy");
+            }
+            return MAPPER.createObjectNode().put("status", "started").put("handle", "h" + starts.get());
+        }
+
+        @Override
+        public JsonNode getDocument(String url) {
+            ObjectNode result = MAPPER.createObjectNode();
+            var items = result.putArray("channels").addObject().putArray("items");
+            if (indexed) {
+                items.addObject().put("link", url);
+            }
+            return result;
+        }
+    }
+
+    private DatabaseService database() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("jobs.db"));
+        DatabaseService databaseService = new DatabaseService(DSL.using(dataSource, SQLDialect.SQLITE), false);
+        databaseService.init();
+        return databaseService;
+    }
+
+    private static YaCyConfig.Crawl settings() {
+        YaCyConfig.Crawl settings = new YaCyConfig.Crawl();
+        settings.setJobRetryBaseSeconds(0);
+        settings.setJobStatusCheckSeconds(0);
+        settings.setJobMaxAttempts(3);
+        return settings;
+    }
+
+    private static CrawlJob awaitStatus(CrawlJobQueue queue, long id, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        CrawlJob job = queue.find(id);
+        while (!status.equals(job.status()) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            job = queue.find(id);
+        }
+        return job;
+    }
+
+    @Test
+    @DisplayName("入队立即返回，后台提交后在索引出现时完成")
+    void testJobRunsToFinished() throws Exception {
+        ScriptedClient client = new ScriptedClient(1, true);
+        DatabaseService databaseService = database();
+        CrawlJobQueue queue = new CrawlJobQueue(client, databaseService, settings(), System::currentTimeMillis);
+        try {
+            CrawlJob job = queue.enqueue("https://example.org/", 1);
+            assertEquals(CrawlJob.QUEUED, job.status());
+
+            job = awaitStatus(queue, job.id(), CrawlJob.FINISHED);
+            System.out.println("Job " + job.id() + " finished after " + job.attempts() + " submissions");
+            assertEquals(CrawlJob.FINISHED, job.status());
+            assertEquals(2, job.attempts(), "One failed submission, then accepted");
+            assertEquals("h2", job.handle());
+            assertNotNull(job.submittedAt());
+            assertNull(job.error());
+            assertEquals(Set.of(CrawlUrls.hash("https://example.org/")),
+                    databaseService.recentCrawlHashes(List.of("example.org"), Duration.ofHours(1)),
+                    "Accepted submission logged to crawl_history");
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("提交反复失败后任务标记为失败")
+    void testJobFailsAfterMaxAttempts() throws Exception {
+        ScriptedClient client = new ScriptedClient(Integer.MAX_VALUE, false);
+        CrawlJobQueue queue = new CrawlJobQueue(client, database(), settings(), System::currentTimeMillis);
+        try {
+            CrawlJob job = awaitStatus(queue, queue.enqueue("https://example.org/down", 0).id(), CrawlJob.FAILED);
+            assertEquals(CrawlJob.FAILED, job.status());
+            assertEquals(3, job.attempts());
+            assertEquals(3, client.starts.get());
+            assertTrue(job.error().contains("YaCy busy"), job.error());
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("超时仍未被索引的任务标记为失败")
+    void testRunningJobTimesOut() throws Exception {
+        YaCyConfig.Crawl settings = settings();
+        settings.setJobTimeoutMinutes(0);
+        CrawlJobQueue queue = new CrawlJobQueue(new ScriptedClient(0, false), database(), settings, System::currentTimeMillis);
+        try {
+            CrawlJob job = awaitStatus(queue, queue.enqueue("https://example.org/never", 0).id(), CrawlJob.FAILED);
+            assertEquals(CrawlJob.FAILED, job.status());
+            assertNotNull(job.submittedAt(), "YaCy accepted the crawl");
+            assertTrue(job.error().startsWith("not indexed"), job.error());
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("处理任务出错时退避，而不是立即再次处理")
+    void testErrorBacksOff() throws Exception {
+        AtomicInteger checks = new AtomicInteger();
+        ScriptedClient client = new ScriptedClient(0, false) {
+            @Override
+            public JsonNode getDocument(String url) {
+                checks.incrementAndGet();
+                throw new IllegalStateException("unexpected response");
+            }
+        };
+        YaCyConfig.Crawl settings = settings();
+        settings.setJobRetryBaseSeconds(60);
+        CrawlJobQueue queue = new CrawlJobQueue(client, database(), settings, System::currentTimeMillis);
+        try {
+            CrawlJob job = awaitStatus(queue, queue.enqueue("https://example.org/odd", 0).id(), CrawlJob.RUNNING);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (checks.get() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(500);
+            job = queue.find(job.id());
+            assertEquals(1, checks.get(), "No retry before the backoff");
+            assertTrue(job.nextAttemptAt() > System.currentTimeMillis() + 10_000, "Next check pushed out");
+        } finally {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("同一到期任务只能被认领一次，租约到期后可再认领")
+    void testClaimIsExclusive() {
+        DatabaseService databaseService = database();
+        long id = databaseService.insertCrawlJob("https://example.org/", 0, 1_000L);
+        CrawlJob due = databaseService.dueCrawlJobs(2_000L, 10).get(0);
+        assertEquals(id, due.id());
+
+        CrawlJob claimed = databaseService.claimCrawlJob(due, 60_000L);
+        assertNotNull(claimed);
+        assertEquals(60_000L, claimed.nextAttemptAt());
+        assertNull(databaseService.claimCrawlJob(due, 60_000L), "A second process reading the same row loses");
+        assertTrue(databaseService.dueCrawlJobs(2_000L, 10).isEmpty(), "Leased");
+        assertEquals(1, databaseService.dueCrawlJobs(60_000L, 10).size(), "Due again once the lease runs out");
+    }
+
+    @Test
+    @DisplayName("重试间隔指数增长并有上限")
+    void testBackoff() {
+        YaCyConfig.Crawl settings = new YaCyConfig.Crawl();
+        settings.setJobRetryBaseSeconds(10);
+        settings.setJobRetryMaxSeconds(60);
+        CrawlJobQueue queue = new CrawlJobQueue(new ScriptedClient(0, false), null, settings, System::currentTimeMillis);
+        try {
+            for (int attempts = 1; attempts <= 10; attempts++) {
+                long expected = Math.min(60_000, 10_000L << (attempts - 1));
+                long delay = queue.backoff(attempts);
+                assertTrue(delay >= expected / 2 && delay <= expected, "attempt " + attempts + ": " + delay);
+            }
+        } finally {
+            queue.shutdown();
+        }
+    }
+}
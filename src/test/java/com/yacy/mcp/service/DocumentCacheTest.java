@@ -0,0 +1,179 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DocumentCache 测试：映射段文件的读写、重启恢复、TTL 失效与压缩
+ */
+public class DocumentCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static JsonNode document(String url, int descriptionLength) {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.putArray("channels").addObject().putArray("items").addObject()
+                .put("link", url)
+                .put("title", "Title of " + url)
+                .put("description", "x".repeat(descriptionLength));
+        return root;
+    }
+
+    private DocumentCache open(long maxBytes, AtomicLong now) {
+        return new DocumentCache(tempDir.resolve("documents.seg"), maxBytes, Duration.ofMinutes(10),
+                new SimpleMeterRegistry(), now::get);
+    }
+
+    @Test
+    @DisplayName("缓存的文档在重新打开段文件后仍可读取")
+    void testDocumentsSurviveReopen() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        JsonNode first = document("https://example.org/a", 100);
+        JsonNode replaced = document("https://example.org/b", 200);
+
+        try (DocumentCache cache = open(1 << 20, now)) {
+            assertNull(cache.get("https://example.org/a"));
+            cache.put("https://example.org/a", first);
+            cache.put("https://example.org/b", document("https://example.org/b", 10));
+            cache.put("https://example.org/b", replaced);
+            assertEquals(first, cache.get("https://example.org/a"));
+            assertEquals(replaced, cache.get("https://example.org/b"), "A later record replaces the earlier one");
+        }
+
+        try (DocumentCache cache = open(1 << 20, now)) {
+            assertEquals(first, cache.get("https://example.org/a"));
+            assertEquals(replaced, cache.get("https://example.org/b"));
+            assertNull(cache.get("https://example.org/c"));
+        }
+    }
+
+    @Test
+    @DisplayName("过期或失效的文档不再返回")
+    void testExpiryAndInvalidation() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        try (DocumentCache cache = open(1 << 20, now)) {
+            cache.put("https://example.org/old", document("https://example.org/old", 10));
+            cache.put("https://example.org/gone", document("https://example.org/gone", 10));
+            cache.invalidate("https://example.org/gone");
+            assertNull(cache.get("https://example.org/gone"));
+
+            now.addAndGet(Duration.ofMinutes(11).toMillis());
+            assertNull(cache.get("https://example.org/old"));
+        }
+
+        now.set(1_000_000);
+        try (DocumentCache cache = open(1 << 20, now)) {
+            assertNotNull(cache.get("https://example.org/old"));
+            assertNull(cache.get("https://example.org/gone"), "Invalidation is persisted in the segment");
+        }
+    }
+
+    @Test
+    @DisplayName("段文件写满后压缩，丢弃过期文档和最旧的文档")
+    void testCompactionWhenFull() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        int capacity = 64 * 1024;
+        try (DocumentCache cache = open(capacity, now)) {
+            cache.put("https://example.org/expired", document("https://example.org/expired", 1000));
+            cache.invalidate("https://example.org/expired");
+
+            int written = 0;
+            while (cache.getSegmentBytes() + 1200 <= capacity) {
+                cache.put("https://example.org/doc/" + written, document("https://example.org/doc/" + written, 1000));
+                written++;
+            }
+            int before = cache.getSegmentBytes();
+            cache.put("https://example.org/new", document("https://example.org/new", 1000));
+            System.out.println("Segment held " + written + " documents in " + before
+                    + " bytes, " + cache.getSegmentBytes() + " bytes after compaction");
+
+            assertTrue(cache.getSegmentBytes() <= capacity / 2 + 1200, "Compaction leaves the segment half empty");
+            assertNotNull(cache.get("https://example.org/new"));
+            assertNotNull(cache.get("https://example.org/doc/" + (written - 1)), "Newest documents are kept");
+            assertNull(cache.get("https://example.org/doc/0"), "Oldest documents are evicted");
+            assertNull(cache.get("https://example.org/expired"));
+        }
+
+        try (DocumentCache cache = open(capacity, now)) {
+            assertNotNull(cache.get("https://example.org/new"), "The compacted segment is the one reopened");
+        }
+    }
+
+    @Test
+    @DisplayName("多个进程共享段文件时追加和压缩不会覆盖彼此的记录")
+    void testSharedSegment() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        try (DocumentCache first = open(1 << 20, now); DocumentCache second = open(1 << 20, now)) {
+            first.put("https://example.org/a", document("https://example.org/a", 100));
+            second.put("https://example.org/b", document("https://example.org/b", 100));
+            first.put("https://example.org/c", document("https://example.org/c", 100));
+            assertEquals(first.getSegmentBytes(), second.getSegmentBytes() + first.getSegmentBytes() / 3,
+                    "The second writer appended after the first one's record");
+            assertNotNull(first.get("https://example.org/b"), "Caught up with the other writer");
+
+            second.invalidate("https://example.org/a");
+            assertNull(first.get("https://example.org/a"), "Invalidation seen through the record header");
+
+            second.compact();
+            first.put("https://example.org/d", document("https://example.org/d", 100));
+            assertNull(first.get("https://example.org/a"));
+            assertNotNull(first.get("https://example.org/c"), "Remapped after the other process compacted");
+        }
+
+        try (DocumentCache cache = open(1 << 20, now)) {
+            for (String path : new String[]{"b", "c", "d"}) {
+                assertEquals(document("https://example.org/" + path, 100), cache.get("https://example.org/" + path));
+            }
+            assertNull(cache.get("https://example.org/a"));
+        }
+    }
+
+    @Test
+    @DisplayName("损坏的记录视为未命中而不是抛出异常")
+    void testTornRecordIsMiss() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        try (DocumentCache cache = open(1 << 20, now)) {
+            cache.put("https://example.org/a", document("https://example.org/a", 100));
+            assertNotNull(cache.get("https://example.org/a"));
+
+            try (FileChannel channel = FileChannel.open(tempDir.resolve("documents.seg"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // Body length of the first record far past the end of the segment
+                channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE - 16), 8);
+            }
+            assertNull(cache.get("https://example.org/a"));
+        }
+    }
+
+    @Test
+    @DisplayName("stop 释放映射，之后的访问重新打开段文件")
+    void testStopReleasesMapping() {
+        AtomicLong now = new AtomicLong(1_000_000);
+        try (DocumentCache cache = open(1 << 20, now)) {
+            cache.put("https://example.org/a", document("https://example.org/a", 100));
+            assertTrue(cache.isRunning());
+
+            cache.stop();
+            assertFalse(cache.isRunning());
+            assertEquals(document("https://example.org/a", 100), cache.get("https://example.org/a"));
+            assertTrue(cache.isRunning(), "Reopened by the lookup");
+        }
+    }
+}
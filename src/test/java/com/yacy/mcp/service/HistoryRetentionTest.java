@@ -0,0 +1,152 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HistoryRetention 测试：按小时/天汇总、分批删除过期记录以及百分位计算
+ */
+public class HistoryRetentionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DSLContext dsl;
+    private DatabaseService databaseService;
+
+    private HistoryRetention retention(int rawRetentionDays, int hourlyRetentionDays) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("history.db"));
+        dsl = DSL.using(dataSource, SQLDialect.SQLITE);
+        databaseService = new DatabaseService(dsl, false);
+        databaseService.init();
+
+        YaCyConfig.History settings = new YaCyConfig.History();
+        settings.setRawRetentionDays(rawRetentionDays);
+        settings.setHourlyRetentionDays(hourlyRetentionDays);
+        settings.setDeleteBatchSize(3);
+        return new HistoryRetention(dsl, databaseService, settings, Duration.ofHours(24));
+    }
+
+    private void search(String query, String timestamp, int results, long millis) {
+        dsl.execute("INSERT INTO search_history (query, timestamp, result_count, execution_time_ms) VALUES (?, ?, ?, ?)",
+                query, timestamp, results, millis);
+    }
+
+    private int count(String sql, Object... binds) {
+        return dsl.fetchOne(sql, binds).get(0, Integer.class);
+    }
+
+    @Test
+    @DisplayName("过期记录汇总后分批删除，近期记录保留")
+    void testRollupAndDelete() {
+        HistoryRetention retention = retention(7, 100_000);
+        try {
+            for (int i = 1; i <= 10; i++) {
+                search(i % 2 == 0 ? "YaCy  Search" : "yacy search", "2024-01-01 10:" + (10 + i) + ":00", i, i * 10L);
+            }
+            search("other", "2024-01-01 11:05:00", 4, 40);
+            search("other", "2024-01-02 09:00:00", 6, 60);
+            databaseService.logSearch("recent", 1, 5);
+            dsl.execute("INSERT INTO crawl_history (url, host, status, timestamp) VALUES (?, ?, ?, ?)",
+                    "https://a.example/", "a.example", "started", "2024-01-01 12:00:00");
+            databaseService.logCrawl("https://b.example/", 0, "started");
+
+            HistoryRetention.Report report = retention.run();
+            System.out.println("Retention run: " + report);
+
+            Record hour = dsl.fetchOne("SELECT * FROM search_rollup_hourly WHERE bucket = ? AND query = ?",
+                    "2024-01-01 10:00:00", "yacy search");
+            assertNotNull(hour, "Both spellings rolled into the normalised query");
+            int searches = hour.get("searches", Integer.class);
+            long p50 = hour.get("p50_ms", Long.class);
+            long p95 = hour.get("p95_ms", Long.class);
+            double meanResults = hour.get("mean_results", Double.class);
+            assertEquals(10, searches);
+            assertEquals(50, p50);
+            assertEquals(100, p95);
+            assertEquals(5.5, meanResults, 1e-9);
+
+            assertEquals(2, count("SELECT COUNT(*) FROM search_rollup_daily WHERE bucket = ?", "2024-01-01 00:00:00"));
+            assertEquals(1, count("SELECT COUNT(*) FROM search_rollup_daily WHERE bucket = ?", "2024-01-02 00:00:00"));
+            assertEquals(1, count("SELECT crawls FROM crawl_rollup_daily WHERE bucket = ? AND host = ?",
+                    "2024-01-01 00:00:00", "a.example"));
+
+            assertEquals(12, report.searchesDeleted());
+            assertEquals(1, report.crawlsDeleted());
+            assertEquals(1, count("SELECT COUNT(*) FROM search_history"), "Recent search kept");
+            assertEquals(1, count("SELECT COUNT(*) FROM crawl_history"), "Recent crawl kept");
+
+            HistoryRetention.Report again = retention.run();
+            assertEquals(0, again.bucketsRolledUp(), "Nothing new to roll up");
+            assertEquals(0, again.searchesDeleted());
+        } finally {
+            retention.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("小时汇总超过保留期后删除，天汇总保留")
+    void testHourlyRollupRetention() {
+        HistoryRetention retention = retention(7, 30);
+        try {
+            search("old", "2024-03-01 08:30:00", 1, 10);
+
+            HistoryRetention.Report report = retention.run();
+            assertEquals(1, report.hourlyRollupsDeleted());
+            assertEquals(0, count("SELECT COUNT(*) FROM search_rollup_hourly"));
+            assertEquals(1, count("SELECT COUNT(*) FROM search_rollup_daily"));
+        } finally {
+            retention.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("日志段导入已汇总小时的记录后，该小时重新汇总")
+    void testLateImportIsRolledUp() throws Exception {
+        HistoryRetention retention = retention(30, 100_000);
+        try {
+            long at = System.currentTimeMillis() - Duration.ofHours(3).toMillis();
+            dsl.execute("INSERT INTO search_history (query, timestamp, result_count, execution_time_ms) "
+                    + "VALUES ('late', datetime(? / 1000, 'unixepoch'), 1, 10)", at);
+            retention.run();
+            String bucket = "SELECT searches FROM search_rollup_hourly "
+                    + "WHERE query = 'late' AND bucket = strftime('%Y-%m-%d %H:00:00', ? / 1000, 'unixepoch')";
+            assertEquals(1, count(bucket, at));
+
+            Path logDirectory = tempDir.resolve("log");
+            LogHistoryStore store = new LogHistoryStore(logDirectory, 0, 1024 * 1024, 60_000);
+            store.appendSearch("late", 1, 20, at);
+            store.close();
+            assertEquals(1, new HistoryLogCompactor(dsl, logDirectory, () -> { }, Duration.ofMinutes(1),
+                    Duration.ofDays(30)).compact());
+
+            retention.run();
+            assertEquals(2, count(bucket, at), "Imported row rolled up into its hour");
+        } finally {
+            retention.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("百分位按最近秩计算")
+    void testPercentile() {
+        long[] sorted = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+        assertEquals(50, HistoryRetention.percentile(sorted, 0.50));
+        assertEquals(100, HistoryRetention.percentile(sorted, 0.95));
+        assertEquals(7, HistoryRetention.percentile(new long[]{7}, 0.95));
+    }
+}
@@ -0,0 +1,224 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * LogHistoryStore 测试：段文件格式、组提交、段轮转、残缺记录以及导入 SQLite
+ */
+public class LogHistoryStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private record Read(List<SearchLoggedEvent> searches, List<DatabaseService.CrawlEntry> crawls, List<Long> crawlTimes) {
+    }
+
+    private static Read read(List<Path> segments) throws IOException {
+        Read read = new Read(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (Path segment : segments) {
+            LogHistoryStore.read(segment, new LogHistoryStore.Visitor() {
+                @Override
+                public void search(SearchLoggedEvent search) {
+                    read.searches().add(search);
+                }
+
+                @Override
+                public void crawl(DatabaseService.CrawlEntry crawl, long timestamp) {
+                    read.crawls().add(crawl);
+                    read.crawlTimes().add(timestamp);
+                }
+            });
+        }
+        return read;
+    }
+
+    private List<Path> files(String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    @Test
+    @DisplayName("写入的记录关闭后可按顺序读回，活动段被封存")
+    void testRoundTrip() throws IOException {
+        LogHistoryStore store = new LogHistoryStore(tempDir, 5, 1024 * 1024, 60_000);
+        store.appendSearch("yacy 搜索", 12, 34, 1_000L);
+        store.appendCrawls(List.of(
+                new DatabaseService.CrawlEntry("https://a.example/", 1, "started"),
+                new DatabaseService.CrawlEntry("https://b.example/", 0, null)), 2_000L);
+        store.appendSearch("second", 0, 7, 3_000L);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.appendSearch("late", 0, 0, 0));
+
+        assertTrue(files(LogHistoryStore.ACTIVE_SUFFIX).isEmpty(), "Active segment sealed on close");
+        List<Path> segments = files(LogHistoryStore.SEGMENT_SUFFIX);
+        assertEquals(1, segments.size());
+        assertEquals(ProcessHandle.current().pid(), LogHistoryStore.ownerPid(segments.get(0)));
+
+        Read read = read(segments);
+        assertEquals(List.of(new SearchLoggedEvent("yacy 搜索", 12, 34, 1_000L), new SearchLoggedEvent("second", 0, 7, 3_000L)),
+                read.searches());
+        assertEquals(List.of(new DatabaseService.CrawlEntry("https://a.example/", 1, "started"),
+                new DatabaseService.CrawlEntry("https://b.example/", 0, null)), read.crawls());
+        assertEquals(List.of(2_000L, 2_000L), read.crawlTimes());
+    }
+
+    @Test
+    @DisplayName("release 后不保留打开的段文件，之后的写入进入新段")
+    void testRelease() throws IOException {
+        LogHistoryStore store = new LogHistoryStore(tempDir, 5, 1024 * 1024, 60_000);
+        try {
+            store.appendSearch("before", 1, 1, 1);
+            store.release();
+            assertTrue(files(LogHistoryStore.ACTIVE_SUFFIX).isEmpty());
+            assertEquals(1, files(LogHistoryStore.SEGMENT_SUFFIX).size());
+
+            store.appendSearch("after", 1, 1, 2);
+        } finally {
+            store.close();
+        }
+        List<Path> segments = files(LogHistoryStore.SEGMENT_SUFFIX);
+        assertEquals(2, segments.size());
+        assertEquals(List.of("before", "after"), read(segments).searches().stream().map(SearchLoggedEvent::query).toList());
+    }
+
+    @Test
+    @DisplayName("并发写入按组提交，每组只同步一次")
+    void testGroupCommit() throws Exception {
+        LogHistoryStore store = new LogHistoryStore(tempDir, 20, 64 * 1024 * 1024, 60_000);
+        int threads = 8;
+        int perThread = 250;
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    store.appendSearch("q" + id + "-" + i, i, i, i);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        store.close();
+
+        long groups = store.groups();
+        System.out.println(threads * perThread + " appends in " + groups + " groups");
+        assertTrue(groups < threads * perThread / 10, "groups " + groups);
+        assertEquals(threads * perThread, read(files(LogHistoryStore.SEGMENT_SUFFIX)).searches().size());
+    }
+
+    @Test
+    @DisplayName("段达到大小上限后轮转，记录不丢失")
+    void testRotation() throws Exception {
+        LogHistoryStore store = new LogHistoryStore(tempDir, 0, 1024, 60_000);
+        for (int i = 0; i < 200; i++) {
+            store.appendSearch("query number " + i, i, i, i);
+            if (i % 10 == 9) {
+                // Keep groups well below the segment size
+                Thread.sleep(5);
+            }
+        }
+        store.close();
+
+        List<Path> segments = files(LogHistoryStore.SEGMENT_SUFFIX);
+        assertTrue(segments.size() > 1, "segments " + segments.size());
+        List<SearchLoggedEvent> searches = read(segments).searches();
+        assertEquals(200, searches.size());
+        assertEquals(List.of("query number 0", "query number 199"),
+                List.of(searches.get(0).query(), searches.get(199).query()));
+    }
+
+    @Test
+    @DisplayName("截断或损坏的记录之前的记录仍可读取")
+    void testTornRecord() throws IOException {
+        LogHistoryStore store = new LogHistoryStore(tempDir, 0, 1024 * 1024, 60_000);
+        for (int i = 0; i < 3; i++) {
+            store.appendSearch("q" + i, 1, 1, i);
+        }
+        store.close();
+        Path segment = files(LogHistoryStore.SEGMENT_SUFFIX).get(0);
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        assertEquals(List.of("q0", "q1"), read(List.of(segment)).searches().stream().map(SearchLoggedEvent::query).toList());
+
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Last byte of the first record's payload
+            long firstRecordEnd = 4 + LogHistoryStore.RECORD_HEADER + 1 + 8 + 4 + 2 + 4 + 8;
+            file.seek(firstRecordEnd - 1);
+            file.write(0x7f);
+        }
+        assertTrue(read(List.of(segment)).searches().isEmpty(), "Checksum mismatch stops the reader");
+    }
+
+    @Test
+    @DisplayName("段文件导入 SQLite 后删除，同一段不会重复导入")
+    void testCompactIntoSqlite() throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("history.db"));
+        DSLContext dsl = DSL.using(dataSource, SQLDialect.SQLITE);
+        Path logDirectory = tempDir.resolve("log");
+
+        YaCyConfig.History settings = new YaCyConfig.History();
+        settings.setStore("log");
+        settings.setLogDirectory(logDirectory.toString());
+        DatabaseService databaseService = new DatabaseService(dsl, false, null, settings);
+        databaseService.init();
+        databaseService.logSearch("logged", 4, 20);
+        databaseService.logCrawlBatch(List.of(new DatabaseService.CrawlEntry("https://c.example/x", 1, "started")));
+        assertEquals(0, dsl.fetchOne("SELECT COUNT(*) FROM search_history").get(0, Integer.class).intValue(),
+                "Nothing reaches SQLite before the segment is imported");
+        databaseService.close();
+
+        assertEquals(1, dsl.fetchOne("SELECT COUNT(*) FROM search_history WHERE query = 'logged'").get(0, Integer.class).intValue());
+        var crawl = dsl.fetchOne("SELECT url_hash, host, depth FROM crawl_history WHERE url = 'https://c.example/x'");
+        assertEquals(CrawlUrls.hash("https://c.example/x"), crawl.get(0, Long.class).longValue());
+        assertEquals("c.example", crawl.get(1, String.class));
+        try (Stream<Path> left = Files.list(logDirectory)) {
+            assertEquals(List.of(HistoryLogCompactor.LOCK_FILE), left.map(f -> f.getFileName().toString()).toList());
+        }
+
+        // A segment whose file survived its import is only deleted
+        LogHistoryStore store = new LogHistoryStore(logDirectory, 0, 1024 * 1024, 60_000);
+        store.appendSearch("once", 1, 1, System.currentTimeMillis());
+        store.close();
+        Path segment = segments(logDirectory).get(0);
+        Path copy = Files.copy(segment, tempDir.resolve("copy.seg"));
+        HistoryLogCompactor compactor = new HistoryLogCompactor(dsl, logDirectory, () -> { }, Duration.ofMinutes(1),
+                Duration.ofDays(30));
+        assertEquals(1, compactor.compact());
+        Files.move(copy, segment);
+        assertEquals(0, compactor.compact());
+        assertFalse(Files.exists(segment));
+        assertEquals(1, dsl.fetchOne("SELECT COUNT(*) FROM search_history WHERE query = 'once'").get(0, Integer.class).intValue());
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(LogHistoryStore.SEGMENT_SUFFIX)).toList();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.yacy.mcp.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QueryNormalizer 测试：规范化查询作为缓存、合并与统计的键
+ */
+public class QueryNormalizerTest {
+
+    @Test
+    @DisplayName("大小写与空白差异得到同一个键")
+    void testEquivalentQueriesShareKey() {
+        for (String query : List.of("Java  MCP", " java mcp ", "JAVA\tmcp\n", "ＪＡＶＡ　ｍｃｐ")) {
+            assertEquals("java mcp", QueryNormalizer.normalize(query), query);
+        }
+    }
+
+    @Test
+    @DisplayName("已规范的查询原样返回同一实例")
+    void testCanonicalQueryIsReturnedAsIs() {
+        String query = "java mcp";
+        assertSame(query, QueryNormalizer.normalize(query));
+        String chinese = "步子哥 搜索";
+        assertSame(chinese, QueryNormalizer.normalize(chinese));
+    }
+
+    @Test
+    @DisplayName("site:/filetype: 排序去重，url 值保留大小写")
+    void testOperators() {
+        assertEquals("java filetype:pdf site:a.org site:b.org",
+                QueryNormalizer.normalize("site:B.org Java filetype:PDF site:a.org site:b.org"));
+        assertEquals("inurl:/Docs/API java", QueryNormalizer.normalize("INURL:/Docs/API Java"));
+        assertEquals("\"java mcp\" tutorial", QueryNormalizer.normalize("\"Java   MCP\"  Tutorial"));
+
+        String canonical = QueryNormalizer.normalize("site:B.org Java");
+        assertEquals(canonical, QueryNormalizer.normalize(canonical), "Normalisation is idempotent");
+    }
+
+    @Test
+    @DisplayName("空白查询规范化为空串")
+    void testBlankQuery() {
+        assertEquals("", QueryNormalizer.normalize("   "));
+        assertNull(QueryNormalizer.normalize(null));
+    }
+}
@@ -0,0 +1,152 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * QuerySuggester 测试：前缀树补全、时间衰减、容量裁剪以及从历史记录加载
+ */
+public class QuerySuggesterTest {
+
+    private static final long NOW = TimeUnit.DAYS.toMillis(20_000);
+
+    /**
+     * Serves query days from memory instead of SQLite
+     */
+    private static final class MemoryDatabase extends DatabaseService {
+        final List<QueryDay> days = new ArrayList<>();
+
+        MemoryDatabase() {
+            super(null, true);
+        }
+
+        @Override
+        public void forEachQueryDay(long fromMillis, long untilMillis, Consumer<QueryDay> action) {
+            days.stream()
+                    .filter(d -> d.lastSearchedAt() >= fromMillis && d.lastSearchedAt() < untilMillis)
+                    .forEach(action);
+        }
+    }
+
+    private static List<String> queries(List<QuerySuggester.Suggestion> suggestions) {
+        return suggestions.stream().map(QuerySuggester.Suggestion::query).toList();
+    }
+
+    @Test
+    @DisplayName("前缀树拆分节点后仍返回按权重排序的前 k 个补全")
+    void testPrefixIndex() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("java", 5);
+        index.add("javascript", 8);
+        index.add("jazz", 2);
+        index.add("java", 4);
+        index.add("ja", 1);
+        index.add("python", 20);
+
+        assertEquals(5, index.size());
+        assertEquals(List.of(new PrefixIndex.Entry("java", 9), new PrefixIndex.Entry("javascript", 8)),
+                index.top("ja", 2));
+        assertEquals(4, index.top("j", 10).size());
+        assertEquals("jazz", index.top("jaz", 10).get(0).key(), "Prefix ending inside an edge label");
+        assertTrue(index.top("jx", 10).isEmpty());
+        assertTrue(index.top("javax", 10).isEmpty());
+        assertEquals("python", index.top("", 1).get(0).key());
+
+        index.scale(0.5);
+        assertEquals(new PrefixIndex.Entry("java", 4.5), index.top("jav", 1).get(0));
+    }
+
+    @Test
+    @DisplayName("近期搜索的权重高于同样次数的旧搜索")
+    void testRecencyDecay() {
+        AtomicLong clock = new AtomicLong(NOW);
+        QuerySuggester suggester = new QuerySuggester(new MemoryDatabase(), new YaCyConfig.Suggest(), clock::get);
+        long twoWeeksAgo = NOW - TimeUnit.DAYS.toMillis(14);
+        suggester.add("yacy peer", 4, twoWeeksAgo);
+        suggester.add("yacy crawler", 2, NOW - TimeUnit.HOURS.toMillis(1));
+
+        List<QuerySuggester.Suggestion> suggestions = suggester.suggest("yacy", 10);
+        System.out.println(suggestions);
+        assertEquals(List.of("yacy crawler", "yacy peer"), queries(suggestions));
+        assertEquals(1.0, suggestions.get(1).score(), 0.01, "Two half-lives halve twice");
+
+        // Far beyond the rescale threshold the order and scores stay finite
+        long later = NOW + TimeUnit.DAYS.toMillis(3650);
+        clock.set(later);
+        suggester.add("yacy search", 1, later);
+        suggestions = suggester.suggest("YaCy ", 10);
+        assertEquals("yacy search", suggestions.get(0).query());
+        assertEquals(1.0, suggestions.get(0).score(), 1e-9);
+        assertTrue(Double.isFinite(suggestions.get(2).score()));
+    }
+
+    @Test
+    @DisplayName("超过 maxQueries 时只保留权重最高的查询")
+    void testPrune() {
+        YaCyConfig.Suggest settings = new YaCyConfig.Suggest();
+        settings.setMaxQueries(100);
+        QuerySuggester suggester = new QuerySuggester(new MemoryDatabase(), settings, () -> NOW);
+        for (int i = 0; i < 1000; i++) {
+            suggester.add("query " + i, i % 7 == 0 ? 50 : 1, NOW);
+        }
+        List<QuerySuggester.Suggestion> all = suggester.suggest("query", 1000);
+        assertTrue(all.size() <= 100, "size " + all.size());
+        assertTrue(queries(all).contains("query 994"), "Heavy queries survive pruning");
+    }
+
+    @Test
+    @DisplayName("前缀规范化：大小写、全角字符与空白")
+    void testNormalizePrefix() {
+        assertEquals("yacy ", QuerySuggester.normalizePrefix("  YaCy   ").terms());
+        assertEquals("yacy pe", QuerySuggester.normalizePrefix("ＹａＣｙ\tPe").terms());
+        assertEquals("", QuerySuggester.normalizePrefix("   ").terms());
+        assertEquals("inurl:/Docs/API ", QuerySuggester.normalizePrefix("InURL:/Docs/API ").terms());
+        assertEquals("\"open sou", QuerySuggester.normalizePrefix("\"Open   Sou").terms());
+
+        QuerySuggester.Prefix prefix = QuerySuggester.normalizePrefix("Site:Example.ORG  JaV filetype:P");
+        assertEquals("jav ", prefix.terms());
+        assertEquals(List.of("site:example.org"), prefix.filters());
+        assertEquals("filetype:p", prefix.partialFilter());
+    }
+
+    @Test
+    @DisplayName("带 site:/filetype: 与 url: 的前缀按查询规范化规则匹配")
+    void testModifierPrefixes() {
+        QuerySuggester suggester = new QuerySuggester(new MemoryDatabase(), new YaCyConfig.Suggest(), () -> NOW);
+        suggester.add("site:Example.org Java Tutorial", 3, NOW);
+        suggester.add("javascript", 5, NOW);
+        suggester.add("java filetype:pdf site:example.org", 2, NOW);
+        suggester.add("inurl:/Docs/API java", 1, NOW);
+
+        System.out.println(suggester.suggest("site:example.org jav", 10));
+        assertEquals(List.of("java tutorial site:example.org", "java filetype:pdf site:example.org"),
+                queries(suggester.suggest("site:example.org jav", 10)));
+        assertEquals(List.of("java filetype:pdf site:example.org"),
+                queries(suggester.suggest("java site:EXAMPLE.org filetype:p", 10)));
+        assertEquals(List.of("inurl:/Docs/API java"), queries(suggester.suggest("inurl:/Docs/", 10)));
+        assertTrue(suggester.suggest("inurl:/docs/", 10).isEmpty(), "url: values keep their case");
+    }
+
+    @Test
+    @DisplayName("从历史记录加载，只统计启动前的搜索，并忽略零结果事件")
+    void testLoadAndEvents() {
+        MemoryDatabase database = new MemoryDatabase();
+        database.days.add(new DatabaseService.QueryDay("Open Source", 3, NOW - TimeUnit.DAYS.toMillis(1)));
+        database.days.add(new DatabaseService.QueryDay("opensearch", 1, NOW - TimeUnit.DAYS.toMillis(60)));
+        QuerySuggester suggester = new QuerySuggester(database, new YaCyConfig.Suggest(), () -> NOW);
+        suggester.load();
+        suggester.onSearchLogged(new SearchLoggedEvent("openstreetmap", 0, 10, NOW));
+        suggester.onSearchLogged(new SearchLoggedEvent("openai", 5, 10, NOW));
+
+        assertEquals(List.of("open source", "openai"), queries(suggester.suggest("open", 10)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.service.HistoryTables.CrawlHistory;
+import com.yacy.mcp.service.HistoryTables.SearchHistory;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SchemaMigrations 测试：在旧版数据库上升级、回填 url_hash 并使用索引查询
+ */
+public class SchemaMigrationsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private DSLContext dsl() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("history.db"));
+        return DSL.using(dataSource, SQLDialect.SQLITE);
+    }
+
+    @Test
+    @DisplayName("旧版数据库升级后回填 url_hash 与 host，重复启动不再迁移")
+    void testUpgradeExistingDatabase() {
+        DSLContext dsl = dsl();
+        // Schema as created before versioned migrations
+        dsl.execute("""
+            CREATE TABLE crawl_history (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                url TEXT NOT NULL,
+                depth INTEGER,
+                timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                status TEXT
+            )
+        """);
+        int rows = SchemaMigrations.BACKFILL_BATCH_SIZE + 5;
+        for (int i = 0; i < rows; i++) {
+            dsl.execute("INSERT INTO crawl_history (url, depth, status) VALUES (?, 0, 'started')",
+                    "HTTPS://Site" + (i % 3) + ".example/page/" + i);
+        }
+        dsl.execute("INSERT INTO crawl_history (url, depth, status) VALUES ('not a url', 0, 'failed')");
+
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), SchemaMigrations.migrate(dsl));
+        assertEquals(0, SchemaMigrations.migrate(dsl), "Nothing left to apply");
+        int versions = dsl.fetchOne("SELECT COUNT(*) FROM schema_version").get(0, Integer.class);
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), versions);
+
+        int missing = dsl.fetchOne("SELECT COUNT(*) FROM crawl_history WHERE url_hash IS NULL").get(0, Integer.class);
+        assertEquals(0, missing, "Every row backfilled");
+        var first = dsl.fetchOne("SELECT url_hash, host FROM crawl_history WHERE id = 1");
+        long hash = first.get("url_hash", Long.class);
+        assertEquals(CrawlUrls.hash("https://site0.example/page/0"), hash);
+        assertEquals("site0.example", first.get("host", String.class));
+        assertNull(dsl.fetchOne("SELECT host FROM crawl_history WHERE url = 'not a url'").get(0, String.class));
+    }
+
+    @Test
+    @DisplayName("近期爬取按主机查询只走覆盖索引")
+    void testRecentCrawlsForHostUseCoveringIndex() {
+        DSLContext dsl = dsl();
+        DatabaseService databaseService = new DatabaseService(dsl, false);
+        databaseService.init();
+        databaseService.logCrawl("https://a.example/one", 0, "started");
+        databaseService.logCrawlBatch(List.of(
+                new DatabaseService.CrawlEntry("https://a.example/two", 0, "started"),
+                new DatabaseService.CrawlEntry("https://a.example/three", 0, "failed"),
+                new DatabaseService.CrawlEntry("https://b.example/", 0, "started")));
+
+        Set<Long> hashes = databaseService.recentCrawlHashes(Set.of("a.example"), Duration.ofHours(1));
+        assertEquals(Set.of(CrawlUrls.hash("https://a.example/one"), CrawlUrls.hash("https://a.example/two")), hashes,
+                "Failed submissions and other hosts excluded");
+
+        String plan = String.join("\n", dsl.fetch("""
+                EXPLAIN QUERY PLAN SELECT url_hash FROM crawl_history
+                WHERE host IN (?) AND timestamp >= datetime('now', '-3600 seconds')
+                AND (status IS NULL OR status <> 'failed')
+                """, "a.example").getValues("detail", String.class));
+        System.out.println(plan);
+        assertTrue(plan.contains("COVERING INDEX idx_crawl_history_host_recent"), plan);
+    }
+
+    @Test
+    @DisplayName("HistoryTables 与迁移后的表结构一致，写连接关闭后重新打开")
+    void testHistoryTablesMatchSchema() {
+        DSLContext dsl = dsl();
+        DatabaseService databaseService = new DatabaseService(dsl, false);
+        databaseService.init();
+        Map<Table<?>, List<Field<?>>> tables = Map.of(
+                SearchHistory.TABLE, List.of(SearchHistory.QUERY, SearchHistory.RESULT_COUNT, SearchHistory.EXECUTION_TIME_MS),
+                CrawlHistory.TABLE, List.of(CrawlHistory.URL, CrawlHistory.URL_HASH, CrawlHistory.HOST,
+                        CrawlHistory.DEPTH, CrawlHistory.STATUS));
+        for (Map.Entry<Table<?>, List<Field<?>>> table : tables.entrySet()) {
+            List<String> columns = dsl.fetch("SELECT name FROM pragma_table_info(?)", table.getKey().getName())
+                    .getValues(0, String.class);
+            for (Field<?> field : table.getValue()) {
+                assertTrue(columns.contains(field.getName()), table.getKey().getName() + "." + field.getName());
+            }
+        }
+
+        databaseService.logSearch("first", 3, 12);
+        databaseService.logSearch("second", 0, 7);
+        databaseService.close();
+        databaseService.logSearch("third", 1, 5);
+        databaseService.logCrawlBatch(List.of(
+                new DatabaseService.CrawlEntry("https://c.example/", 1, null),
+                new DatabaseService.CrawlEntry("https://d.example/", 2, "started")));
+        databaseService.close();
+
+        assertEquals(3, dsl.fetchOne("SELECT COUNT(*) FROM search_history").get(0, Integer.class).intValue());
+        var search = dsl.fetchOne("SELECT result_count, execution_time_ms FROM search_history WHERE query = 'first'");
+        assertEquals(3, search.get(0, Integer.class).intValue());
+        assertEquals(12L, search.get(1, Long.class).longValue());
+        var crawl = dsl.fetchOne("SELECT url_hash, host, depth, status FROM crawl_history WHERE url = 'https://c.example/'");
+        assertEquals(CrawlUrls.hash("https://c.example/"), crawl.get(0, Long.class).longValue());
+        assertEquals("c.example", crawl.get(1, String.class));
+        assertEquals(1, crawl.get(2, Integer.class).intValue());
+        assertNull(crawl.get(3, String.class));
+    }
+
+    @Test
+    @DisplayName("新数据库创建时即启用增量 vacuum")
+    void testNewDatabaseUsesIncrementalVacuum() {
+        DSLContext dsl = dsl();
+        SchemaMigrations.migrate(dsl);
+        int mode = dsl.fetchOne("PRAGMA auto_vacuum").get(0, Integer.class);
+        assertEquals(2, mode, "INCREMENTAL");
+    }
+
+    @Test
+    @DisplayName("迁移失败（数据库被其他进程锁定）时不标记完成，下次调用重试")
+    void testFailedMigrationIsRetried() throws Exception {
+        DSLContext dsl = dsl();
+        DatabaseService databaseService = new DatabaseService(dsl, true);
+        try (Connection other = DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("history.db"));
+             Statement statement = other.createStatement()) {
+            // Another process holds the write lock until its transaction ends
+            statement.execute("BEGIN EXCLUSIVE");
+            assertThrows(DataAccessException.class, databaseService::ensureSchema);
+            statement.execute("ROLLBACK");
+        }
+
+        databaseService.ensureSchema();
+        int versions = dsl.fetchOne("SELECT COUNT(*) FROM schema_version").get(0, Integer.class);
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), versions);
+    }
+}
@@ -0,0 +1,213 @@
+package com.yacy.mcp.service;
+
+import com.yacy.mcp.config.YaCyConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchAnalytics 测试：排行榜、时间窗口、检查点恢复以及 t-digest 精度
+ */
+public class SearchAnalyticsTest {
+
+    private static final long NOW = TimeUnit.HOURS.toMillis(480_000) + TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Keeps checkpoints and search history in memory instead of SQLite
+     */
+    private static final class MemoryDatabase extends DatabaseService {
+        final TreeMap<Long, byte[]> checkpoints = new TreeMap<>();
+        final List<SearchLoggedEvent> history = new ArrayList<>();
+
+        MemoryDatabase() {
+            super(null, true);
+        }
+
+        @Override
+        public Map<Long, byte[]> loadAnalyticsBuckets(long fromHour) {
+            return new TreeMap<>(checkpoints.tailMap(fromHour));
+        }
+
+        @Override
+        public synchronized void mergeAnalyticsBuckets(Map<Long, byte[]> buckets, BinaryOperator<byte[]> merge,
+                                                       long deleteBeforeHour) {
+            checkpoints.headMap(deleteBeforeHour).clear();
+            buckets.forEach((hour, data) -> checkpoints.merge(hour, data, merge));
+        }
+
+        @Override
+        public void forEachSearch(long fromMillis, long untilMillis, Consumer<SearchLoggedEvent> action) {
+            history.stream()
+                    .filter(e -> e.timestamp() >= fromMillis && e.timestamp() < untilMillis)
+                    .forEach(action);
+        }
+    }
+
+    private static SearchAnalytics analytics(DatabaseService database, AtomicLong clock) {
+        return new SearchAnalytics(database, new YaCyConfig.Analytics(), clock::get);
+    }
+
+    @Test
+    @DisplayName("最常见、零结果与最慢查询排行及耗时分位数")
+    void testReport() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SearchAnalytics analytics = analytics(new MemoryDatabase(), clock);
+        try {
+            for (int i = 1; i <= 30; i++) {
+                analytics.record(i % 2 == 0 ? "YaCy" : "yacy", 10, i, NOW);
+            }
+            for (int i = 0; i < 10; i++) {
+                analytics.record("java", 5, 20, NOW);
+            }
+            for (int i = 0; i < 5; i++) {
+                analytics.record("nothing here", 0, 15, NOW);
+            }
+            analytics.record("slow query", 3, 5000, NOW);
+
+            SearchAnalytics.Report report = analytics.report(24, 2);
+            System.out.println(report);
+            assertEquals(46, report.searches());
+            assertEquals(5, report.zeroResultSearches());
+            assertEquals(List.of(new SearchAnalytics.QueryStat("yacy", 30), new SearchAnalytics.QueryStat("java", 10)),
+                    report.topQueries(), "Queries counted by their normalised form");
+            assertEquals("nothing here", report.zeroResultQueries().get(0).query());
+            assertEquals(5, report.zeroResultQueries().get(0).value());
+            assertEquals(new SearchAnalytics.QueryStat("slow query", 5000), report.slowestQueries().get(0));
+            assertEquals(5000.0, report.maxMs());
+            assertTrue(report.p50Ms() >= 14 && report.p50Ms() <= 21, "p50 " + report.p50Ms());
+            assertEquals(1, report.trend().size());
+        } finally {
+            analytics.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("报告只包含时间窗口内的小时")
+    void testWindow() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SearchAnalytics analytics = analytics(new MemoryDatabase(), clock);
+        try {
+            analytics.record("old", 1, 10, NOW - TimeUnit.HOURS.toMillis(30));
+            analytics.record("recent", 1, 10, NOW - TimeUnit.HOURS.toMillis(2));
+            analytics.record("now", 1, 10, NOW);
+
+            assertEquals(3, analytics.report(168, 10).searches());
+            SearchAnalytics.Report day = analytics.report(24, 10);
+            assertEquals(2, day.searches());
+            assertEquals(2, day.trend().size());
+            assertEquals(1, analytics.report(1, 10).searches(), "Only the current hour");
+        } finally {
+            analytics.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("检查点在重启后恢复，首次运行时从历史记录重建")
+    void testCheckpointAndRebuild() {
+        AtomicLong clock = new AtomicLong(NOW);
+        MemoryDatabase database = new MemoryDatabase();
+        database.history.add(new SearchLoggedEvent("history", 0, 40, NOW - TimeUnit.HOURS.toMillis(3)));
+
+        SearchAnalytics first = analytics(database, clock);
+        first.record("live", 2, 10, NOW);
+        first.checkpoint();
+        first.shutdown();
+        assertEquals(2, database.checkpoints.size(), "Rebuilt hour and current hour saved");
+
+        // History is only replayed when there is no checkpoint
+        database.history.add(new SearchLoggedEvent("history", 0, 40, NOW - TimeUnit.HOURS.toMillis(2)));
+        SearchAnalytics second = analytics(database, clock);
+        try {
+            second.record("live", 2, 30, NOW);
+            SearchAnalytics.Report report = second.report(24, 10);
+            assertEquals(3, report.searches());
+            assertEquals(new SearchAnalytics.QueryStat("live", 2), report.topQueries().get(0));
+            assertEquals(new SearchAnalytics.QueryStat("history", 1), report.zeroResultQueries().get(0));
+        } finally {
+            second.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("共享数据库的多个进程检查点相加而不是互相覆盖")
+    void testProcessesAddUp() {
+        AtomicLong clock = new AtomicLong(NOW);
+        MemoryDatabase database = new MemoryDatabase();
+        SearchAnalytics first = analytics(database, clock);
+        SearchAnalytics second = analytics(database, clock);
+        try {
+            first.record("yacy", 1, 10, NOW);
+            second.record("yacy", 1, 20, NOW);
+            second.record("java", 0, 30, NOW);
+            first.checkpoint();
+            second.checkpoint();
+            first.record("yacy", 1, 40, NOW);
+            first.checkpoint();
+            second.checkpoint();
+
+            assertEquals(1, database.checkpoints.size());
+            for (SearchAnalytics analytics : List.of(first, second)) {
+                SearchAnalytics.Report report = analytics.report(24, 10);
+                assertEquals(4, report.searches());
+                assertEquals(1, report.zeroResultSearches());
+                assertEquals(new SearchAnalytics.QueryStat("yacy", 3), report.topQueries().get(0));
+            }
+
+            second.record("java", 0, 50, NOW);
+            assertEquals(5, second.report(24, 10).searches(), "Searches since the last checkpoint included");
+            assertEquals(4, first.report(24, 10).searches(), "Other processes are seen after a checkpoint");
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("t-digest 分位数误差在 1% 以内，合并后仍然准确")
+    void testTDigestAccuracy() {
+        Random random = new Random(42);
+        TDigest left = new TDigest();
+        TDigest right = new TDigest();
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            double value = random.nextDouble() * 1000;
+            (i % 2 == 0 ? left : right).add(value);
+        }
+        left.merge(right);
+        assertEquals(n, left.count());
+        for (double q : new double[]{0.5, 0.9, 0.95, 0.99}) {
+            double estimate = left.quantile(q);
+            System.out.printf("q%.2f = %.2f%n", q, estimate);
+            assertEquals(q * 1000, estimate, 10, "quantile " + q);
+        }
+    }
+
+    @Test
+    @DisplayName("Count-Min sketch 不会低估，合并后计数相加")
+    void testCountMinSketch() {
+        CountMinSketch a = new CountMinSketch();
+        CountMinSketch b = new CountMinSketch();
+        for (int i = 0; i < 5000; i++) {
+            a.add("q" + i);
+        }
+        for (int i = 0; i < 7; i++) {
+            a.add("hot");
+            b.add("hot");
+        }
+        assertTrue(a.estimate("hot") >= 7);
+        a.merge(b);
+        assertTrue(a.estimate("hot") >= 14);
+        assertTrue(a.estimate("hot") <= 14 + 2 * 5014 / CountMinSketch.WIDTH + 5, "error bound " + a.estimate("hot"));
+    }
+}
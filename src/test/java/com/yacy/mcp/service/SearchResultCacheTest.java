@@ -0,0 +1,123 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.config.YaCyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchResultCache 测试：跨实例持久化、TTL 过期与按大小上限的 LRU 淘汰
+ */
+public class SearchResultCacheTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private DriverManagerDataSource dataSource() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl("jdbc:sqlite:" + tempDir.resolve("cache.db"));
+        return dataSource;
+    }
+
+    private SearchResultCache cache(YaCyConfig.Cache settings, AtomicLong now) {
+        DriverManagerDataSource dataSource = dataSource();
+        DatabaseService databaseService = new DatabaseService(DSL.using(dataSource, SQLDialect.SQLITE), false);
+        return new SearchResultCache(dataSource, databaseService, settings, new SimpleMeterRegistry(), now::get);
+    }
+
+    private static YaCyConfig.Cache settings(int ttlSeconds, long maxBytes) {
+        YaCyConfig.Cache settings = new YaCyConfig.Cache();
+        settings.setTtlSeconds(ttlSeconds);
+        settings.setMaxBytes(maxBytes);
+        settings.setCompactIntervalSeconds(0);
+        return settings;
+    }
+
+    private static JsonNode result(String query, int items) {
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode channel = root.putArray("channels").addObject();
+        channel.put("totalResults", String.valueOf(items));
+        ArrayNode array = channel.putArray("items");
+        for (int i = 0; i < items; i++) {
+            array.addObject()
+                    .put("title", query + " result " + i)
+                    .put("link", "http://example.org/" + query + "/" + i)
+                    .put("description", "Description of result " + i + " for " + query);
+        }
+        return root;
+    }
+
+    @Test
+    @DisplayName("写入的结果在新实例中仍可读取")
+    void testEntriesSurviveRestart() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        String key = SearchResultCache.key("java mcp", 0, 10, SearchProjection.full());
+        JsonNode original = result("java", 10);
+
+        try (SearchResultCache cache = cache(settings(3600, 1 << 20), now)) {
+            assertNull(cache.get(key));
+            cache.put(key, original);
+            cache.awaitWrites();
+            assertEquals(original, cache.get(key));
+        }
+
+        try (SearchResultCache cache = cache(settings(3600, 1 << 20), now)) {
+            assertEquals(original, cache.get(key), "A new process reads the stored entry");
+            assertNull(cache.get(SearchResultCache.key("java mcp", 10, 10, SearchProjection.full())));
+        }
+    }
+
+    @Test
+    @DisplayName("过期条目不再返回并在压缩时删除")
+    void testExpiredEntriesAreDropped() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        try (SearchResultCache cache = cache(settings(60, 1 << 20), now)) {
+            cache.put("old", result("old", 3));
+            cache.awaitWrites();
+            now.addAndGet(61_000);
+            assertNull(cache.get("old"));
+
+            cache.compact();
+            now.addAndGet(-61_000);
+            assertNull(cache.get("old"), "Compaction removed the row");
+        }
+    }
+
+    @Test
+    @DisplayName("超过大小上限时淘汰最久未访问的条目")
+    void testSizeCapEvictsLeastRecentlyUsed() throws Exception {
+        AtomicLong now = new AtomicLong(1_000_000);
+        // Each entry compresses to about 200 bytes, so the cap holds two of them
+        try (SearchResultCache cache = cache(settings(3600, 450), now)) {
+            for (String query : new String[]{"a", "b", "c"}) {
+                cache.put(query, result(query, 10));
+                cache.awaitWrites();
+                now.addAndGet(1000);
+            }
+            assertNotNull(cache.get("a"), "Reading a makes b the least recently used entry");
+            now.addAndGet(1000);
+
+            cache.compact();
+            assertNotNull(cache.get("a"));
+            assertNull(cache.get("b"));
+            assertNotNull(cache.get("c"));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.yacy.mcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yacy.mcp.client.SearchProjection;
+import com.yacy.mcp.client.YaCyClient;
+import com.yacy.mcp.config.YaCyConfig;
+import com.yacy.mcp.support.FakeYaCyServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SearchService 游标分页测试：快照窗口命中、过期回退与游标编码
+ */
+public class SearchServiceTest {
+
+    private static final SearchProjection PROJECTION = SearchProjection.of(SearchProjection.DEFAULT_FIELDS, 100, 0);
+
+    private static YaCyClient clientFor(FakeYaCyServer server) {
+        YaCyConfig config = new YaCyConfig();
+        config.setServerUrl(server.getBaseUrl());
+        config.setConnectionTimeout(2000);
+        config.setSocketTimeout(5000);
+        return new YaCyClient(config);
+    }
+
+    private static JsonNode items(JsonNode page) {
+        return page.path("channels").path(0).path("items");
+    }
+
+    @Test
+    @DisplayName("游标翻页从快照窗口读取，不重复查询 YaCy")
+    void testCursorPagesServedFromSnapshot() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(95).start()) {
+            YaCyClient client = clientFor(server);
+            SearchService service = new SearchService(client, new SearchSnapshotStore(16, Duration.ofMinutes(5)), 5);
+
+            JsonNode page = service.search("deep", 10, 0, PROJECTION);
+            assertEquals(1, server.getRequestCount("/yacysearch.json"));
+            int seen = items(page).size();
+            String lastLink = items(page).path(9).path("link").asText();
+
+            int pages = 1;
+            while (page.has("nextCursor")) {
+                SearchCursor cursor = SearchCursor.decode(page.get("nextCursor").asText());
+                assertEquals(seen, cursor.position());
+                page = service.page(cursor, 10, PROJECTION);
+                assertNotEquals(lastLink, items(page).path(0).path("link").asText(), "Pages must not overlap");
+                lastLink = items(page).path(items(page).size() - 1).path("link").asText();
+                seen += items(page).size();
+                pages++;
+            }
+            System.out.println("Scanned " + seen + " results in " + pages + " pages with "
+                    + server.getRequestCount("/yacysearch.json") + " YaCy requests");
+            assertEquals(95, seen);
+            assertEquals(10, pages);
+            // Page 1, then one window of five pages for pages 2-6 and one for pages 7-10
+            assertEquals(3, server.getRequestCount("/yacysearch.json"));
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("快照过期后游标仍可继续")
+    void testExpiredSnapshotFallsBackToFreshQuery() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(50).start()) {
+            YaCyClient client = clientFor(server);
+            AtomicLong now = new AtomicLong();
+            SearchSnapshotStore store = new SearchSnapshotStore(16, Duration.ofSeconds(30), now::get);
+            SearchService service = new SearchService(client, store, 3);
+
+            JsonNode first = service.search("ttl", 10, 0, PROJECTION);
+            SearchCursor cursor = SearchCursor.decode(first.get("nextCursor").asText());
+            now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+            JsonNode second = service.page(cursor, 10, PROJECTION);
+            assertEquals("10", second.path("channels").path(0).path("startIndex").asText());
+            assertEquals(10, items(second).size());
+            assertNotEquals(cursor.snapshot(), SearchCursor.decode(second.get("nextCursor").asText()).snapshot());
+            assertEquals(1, store.size(), "The expired snapshot is dropped");
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("游标中的查询与快照不符时按游标的查询新建快照")
+    void testCursorQueryMustMatchSnapshot() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(50).start()) {
+            YaCyClient client = clientFor(server);
+            SearchSnapshotStore store = new SearchSnapshotStore(16, Duration.ofMinutes(5));
+            SearchService service = new SearchService(client, store, 3);
+
+            JsonNode first = service.search("alpha", 10, 0, PROJECTION);
+            SearchCursor alpha = SearchCursor.decode(first.get("nextCursor").asText());
+            SearchCursor forged = new SearchCursor(alpha.snapshot(), "beta", alpha.position());
+
+            JsonNode page = service.page(forged, 10, PROJECTION);
+            System.out.println("First item: " + items(page).path(0).path("title").asText());
+            assertTrue(items(page).path(0).path("title").asText().endsWith("for beta"),
+                    "Results of the cursor's query, not of the snapshot's");
+            SearchCursor next = SearchCursor.decode(page.get("nextCursor").asText());
+            assertNotEquals(alpha.snapshot(), next.snapshot());
+            assertEquals("beta", next.query());
+            assertEquals(2, store.size());
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("常翻页的查询在后台预取下一页")
+    void testPrefetchForPagedQueries() throws Exception {
+        try (FakeYaCyServer server = FakeYaCyServer.builder().totalResults(200).start();
+             SearchPrefetcher prefetcher = new SearchPrefetcher(2, 0.5, new SimpleMeterRegistry())) {
+            YaCyClient client = clientFor(server);
+            SearchService service = new SearchService(client, new SearchSnapshotStore(16, Duration.ofMinutes(5)), 5, prefetcher);
+
+            // No paging history yet: nothing is prefetched
+            JsonNode first = service.search("paged", 10, 0, PROJECTION);
+            assertFalse(prefetcher.isLikelyPaged("other"));
+            service.page(SearchCursor.decode(first.get("nextCursor").asText()), 10, PROJECTION);
+            assertEquals(2, server.getRequestCount("/yacysearch.json"));
+
+            // The query was followed last time, so its next window is fetched in the background
+            assertTrue(prefetcher.isLikelyPaged("paged"));
+            JsonNode again = service.search("paged", 10, 0, PROJECTION);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.getRequestCount("/yacysearch.json") < 4 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(4, server.getRequestCount("/yacysearch.json"));
+
+            JsonNode second = service.page(SearchCursor.decode(again.get("nextCursor").asText()), 10, PROJECTION);
+            assertEquals(10, items(second).size());
+            assertEquals(4, server.getRequestCount("/yacysearch.json"), "Page 2 must come from the prefetched window");
+            System.out.println("Prefetch hit ratio: " + prefetcher.getHitRatio());
+            assertEquals(1.0, prefetcher.getHitRatio());
+            client.cleanup();
+        }
+    }
+
+    @Test
+    @DisplayName("快照数量受上限约束")
+    void testSnapshotStoreIsBounded() {
+        SearchSnapshotStore store = new SearchSnapshotStore(4, Duration.ofMinutes(5));
+        String first = store.create("q0", PROJECTION).getId();
+        for (int i = 1; i < 10; i++) {
+            store.create("q" + i, PROJECTION);
+        }
+        assertEquals(4, store.size());
+        assertNull(store.get(first));
+    }
+
+    @Test
+    @DisplayName("游标编码往返并拒绝伪造内容")
+    void testCursorEncoding() {
+        SearchCursor cursor = new SearchCursor("abc123", "java\nmcp 步子哥", 40);
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("Mgp4CjEKcQ"));
+    }
+}
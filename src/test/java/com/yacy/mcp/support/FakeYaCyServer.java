@@ -0,0 +1,462 @@
+package com.yacy.mcp.support;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Embeddable stand-in for a YaCy peer, for tests and benchmarks.
+ * Serves the endpoints used by YaCyClient with configurable payload sizes,
+ * latency, error rate and slow-drip responses, bound to the loopback interface only.
+ */
+public class FakeYaCyServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(FakeYaCyServer.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final Builder settings;
+    private final AtomicLong requestSequence = new AtomicLong();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private FakeYaCyServer(Builder settings) {
+        this.settings = settings;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public FakeYaCyServer start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), settings.port), settings.backlog);
+        executor = Executors.newFixedThreadPool(settings.threads, r -> {
+            Thread t = new Thread(r, "fake-yacy");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+
+        server.createContext("/yacysearch.json", wrap("/yacysearch.json", this::writeSearch));
+        server.createContext("/solr/select", wrap("/solr/select", this::writeSolr));
+        server.createContext("/yacy/seedlist.json", wrap("/yacy/seedlist.json", this::writeSeedlist));
+        server.createContext("/HostBrowser.json", wrap("/HostBrowser.json", this::writeHostBrowser));
+        server.createContext("/CrawlStartExpert.json", wrap("/CrawlStartExpert.json", this::writeCrawlStart));
+
+        server.start();
+        log.info("Fake YaCy server listening on {}", getBaseUrl());
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Number of requests received for an endpoint path, e.g. "/yacysearch.json"
+     */
+    public long getRequestCount(String path) {
+        LongAdder counter = requestCounts.get(path);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    public long getTotalRequestCount() {
+        return requestSequence.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== Request handling ====================
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException;
+    }
+
+    private HttpHandler wrap(String path, BodyWriter writer) {
+        return exchange -> {
+            try {
+                long sequence = requestSequence.incrementAndGet();
+                requestCounts.computeIfAbsent(path, p -> new LongAdder()).increment();
+                // Per-request generator derived from the seed keeps runs reproducible regardless of thread interleaving
+                SplittableRandom random = new SplittableRandom(settings.seed ^ (sequence * 0x9E3779B97F4A7C15L));
+
+                sleep(settings.latency.nextMillis(random));
+
+                if (settings.errorRate > 0 && random.nextDouble() < settings.errorRate) {
+                    byte[] body = "<html><body><h1>500 Internal Server Error</h1></body></html>"
+                            .getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+                    exchange.sendResponseHeaders(500, body.length);
+                    exchange.getResponseBody().write(body);
+                    return;
+                }
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+                try (JsonGenerator json = JSON.createGenerator(buffer, JsonEncoding.UTF8)) {
+                    writer.write(json, parseQuery(exchange.getRequestURI()), random);
+                }
+                byte[] body = buffer.toByteArray();
+
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                boolean drip = settings.slowDripProbability > 0 && random.nextDouble() < settings.slowDripProbability;
+                if (drip) {
+                    writeSlowDrip(exchange, body);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+            } catch (IOException e) {
+                // Client went away mid-response; nothing useful to do for a stand-in server
+                log.debug("Fake YaCy request aborted: {}", e.getMessage());
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private void writeSlowDrip(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        for (int pos = 0; pos < body.length; pos += settings.slowDripChunkBytes) {
+            int len = Math.min(settings.slowDripChunkBytes, body.length - pos);
+            out.write(body, pos, len);
+            out.flush();
+            sleep(settings.slowDripIntervalMillis);
+        }
+    }
+
+    private void writeSearch(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException {
+        String query = params.getOrDefault("query", "");
+        int count = parseInt(params.get("maximumRecords"), 10);
+        int offset = parseInt(params.get("startRecord"), 0);
+
+        boolean urlLookup = query.startsWith("url:");
+        long total = urlLookup ? 1 : settings.totalResults;
+        int items = (int) Math.max(0, Math.min(count, total - offset));
+
+        json.writeStartObject();
+        json.writeArrayFieldStart("channels");
+        json.writeStartObject();
+        json.writeStringField("title", "YaCy P2P-Search for " + query);
+        json.writeStringField("description", "Search for " + query);
+        json.writeStringField("link", "http://localhost:8090/yacysearch.html?query=" + query);
+        json.writeStringField("image", "");
+        json.writeStringField("totalResults", Long.toString(total));
+        json.writeStringField("startIndex", Integer.toString(offset));
+        json.writeStringField("itemsPerPage", Integer.toString(count));
+        json.writeStringField("searchTerms", query);
+        json.writeArrayFieldStart("items");
+        for (int i = 0; i < items; i++) {
+            int rank = offset + i;
+            String host = "host" + (rank % settings.hostCount) + ".example.org";
+            String link = urlLookup ? query.substring(4) : "https://" + host + "/doc/" + rank + ".html";
+            json.writeStartObject();
+            json.writeStringField("title", "Result " + rank + " for " + query);
+            json.writeStringField("link", link);
+            json.writeStringField("code", "");
+            json.writeStringField("description", filler(random, settings.descriptionLength));
+            json.writeStringField("pubDate", Instant.ofEpochSecond(1_700_000_000L - rank * 3600L).toString());
+            json.writeStringField("size", Integer.toString(1024 + rank));
+            json.writeStringField("sizename", (1 + rank / 1024) + " kbyte");
+            json.writeStringField("guid", Long.toHexString(link.hashCode() & 0xffffffffL));
+            json.writeStringField("faviconUrl", "https://" + host + "/favicon.ico");
+            json.writeStringField("host", host);
+            json.writeStringField("path", "/doc/");
+            json.writeStringField("file", rank + ".html");
+            json.writeStringField("urlhash", Long.toHexString(random.nextLong()));
+            json.writeStringField("ranking", Double.toString(1.0 / (rank + 1)));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writeSolr(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException {
+        json.writeStartObject();
+        json.writeObjectFieldStart("responseHeader");
+        json.writeNumberField("status", 0);
+        json.writeNumberField("QTime", random.nextInt(1, 20));
+        json.writeEndObject();
+        json.writeObjectFieldStart("response");
+        json.writeNumberField("numFound", settings.totalResults);
+        json.writeNumberField("start", 0);
+        json.writeArrayFieldStart("docs");
+        json.writeEndArray();
+        json.writeEndObject();
+        if ("true".equals(params.get("facet"))) {
+            int limit = parseInt(params.get("facet.limit"), 10);
+            json.writeObjectFieldStart("facet_counts");
+            json.writeObjectFieldStart("facet_fields");
+            json.writeArrayFieldStart("host_s");
+            for (int i = 0; i < Math.min(limit, settings.hostCount); i++) {
+                json.writeString("host" + i + ".example.org");
+                json.writeNumber(settings.totalResults / settings.hostCount);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+
+    private void writeSeedlist(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException {
+        json.writeStartObject();
+        json.writeArrayFieldStart("peers");
+        for (int i = 0; i < settings.peerCount; i++) {
+            json.writeStartObject();
+            json.writeStringField("Name", "peer-" + i);
+            json.writeStringField("Hash", String.format("%012x", i));
+            json.writeStringField("IP", "10.0." + (i / 256) + "." + (i % 256));
+            json.writeStringField("Port", "8090");
+            json.writeStringField("Version", "1.940");
+            json.writeStringField("LastSeen", i % 4 == 0 ? "" : "20240101000000");
+            json.writeNumberField("LCount", random.nextInt(0, 100_000));
+            json.writeNumberField("ICount", random.nextInt(0, 1_000_000));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writeHostBrowser(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException {
+        String host = params.getOrDefault("host", "");
+        int count = parseInt(params.get("count"), 10);
+        json.writeStartObject();
+        json.writeStringField("host", host);
+        json.writeArrayFieldStart("files");
+        for (int i = 0; i < count; i++) {
+            json.writeStartObject();
+            json.writeStringField("url", "https://" + (host.isEmpty() ? "host0.example.org" : host) + "/doc/" + i + ".html");
+            json.writeStringField("status", "indexed");
+            json.writeNumberField("links", random.nextInt(0, 200));
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writeCrawlStart(JsonGenerator json, Map<String, String> params, SplittableRandom random) throws IOException {
+        json.writeStartObject();
+        if (params.containsKey("crawlingURL")) {
+            json.writeStringField("status", "started");
+            json.writeStringField("crawlingURL", params.get("crawlingURL"));
+            json.writeStringField("crawlingDepth", params.getOrDefault("crawlingDepth", "0"));
+            json.writeStringField("handle", Long.toHexString(random.nextLong()));
+        } else {
+            json.writeStringField("status", "idle");
+        }
+        json.writeEndObject();
+    }
+
+    // ==================== Helpers ====================
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static String filler(SplittableRandom random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int word = random.nextInt(2, 10);
+            for (int i = 0; i < word && sb.length() < length; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            if (sb.length() < length) {
+                sb.append(' ');
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ==================== Configuration ====================
+
+    /**
+     * Latency distribution applied before each response is written
+     */
+    @FunctionalInterface
+    public interface Latency {
+
+        long nextMillis(SplittableRandom random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + random.nextLong(maxMillis - minMillis + 1);
+        }
+
+        static Latency exponential(double meanMillis) {
+            return random -> Math.round(-meanMillis * Math.log(1.0 - random.nextDouble()));
+        }
+
+        /**
+         * Mostly fast responses with an occasional slow tail, the usual shape of a busy peer
+         */
+        static Latency bimodal(long fastMillis, long slowMillis, double slowProbability) {
+            return random -> random.nextDouble() < slowProbability ? slowMillis : fastMillis;
+        }
+    }
+
+    public static class Builder {
+        private int port = 0;
+        private int backlog = 128;
+        private int threads = 16;
+        private long seed = 42L;
+        private long totalResults = 1000;
+        private int descriptionLength = 200;
+        private int hostCount = 25;
+        private int peerCount = 50;
+        private Latency latency = Latency.none();
+        private double errorRate = 0.0;
+        private double slowDripProbability = 0.0;
+        private int slowDripChunkBytes = 64;
+        private long slowDripIntervalMillis = 10;
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder totalResults(long totalResults) {
+            this.totalResults = totalResults;
+            return this;
+        }
+
+        public Builder descriptionLength(int descriptionLength) {
+            this.descriptionLength = descriptionLength;
+            return this;
+        }
+
+        public Builder hostCount(int hostCount) {
+            this.hostCount = Math.max(1, hostCount);
+            return this;
+        }
+
+        public Builder peerCount(int peerCount) {
+            this.peerCount = peerCount;
+            return this;
+        }
+
+        public Builder latency(Latency latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder errorRate(double errorRate) {
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Send a fraction of responses in small chunks with a pause between each
+         */
+        public Builder slowDrip(double probability, int chunkBytes, long intervalMillis) {
+            this.slowDripProbability = probability;
+            this.slowDripChunkBytes = Math.max(1, chunkBytes);
+            this.slowDripIntervalMillis = intervalMillis;
+            return this;
+        }
+
+        public FakeYaCyServer build() {
+            return new FakeYaCyServer(this);
+        }
+
+        public FakeYaCyServer start() throws IOException {
+            return build().start();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.server.McpStdioServer;
+import com.yacy.mcp.service.McpService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SchemaValidator 测试：参数在 stdio 边界按 inputSchema 校验
+ */
+public class SchemaValidatorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ToolRegistry registry = ToolRegistry.scan(List.of(new ToolBindingTest.EchoTools()));
+
+    private List<SchemaValidator.Violation> validate(String arguments) throws Exception {
+        return registry.get("echo").validate(arguments == null ? null : objectMapper.readTree(arguments));
+    }
+
+    @Test
+    @DisplayName("合法参数不产生违规")
+    void testValidArguments() throws Exception {
+        assertTrue(validate("{\"text\":\"a\"}").isEmpty());
+        assertTrue(validate("{\"text\":\"a\",\"times\":3,\"upper\":true,\"tags\":[\"x\"]}").isEmpty());
+        assertTrue(validate("{\"text\":\"a\",\"times\":\"3\",\"upper\":\"false\"}").isEmpty(),
+                "Lenient forms accepted by the binder must validate");
+        assertTrue(validate("{\"text\":\"a\",\"times\":3.0}").isEmpty());
+    }
+
+    @Test
+    @DisplayName("缺失必填参数与类型错误")
+    void testInvalidArguments() throws Exception {
+        List<SchemaValidator.Violation> missing = validate("{}");
+        assertEquals(1, missing.size());
+        assertEquals("/text", missing.get(0).path());
+
+        assertEquals("/times", validate("{\"text\":\"a\",\"times\":1.5}").get(0).path());
+        assertEquals("/times", validate("{\"text\":\"a\",\"times\":\"many\"}").get(0).path());
+        assertEquals("/upper", validate("{\"text\":\"a\",\"upper\":\"maybe\"}").get(0).path());
+        assertEquals("/tags/1", validate("{\"text\":\"a\",\"tags\":[\"x\",{\"y\":1}]}").get(0).path());
+        assertEquals("", validate("[1,2]").get(0).path());
+        assertEquals("/text", validate(null).get(0).path());
+    }
+
+    @Test
+    @DisplayName("数值范围约束")
+    void testRangeConstraints() throws Exception {
+        ToolRegistry yacy = ToolRegistry.scan(List.of(new YaCyTools(null, null)));
+        SchemaValidator.Violation violation = yacy.get("yacy_search")
+                .validate(objectMapper.readTree("{\"query\":\"q\",\"count\":0}")).get(0);
+        assertEquals("/count", violation.path());
+        assertTrue(violation.message().contains(">= 1"));
+
+        // count binds to an int, so values the binder would reject fail validation with -32602
+        for (String count : List.of("3000000000", "1e20", "\"3000000000\"", "\"1e20\"")) {
+            List<SchemaValidator.Violation> tooLarge = yacy.get("yacy_search")
+                    .validate(objectMapper.readTree("{\"query\":\"q\",\"count\":" + count + "}"));
+            assertEquals(1, tooLarge.size(), count);
+            assertEquals("/count", tooLarge.get(0).path());
+            assertTrue(tooLarge.get(0).message().contains("<= 2147483647"), tooLarge.get(0).message());
+        }
+        assertTrue(yacy.get("yacy_search").validate(objectMapper.readTree("{\"query\":\"q\",\"count\":2147483647}"))
+                .isEmpty());
+    }
+
+    @Test
+    @DisplayName("stdio 边界返回 -32602 结构化错误")
+    void testStdioRejectsInvalidParams() throws Exception {
+        McpStdioServer server = new McpStdioServer(new McpService(registry));
+        server.setOutputStream(new PrintStream(OutputStream.nullOutputStream()));
+
+        server.processRequest("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"echo\",\"arguments\":{\"times\":\"x\"}}}");
+        JsonNode error = objectMapper.readTree(server.getCapturedOutput().get(0)).get("error");
+        System.out.println("Invalid params error: " + error);
+        assertEquals(-32602, error.get("code").asInt());
+        assertEquals("echo", error.get("data").get("tool").asText());
+        assertEquals(2, error.get("data").get("violations").size());
+
+        server.clearCapturedOutput();
+        server.processRequest("{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"no_such_tool\",\"arguments\":{}}}");
+        assertEquals(-32602, objectMapper.readTree(server.getCapturedOutput().get(0)).get("error").get("code").asInt());
+
+        server.clearCapturedOutput();
+        server.processRequest("{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"echo\",\"arguments\":{\"text\":\"ab\",\"times\":\"2\"}}}");
+        JsonNode result = objectMapper.readTree(server.getCapturedOutput().get(0)).get("result");
+        assertFalse(result.get("isError").asBoolean());
+        assertEquals("\"abab\"", result.get("content").get(0).get("text").asText());
+    }
+}
@@ -0,0 +1,96 @@
+package com.yacy.mcp.tools;
+
+import com.yacy.mcp.model.McpToolCallResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolBinding 测试：注解生成 Schema 与参数绑定
+ */
+public class ToolBindingTest {
+
+    public static class EchoTools implements McpToolProvider {
+
+        public record EchoParams(
+                @ToolParam(description = "Text to echo", required = true) String text,
+                @ToolParam(description = "Repetitions", defaultValue = "1") int times,
+                @ToolParam(description = "Upper case output") boolean upper,
+                @ToolParam(description = "Tags") List<String> tags) {
+        }
+
+        @McpTool(name = "echo", description = "Echo the text back")
+        public McpToolCallResponse echo(EchoParams params) {
+            String text = params.upper() ? params.text().toUpperCase() : params.text();
+            return McpToolCallResponse.success(text.repeat(params.times()) + (params.tags() != null ? params.tags() : ""));
+        }
+
+        @McpTool(name = "ping_tool", description = "Returns a constant")
+        public String ping() {
+            return "pong";
+        }
+    }
+
+    private final ToolRegistry registry = ToolRegistry.scan(List.of(new EchoTools()));
+
+    @Test
+    @DisplayName("从参数记录生成 Schema")
+    void testSchemaGeneratedFromRecord() {
+        Map<String, Object> schema = registry.get("echo").getDefinition().getInputSchema();
+        assertEquals("object", schema.get("type"));
+        assertEquals(List.of("text"), schema.get("required"));
+
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> properties = (Map<String, Map<String, Object>>) schema.get("properties");
+        assertEquals("string", properties.get("text").get("type"));
+        assertEquals("integer", properties.get("times").get("type"));
+        assertEquals(1, properties.get("times").get("default"));
+        assertEquals("boolean", properties.get("upper").get("type"));
+        assertEquals("array", properties.get("tags").get("type"));
+        assertFalse(properties.get("upper").containsKey("default"), "Implicit false is not a declared default");
+
+        assertTrue(((Map<?, ?>) registry.get("ping_tool").getDefinition().getInputSchema().get("properties")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("整数参数接受 10、10.0 和 \"10\"")
+    void testLenientIntegerCoercion() throws Exception {
+        for (Object times : List.of(2, 2L, 2.0, "2", " 2 ")) {
+            Map<String, Object> args = new HashMap<>();
+            args.put("text", "ab");
+            args.put("times", times);
+            assertEquals("abab", registry.get("echo").call(args).getContent(), "times=" + times);
+        }
+    }
+
+    @Test
+    @DisplayName("默认值、布尔和数组参数绑定")
+    void testDefaultsBooleansAndLists() throws Exception {
+        assertEquals("x", registry.get("echo").call(Map.of("text", "x")).getContent());
+        assertEquals("X", registry.get("echo").call(Map.of("text", "x", "upper", "true")).getContent());
+        assertEquals("x[a, b]", registry.get("echo").call(Map.of("text", "x", "tags", List.of("a", "b"))).getContent());
+        assertEquals("pong", registry.get("ping_tool").call(Map.of()).getContent());
+    }
+
+    @Test
+    @DisplayName("缺失或无法转换的参数抛出 ToolArgumentException")
+    void testInvalidArguments() {
+        ToolArgumentException missing = assertThrows(ToolArgumentException.class,
+                () -> registry.get("echo").call(Map.of("times", 1)));
+        assertEquals("text", missing.getArgument());
+
+        ToolArgumentException fraction = assertThrows(ToolArgumentException.class,
+                () -> registry.get("echo").call(Map.of("text", "x", "times", 1.5)));
+        assertEquals("times", fraction.getArgument());
+
+        assertThrows(ToolArgumentException.class,
+                () -> registry.get("echo").call(Map.of("text", "x", "times", "many")));
+        assertThrows(ToolArgumentException.class,
+                () -> registry.get("echo").call(Map.of("text", "x", "upper", "maybe")));
+    }
+}
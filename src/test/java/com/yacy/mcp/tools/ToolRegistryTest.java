@@ -0,0 +1,84 @@
+package com.yacy.mcp.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yacy.mcp.model.McpToolDefinition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ToolRegistry 测试：不可变快照与 tools/list 编码缓存
+ */
+public class ToolRegistryTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static ToolBinding tool(String name) {
+        return ToolBinding.of(definition(name), arguments -> name);
+    }
+
+    private static McpToolDefinition definition(String name) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("query", Map.of("type", "string"));
+        Map<String, Object> schema = new HashMap<>();
+        schema.put("type", "object");
+        schema.put("properties", properties);
+        schema.put("required", List.of("query"));
+        return McpToolDefinition.builder().name(name).description("Tool " + name).inputSchema(schema).build();
+    }
+
+    @Test
+    @DisplayName("tools/list 编码结果被缓存并复用")
+    void testToolsListIsEncodedOnce() throws Exception {
+        ToolRegistry registry = new ToolRegistry(List.of(tool("a"), tool("b")));
+
+        byte[] first = registry.getToolsListJson();
+        assertSame(first, registry.getToolsListJson(), "Encoded result should be reused");
+
+        JsonNode json = objectMapper.readTree(first);
+        assertEquals(2, json.get("tools").size());
+        assertEquals("a", json.get("tools").get(0).get("name").asText());
+        assertEquals("query", json.get("tools").get(0).get("inputSchema").get("required").get(0).asText());
+    }
+
+    @Test
+    @DisplayName("注册或移除工具后缓存失效")
+    void testRegisterAndUnregisterInvalidate() throws Exception {
+        ToolRegistry registry = new ToolRegistry(List.of(tool("a")));
+        byte[] before = registry.getToolsListJson();
+
+        registry.register(tool("b"));
+        byte[] afterRegister = registry.getToolsListJson();
+        assertNotSame(before, afterRegister);
+        assertEquals(2, objectMapper.readTree(afterRegister).get("tools").size());
+
+        assertTrue(registry.unregister("a"));
+        assertFalse(registry.unregister("missing"));
+        assertEquals(1, objectMapper.readTree(registry.getToolsListJson()).get("tools").size());
+        assertNull(registry.get("a"));
+    }
+
+    @Test
+    @DisplayName("工具定义和 Schema 不可修改")
+    void testDefinitionsAreImmutable() {
+        McpToolDefinition source = definition("a");
+        ToolRegistry registry = new ToolRegistry(List.of(ToolBinding.of(source, arguments -> "a")));
+
+        // Changing the caller's schema afterwards must not leak into the registry
+        source.getInputSchema().put("extra", true);
+        Map<String, Object> schema = registry.get("a").getDefinition().getInputSchema();
+        assertFalse(schema.containsKey("extra"));
+
+        assertThrows(UnsupportedOperationException.class, () -> schema.put("type", "array"));
+        assertThrows(UnsupportedOperationException.class, () -> registry.getDefinitions().clear());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> properties = (Map<String, Object>) schema.get("properties");
+        assertThrows(UnsupportedOperationException.class, () -> properties.remove("query"));
+    }
+}
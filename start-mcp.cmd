@@ -1,4 +1,10 @@
 @echo off
 set JAVA_HOME=C:\Program Files\Java\jdk-17
 set PATH=%JAVA_HOME%\bin;%PATH%
-java -Dfile.encoding=UTF-8 -Dstdout.encoding=UTF-8 -jar "%~dp0yacy-mcp.jar"
+set MCP_FAST_START=true
+rem Prefer the AppCDS build (mvn package -Pappcds) when present; JVM warnings go to stderr, never stdout
+if exist "%~dp0target\cds\yacy-mcp.jsa" (
+    java -XX:SharedArchiveFile="%~dp0target\cds\yacy-mcp.jsa" -Xlog:disable -Xlog:all=warning:stderr -Dfile.encoding=UTF-8 -Dstdout.encoding=UTF-8 -jar "%~dp0target\cds\yacy-mcp.jar"
+) else (
+    java -Dfile.encoding=UTF-8 -Dstdout.encoding=UTF-8 -jar "%~dp0yacy-mcp.jar"
+)